@@ -25,6 +25,8 @@ export default class Flamegraph {
 
     static FRAME_HEIGHT = 20;
 
+    static COLLAPSED_TYPE = 'COLLAPSED_SYNTHETIC'
+
     depth = null;
 
     // set up by draw function
@@ -48,6 +50,9 @@ export default class Flamegraph {
     tooltipType = FlamegraphTooltips.BASIC
     useWeight = false
 
+    // loads the subtree of the frame (by its ID) that contains the frames collapsed by the server
+    subtreeLoader = null
+
     constructor(data, canvasElementId, contextMenu, eventType, useWeight, graphType) {
         this.depth = data.depth;
         this.levels = data.levels;
@@ -128,7 +133,7 @@ export default class Flamegraph {
                     this.canvas.style.cursor = 'pointer';
                     this.canvas.onclick = () => {
                         if (frame !== this.currentRoot) {
-                            this.#draw(frame, level, this.currentPattern);
+                            this.#zoom(frame, level);
                         }
                     };
                     return;
@@ -295,6 +300,71 @@ export default class Flamegraph {
         this.#draw(this.levels[0][0], 0, this.currentPattern);
     }
 
+    setSubtreeLoader(subtreeLoader) {
+        this.subtreeLoader = subtreeLoader
+    }
+
+    #zoom(frame, level) {
+        if (this.subtreeLoader == null || frame.expanded || !this.#hasCollapsedFrames(frame, level)) {
+            this.#draw(frame, level, this.currentPattern);
+            return
+        }
+
+        this.subtreeLoader(frame.id)
+            .then((subtree) => {
+                this.#replaceSubtree(frame, level, subtree)
+                this.#draw(frame, level, this.currentPattern);
+            })
+    }
+
+    #hasCollapsedFrames(frame, level) {
+        for (let l = level + 1; l < this.levels.length; l++) {
+            for (const child of this.levels[l]) {
+                if (child.type === Flamegraph.COLLAPSED_TYPE && Flamegraph.#isInside(frame, child)) {
+                    return true
+                }
+            }
+        }
+        return false
+    }
+
+    // Replaces the frames below the given frame with the frames from the subtree (generated with the frame as a root)
+    #replaceSubtree(frame, level, subtree) {
+        for (let l = 1; l < subtree.levels.length; l++) {
+            const target = level + l
+            if (target >= this.levels.length) {
+                this.levels.push([])
+            }
+
+            const frames = this.levels[target]
+            const replaced = subtree.levels[l].map((child) => {
+                child.leftSamples += frame.leftSamples
+                child.leftWeight += frame.leftWeight
+                return child
+            })
+
+            let start = frames.findIndex((f) => f.leftSamples >= frame.leftSamples)
+            start = start === -1 ? frames.length : start
+            let end = start
+            while (end < frames.length && Flamegraph.#isInside(frame, frames[end])) {
+                end++
+            }
+            frames.splice(start, end - start, ...replaced)
+        }
+
+        frame.expanded = true
+        if (this.levels.length > this.depth) {
+            this.depth = this.levels.length
+            this.canvas.style.height = Math.min(this.depth * Flamegraph.FRAME_HEIGHT, 5000) + "px"
+            this.resizeCanvas(this.canvas.offsetWidth, this.canvas.offsetHeight)
+        }
+    }
+
+    static #isInside(parent, frame) {
+        return frame.leftSamples >= parent.leftSamples
+            && frame.leftSamples < parent.leftSamples + parent.totalSamples
+    }
+
     #draw(root, rootLevel, pattern) {
         this.clearCanvas();
         this.visibleFrames = Flamegraph.initializeLevels(this.depth);
@@ -0,0 +1,204 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Decodes the compact binary flamegraph format (see FlameGraphBinaryWriter on the server side) into the same
+ * structure as the JSON format: { depth, levels: [[frame, ...], ...] }.
+ */
+export default class FlamegraphDecoder {
+
+    static MEDIA_TYPE = 'application/x-jeffrey-flamegraph';
+    static VERSION = 2;
+
+    static decode(buffer) {
+        return new FlamegraphDecoder(new Uint8Array(buffer)).#decode();
+    }
+
+    #bytes;
+    #position = 0;
+    #strings = [];
+    #frameTypes = [];
+    #textDecoder = new TextDecoder();
+
+    constructor(bytes) {
+        this.#bytes = bytes;
+    }
+
+    #decode() {
+        const bytes = this.#bytes;
+        if (bytes.length < 5 || bytes[0] !== 0x4A || bytes[1] !== 0x46 || bytes[2] !== 0x47 || bytes[3] !== 0x42) {
+            throw new Error('Invalid binary flamegraph: missing header');
+        }
+        const version = bytes[4];
+        if (version !== FlamegraphDecoder.VERSION) {
+            throw new Error('Unsupported version of the binary flamegraph: ' + version);
+        }
+        this.#position = 5;
+
+        const depth = this.#readVarint();
+        const levels = new Array(depth);
+        for (let level = 0; level < depth; level++) {
+            levels[level] = this.#readLevel();
+        }
+        return {depth: depth, levels: levels};
+    }
+
+    #readLevel() {
+        const size = this.#readVarint();
+        const frames = new Array(size);
+
+        for (let i = 0; i < size; i++) {
+            frames[i] = {id: this.#readVarint()};
+        }
+        let left = 0;
+        for (let i = 0; i < size; i++) {
+            left += this.#readVarint();
+            frames[i].leftSamples = left;
+        }
+        left = 0;
+        for (let i = 0; i < size; i++) {
+            left += this.#readVarint();
+            frames[i].leftWeight = left;
+        }
+        for (let i = 0; i < size; i++) {
+            frames[i].totalSamples = this.#readVarint();
+        }
+        for (let i = 0; i < size; i++) {
+            frames[i].totalWeight = this.#readVarint();
+        }
+        for (let i = 0; i < size; i++) {
+            frames[i].selfSamples = this.#readVarint();
+        }
+        for (let i = 0; i < size; i++) {
+            frames[i].selfWeight = this.#readVarint();
+        }
+        for (let i = 0; i < size; i++) {
+            const frameType = this.#readFrameType();
+            frames[i].type = frameType.name;
+            frames[i].typeTitle = frameType.title;
+        }
+        for (let i = 0; i < size; i++) {
+            frames[i].title = this.#readString();
+        }
+        for (let i = 0; i < size; i++) {
+            const color = this.#readString();
+            frames[i].colorSamples = color;
+            frames[i].colorWeight = color;
+        }
+
+        const bci = new Array(size);
+        for (let i = 0; i < size; i++) {
+            bci[i] = this.#readZigZag();
+        }
+        for (let i = 0; i < size; i++) {
+            const line = this.#readZigZag();
+            frames[i].position = FlamegraphDecoder.#toPosition(bci[i], line);
+        }
+
+        const inlined = this.#readColumn(size);
+        const c1 = this.#readColumn(size);
+        const interpreted = this.#readColumn(size);
+        const jit = this.#readColumn(size);
+        for (let i = 0; i < size; i++) {
+            frames[i].sampleTypes = FlamegraphDecoder.#toSampleTypes(inlined[i], c1[i], interpreted[i], jit[i]);
+        }
+        return frames;
+    }
+
+    static #toPosition(bci, line) {
+        if (bci === 0) {
+            return null;
+        }
+        const position = {};
+        if (bci > 0) {
+            position.bci = bci;
+        }
+        if (line > 0) {
+            position.line = line;
+        }
+        return position;
+    }
+
+    static #toSampleTypes(inlined, c1, interpreted, jit) {
+        if (inlined === 0 && c1 === 0 && interpreted === 0 && jit === 0) {
+            return null;
+        }
+        const sampleTypes = {};
+        if (inlined > 0) {
+            sampleTypes.inlined = inlined;
+        }
+        if (c1 > 0) {
+            sampleTypes.c1 = c1;
+        }
+        if (interpreted > 0) {
+            sampleTypes.interpret = interpreted;
+        }
+        if (jit > 0) {
+            sampleTypes.jit = jit;
+        }
+        return sampleTypes;
+    }
+
+    #readColumn(size) {
+        const column = new Array(size);
+        for (let i = 0; i < size; i++) {
+            column[i] = this.#readVarint();
+        }
+        return column;
+    }
+
+    #readFrameType() {
+        const reference = this.#readVarint();
+        if (reference < this.#frameTypes.length) {
+            return this.#frameTypes[reference];
+        }
+        const frameType = {name: this.#readString(), title: this.#readString()};
+        this.#frameTypes.push(frameType);
+        return frameType;
+    }
+
+    #readString() {
+        const reference = this.#readVarint();
+        if (reference < this.#strings.length) {
+            return this.#strings[reference];
+        }
+        const length = this.#readVarint();
+        const value = this.#textDecoder.decode(this.#bytes.subarray(this.#position, this.#position + length));
+        this.#position += length;
+        this.#strings.push(value);
+        return value;
+    }
+
+    #readZigZag() {
+        const value = this.#readVarint();
+        return value % 2 === 0 ? value / 2 : -(value + 1) / 2;
+    }
+
+    // Bitwise operators in JS work with 32-bit integers only, the values (e.g. allocated bytes) can be bigger.
+    #readVarint() {
+        let result = 0;
+        let multiplier = 1;
+        let b;
+        do {
+            b = this.#bytes[this.#position++];
+            result += (b & 0x7F) * multiplier;
+            multiplier *= 128;
+        } while (b & 0x80);
+        return result;
+    }
+}
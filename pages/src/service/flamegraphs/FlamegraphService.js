@@ -22,9 +22,28 @@ import HttpUtils from '@/service/HttpUtils';
 import GraphType from "@/service/flamegraphs/GraphType";
 import CompressionUtils from "@/service/CompressionUtils";
 import ReplaceableToken from "@/service/replace/ReplaceableToken";
+import FlamegraphDecoder from "@/service/flamegraphs/FlamegraphDecoder";
 
 export default class FlamegraphService {
 
+    // Prefers the compact binary format, the server falls back to JSON for graphs that don't support it
+    static GENERATE_HEADERS = {
+        headers: {
+            'Content-Type': 'application/json',
+            Accept: FlamegraphDecoder.MEDIA_TYPE + ', application/json'
+        },
+        responseType: 'arraybuffer'
+    };
+
+    static DECODE_GRAPH = function (response) {
+        const contentType = response.headers['content-type'];
+        if (contentType && contentType.startsWith(FlamegraphDecoder.MEDIA_TYPE)) {
+            return FlamegraphDecoder.decode(response.data);
+        } else {
+            return JSON.parse(new TextDecoder().decode(response.data));
+        }
+    };
+
     constructor(primaryProfileId, secondaryProfileId, eventType, useThreadMode, useWeight, graphType, generated) {
         this.primaryProfileId = primaryProfileId;
         this.secondaryProfileId = secondaryProfileId;
@@ -77,8 +96,22 @@ export default class FlamegraphService {
             useThreadMode: this.useThreadMode
         };
 
-        return axios.post(GlobalVars.url + '/flamegraph/generate', content, HttpUtils.JSON_HEADERS)
-            .then(HttpUtils.RETURN_DATA);
+        return axios.post(GlobalVars.url + '/flamegraph/generate', content, FlamegraphService.GENERATE_HEADERS)
+            .then(FlamegraphService.DECODE_GRAPH);
+    }
+
+    // Subtree of the frame with all the frames that were collapsed in the generated flamegraph
+    generateSubtree(timeRange, frameId) {
+        const content = {
+            primaryProfileId: this.primaryProfileId,
+            eventType: this.eventType,
+            timeRange: timeRange,
+            useThreadMode: this.useThreadMode,
+            frameId: frameId
+        };
+
+        return axios.post(GlobalVars.url + '/flamegraph/subtree', content, FlamegraphService.GENERATE_HEADERS)
+            .then(FlamegraphService.DECODE_GRAPH);
     }
 
     #generateDiff(timeRange) {
@@ -89,8 +122,8 @@ export default class FlamegraphService {
             eventType: this.eventType,
         };
 
-        return axios.post(GlobalVars.url + '/flamegraph/generate/diff', content, HttpUtils.JSON_HEADERS)
-            .then(HttpUtils.RETURN_DATA);
+        return axios.post(GlobalVars.url + '/flamegraph/generate/diff', content, FlamegraphService.GENERATE_HEADERS)
+            .then(FlamegraphService.DECODE_GRAPH);
     }
 
     // Used for generated flamegraph (e.g. command-line tool)
@@ -0,0 +1,85 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Decodes the compact heatmap data (see HeatmapEncoding on the server side) into the series of the heatmap graph.
+ * The values are written row by row as blocks of unsigned varints:
+ * [number of zero values] [number of non-zero values] [non-zero value]...
+ */
+export default class HeatmapDecoder {
+
+    static ENCODING = 'rle-varint'
+
+    static decode(data) {
+        if (data.encoding !== HeatmapDecoder.ENCODING) {
+            throw new Error('Unsupported encoding of the heatmap: ' + data.encoding)
+        }
+
+        const values = HeatmapDecoder.#decodeValues(data.data, data.rows * data.columns)
+
+        // Columns are labeled by their position from the start of the profile, not from the start of the page
+        const firstColumn = Math.floor(data.startTime / data.columnSize)
+
+        const series = []
+        if (data.columns > 0) {
+            for (let row = 0; row < data.rows; row++) {
+                const cells = new Array(data.columns)
+                for (let column = 0; column < data.columns; column++) {
+                    cells[column] = {
+                        x: String(firstColumn + column + 1),
+                        y: values[row * data.columns + column]
+                    }
+                }
+                series.push({name: String(row * data.bucketSize), data: cells})
+            }
+        }
+
+        data.series = series
+        delete data.data
+        return data
+    }
+
+    static #decodeValues(base64, cells) {
+        const decoded = window.atob(base64)
+        const values = new Float64Array(cells)
+
+        let position = 0
+        const readVarint = () => {
+            // Multiplication instead of bit shifts, the values can be bigger than 32 bits
+            let value = 0
+            let multiplier = 1
+            let byte
+            do {
+                byte = decoded.charCodeAt(position++)
+                value += (byte & 0x7F) * multiplier
+                multiplier *= 128
+            } while (byte & 0x80)
+            return value
+        }
+
+        let cell = 0
+        while (cell < cells) {
+            cell += readVarint()
+            const count = readVarint()
+            for (let i = 0; i < count; i++) {
+                values[cell++] = readVarint()
+            }
+        }
+        return values
+    }
+}
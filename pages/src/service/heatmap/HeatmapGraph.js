@@ -22,21 +22,28 @@ export default class HeatmapGraph {
 
     firstSelected = null;
     sizeX = null;
-    sizeY = 50;
+    sizeY = null;
     matrix = null;
     _rect = null;
     highlightedAreas = null;
     strokeWidth = null;
     scrollerElement = null
     maxValue = null
-    millisInBucket = 20
+    millisInBucket = null
+    millisInColumn = null
+    startTime = null
     elementQueryId = null
     elementHeatmaps = null
     heatmapTooltip;
 
     constructor(elementId, data, elementHeatmaps, selectedCallback, heatmapTooltip) {
         this.heatmapTooltip = heatmapTooltip;
-        this.sizeX = data.series[0].data.length;
+        this.sizeX = data.series.length > 0 ? data.series[0].data.length : 0;
+        this.sizeY = data.series.length;
+        this.millisInBucket = data.bucketSize
+        this.millisInColumn = data.columnSize
+        // start of the first column relative to the start of the profile (the heatmap can be a page of the profile)
+        this.startTime = data.startTime
         this.maxValue = data.maxvalue
         this.data = data
         this.selectedCallback = selectedCallback;
@@ -54,6 +61,11 @@ export default class HeatmapGraph {
 
     render() {
         this.heatmap.render();
+        // no events in the time window, nothing to select
+        if (this.sizeX === 0) {
+            return;
+        }
+
         this.matrix = document.querySelector(this.elementQueryId + ' g[class=\'apexcharts-heatmap\']').children;
 
         this.#setupTooltipPositionAndStyle()
@@ -132,13 +144,11 @@ export default class HeatmapGraph {
             },
             tooltip: {
                 custom: ({series, seriesIndex, dataPointIndex, w}) => {
-                    const timeBucket = (seriesIndex * 20)
-
                     if (w.globals.seriesNames[seriesIndex] !== '') {
                         const value = series[seriesIndex][dataPointIndex]
-                        const second = dataPointIndex
-                        const millis = `${timeBucket}-${timeBucket + 20}`;
-                        return this.heatmapTooltip.generate(value, second, millis)
+                        const start = this.#toSecondsAndMillis(this.#cellStartMillis(dataPointIndex, seriesIndex))
+                        const millis = `${start[1]}-${start[1] + this.millisInBucket}`;
+                        return this.heatmapTooltip.generate(value, start[0], millis)
                     } else {
                         return '';
                     }
@@ -267,17 +277,20 @@ export default class HeatmapGraph {
         }
     }
 
-    #calculateStartTime(second, millis) {
-        return [second, millis * this.millisInBucket];
+    #calculateStartTime(column, row) {
+        return this.#toSecondsAndMillis(this.#cellStartMillis(column, row));
     }
 
-    #calculateEndTime(second, millis) {
-        let endTimeMillis = (millis * this.millisInBucket) + this.millisInBucket;
-        if (endTimeMillis >= 1000) {
-            return [second + 1, 0];
-        } else {
-            return [second, endTimeMillis];
-        }
+    #calculateEndTime(column, row) {
+        return this.#toSecondsAndMillis(this.#cellStartMillis(column, row) + this.millisInBucket);
+    }
+
+    #cellStartMillis(column, row) {
+        return this.startTime + (column * this.millisInColumn) + (row * this.millisInBucket);
+    }
+
+    #toSecondsAndMillis(millis) {
+        return [Math.floor(millis / 1000), millis % 1000];
     }
 
     #removeCellSelection(row, column) {
@@ -21,6 +21,7 @@ import axios from 'axios';
 import HttpUtils from '@/service/HttpUtils';
 import CompressionUtils from "@/service/CompressionUtils";
 import ReplaceableToken from "@/service/replace/ReplaceableToken";
+import HeatmapDecoder from "@/service/heatmap/HeatmapDecoder";
 
 export default class SubSecondService {
 
@@ -32,36 +33,43 @@ export default class SubSecondService {
         this.generated = generated;
     }
 
-    primaryStartup() {
+    /*
+     * The heatmap is generated in time windows (pages), the start of the page is relative to the start of the profile
+     * (in millis), the duration of the page is selected by the server. The generated heatmap (CLI) always contains
+     * the whole time window selected on the command line.
+     */
+    primaryStartup(start) {
         if (this.generated) {
             return this.#generateStatic(ReplaceableToken.SUBSECOND_PRIMARY)
         }
 
-        return this.#startup(this.primaryProfileId);
+        return this.#startup(this.primaryProfileId, start);
     }
 
-    secondaryStartup() {
+    secondaryStartup(start) {
         if (this.generated) {
             return this.#generateStatic(ReplaceableToken.SUBSECOND_SECONDARY)
         }
 
-        return this.#startup(this.secondaryProfileId);
+        return this.#startup(this.secondaryProfileId, start);
     }
 
     // Used for generated flamegraph (e.g. command-line tool)
     #generateStatic(token) {
         const data = CompressionUtils.decodeAndDecompress(token)
-        return Promise.resolve(JSON.parse(data))
+        return Promise.resolve(HeatmapDecoder.decode(JSON.parse(data)))
     }
 
-    #startup(profileId) {
+    #startup(profileId, start) {
         const content = {
             profileId: profileId,
             eventType: this.eventType,
-            useWeight: this.useWeight
+            useWeight: this.useWeight,
+            start: start
         };
 
         return axios.post(GlobalVars.url + '/subsecond/startup', content, HttpUtils.JSON_HEADERS)
-            .then(HttpUtils.RETURN_DATA);
+            .then(HttpUtils.RETURN_DATA)
+            .then((data) => HeatmapDecoder.decode(data));
     }
 }
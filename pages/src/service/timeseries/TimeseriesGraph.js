@@ -55,6 +55,15 @@ export default class TimeseriesGraph {
         this.chart.updateSeries(series, false)
     }
 
+    // Series of the zoomed range in a finer resolution, the original series are kept for resetting the zoom
+    zoomedSeries(series) {
+        this.chart.updateSeries(series, false, false)
+
+        if (this.currentZoom != null) {
+            this.chart.zoomX(this.currentZoom.min, this.currentZoom.max)
+        }
+    }
+
     resetSearch() {
         this.chart.updateSeries(this.originalSeries, false)
 
@@ -113,6 +122,13 @@ export default class TimeseriesGraph {
                 },
                 events: {
                     zoomed: (chartContext, {xaxis, yaxis}) => {
+                        // Restoring the current zoom after the series are updated
+                        if (this.currentZoom != null
+                            && this.currentZoom.min === xaxis.min
+                            && this.currentZoom.max === xaxis.max) {
+                            return
+                        }
+
                         this.currentZoom = {min: xaxis.min, max: xaxis.max}
                         zoomCallback(xaxis.min, xaxis.max)
                     }
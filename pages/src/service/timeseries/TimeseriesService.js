@@ -34,50 +34,54 @@ export default class TimeseriesService {
         this.generated = generated;
     }
 
-    generateWithSearch(search) {
+    generateWithSearch(search, timeRange) {
         const content = {
             primaryProfileId: this.primaryProfileId,
             eventType: this.eventType,
             search: search,
-            useWeight: this.useWeight
+            useWeight: this.useWeight,
+            timeRange: timeRange
         };
 
         return axios.post(GlobalVars.url + '/timeseries/generate/complete/search', content, HttpUtils.JSON_HEADERS)
             .then(HttpUtils.RETURN_DATA);
     }
 
-    generate() {
+    // Time range is optional (the whole profile), the series are downsampled on the server to fit the chart
+    generate(timeRange) {
         if (this.generated) {
             return this.#generateStatic();
         }
 
         if (this.graphType === GraphType.PRIMARY) {
-            return this.#generatePrimary()
+            return this.#generatePrimary(timeRange)
         } else if (this.graphType === GraphType.DIFFERENTIAL) {
-            return this.#generateDiff();
+            return this.#generateDiff(timeRange);
         } else {
             console.log("Unknown graph-type: " + this.graphType);
             return null
         }
     }
 
-    #generatePrimary() {
+    #generatePrimary(timeRange) {
         const content = {
             primaryProfileId: this.primaryProfileId,
             eventType: this.eventType,
-            useWeight: this.useWeight
+            useWeight: this.useWeight,
+            timeRange: timeRange
         };
 
         return axios.post(GlobalVars.url + '/timeseries/generate/complete', content, HttpUtils.JSON_HEADERS)
             .then(HttpUtils.RETURN_DATA);
     }
 
-    #generateDiff() {
+    #generateDiff(timeRange) {
         const content = {
             primaryProfileId: this.primaryProfileId,
             secondaryProfileId: this.secondaryProfileId,
             eventType: this.eventType,
-            useWeight: this.useWeight
+            useWeight: this.useWeight,
+            timeRange: timeRange
         };
 
         return axios.post(GlobalVars.url + '/timeseries/generate/diff', content, HttpUtils.JSON_HEADERS)
@@ -24,21 +24,27 @@ import pbouda.jeffrey.cli.replacer.ContentReplacer;
 import pbouda.jeffrey.cli.replacer.FlamegraphContentReplacer;
 import pbouda.jeffrey.common.*;
 import pbouda.jeffrey.generator.flamegraph.GraphGenerator;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 import pbouda.jeffrey.generator.timeseries.api.TimeseriesGenerator;
 import pbouda.jeffrey.generator.timeseries.api.TimeseriesGeneratorImpl;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import picocli.CommandLine.Option;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.function.Function;
 
 public abstract class AbstractFlameCommand implements Runnable {
 
+    protected final DecompressedRecordingCache recordingCache = DecompressedRecordingCache.inTempDirectory();
     private final GraphType graphType;
     private final GraphGenerator generator;
 
-    public AbstractFlameCommand(GraphType graphType, GraphGenerator generator) {
+    public AbstractFlameCommand(
+            GraphType graphType, Function<DecompressedRecordingCache, GraphGenerator> generatorFactory) {
+
         this.graphType = graphType;
-        this.generator = generator;
+        this.generator = generatorFactory.apply(recordingCache);
     }
 
     @Option(
@@ -95,11 +101,11 @@ public abstract class AbstractFlameCommand implements Runnable {
                 .withTimeRange(timeRange)
                 .build();
 
-        JsonNode flamegraphData = generator.generate(config);
+        GraphOutput flamegraphData = generator.generate(config);
 
         String content;
         if (withTimeseries) {
-            TimeseriesGenerator timeseriesGenerator = new TimeseriesGeneratorImpl();
+            TimeseriesGenerator timeseriesGenerator = new TimeseriesGeneratorImpl(recordingCache);
             JsonNode timeseriesData = timeseriesGenerator.generate(config);
             content = FlamegraphContentReplacer.withTimeseries(
                     graphType, flamegraphData, timeseriesData, eventType);
@@ -24,6 +24,7 @@ import pbouda.jeffrey.generator.basic.ProfilingStartTimeProcessor;
 import pbouda.jeffrey.generator.subsecond.SubSecondConfig;
 import pbouda.jeffrey.generator.subsecond.SubSecondConfigBuilder;
 import pbouda.jeffrey.generator.subsecond.api.SubSecondGeneratorImpl;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
 import picocli.CommandLine.Option;
 
@@ -50,15 +51,39 @@ public abstract class AbstractSubSecondCommand implements Runnable {
             description = "Uses event's weight instead of # of samples (currently supported: jdk.ObjectAllocationSample, jdk.ObjectAllocationInNewTLAB, jdk.ObjectAllocationOutsideTLAB, jdk.ThreadPark, jdk.JavaMonitorWait, jdk.JavaMonitorEnter)")
     boolean weight = false;
 
+    @Option(
+            names = {"--start-time"},
+            description = "Relative start in milliseconds from the beginning of the JFR file (default is the beginning)")
+    long startTime = 0;
+
+    @Option(
+            names = {"--duration"},
+            description = "Duration in milliseconds of the generated graph (default is the whole JFR file)")
+    long duration = 0;
+
+    @Option(
+            names = {"--bucket-size"},
+            description = "Size of the single bucket (row) in milliseconds, from 1 to 1000 (default is 20)")
+    long bucketSize = 20;
+
+    @Option(
+            names = {"--column-size"},
+            description = "Size of the single column in milliseconds, a multiple of the bucket size (default is 1000)")
+    long columnSize = 1000;
+
     protected final JsonNode generateData(Path recording) {
-        var startTime = RecordingIterators.fileOrDirAndCollectIdentical(recording, new ProfilingStartTimeProcessor());
+        DecompressedRecordingCache recordingCache = DecompressedRecordingCache.inTempDirectory();
+        var profilingStart = RecordingIterators.fileOrDirAndCollectIdentical(
+                recording, new ProfilingStartTimeProcessor(), recordingCache);
 
         SubSecondConfigBuilder configBuilder = SubSecondConfig.builder()
                 .withEventType(Type.fromCode(eventType))
                 .withCollectWeight(weight)
-                .withDuration(Duration.ofMinutes(5))
-                .withProfilingStart(startTime)
-                .withGeneratingStart(Duration.ZERO);
+                .withDuration(Duration.ofMillis(duration))
+                .withBucketSize(Duration.ofMillis(bucketSize))
+                .withColumnSize(Duration.ofMillis(columnSize))
+                .withProfilingStart(profilingStart)
+                .withGeneratingStart(Duration.ofMillis(startTime));
 
         if (Files.isDirectory(recording)) {
             configBuilder.withRecordingDir(recording);
@@ -66,6 +91,6 @@ public abstract class AbstractSubSecondCommand implements Runnable {
             configBuilder.withRecording(recording);
         }
 
-        return new SubSecondGeneratorImpl().generate(configBuilder.build());
+        return new SubSecondGeneratorImpl(recordingCache).generate(configBuilder.build());
     }
 }
@@ -18,8 +18,7 @@
 
 package pbouda.jeffrey.cli.commands;
 
-import pbouda.jeffrey.tools.api.JfrTool;
-import pbouda.jeffrey.tools.impl.jdk.JdkJfrTool;
+import pbouda.jeffrey.tools.impl.chunk.ChunkSplitter;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
 
@@ -62,9 +61,8 @@ public class DisassembleCommand implements Runnable {
                 }
             }
 
-            JfrTool jfrTool = new JdkJfrTool();
-            jfrTool.initialize();
-            jfrTool.disassemble(jfrPath, outputPath);
+            // Every chunk is written into its own file
+            new ChunkSplitter(0).split(jfrPath, outputPath);
         } catch (Exception e) {
             System.out.println("Error: " + e.getMessage());
         }
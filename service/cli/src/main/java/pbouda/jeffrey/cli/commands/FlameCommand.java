@@ -43,7 +43,7 @@ public class FlameCommand extends AbstractFlameCommand {
     public static final String COMMAND_NAME = "flame";
 
     public FlameCommand() {
-        super(GraphType.PRIMARY, new FlamegraphGeneratorImpl());
+        super(GraphType.PRIMARY, FlamegraphGeneratorImpl::new);
     }
 
     @Parameters(paramLabel = "<jfr_file>", description = "one JFR file for fetching events", arity = "1")
@@ -70,7 +70,7 @@ public class FlameCommand extends AbstractFlameCommand {
         CommandUtils.checkPathExists(primaryPath);
 
         var primaryStartTime = RecordingIterators.fileOrDirAndCollectIdentical(
-                primaryPath, new ProfilingStartTimeProcessor());
+                primaryPath, new ProfilingStartTimeProcessor(), recordingCache);
 
         ConfigBuilder<?> builder = Config.primaryBuilder()
                 .withPrimaryStart(primaryStartTime)
@@ -41,7 +41,7 @@ public class FlameDiffCommand extends AbstractFlameCommand {
     File[] file;
 
     public FlameDiffCommand() {
-        super(GraphType.DIFFERENTIAL, new DiffgraphGeneratorImpl());
+        super(GraphType.DIFFERENTIAL, DiffgraphGeneratorImpl::new);
     }
 
     @Override
@@ -55,9 +55,9 @@ public class FlameDiffCommand extends AbstractFlameCommand {
         CommandUtils.bothFileOrDirectory(primaryPath, secondaryPath);
 
         var primaryStartTime = RecordingIterators.fileOrDirAndCollectIdentical(
-                primaryPath, new ProfilingStartTimeProcessor());
+                primaryPath, new ProfilingStartTimeProcessor(), recordingCache);
         var secondaryStartTime = RecordingIterators.fileOrDirAndCollectIdentical(
-                secondaryPath, new ProfilingStartTimeProcessor());
+                secondaryPath, new ProfilingStartTimeProcessor(), recordingCache);
 
         DiffConfigBuilder configBuilder = Config.differentialBuilder()
                 .withPrimaryRecording(primaryPath)
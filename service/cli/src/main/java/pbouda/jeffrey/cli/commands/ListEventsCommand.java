@@ -21,6 +21,7 @@ package pbouda.jeffrey.cli.commands;
 import pbouda.jeffrey.common.FileUtils;
 import pbouda.jeffrey.generator.basic.event.EventSummary;
 import pbouda.jeffrey.generator.basic.info.EventInformationProvider;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
 
@@ -49,7 +50,7 @@ public class ListEventsCommand implements Runnable {
                 : List.of(recording);
 
         try {
-            List<EventSummary> eventSummaries = new EventInformationProvider(recordings).get()
+            List<EventSummary> eventSummaries = new EventInformationProvider(recordings, DecompressedRecordingCache.inTempDirectory()).get()
                     .stream()
                     .sorted(Comparator.comparing(EventSummary::samples).reversed())
                     .toList();
@@ -31,7 +31,7 @@ import java.nio.file.Path;
 
 @Command(
         name = SubSecondDiffCommand.COMMAND_NAME,
-        description = "Generates Differential Sub-Second graph (the first 5 minutes)",
+        description = "Generates Differential Sub-Second graph (the whole recording by default, see --start-time and --duration)",
         mixinStandardHelpOptions = true)
 public class SubSecondDiffCommand extends AbstractSubSecondCommand {
 
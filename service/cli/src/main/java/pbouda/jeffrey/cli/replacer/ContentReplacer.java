@@ -21,8 +21,13 @@ package pbouda.jeffrey.cli.replacer;
 import com.fasterxml.jackson.databind.JsonNode;
 import pbouda.jeffrey.common.CompressionUtils;
 import pbouda.jeffrey.common.Json;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
 
 public abstract class ContentReplacer {
 
@@ -46,4 +51,14 @@ public abstract class ContentReplacer {
         byte[] compressed = CompressionUtils.compressGzip(Json.toByteArray(data));
         return BASE64_ENCODER.encodeToString(compressed);
     }
+
+    public static String compressAndEncode(GraphOutput data) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            data.writeTo(gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return BASE64_ENCODER.encodeToString(compressed.toByteArray());
+    }
 }
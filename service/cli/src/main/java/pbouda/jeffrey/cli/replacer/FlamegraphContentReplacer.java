@@ -21,6 +21,7 @@ package pbouda.jeffrey.cli.replacer;
 import com.fasterxml.jackson.databind.JsonNode;
 import pbouda.jeffrey.common.GraphType;
 import pbouda.jeffrey.common.ResourceUtils;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 
 public abstract class FlamegraphContentReplacer {
 
@@ -30,7 +31,7 @@ public abstract class FlamegraphContentReplacer {
     private static final String TIMESERIES_TOKEN = "{{REPLACE_TIMESERIES}}";
 
     public static String flamegraphOnly(
-            GraphType graphType, JsonNode flamegraph, String eventType) {
+            GraphType graphType, GraphOutput flamegraph, String eventType) {
 
         String compressedFlamegraph = ContentReplacer.compressAndEncode(flamegraph);
 
@@ -42,7 +43,7 @@ public abstract class FlamegraphContentReplacer {
     }
 
     public static String withTimeseries(
-            GraphType graphType, JsonNode flamegraph, JsonNode timeseries, String eventType) {
+            GraphType graphType, GraphOutput flamegraph, JsonNode timeseries, String eventType) {
 
         String compressedFlamegraph = ContentReplacer.compressAndEncode(flamegraph);
         String compressedTimeseries = ContentReplacer.compressAndEncode(timeseries);
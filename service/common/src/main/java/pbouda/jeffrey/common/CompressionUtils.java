@@ -18,14 +18,95 @@
 
 package pbouda.jeffrey.common;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public abstract class CompressionUtils {
 
+    /**
+     * Extension of the gzip-compressed files (e.g. {@code recording.jfr.gz}).
+     */
+    public static final String GZIP_EXTENSION = ".gz";
+
+    /**
+     * Compressions of the recordings that are recognized, but they cannot be decompressed without
+     * an additional library.
+     */
+    private static final List<String> UNSUPPORTED_EXTENSIONS = List.of(".zst", ".lz4");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static boolean isCompressed(Path path) {
+        return path.getFileName().toString().endsWith(GZIP_EXTENSION);
+    }
+
+    /**
+     * Opens the file for reading, the content of the compressed file is decompressed while it's being read.
+     *
+     * @param file compressed or uncompressed file.
+     * @return stream of the uncompressed content.
+     */
+    public static InputStream decompressing(Path file) throws IOException {
+        String filename = file.getFileName().toString();
+        for (String extension : UNSUPPORTED_EXTENSIONS) {
+            if (filename.endsWith(extension)) {
+                throw new IllegalArgumentException(
+                        "Unsupported compression of the file, only gzip is supported: " + file);
+            }
+        }
+
+        InputStream input = Files.newInputStream(file);
+        try {
+            return isCompressed(file)
+                    ? decompressingGzip(input)
+                    : new BufferedInputStream(input, BUFFER_SIZE);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    public static OutputStream compressingGzip(OutputStream output) throws IOException {
+        return new GZIPOutputStream(output, BUFFER_SIZE);
+    }
+
+    public static InputStream decompressingGzip(InputStream input) throws IOException {
+        return new GZIPInputStream(input, BUFFER_SIZE);
+    }
+
+    /**
+     * Decompresses the whole file into the target file, the target file is replaced atomically
+     * (no one can see a partially decompressed file).
+     *
+     * @param source compressed file.
+     * @param target target file of the uncompressed content.
+     */
+    public static void decompress(Path source, Path target) {
+        Path tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+        try (InputStream input = decompressing(source)) {
+            Files.copy(input, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw new RuntimeException("Cannot decompress the file: " + source, e);
+        }
+    }
+
     public static byte[] compressGzip(String content) {
         return compressGzip(content.getBytes(StandardCharsets.UTF_8));
     }
@@ -18,9 +18,17 @@
 
 package pbouda.jeffrey.common;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Objects;
 
 public record Config(
         Type type,
@@ -33,9 +41,12 @@ public record Config(
         Instant secondaryStart,
         AbsoluteTimeRange primaryTimeRange,
         AbsoluteTimeRange secondaryTimeRange,
-        String searchPattern,
+        List<String> searchPatterns,
         boolean threadMode,
-        boolean collectWeight) {
+        boolean collectWeight,
+        Path primaryEventIndex,
+        double minFrameRatio,
+        Long subtreeId) {
 
     public enum Type {
         PRIMARY, DIFFERENTIAL
@@ -48,12 +59,76 @@ public record Config(
             pbouda.jeffrey.common.Type eventType,
             Instant primaryStart,
             AbsoluteTimeRange primaryTimeRange,
-            String searchPattern,
+            List<String> searchPatterns,
             boolean threadMode,
-            boolean collectWeight) {
+            boolean collectWeight,
+            Path primaryEventIndex,
+            double minFrameRatio,
+            Long subtreeId) {
 
         this(type, primaryId, null, primaryRecordings, null, eventType, primaryStart, null, primaryTimeRange,
-                null, searchPattern, threadMode, collectWeight);
+                null, searchPatterns, threadMode, collectWeight, primaryEventIndex, minFrameRatio, subtreeId);
+    }
+
+    /**
+     * SHA-256 of all the values of the configuration, two configurations have the same fingerprint only if
+     * they generate the same output from the same recordings (e.g. it's a key of the cached graphs). The fingerprint
+     * is stable between the runs of the application (the event type is identified only by its code), and it contains
+     * the size and the last-modified time of the recordings, a recording changed in place gets a new fingerprint.
+     *
+     * @return hex-encoded fingerprint of the configuration.
+     */
+    public String fingerprint() {
+        List<Object> values = List.of(
+                type,
+                Objects.toString(primaryId),
+                Objects.toString(secondaryId),
+                recordingsFingerprint(primaryRecordings),
+                recordingsFingerprint(secondaryRecordings),
+                eventType == null ? "null" : eventType.code(),
+                Objects.toString(primaryStart),
+                Objects.toString(secondaryStart),
+                Objects.toString(primaryTimeRange),
+                Objects.toString(secondaryTimeRange),
+                Objects.toString(searchPatterns),
+                threadMode,
+                collectWeight,
+                Objects.toString(primaryEventIndex),
+                minFrameRatio,
+                Objects.toString(subtreeId));
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object value : values) {
+                digest.update(value.toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Cannot create a fingerprint of the configuration", e);
+        }
+    }
+
+    private static String recordingsFingerprint(List<Path> recordings) {
+        if (recordings == null) {
+            return "null";
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (Path recording : recordings) {
+            result.append(recording).append(':');
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(recording, BasicFileAttributes.class);
+                result.append(attributes.size())
+                        .append(':')
+                        .append(attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                // the generator fails on the missing recording, nothing is cached with this fingerprint
+                result.append("missing");
+            }
+            result.append(';');
+        }
+        return result.toString();
     }
 
     public static ConfigBuilder<?> primaryBuilder() {
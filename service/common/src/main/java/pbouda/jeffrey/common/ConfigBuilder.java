@@ -20,6 +20,7 @@ package pbouda.jeffrey.common;
 
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.List;
 
 @SuppressWarnings("unchecked")
 public class ConfigBuilder<T extends ConfigBuilder<?>> {
@@ -30,9 +31,12 @@ public class ConfigBuilder<T extends ConfigBuilder<?>> {
     Type eventType;
     Instant primaryStart;
     TimeRange timeRange;
-    String searchPattern;
+    List<String> searchPatterns;
     boolean threadMode;
     boolean collectWeight;
+    Path primaryEventIndex;
+    double minFrameRatio;
+    Long subtreeId;
 
     public ConfigBuilder() {
         this(Config.Type.PRIMARY);
@@ -73,7 +77,15 @@ public class ConfigBuilder<T extends ConfigBuilder<?>> {
     }
 
     public T withSearchPattern(String searchPattern) {
-        this.searchPattern = searchPattern;
+        this.searchPatterns = searchPattern == null ? null : List.of(searchPattern);
+        return (T) this;
+    }
+
+    /**
+     * Multiple patterns searched at once, e.g. the timeseries contains a separate series for every pattern.
+     */
+    public T withSearchPatterns(List<String> searchPatterns) {
+        this.searchPatterns = searchPatterns == null || searchPatterns.isEmpty() ? null : List.copyOf(searchPatterns);
         return (T) this;
     }
 
@@ -87,6 +99,35 @@ public class ConfigBuilder<T extends ConfigBuilder<?>> {
         return (T) this;
     }
 
+    /**
+     * Index of the events of the primary profile, generators read the index instead of parsing the recordings
+     * if the index exists.
+     */
+    public T withPrimaryEventIndex(Path eventIndex) {
+        this.primaryEventIndex = eventIndex;
+        return (T) this;
+    }
+
+    /**
+     * Frames having a lower fraction of samples of the (sub)tree's root are collapsed into a single synthetic frame,
+     * zero keeps all the frames.
+     */
+    public T withMinFrameRatio(double minFrameRatio) {
+        if (minFrameRatio < 0 || minFrameRatio >= 1) {
+            throw new IllegalArgumentException("`minFrameRatio` must be in the range [0, 1): " + minFrameRatio);
+        }
+        this.minFrameRatio = minFrameRatio;
+        return (T) this;
+    }
+
+    /**
+     * Generates only the subtree of the frame with the given ID (ID emitted in the generated flamegraph).
+     */
+    public T withSubtreeId(Long subtreeId) {
+        this.subtreeId = subtreeId;
+        return (T) this;
+    }
+
     protected AbsoluteTimeRange resolveTimeRange(Instant start) {
         return switch (timeRange) {
             case AbsoluteTimeRange tr -> tr;
@@ -105,8 +146,11 @@ public class ConfigBuilder<T extends ConfigBuilder<?>> {
                 eventType,
                 primaryStart,
                 resolveTimeRange(primaryStart),
-                searchPattern,
+                searchPatterns,
                 threadMode,
-                collectWeight);
+                collectWeight,
+                primaryEventIndex,
+                minFrameRatio,
+                subtreeId);
     }
 }
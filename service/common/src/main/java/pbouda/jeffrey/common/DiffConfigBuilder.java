@@ -76,8 +76,11 @@ public final class DiffConfigBuilder extends ConfigBuilder<DiffConfigBuilder> {
                 secondaryStart,
                 primaryRange,
                 secondaryRange,
-                searchPattern,
+                searchPatterns,
                 threadMode,
-                collectWeight);
+                collectWeight,
+                primaryEventIndex,
+                minFrameRatio,
+                subtreeId);
     }
 }
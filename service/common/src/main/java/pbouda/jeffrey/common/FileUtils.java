@@ -27,11 +27,45 @@ import java.util.stream.Stream;
 
 public abstract class FileUtils {
 
+    /**
+     * Extension of the descriptor of a recording view (a range of chunks of another recording file),
+     * the descriptors are listed together with the regular recordings.
+     */
+    public static final String JFR_VIEW_EXTENSION = ".jfrview";
+
+    public static final String JFR_EXTENSION = ".jfr";
+
+    public static final String JFR_GZIP_EXTENSION = JFR_EXTENSION + CompressionUtils.GZIP_EXTENSION;
+
+    public static boolean isRecording(Path path) {
+        String filename = path.getFileName().toString();
+        return filename.endsWith(JFR_EXTENSION)
+                || filename.endsWith(JFR_GZIP_EXTENSION)
+                || filename.endsWith(JFR_VIEW_EXTENSION);
+    }
+
+    /**
+     * Name of the recording without the extension of the recording and its compression
+     * ({@code recording.jfr.gz} -> {@code recording}).
+     *
+     * @param path path to the recording.
+     * @return name of the recording without the extensions.
+     */
+    public static String recordingName(Path path) {
+        String filename = path.getFileName().toString();
+        for (String extension : List.of(JFR_GZIP_EXTENSION, JFR_EXTENSION, JFR_VIEW_EXTENSION)) {
+            if (filename.endsWith(extension)) {
+                return filename.substring(0, filename.length() - extension.length());
+            }
+        }
+        return filename;
+    }
+
     public static List<Path> listJfrFiles(Path directory) {
         try (var stream = Files.walk(directory)) {
             return stream
                     .filter(Files::isRegularFile)
-                    .filter(path -> path.toString().endsWith(".jfr"))
+                    .filter(FileUtils::isRecording)
                     .toList();
         } catch (IOException e) {
             throw new RuntimeException("Cannot list JFR files: " + directory, e);
@@ -42,7 +76,7 @@ public abstract class FileUtils {
         try (Stream<Path> stream = Files.list(recording)) {
             return stream
                     .filter(Files::isRegularFile)
-                    .filter(file -> file.toString().endsWith(".jfr"))
+                    .filter(FileUtils::isRecording)
                     .min(Comparator.naturalOrder())
                     .orElseThrow(() -> new IllegalArgumentException("Directory does not contain any JFR files: " + recording));
         } catch (IOException e) {
@@ -0,0 +1,37 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.common;
+
+import java.util.List;
+
+/**
+ * Collector that is able to combine all partial results at once, e.g. it splits the combination into disjoint
+ * parts that are combined in parallel, instead of combining the partial results in pairs using
+ * {@link #combiner(Object, Object)}.
+ */
+public interface ParallelCollector<PARTIAL, RESULT> extends Collector<PARTIAL, RESULT> {
+
+    /**
+     * Combines all partial results into a single one.
+     *
+     * @param partials non-empty list of partial results.
+     * @return the combined partial result.
+     */
+    PARTIAL combineAll(List<PARTIAL> partials);
+}
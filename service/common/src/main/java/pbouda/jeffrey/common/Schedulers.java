@@ -20,6 +20,8 @@ package pbouda.jeffrey.common;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -28,10 +30,24 @@ public abstract class Schedulers {
     private static final ExecutorService PARALLEL = Executors.newFixedThreadPool(
             Runtime.getRuntime().availableProcessors(), new NamedThreadFactory("parallel"));
 
+    private static final ForkJoinPool FORK_JOIN = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors(), new NamedForkJoinThreadFactory("fork-join"), null, false);
+
     public static ExecutorService parallel() {
         return PARALLEL;
     }
 
+    /**
+     * Dedicated work-stealing pool for splitting and merging CPU-bound tasks (e.g. parsing chunks of a recording).
+     * It's intentionally separated from {@link #parallel()}, the tasks running in {@link #parallel()} can wait
+     * for the tasks in this pool without exhausting the fixed number of threads.
+     *
+     * @return work-stealing pool with the parallelism equal to the number of processors.
+     */
+    public static ForkJoinPool forkJoin() {
+        return FORK_JOIN;
+    }
+
     public static class NamedThreadFactory implements ThreadFactory {
         private final String prefix;
         private final AtomicInteger counter = new AtomicInteger();
@@ -48,4 +64,21 @@ public abstract class Schedulers {
             return thread;
         }
     }
+
+    public static class NamedForkJoinThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        public NamedForkJoinThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setDaemon(true);
+            thread.setName(prefix + "-" + counter.getAndIncrement());
+            return thread;
+        }
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Collector that is able to write and read its partial results, e.g. the partial results of the chunks
+ * are persisted and the chunks do not have to be parsed again to combine them with the partial results
+ * of the new or changed chunks.
+ */
+public interface SerializableCollector<PARTIAL, RESULT> extends Collector<PARTIAL, RESULT> {
+
+    /**
+     * Writes the partial result into the output, the partial result is not modified.
+     *
+     * @param partial partial result to write.
+     * @param output  target output.
+     * @throws IOException if the partial result cannot be written.
+     */
+    void writePartial(PARTIAL partial, DataOutput output) throws IOException;
+
+    /**
+     * Reads a new instance of the partial result written by {@link #writePartial(Object, DataOutput)}.
+     *
+     * @param input source input.
+     * @return a new instance of the partial result.
+     * @throws IOException if the partial result cannot be read.
+     */
+    PARTIAL readPartial(DataInput input) throws IOException;
+}
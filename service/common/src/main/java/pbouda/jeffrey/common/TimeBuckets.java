@@ -0,0 +1,287 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Values of the consecutive time buckets (e.g. milliseconds since epoch) stored in primitive arrays,
+ * the value of the bucket is addressed by its index without any hashing. The buckets are split into the pages
+ * of {@link #PAGE_SIZE} buckets, the directory of the pages starts at the page of the first bucket
+ * (base + index), and the pages are allocated only when they receive a value. A gap in the time
+ * (e.g. between two recordings) costs only the empty slots of the directory.
+ * <p/>
+ * The directory grows by doubling in the direction of the new bucket. The pages are merged as contiguous
+ * ranges of the arrays (a simple loop vectorized by the JIT compiler).
+ */
+public final class TimeBuckets {
+
+    /**
+     * Buckets consumer getting the buckets in the ascending order.
+     */
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(long bucket, long value);
+    }
+
+    static final int PAGE_SHIFT = 12;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private long[][] pages = new long[0][];
+    // Page index of the first slot of the directory
+    private long basePage;
+    // Range of the buckets that received a value [firstBucket, lastBucket], empty if lastBucket < firstBucket
+    private long firstBucket = Long.MAX_VALUE;
+    private long lastBucket = Long.MIN_VALUE;
+
+    /**
+     * Adds the value to the bucket.
+     *
+     * @param bucket index of the bucket, e.g. epoch millis.
+     * @param value  value to be added to the bucket.
+     */
+    public void add(long bucket, long value) {
+        long[] page = page(bucket >> PAGE_SHIFT);
+        page[(int) (bucket & PAGE_MASK)] += value;
+        firstBucket = Math.min(firstBucket, bucket);
+        lastBucket = Math.max(lastBucket, bucket);
+    }
+
+    /**
+     * @param bucket index of the bucket.
+     * @return value of the bucket, {@code 0} if the bucket has not received any value.
+     */
+    public long get(long bucket) {
+        long slot = (bucket >> PAGE_SHIFT) - basePage;
+        if (slot < 0 || slot >= pages.length || pages[(int) slot] == null) {
+            return 0;
+        }
+        return pages[(int) slot][(int) (bucket & PAGE_MASK)];
+    }
+
+    /**
+     * Adds all values of the other buckets to this one, the other buckets stay untouched.
+     *
+     * @param other buckets to be added.
+     */
+    public void merge(TimeBuckets other) {
+        if (other.isEmpty()) {
+            return;
+        }
+
+        // Allocates the directory of both ends at once
+        page(other.firstBucket >> PAGE_SHIFT);
+        page(other.lastBucket >> PAGE_SHIFT);
+        for (int slot = 0; slot < other.pages.length; slot++) {
+            long[] source = other.pages[slot];
+            if (source != null) {
+                add(page(other.basePage + slot), source);
+            }
+        }
+
+        firstBucket = Math.min(firstBucket, other.firstBucket);
+        lastBucket = Math.max(lastBucket, other.lastBucket);
+    }
+
+    /**
+     * Merges all buckets at once, the directory covering all buckets is allocated and the disjoint ranges
+     * of the pages are merged in parallel.
+     *
+     * @param buckets  buckets to be merged.
+     * @param executor executor merging the ranges of the pages.
+     * @param slices   number of the disjoint ranges of the pages.
+     * @return new buckets containing the sum of all buckets.
+     */
+    public static TimeBuckets mergeAll(List<TimeBuckets> buckets, ExecutorService executor, int slices) {
+        TimeBuckets result = new TimeBuckets();
+        for (TimeBuckets bucket : buckets) {
+            if (!bucket.isEmpty()) {
+                result.firstBucket = Math.min(result.firstBucket, bucket.firstBucket);
+                result.lastBucket = Math.max(result.lastBucket, bucket.lastBucket);
+            }
+        }
+        if (result.isEmpty()) {
+            return result;
+        }
+
+        long firstPage = result.firstBucket >> PAGE_SHIFT;
+        int pageCount = Math.toIntExact((result.lastBucket >> PAGE_SHIFT) - firstPage + 1);
+        result.basePage = firstPage;
+        result.pages = new long[pageCount][];
+
+        // Every task writes only the slots of its own range of the directory
+        int slicePages = Math.ceilDiv(pageCount, Math.max(1, slices));
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < pageCount; from += slicePages) {
+            int sliceFrom = from;
+            int sliceTo = Math.min(pageCount, from + slicePages);
+            tasks.add(() -> {
+                for (TimeBuckets bucket : buckets) {
+                    for (int slot = sliceFrom; slot < sliceTo; slot++) {
+                        long[] source = bucket.pageOrNull(firstPage + slot);
+                        if (source != null) {
+                            if (result.pages[slot] == null) {
+                                result.pages[slot] = new long[PAGE_SIZE];
+                            }
+                            add(result.pages[slot], source);
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Cannot merge the time buckets", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Cannot merge the time buckets", e.getCause());
+        }
+        return result;
+    }
+
+    /**
+     * Visits all buckets having a non-zero value.
+     *
+     * @param consumer consumer of the buckets in the ascending order.
+     */
+    public void forEachNonZero(BucketConsumer consumer) {
+        for (int slot = 0; slot < pages.length; slot++) {
+            long[] page = pages[slot];
+            if (page != null) {
+                long pageStart = (basePage + slot) << PAGE_SHIFT;
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    if (page[i] != 0) {
+                        consumer.accept(pageStart + i, page[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of buckets having a non-zero value.
+     */
+    public int nonZeroCount() {
+        int count = 0;
+        for (long[] page : pages) {
+            if (page != null) {
+                for (long value : page) {
+                    if (value != 0) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return maximum value of all buckets, {@code 0} if the buckets are empty.
+     */
+    public long maxValue() {
+        long max = 0;
+        for (long[] page : pages) {
+            if (page != null) {
+                for (long value : page) {
+                    max = Math.max(max, value);
+                }
+            }
+        }
+        return max;
+    }
+
+    public boolean isEmpty() {
+        return lastBucket < firstBucket;
+    }
+
+    /**
+     * @return the lowest bucket that received a value.
+     */
+    public long firstBucket() {
+        return firstBucket;
+    }
+
+    /**
+     * @return the highest bucket that received a value.
+     */
+    public long lastBucket() {
+        return lastBucket;
+    }
+
+    private long[] pageOrNull(long pageIndex) {
+        long slot = pageIndex - basePage;
+        if (slot < 0 || slot >= pages.length) {
+            return null;
+        }
+        return pages[(int) slot];
+    }
+
+    /**
+     * Returns the page, the page and the slot in the directory are allocated if they don't exist.
+     */
+    private long[] page(long pageIndex) {
+        if (pages.length == 0) {
+            pages = new long[1][];
+            basePage = pageIndex;
+        } else if (pageIndex < basePage || pageIndex >= basePage + pages.length) {
+            growDirectory(pageIndex);
+        }
+
+        int slot = (int) (pageIndex - basePage);
+        long[] page = pages[slot];
+        if (page == null) {
+            page = new long[PAGE_SIZE];
+            pages[slot] = page;
+        }
+        return page;
+    }
+
+    private void growDirectory(long pageIndex) {
+        long end = basePage + pages.length;
+        long newBase = basePage;
+        long newEnd = end;
+        if (pageIndex < basePage) {
+            newBase = Math.min(pageIndex, basePage - pages.length);
+        } else {
+            newEnd = Math.max(pageIndex + 1, end + pages.length);
+        }
+
+        long[][] newPages = new long[Math.toIntExact(newEnd - newBase)][];
+        System.arraycopy(pages, 0, newPages, (int) (basePage - newBase), pages.length);
+        this.pages = newPages;
+        this.basePage = newBase;
+    }
+
+    private static void add(long[] target, long[] source) {
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            target[i] += source[i];
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -37,7 +38,7 @@ public record Type(
         String code,
         boolean known,
         String weightFieldName,
-        Function<RecordedEvent, Long> weightExtractor,
+        ToLongFunction<RecordedEvent> weightExtractor,
         LongFunction<String> weightFormatter) {
 
     public static final Type EXECUTION_SAMPLE = new Type("jdk.ExecutionSample", true);
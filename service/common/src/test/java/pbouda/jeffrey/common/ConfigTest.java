@@ -0,0 +1,98 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ConfigTest {
+
+    @Test
+    public void fingerprintDoesNotDependOnWeightExtractorInstance() throws IOException {
+        Path recording = recording(100);
+        // the same event type with a different lambda, e.g. the type created in another run of the application
+        Type sameType = new Type(Type.OBJECT_ALLOCATION_SAMPLE.code(), true, "weight",
+                e -> e.getLong("weight"), BytesFormatter::format);
+
+        assertEquals(config(recording, Type.OBJECT_ALLOCATION_SAMPLE).fingerprint(),
+                config(recording, sameType).fingerprint());
+    }
+
+    @Test
+    public void fingerprintDependsOnEventType() throws IOException {
+        Path recording = recording(100);
+
+        assertNotEquals(config(recording, Type.EXECUTION_SAMPLE).fingerprint(),
+                config(recording, Type.OBJECT_ALLOCATION_SAMPLE).fingerprint());
+    }
+
+    @Test
+    public void fingerprintChangesWhenRecordingGrows() throws IOException {
+        Path recording = recording(100);
+        FileTime modified = Files.getLastModifiedTime(recording);
+        String before = config(recording, Type.EXECUTION_SAMPLE).fingerprint();
+
+        Files.write(recording, new byte[200]);
+        Files.setLastModifiedTime(recording, modified);
+
+        assertNotEquals(before, config(recording, Type.EXECUTION_SAMPLE).fingerprint());
+    }
+
+    @Test
+    public void fingerprintChangesWhenRecordingIsModified() throws IOException {
+        Path recording = recording(100);
+        String before = config(recording, Type.EXECUTION_SAMPLE).fingerprint();
+
+        Files.setLastModifiedTime(recording, FileTime.from(Instant.now().plusSeconds(60)));
+
+        assertNotEquals(before, config(recording, Type.EXECUTION_SAMPLE).fingerprint());
+    }
+
+    @Test
+    public void fingerprintOfUnchangedRecordingIsStable() throws IOException {
+        Path recording = recording(100);
+
+        assertEquals(config(recording, Type.EXECUTION_SAMPLE).fingerprint(),
+                config(recording, Type.EXECUTION_SAMPLE).fingerprint());
+    }
+
+    private static Config config(Path recording, Type eventType) {
+        return Config.primaryBuilder()
+                .withPrimaryId("profile")
+                .withPrimaryRecording(recording)
+                .withEventType(eventType)
+                .withPrimaryStart(Instant.EPOCH)
+                .build();
+    }
+
+    private static Path recording(int size) throws IOException {
+        Path recording = Files.createTempFile("recording", ".jfr");
+        recording.toFile().deleteOnExit();
+        Files.write(recording, new byte[size]);
+        return recording;
+    }
+}
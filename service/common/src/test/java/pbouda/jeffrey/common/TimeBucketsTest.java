@@ -0,0 +1,227 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeBucketsTest {
+
+    private static final int PAGE = TimeBuckets.PAGE_SIZE;
+
+    @Test
+    public void emptyBuckets() {
+        TimeBuckets buckets = new TimeBuckets();
+
+        assertTrue(buckets.isEmpty());
+        assertEquals(0, buckets.get(0));
+        assertEquals(0, buckets.get(-1));
+        assertEquals(0, buckets.maxValue());
+        assertEquals(0, buckets.nonZeroCount());
+    }
+
+    @Test
+    public void negativeBuckets() {
+        TimeBuckets buckets = new TimeBuckets();
+        buckets.add(-1, 5);
+        buckets.add(-PAGE, 3);
+        buckets.add(-PAGE - 1, 2);
+        buckets.add(0, 1);
+        buckets.add(-1, 5);
+
+        assertEquals(10, buckets.get(-1));
+        assertEquals(3, buckets.get(-PAGE));
+        assertEquals(2, buckets.get(-PAGE - 1));
+        assertEquals(1, buckets.get(0));
+        assertEquals(0, buckets.get(-2));
+        assertEquals(0, buckets.get(1));
+        assertEquals(-PAGE - 1, buckets.firstBucket());
+        assertEquals(0, buckets.lastBucket());
+        assertEquals(Map.of(-PAGE - 1L, 2L, (long) -PAGE, 3L, -1L, 10L, 0L, 1L), nonZero(buckets));
+    }
+
+    @Test
+    public void hugeBuckets() {
+        // e.g. epoch nanos
+        long base = 1_700_000_000_000_000_000L;
+        TimeBuckets buckets = new TimeBuckets();
+        buckets.add(base, 1);
+        buckets.add(base + 3L * PAGE, 2);
+        buckets.add(base - 5L * PAGE, 3);
+
+        assertEquals(1, buckets.get(base));
+        assertEquals(2, buckets.get(base + 3L * PAGE));
+        assertEquals(3, buckets.get(base - 5L * PAGE));
+        assertEquals(0, buckets.get(base + 1));
+        assertEquals(0, buckets.get(0));
+        assertEquals(base - 5L * PAGE, buckets.firstBucket());
+        assertEquals(base + 3L * PAGE, buckets.lastBucket());
+        assertEquals(3, buckets.nonZeroCount());
+    }
+
+    @Test
+    public void extremeBuckets() {
+        TimeBuckets max = new TimeBuckets();
+        max.add(Long.MAX_VALUE, 1);
+        max.add(Long.MAX_VALUE - 1, 2);
+
+        assertEquals(1, max.get(Long.MAX_VALUE));
+        assertEquals(2, max.get(Long.MAX_VALUE - 1));
+        assertEquals(0, max.get(Long.MIN_VALUE));
+        assertEquals(Map.of(Long.MAX_VALUE - 1, 2L, Long.MAX_VALUE, 1L), nonZero(max));
+
+        TimeBuckets min = new TimeBuckets();
+        min.add(Long.MIN_VALUE, 3);
+
+        assertEquals(3, min.get(Long.MIN_VALUE));
+        assertEquals(0, min.get(Long.MAX_VALUE));
+        assertEquals(Map.of(Long.MIN_VALUE, 3L), nonZero(min));
+    }
+
+    @Test
+    public void growsForward() {
+        TimeBuckets buckets = new TimeBuckets();
+        Map<Long, Long> expected = new TreeMap<>();
+        for (long bucket = 100; bucket < 100 + 40L * PAGE; bucket += PAGE / 2 + 7) {
+            buckets.add(bucket, bucket);
+            expected.put(bucket, bucket);
+        }
+
+        assertEquals(expected, nonZero(buckets));
+        assertEquals(expected.size(), buckets.nonZeroCount());
+    }
+
+    @Test
+    public void growsBackward() {
+        TimeBuckets buckets = new TimeBuckets();
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        for (long bucket = 100; bucket > 100 - 40L * PAGE; bucket -= PAGE / 2 + 7) {
+            buckets.add(bucket, 1);
+            expected.put(bucket, 1L);
+        }
+
+        assertEquals(expected, nonZero(buckets));
+        assertEquals((long) expected.firstKey(), buckets.firstBucket());
+        assertEquals(100, buckets.lastBucket());
+    }
+
+    @Test
+    public void growsInBothDirections() {
+        TimeBuckets buckets = new TimeBuckets();
+        Map<Long, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 30; i++) {
+            long bucket = (i % 2 == 0 ? 1 : -1) * (long) i * PAGE * 3 + i;
+            buckets.add(bucket, i + 1);
+            expected.put(bucket, i + 1L);
+        }
+
+        assertEquals(expected, nonZero(buckets));
+        assertEquals(30, buckets.maxValue());
+    }
+
+    @Test
+    public void mergeDoesNotChangeOther() {
+        TimeBuckets first = new TimeBuckets();
+        first.add(5, 1);
+        TimeBuckets second = new TimeBuckets();
+        second.add(-10L * PAGE, 2);
+        second.add(5, 3);
+        second.add(20L * PAGE, 4);
+
+        first.merge(second);
+        first.merge(new TimeBuckets());
+
+        assertEquals(Map.of(-10L * PAGE, 2L, 5L, 4L, 20L * PAGE, 4L), nonZero(first));
+        assertEquals(-10L * PAGE, first.firstBucket());
+        assertEquals(20L * PAGE, first.lastBucket());
+        assertEquals(Map.of(-10L * PAGE, 2L, 5L, 3L, 20L * PAGE, 4L), nonZero(second));
+    }
+
+    @Test
+    public void mergeAllIsTheSameAsSequentialMerge() throws InterruptedException {
+        Random random = new Random(42);
+        List<TimeBuckets> buckets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            TimeBuckets bucket = new TimeBuckets();
+            // every second one is shifted to the negative buckets, one of them stays empty
+            long offset = i % 2 == 0 ? 0 : -7L * PAGE;
+            for (int j = 0; i != 3 && j < 1000; j++) {
+                bucket.add(offset + random.nextInt(25 * PAGE), 1 + random.nextInt(100));
+            }
+            buckets.add(bucket);
+        }
+
+        TimeBuckets sequential = new TimeBuckets();
+        for (TimeBuckets bucket : buckets) {
+            sequential.merge(bucket);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int slices : new int[]{0, 1, 3, 7, 100}) {
+                TimeBuckets merged = TimeBuckets.mergeAll(buckets, executor, slices);
+
+                assertEquals(nonZero(sequential), nonZero(merged), "slices=" + slices);
+                assertEquals(sequential.firstBucket(), merged.firstBucket());
+                assertEquals(sequential.lastBucket(), merged.lastBucket());
+                assertEquals(sequential.maxValue(), merged.maxValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void mergeAllOfEmptyBuckets() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            TimeBuckets merged = TimeBuckets.mergeAll(List.of(new TimeBuckets(), new TimeBuckets()), executor, 2);
+
+            assertTrue(merged.isEmpty());
+            merged.add(-1, 1);
+            assertFalse(merged.isEmpty());
+            assertEquals(1, merged.get(-1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<Long, Long> nonZero(TimeBuckets buckets) {
+        Map<Long, Long> values = new TreeMap<>();
+        List<Long> order = new ArrayList<>();
+        buckets.forEachNonZero((bucket, value) -> {
+            values.put(bucket, value);
+            order.add(bucket);
+        });
+        // the buckets are visited in the ascending order
+        assertEquals(new ArrayList<>(values.keySet()), order);
+        return values;
+    }
+}
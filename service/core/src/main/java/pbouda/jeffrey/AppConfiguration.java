@@ -21,24 +21,34 @@ package pbouda.jeffrey;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.unit.DataSize;
 import pbouda.jeffrey.common.GraphType;
+import pbouda.jeffrey.frameir.collector.ChunkFrameCache;
 import pbouda.jeffrey.generator.flamegraph.GraphExporterImpl;
 import pbouda.jeffrey.generator.flamegraph.GraphGenerator;
 import pbouda.jeffrey.generator.flamegraph.diff.DiffgraphGeneratorImpl;
 import pbouda.jeffrey.generator.flamegraph.flame.FlamegraphGeneratorImpl;
 import pbouda.jeffrey.generator.subsecond.api.SubSecondGeneratorImpl;
+import pbouda.jeffrey.generator.timeseries.TimeseriesPyramidCache;
 import pbouda.jeffrey.generator.timeseries.api.TimeseriesGeneratorImpl;
 import pbouda.jeffrey.guardian.Guardian;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexCache;
 import pbouda.jeffrey.manager.*;
 import pbouda.jeffrey.manager.action.ChunkBasedRecordingInitializer;
+import pbouda.jeffrey.manager.action.ProfileChunkAppender;
 import pbouda.jeffrey.manager.action.ProfilePostCreateActionImpl;
 import pbouda.jeffrey.manager.action.ProfileRecordingInitializer;
 import pbouda.jeffrey.manager.action.SingleFileRecordingInitializer;
+import pbouda.jeffrey.manager.cache.CachingGraphGenerator;
+import pbouda.jeffrey.manager.cache.InMemoryGraphCache;
 import pbouda.jeffrey.repository.*;
-import pbouda.jeffrey.tools.impl.jdk.JdkJfrTool;
+import pbouda.jeffrey.tools.impl.chunk.ChunkSplitter;
 import pbouda.jeffrey.viewer.TreeTableEventViewerGenerator;
 
 import java.nio.file.Path;
+import java.time.Duration;
 
 @Configuration
 public class AppConfiguration {
@@ -49,77 +59,155 @@ public class AppConfiguration {
     }
 
     @Bean
-    public RecordingManager recordingRepository(WorkingDirs workingDirs) {
-        return new FileBasedRecordingManager(workingDirs, new RecordingRepository(workingDirs));
+    public RecordingManager recordingRepository(WorkingDirs workingDirs, DecompressedRecordingCache recordingCache) {
+        return new FileBasedRecordingManager(workingDirs, new RecordingRepository(workingDirs), recordingCache);
     }
 
     @Bean
-    public SubSecondManager.Factory subSecondFactory(WorkingDirs workingDirs, JdbcTemplateFactory jdbcTemplateFactory) {
+    public EventIndexCache eventIndexCache() {
+        return new EventIndexCache();
+    }
+
+    @Bean
+    public SubSecondManager.Factory subSecondFactory(
+            WorkingDirs workingDirs,
+            JdbcTemplateFactory jdbcTemplateFactory,
+            EventIndexCache eventIndexCache,
+            DecompressedRecordingCache recordingCache,
+            @Value("${jeffrey.subsecond.page-duration:5m}") Duration pageDuration) {
+
         return profileInfo -> new DbBasedSubSecondManager(
-                profileInfo, workingDirs, new SubSecondRepository(jdbcTemplateFactory.create(profileInfo)), new SubSecondGeneratorImpl());
+                profileInfo,
+                workingDirs,
+                new SubSecondRepository(jdbcTemplateFactory.create(profileInfo)),
+                new SubSecondGeneratorImpl(recordingCache, eventIndexCache),
+                pageDuration);
+    }
+
+    @Bean
+    public TimeseriesPyramidCache timeseriesPyramidCache(
+            @Value("${jeffrey.timeseries.cache.memory-size:0}") DataSize memorySize) {
+        return new TimeseriesPyramidCache(memorySize.toBytes());
     }
 
     @Bean
-    public TimeseriesManager.Factory timeseriesFactory(WorkingDirs workingDirs) {
+    public TimeseriesManager.Factory timeseriesFactory(
+            WorkingDirs workingDirs,
+            TimeseriesPyramidCache timeseriesPyramidCache,
+            EventIndexCache eventIndexCache,
+            DecompressedRecordingCache recordingCache) {
+
         return profileInfo -> new AdhocTimeseriesManager(
-                profileInfo, workingDirs, new TimeseriesGeneratorImpl());
+                profileInfo,
+                workingDirs,
+                new TimeseriesGeneratorImpl(recordingCache, timeseriesPyramidCache, eventIndexCache));
     }
 
     @Bean
-    public EventViewerManager.Factory eventViewerManager(WorkingDirs workingDirs, JdbcTemplateFactory jdbcTemplateFactory) {
+    public EventViewerManager.Factory eventViewerManager(
+            WorkingDirs workingDirs,
+            JdbcTemplateFactory jdbcTemplateFactory,
+            DecompressedRecordingCache recordingCache) {
+
         return profileInfo -> new DbBasedViewerManager(
                 workingDirs.profileRecordings(profileInfo),
+                workingDirs.profileEventIndex(profileInfo),
                 new CacheRepository(jdbcTemplateFactory.create(profileInfo)),
-                new TreeTableEventViewerGenerator());
+                new TreeTableEventViewerGenerator(recordingCache));
     }
 
     @Bean
-    public GraphManager.FlamegraphFactory flamegraphFactory(WorkingDirs workingDirs, JdbcTemplateFactory jdbcTemplateFactory) {
-        return profileInfo -> new DbBasedFlamegraphManager(
-                profileInfo,
-                workingDirs,
-                new GraphRepository(jdbcTemplateFactory.create(profileInfo), GraphType.PRIMARY),
-                new FlamegraphGeneratorImpl(),
-                new GraphExporterImpl(),
-                new TimeseriesGeneratorImpl()
-        );
+    public InMemoryGraphCache inMemoryGraphCache(
+            @Value("${jeffrey.flamegraph.cache.memory-size:0}") DataSize memorySize) {
+        return new InMemoryGraphCache(memorySize.toBytes());
+    }
+
+    @Bean
+    public ChunkFrameCache chunkFrameCache(
+            @Value("${jeffrey.flamegraph.cache.chunk-frames:0}") long maxFrames) {
+        return new ChunkFrameCache(maxFrames);
     }
 
     @Bean
-    public GraphManager.DiffgraphFactory diffgraphFactory(WorkingDirs workingDirs, JdbcTemplateFactory jdbcTemplateFactory) {
+    public FlamegraphManager.Factory flamegraphFactory(
+            WorkingDirs workingDirs,
+            JdbcTemplateFactory jdbcTemplateFactory,
+            InMemoryGraphCache inMemoryGraphCache,
+            ChunkFrameCache chunkFrameCache,
+            TimeseriesPyramidCache timeseriesPyramidCache,
+            EventIndexCache eventIndexCache,
+            DecompressedRecordingCache recordingCache,
+            @Value("${jeffrey.flamegraph.min-frame-ratio:0}") double minFrameRatio,
+            @Value("${jeffrey.flamegraph.cache.database-size:0}") DataSize databaseSize) {
+
+        return profileInfo -> {
+            JdbcTemplate jdbcTemplate = jdbcTemplateFactory.create(profileInfo);
+
+            return new DbBasedFlamegraphManager(
+                    profileInfo,
+                    workingDirs,
+                    new GraphRepository(jdbcTemplate, GraphType.PRIMARY),
+                    new CachingGraphGenerator(
+                            new FlamegraphGeneratorImpl(
+                                    recordingCache,
+                                    chunkFrameCache,
+                                    workingDirs.profilePartialsDir(profileInfo),
+                                    eventIndexCache),
+                            inMemoryGraphCache,
+                            new GraphCacheRepository(jdbcTemplate, databaseSize.toBytes()),
+                            recordingCache),
+                    new GraphExporterImpl(),
+                    new TimeseriesGeneratorImpl(recordingCache, timeseriesPyramidCache, eventIndexCache),
+                    minFrameRatio,
+                    recordingCache
+            );
+        };
+    }
+
+    @Bean
+    public GraphManager.DiffgraphFactory diffgraphFactory(
+            WorkingDirs workingDirs,
+            JdbcTemplateFactory jdbcTemplateFactory,
+            TimeseriesPyramidCache timeseriesPyramidCache,
+            EventIndexCache eventIndexCache,
+            DecompressedRecordingCache recordingCache) {
+
         return (primary, secondary) -> new DbBasedDiffgraphManager(
                 primary,
                 secondary,
                 workingDirs,
                 new GraphRepository(jdbcTemplateFactory.create(primary), GraphType.DIFFERENTIAL),
-                new DiffgraphGeneratorImpl(),
+                new DiffgraphGeneratorImpl(recordingCache),
                 new GraphExporterImpl(),
-                new TimeseriesGeneratorImpl()
+                new TimeseriesGeneratorImpl(recordingCache, timeseriesPyramidCache, eventIndexCache),
+                recordingCache
         );
     }
 
     @Bean
     public GuardianManager.Factory guardianFactory(
             WorkingDirs workingDirs,
-            JdbcTemplateFactory jdbcTemplateFactory) {
+            JdbcTemplateFactory jdbcTemplateFactory,
+            DecompressedRecordingCache recordingCache) {
         return (primary) -> new DbBasedGuardianManager(
                 primary,
                 workingDirs,
-                new Guardian(),
+                new Guardian(recordingCache),
                 new CacheRepository(jdbcTemplateFactory.create(primary)),
-                new FlamegraphGeneratorImpl());
+                new FlamegraphGeneratorImpl(recordingCache));
     }
 
     @Bean
     public ProfileManager.Factory profileManager(
             WorkingDirs workingDirs,
             JdbcTemplateFactory jdbcTemplateFactory,
-            GraphManager.FlamegraphFactory flamegraphFactory,
+            FlamegraphManager.Factory flamegraphFactory,
             GraphManager.DiffgraphFactory diffgraphFactory,
             SubSecondManager.Factory subSecondFactory,
             TimeseriesManager.Factory timeseriesFactory,
             EventViewerManager.Factory eventViewerManagerFactory,
-            GuardianManager.Factory guardianFactory) {
+            GuardianManager.Factory guardianFactory,
+            DecompressedRecordingCache recordingCache) {
 
         return profileInfo -> {
             CacheRepository cacheRepository = new CacheRepository(jdbcTemplateFactory.create(profileInfo));
@@ -133,7 +221,7 @@ public class AppConfiguration {
                     timeseriesFactory,
                     eventViewerManagerFactory,
                     guardianFactory,
-                    new DbBasedProfileInfoManager(profileInfo, workingDirs, cacheRepository),
+                    new DbBasedProfileInfoManager(profileInfo, workingDirs, cacheRepository, recordingCache),
                     new PersistedProfileAutoAnalysisManager(workingDirs.profileRecordings(profileInfo), cacheRepository));
         };
     }
@@ -149,27 +237,60 @@ public class AppConfiguration {
 
     @Bean
     public ProfileRecordingInitializer profileRecordingInitializer(
-            @Value("${jeffrey.tools.external.jfr.enabled:true}") boolean jfrToolEnabled,
-            @Value("${jeffrey.tools.external.jfr.path:}") Path jfrPath,
+            @Value("${jeffrey.recording.split.enabled:true}") boolean splitEnabled,
+            @Value("${jeffrey.recording.split.target-size:0}") DataSize targetSize,
+            @Value("${jeffrey.recording.split.virtual:false}") boolean virtualChunks,
+            @Value("${jeffrey.recording.split.compressed:false}") boolean compressedChunks,
             WorkingDirs workingDirs) {
 
-        JdkJfrTool jfrTool = new JdkJfrTool(jfrToolEnabled, jfrPath);
-        jfrTool.initialize();
-
-        if (jfrTool.enabled()) {
-            return new ChunkBasedRecordingInitializer(workingDirs, jfrTool);
+        if (splitEnabled) {
+            return new ChunkBasedRecordingInitializer(
+                    workingDirs, new ChunkSplitter(targetSize.toBytes(), compressedChunks), virtualChunks);
         } else {
             return new SingleFileRecordingInitializer(workingDirs);
         }
     }
 
+    @Bean
+    public DecompressedRecordingCache decompressedRecordingCache(
+            @Value("${jeffrey.recording.decompressed.dir}") String directory,
+            @Value("${jeffrey.recording.decompressed.cache-size:2GB}") DataSize cacheSize) {
+
+        return new DecompressedRecordingCache(Path.of(directory), cacheSize.toBytes());
+    }
+
     @Bean
     public ProfilesManager profilesManager(
             ProfileManager.Factory profileFactory,
             WorkingDirs workingDirs,
-            ProfileRecordingInitializer profileRecordingInitializer) {
+            ProfileRecordingInitializer profileRecordingInitializer,
+            DecompressedRecordingCache recordingCache) {
 
         return new DbBasedProfilesManager(
-                profileFactory, workingDirs, new ProfilePostCreateActionImpl(), profileRecordingInitializer);
+                profileFactory,
+                workingDirs,
+                new ProfilePostCreateActionImpl(workingDirs),
+                profileRecordingInitializer,
+                recordingCache);
+    }
+
+    @Bean
+    public ContinuousRecordingIngestor continuousRecordingIngestor(
+            WorkingDirs workingDirs,
+            JdbcTemplateFactory jdbcTemplateFactory,
+            EventIndexCache eventIndexCache,
+            DecompressedRecordingCache recordingCache,
+            @Value("${jeffrey.flamegraph.cache.database-size:0}") DataSize databaseSize,
+            @Value("${jeffrey.ingestion.repository:}") String repository,
+            @Value("${jeffrey.ingestion.profile-id:}") String profileId,
+            @Value("${jeffrey.ingestion.poll-interval:10s}") Duration pollInterval) {
+
+        return new ContinuousRecordingIngestor(
+                workingDirs,
+                new ProfileChunkAppender(
+                        workingDirs, jdbcTemplateFactory, eventIndexCache, databaseSize.toBytes(), recordingCache),
+                repository.isBlank() ? null : Path.of(repository),
+                profileId,
+                pollInterval);
     }
 }
@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
+import pbouda.jeffrey.common.FileUtils;
 import pbouda.jeffrey.manager.ProfilesManager;
 import pbouda.jeffrey.manager.RecordingManager;
 
@@ -65,6 +66,6 @@ public record CommandLineRecordingUploader(Path recordingsDir) implements Applic
 
     private static boolean validRecordingName(Path recording) {
         return !Files.isDirectory(recording)
-                && recording.toString().endsWith(".jfr");
+                && FileUtils.isRecording(recording);
     }
 }
@@ -0,0 +1,166 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import pbouda.jeffrey.common.Schedulers;
+import pbouda.jeffrey.jfrparser.jdk.ChunkHeader;
+import pbouda.jeffrey.jfrparser.jdk.JfrRepository;
+import pbouda.jeffrey.manager.action.ProfileChunkAppender;
+import pbouda.jeffrey.repository.model.ProfileInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails a repository of a continuously running JFR recording (configured using
+ * {@code -XX:FlightRecorderOptions:repository=...}) and appends every finished chunk to the existing profile.
+ * The chunks are looked up in the subdirectories of the JVMs writing into the repository, see {@link JfrRepository},
+ * the chunks of the restarted JVM are then ingested as well. The repository is periodically listed, a chunk is
+ * finished if all its headers are complete and the JVM already started writing the next chunk, or the chunk has
+ * not been modified for the whole poll interval (the recording was stopped).
+ * <p/>
+ * The chunks are identified by their start time, the chunks the profile was created from and the chunks appended
+ * before the restart of the application are not appended twice (even if the chunks were renamed when the profile
+ * was created).
+ */
+public class ContinuousRecordingIngestor implements ApplicationListener<ApplicationReadyEvent>, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContinuousRecordingIngestor.class);
+
+    private final WorkingDirs workingDirs;
+    private final ProfileChunkAppender chunkAppender;
+    private final Path repository;
+    private final String profileId;
+    private final Duration pollInterval;
+
+    private ScheduledExecutorService scheduler;
+    private ProfileInfo profileInfo;
+    private Set<Long> ingestedChunks;
+
+    /**
+     * @param workingDirs   working directories of the profiles.
+     * @param chunkAppender appends the finished chunks to the profile.
+     * @param repository    JFR repository to tail, {@code null} if the ingestion is disabled.
+     * @param profileId     ID of the existing profile receiving the chunks.
+     * @param pollInterval  interval of looking up the finished chunks in the repository.
+     */
+    public ContinuousRecordingIngestor(
+            WorkingDirs workingDirs,
+            ProfileChunkAppender chunkAppender,
+            Path repository,
+            String profileId,
+            Duration pollInterval) {
+
+        this.workingDirs = workingDirs;
+        this.chunkAppender = chunkAppender;
+        this.repository = repository;
+        this.profileId = profileId;
+        this.pollInterval = pollInterval;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (repository == null || scheduler != null) {
+            return;
+        }
+
+        profileInfo = workingDirs.retrieveProfileInfo(profileId);
+        if (profileInfo == null) {
+            LOG.error("Cannot tail the JFR repository, the profile does not exist: profile_id={}", profileId);
+            return;
+        }
+
+        ingestedChunks = chunkStarts(workingDirs.profileRecordings(profileInfo));
+        scheduler = Executors.newSingleThreadScheduledExecutor(new Schedulers.NamedThreadFactory("ingestion"));
+        scheduler.scheduleWithFixedDelay(
+                this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+        LOG.info("JFR repository is tailed: repository={} profile_id={}", repository, profileId);
+    }
+
+    private void poll() {
+        try {
+            List<Path> finished = new ArrayList<>();
+            List<Long> finishedStarts = new ArrayList<>();
+
+            List<JfrRepository.Chunk> chunks = JfrRepository.chunks(repository);
+            for (int i = 0; i < chunks.size(); i++) {
+                JfrRepository.Chunk chunk = chunks.get(i);
+                boolean newest = i == chunks.size() - 1;
+                if (!isFinished(chunk, newest)) {
+                    continue;
+                }
+
+                long start = chunk.startNanos();
+                if (!ingestedChunks.contains(start)) {
+                    finished.add(chunk.file());
+                    finishedStarts.add(start);
+                }
+            }
+
+            if (!finished.isEmpty()) {
+                chunkAppender.append(profileInfo, finished);
+                ingestedChunks.addAll(finishedStarts);
+            }
+        } catch (Exception e) {
+            // The JVM can remove the old chunks from the repository at any time, try it again in the next round
+            LOG.warn("Cannot ingest chunks from the JFR repository: repository={}", repository, e);
+        }
+    }
+
+    private boolean isFinished(JfrRepository.Chunk chunk, boolean newest) throws IOException {
+        if (!chunk.isComplete()) {
+            return false;
+        }
+
+        // The newest chunk can be still written even if the header was already flushed
+        long sinceModified = System.currentTimeMillis() - Files.getLastModifiedTime(chunk.file()).toMillis();
+        return !newest || sinceModified > pollInterval.toMillis();
+    }
+
+    private static Set<Long> chunkStarts(List<Path> recordings) {
+        Set<Long> starts = new HashSet<>();
+        for (Path recording : recordings) {
+            for (ChunkHeader header : ChunkHeader.read(recording)) {
+                starts.add(header.startNanos());
+            }
+        }
+        return starts;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
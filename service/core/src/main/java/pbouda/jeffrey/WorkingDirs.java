@@ -18,6 +18,7 @@
 
 package pbouda.jeffrey;
 
+import pbouda.jeffrey.common.FileUtils;
 import pbouda.jeffrey.common.Json;
 import pbouda.jeffrey.repository.model.ProfileInfo;
 
@@ -34,8 +35,10 @@ public class WorkingDirs {
     public static final String PROFILE_INFO_JSON = "profile_info.json";
     public static final String RECORDING_JFR = "recording.jfr";
     public static final String PROFILE_DB_FILE = "profile.db";
+    public static final String EVENT_INDEX_FILE = "events.idx";
     public static final String EXPORTS_DIR = "exports";
     public static final String PROFILE_RECORDING_DIR = "recording";
+    public static final String PARTIALS_DIR = "partials";
     private final Path homeDir;
     private final Path recordingsDir;
     private final Path workspaceDir;
@@ -83,7 +86,7 @@ public class WorkingDirs {
     public List<Path> profileRecordings(ProfileInfo profileInfo) {
         try (Stream<Path> stream = Files.list(profileRecordingDir(profileInfo))) {
             return stream
-                    .filter(p -> p.getFileName().toString().endsWith(".jfr"))
+                    .filter(FileUtils::isRecording)
                     .sorted(Comparator.naturalOrder())
                     .toList();
         } catch (IOException e) {
@@ -95,6 +98,14 @@ public class WorkingDirs {
         return workspaceDir.resolve(profileInfo.id()).resolve(PROFILE_DB_FILE);
     }
 
+    public Path profileEventIndex(ProfileInfo profileInfo) {
+        return workspaceDir.resolve(profileInfo.id()).resolve(EVENT_INDEX_FILE);
+    }
+
+    public Path profilePartialsDir(ProfileInfo profileInfo) {
+        return workspaceDir.resolve(profileInfo.id()).resolve(PARTIALS_DIR);
+    }
+
     /**
      * Creates a new Profile Hierarchy and returns a {@link Path} to a root profile's directory.
      *
@@ -20,15 +20,21 @@ package pbouda.jeffrey.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pbouda.jeffrey.controller.model.DeleteFlamegraphRequest;
+import pbouda.jeffrey.controller.model.GenerateSubtreeRequest;
 import pbouda.jeffrey.controller.model.GetFlamegraphRequest;
 import pbouda.jeffrey.controller.model.ProfileIdRequest;
 import pbouda.jeffrey.controller.model.ProfilesIdRequest;
 import pbouda.jeffrey.exception.Exceptions;
+import pbouda.jeffrey.manager.FlamegraphManager;
 import pbouda.jeffrey.manager.GraphManager;
 import pbouda.jeffrey.manager.ProfileManager;
 import pbouda.jeffrey.manager.ProfilesManager;
@@ -96,6 +102,19 @@ public class FlamegraphController {
                 .orElseThrow(Exceptions.FLAMEGRAPH_NOT_FOUND);
     }
 
+    @PostMapping("/subtree")
+    public ResponseEntity<StreamingResponseBody> subtree(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestBody GenerateSubtreeRequest request) {
+
+        FlamegraphManager manager = profilesManager.getProfile(request.primaryProfileId())
+                .map(ProfileManager::flamegraphManager)
+                .orElseThrow(Exceptions.PROFILE_NOT_FOUND);
+
+        return GraphResponses.negotiate(accept, manager.generateSubtree(
+                request.eventType(), request.timeRange(), request.useThreadMode(), request.frameId()));
+    }
+
     @PostMapping("/delete")
     public void delete(@RequestBody DeleteFlamegraphRequest request) throws IOException {
         GraphManager graphManager = profilesManager.getProfile(request.profileId())
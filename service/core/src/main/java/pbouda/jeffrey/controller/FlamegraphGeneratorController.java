@@ -18,12 +18,15 @@
 
 package pbouda.jeffrey.controller;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pbouda.jeffrey.controller.model.GenerateDiffFlamegraphRequest;
 import pbouda.jeffrey.controller.model.GenerateFlamegraphRequest;
 import pbouda.jeffrey.exception.Exceptions;
@@ -43,22 +46,29 @@ public class FlamegraphGeneratorController {
     }
 
     @PostMapping
-    public ObjectNode generate(@RequestBody GenerateFlamegraphRequest request) {
+    public ResponseEntity<StreamingResponseBody> generate(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestBody GenerateFlamegraphRequest request) {
+
         GraphManager graphManager = profilesManager.getProfile(request.primaryProfileId()).
                 map(ProfileManager::flamegraphManager)
                 .orElseThrow(Exceptions.PROFILE_NOT_FOUND);
 
-        return graphManager.generate(request.eventType(), request.timeRange(), request.useThreadMode());
+        return GraphResponses.negotiate(accept,
+                graphManager.generate(request.eventType(), request.timeRange(), request.useThreadMode()));
     }
 
     @PostMapping("/diff")
-    public ObjectNode generateDiffRange(@RequestBody GenerateDiffFlamegraphRequest request) {
+    public ResponseEntity<StreamingResponseBody> generateDiffRange(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestBody GenerateDiffFlamegraphRequest request) {
+
         ProfileManager primaryManager = profilesManager.getProfile(request.primaryProfileId())
                 .orElseThrow(Exceptions.PROFILE_NOT_FOUND);
         ProfileManager secondaryManager = profilesManager.getProfile(request.secondaryProfileId())
                 .orElseThrow(Exceptions.PROFILE_NOT_FOUND);
 
-        return primaryManager.diffgraphManager(secondaryManager)
-                .generate(request.eventType(), request.timeRange(), false);
+        return GraphResponses.negotiate(accept, primaryManager.diffgraphManager(secondaryManager)
+                .generate(request.eventType(), request.timeRange(), false));
     }
 }
@@ -0,0 +1,74 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pbouda.jeffrey.generator.flamegraph.BinaryGraphOutput;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
+
+import java.util.List;
+
+abstract class GraphResponses {
+
+    private static final MediaType BINARY = MediaType.parseMediaType(BinaryGraphOutput.MEDIA_TYPE);
+
+    /**
+     * Streams the generated graph directly into the HTTP response without building the whole JSON in memory.
+     *
+     * @param graph generated graph.
+     * @return response writing the graph in the JSON format.
+     */
+    static ResponseEntity<StreamingResponseBody> json(GraphOutput graph) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(graph::writeTo);
+    }
+
+    /**
+     * Streams the generated graph in the compact binary format if the client accepts it and the graph supports it,
+     * otherwise falls back to JSON.
+     *
+     * @param accept value of the Accept header, can be {@code null}.
+     * @param graph  generated graph.
+     * @return response writing the graph in the binary or JSON format.
+     */
+    static ResponseEntity<StreamingResponseBody> negotiate(String accept, GraphOutput graph) {
+        if (graph instanceof BinaryGraphOutput binary && acceptsBinary(accept)) {
+            return ResponseEntity.ok()
+                    .contentType(BINARY)
+                    .body(binary::writeBinaryTo);
+        }
+        return json(graph);
+    }
+
+    private static boolean acceptsBinary(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        for (MediaType mediaType : mediaTypes) {
+            if (BINARY.equalsTypeAndSubtype(mediaType) && mediaType.getQualityValue() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -18,12 +18,13 @@
 
 package pbouda.jeffrey.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pbouda.jeffrey.common.analysis.AutoAnalysisResult;
 import pbouda.jeffrey.controller.model.ProfileIdRequest;
 import pbouda.jeffrey.exception.Exceptions;
@@ -56,11 +57,11 @@ public class GuardianController {
     }
 
     @PostMapping("/flamegraph/generate")
-    public JsonNode generateFlamegraph(@RequestBody GuardVisualization request) {
+    public ResponseEntity<StreamingResponseBody> generateFlamegraph(@RequestBody GuardVisualization request) {
         ProfileManager profileManager = profilesManager.getProfile(request.primaryProfileId())
                 .orElseThrow(Exceptions.PROFILE_NOT_FOUND);
 
-        return profileManager.guardianManager()
-                .generateFlamegraph(request);
+        return GraphResponses.json(profileManager.guardianManager()
+                .generateFlamegraph(request));
     }
 }
@@ -29,6 +29,8 @@ import pbouda.jeffrey.exception.Exceptions;
 import pbouda.jeffrey.manager.ProfileManager;
 import pbouda.jeffrey.manager.ProfilesManager;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/subsecond")
 public class SubSecondController {
@@ -46,6 +48,15 @@ public class SubSecondController {
                 .orElseThrow(Exceptions.PROFILE_NOT_FOUND);
 
         return profileManager.subSecondManager()
-                .generate(request.eventType(), request.useWeight());
+                .generate(
+                        request.eventType(),
+                        request.useWeight(),
+                        toDuration(request.start()),
+                        toDuration(request.duration()),
+                        toDuration(request.bucketSize()));
+    }
+
+    private static Duration toDuration(Long millis) {
+        return millis == null ? null : Duration.ofMillis(millis);
     }
 }
@@ -25,10 +25,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import pbouda.jeffrey.controller.model.GenerateTimeseriesRequest;
 import pbouda.jeffrey.exception.Exceptions;
+import pbouda.jeffrey.generator.timeseries.TimeseriesResolution;
 import pbouda.jeffrey.manager.GraphManager;
 import pbouda.jeffrey.manager.ProfileManager;
 import pbouda.jeffrey.manager.ProfilesManager;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @RestController
 @RequestMapping("/timeseries")
 public class TimeseriesController {
@@ -45,7 +49,8 @@ public class TimeseriesController {
                 .map(ProfileManager::flamegraphManager)
                 .orElseThrow(Exceptions.PROFILE_NOT_FOUND);
 
-        return timeseriesManager.timeseries(request.eventType(), request.useWeight());
+        return timeseriesManager.timeseries(
+                request.eventType(), request.timeRange(), resolution(request), request.useWeight());
     }
 
     @PostMapping("/generate/complete/search")
@@ -54,7 +59,12 @@ public class TimeseriesController {
                 .map(ProfileManager::flamegraphManager)
                 .orElseThrow(Exceptions.PROFILE_NOT_FOUND);
 
-        return timeseriesManager.timeseries(request.eventType(), request.search(), request.useWeight());
+        return timeseriesManager.timeseries(
+                request.eventType(),
+                searchPatterns(request),
+                request.timeRange(),
+                resolution(request),
+                request.useWeight());
     }
 
     @PostMapping("/generate/diff")
@@ -65,6 +75,35 @@ public class TimeseriesController {
                 .orElseThrow(Exceptions.PROFILE_NOT_FOUND);
 
         return primaryManager.diffgraphManager(secondaryManager)
-                .timeseries(request.eventType(), request.useWeight());
+                .timeseries(request.eventType(), request.timeRange(), resolution(request), request.useWeight());
+    }
+
+    /**
+     * Single {@code search} pattern is kept for the compatibility, it's searched together with {@code searches}.
+     */
+    private static List<String> searchPatterns(GenerateTimeseriesRequest request) {
+        List<String> patterns = new ArrayList<>();
+        if (request.search() != null && !request.search().isBlank()) {
+            patterns.add(request.search());
+        }
+        if (request.searches() != null) {
+            for (String search : request.searches()) {
+                if (search != null && !search.isBlank() && !patterns.contains(search)) {
+                    patterns.add(search);
+                }
+            }
+        }
+        return patterns;
+    }
+
+    private static TimeseriesResolution resolution(GenerateTimeseriesRequest request) {
+        TimeseriesResolution resolution = TimeseriesResolution.DEFAULT;
+        if (request.maxPoints() != null) {
+            resolution = new TimeseriesResolution(request.maxPoints(), resolution.downsampling());
+        }
+        if (request.downsampling() != null) {
+            resolution = resolution.withDownsampling(request.downsampling());
+        }
+        return resolution;
     }
 }
@@ -18,12 +18,20 @@
 
 package pbouda.jeffrey.controller.model;
 
+import pbouda.jeffrey.TimeRangeRequest;
 import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.generator.timeseries.Downsampling;
+
+import java.util.List;
 
 public record GenerateTimeseriesRequest(
         String primaryProfileId,
         String secondaryProfileId,
         Type eventType,
         String search,
-        boolean useWeight) {
+        List<String> searches,
+        boolean useWeight,
+        TimeRangeRequest timeRange,
+        Integer maxPoints,
+        Downsampling downsampling) {
 }
@@ -20,5 +20,19 @@ package pbouda.jeffrey.controller.model;
 
 import pbouda.jeffrey.common.Type;
 
-public record GetSubSecondRequest(String profileId, Type eventType, boolean useWeight) {
+/**
+ * Request for the single time window (page) of the heatmap, all times are in millis.
+ *
+ * @param start      start of the time window relative to the start of the profile, {@code null} for the start
+ *                   of the profile.
+ * @param duration   duration of the time window, {@code null} for the default duration of the page.
+ * @param bucketSize size of the single bucket of the heatmap, {@code null} for the default size.
+ */
+public record GetSubSecondRequest(
+        String profileId,
+        Type eventType,
+        boolean useWeight,
+        Long start,
+        Long duration,
+        Long bucketSize) {
 }
@@ -21,10 +21,14 @@ package pbouda.jeffrey.jfr.configuration;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.common.Json;
 import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
+import pbouda.jeffrey.jfrparser.jdk.FanOutRecordingIterator;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Supplier;
 
 public class ProfileInformationProvider implements Supplier<ObjectNode> {
@@ -44,17 +48,28 @@ public class ProfileInformationProvider implements Supplier<ObjectNode> {
     );
 
     private final Path recording;
+    private final DecompressedRecordingCache recordingCache;
 
-    public ProfileInformationProvider(Path recording) {
+    public ProfileInformationProvider(Path recording, DecompressedRecordingCache recordingCache) {
         this.recording = recording;
+        this.recordingCache = recordingCache;
     }
 
     @Override
     public ObjectNode get() {
-        ObjectNode result = Json.createObject();
+        // All event types are resolved in a single pass over the recording
+        FanOutRecordingIterator iterator = RecordingIterators.fanOut(List.of(recording), recordingCache);
+
+        List<Supplier<Optional<JsonContent>>> contents = new ArrayList<>();
         for (Type eventType : EVENT_TYPES) {
-            RecordingIterators.singleAndCollectIdentical(recording, new JsonFieldEventProcessor(eventType))
-                    .ifPresent(json -> result.set(json.name(), json.content()));
+            contents.add(iterator.registerIdentical(() -> new JsonFieldEventProcessor(eventType)));
+        }
+
+        iterator.iterate();
+
+        ObjectNode result = Json.createObject();
+        for (Supplier<Optional<JsonContent>> content : contents) {
+            content.get().ifPresent(json -> result.set(json.name(), json.content()));
         }
         return result;
     }
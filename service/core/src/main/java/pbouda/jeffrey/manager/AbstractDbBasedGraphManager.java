@@ -18,13 +18,12 @@
 
 package pbouda.jeffrey.manager;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.TimeRangeRequest;
 import pbouda.jeffrey.WorkingDirs;
 import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.exception.NotFoundException;
 import pbouda.jeffrey.generator.flamegraph.GraphExporter;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 import pbouda.jeffrey.repository.GraphRepository;
 import pbouda.jeffrey.repository.model.GraphContent;
 import pbouda.jeffrey.repository.model.GraphInfo;
@@ -69,13 +68,13 @@ public abstract class AbstractDbBasedGraphManager implements GraphManager {
 
     @Override
     public void export(Type eventType, TimeRangeRequest timeRange, boolean threadMode) {
-        ObjectNode content = generate(eventType, timeRange, threadMode);
+        GraphOutput content = generate(eventType, timeRange, threadMode);
         _export(content, Path.of(generateFilename(eventType) + ".html"));
     }
 
-    protected void _export(JsonNode jsonObject, Path filename) {
+    protected void _export(GraphOutput content, Path filename) {
         Path target = workingDirs.exportsDir(profileInfo).resolve(filename);
-        graphExporter.export(target, jsonObject);
+        graphExporter.export(target, content);
     }
 
     @Override
@@ -88,8 +87,8 @@ public abstract class AbstractDbBasedGraphManager implements GraphManager {
         repository.delete(profileInfo.id(), flamegraphId);
     }
 
-    protected void generateAndSave(GraphInfo graphInfo, Supplier<ObjectNode> generator) {
-        ObjectNode generated = generator.get();
+    protected void generateAndSave(GraphInfo graphInfo, Supplier<GraphOutput> generator) {
+        GraphOutput generated = generator.get();
         repository.insert(graphInfo, generated);
     }
 }
@@ -72,6 +72,7 @@ public class AdhocTimeseriesManager implements TimeseriesManager {
     private ArrayNode generate(Type eventType) {
         Config timeseriesConfig = Config.primaryBuilder()
                 .withPrimaryRecording(workingDirs.profileRecording(profileInfo))
+                .withPrimaryEventIndex(workingDirs.profileEventIndex(profileInfo))
                 .withEventType(eventType)
                 .withPrimaryStart(profileInfo.startedAt())
                 .build();
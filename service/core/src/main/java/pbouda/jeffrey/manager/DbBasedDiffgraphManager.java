@@ -19,7 +19,6 @@
 package pbouda.jeffrey.manager;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import jdk.jfr.EventType;
 import pbouda.jeffrey.common.Schedulers;
 import pbouda.jeffrey.TimeRangeRequest;
@@ -32,7 +31,10 @@ import pbouda.jeffrey.generator.basic.event.EventSummary;
 import pbouda.jeffrey.generator.basic.info.EventInformationProvider;
 import pbouda.jeffrey.generator.flamegraph.GraphExporter;
 import pbouda.jeffrey.generator.flamegraph.GraphGenerator;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
+import pbouda.jeffrey.generator.timeseries.TimeseriesResolution;
 import pbouda.jeffrey.generator.timeseries.api.TimeseriesGenerator;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.model.EventSummaryResult;
 import pbouda.jeffrey.repository.GraphRepository;
 import pbouda.jeffrey.repository.model.GraphInfo;
@@ -60,6 +62,7 @@ public class DbBasedDiffgraphManager extends AbstractDbBasedGraphManager {
     private final Path primaryRecordingDir;
     private final Path secondaryRecordingDir;
     private final WorkingDirs workingDirs;
+    private final DecompressedRecordingCache recordingCache;
 
     public DbBasedDiffgraphManager(
             ProfileInfo primaryProfileInfo,
@@ -68,7 +71,8 @@ public class DbBasedDiffgraphManager extends AbstractDbBasedGraphManager {
             GraphRepository repository,
             GraphGenerator generator,
             GraphExporter graphExporter,
-            TimeseriesGenerator timeseriesGenerator) {
+            TimeseriesGenerator timeseriesGenerator,
+            DecompressedRecordingCache recordingCache) {
 
         super(primaryProfileInfo, workingDirs, repository, graphExporter);
 
@@ -79,6 +83,7 @@ public class DbBasedDiffgraphManager extends AbstractDbBasedGraphManager {
         this.secondaryProfileInfo = secondaryProfileInfo;
         this.generator = generator;
         this.timeseriesGenerator = timeseriesGenerator;
+        this.recordingCache = recordingCache;
     }
 
     @Override
@@ -86,13 +91,13 @@ public class DbBasedDiffgraphManager extends AbstractDbBasedGraphManager {
         // TODO: Parallelize the processing of the primary and secondary profiles
         CompletableFuture<List<EventSummary>> primaryFuture = CompletableFuture.supplyAsync( () -> {
             return new EventInformationProvider(
-                    workingDirs.profileRecordings(primaryProfileInfo), SUPPORTED_EVENTS)
+                    workingDirs.profileRecordings(primaryProfileInfo), recordingCache, SUPPORTED_EVENTS)
                     .get();
         }, Schedulers.parallel());
 
         CompletableFuture<List<EventSummary>> secondaryFuture = CompletableFuture.supplyAsync(() -> {
             return new EventInformationProvider(
-                    workingDirs.profileRecordings(secondaryProfileInfo), SUPPORTED_EVENTS)
+                    workingDirs.profileRecordings(secondaryProfileInfo), recordingCache, SUPPORTED_EVENTS)
                     .get();
         }, Schedulers.parallel());
 
@@ -120,7 +125,7 @@ public class DbBasedDiffgraphManager extends AbstractDbBasedGraphManager {
     }
 
     @Override
-    public ObjectNode generate(Type eventType, TimeRangeRequest timeRangeRequest, boolean threadMode) {
+    public GraphOutput generate(Type eventType, TimeRangeRequest timeRangeRequest, boolean threadMode) {
         TimeRange timeRange = null;
         if (timeRangeRequest != null) {
             timeRange = TimeRange.create(
@@ -161,21 +166,38 @@ public class DbBasedDiffgraphManager extends AbstractDbBasedGraphManager {
     }
 
     @Override
-    public ArrayNode timeseries(Type eventType, boolean useWeight) {
+    public ArrayNode timeseries(
+            Type eventType, TimeRangeRequest timeRangeRequest, TimeseriesResolution resolution, boolean useWeight) {
+
+        TimeRange timeRange = null;
+        if (timeRangeRequest != null) {
+            timeRange = TimeRange.create(
+                    timeRangeRequest.start(),
+                    timeRangeRequest.end(),
+                    timeRangeRequest.absoluteTime());
+        }
+
         Config timeseriesConfig = Config.differentialBuilder()
                 .withPrimaryRecordingDir(primaryRecordingDir)
                 .withSecondaryRecordingDir(secondaryRecordingDir)
                 .withEventType(eventType)
                 .withPrimaryStart(primaryProfileInfo.startedAt())
                 .withSecondaryStart(secondaryProfileInfo.startedAt())
+                .withTimeRange(timeRange)
                 .withCollectWeight(useWeight)
                 .build();
 
-        return timeseriesGenerator.generate(timeseriesConfig);
+        return timeseriesGenerator.generate(timeseriesConfig, resolution);
     }
 
     @Override
-    public ArrayNode timeseries(Type eventType, String searchPattern, boolean useWeight) {
+    public ArrayNode timeseries(
+            Type eventType,
+            List<String> searchPatterns,
+            TimeRangeRequest timeRange,
+            TimeseriesResolution resolution,
+            boolean useWeight) {
+
         throw new UnsupportedOperationException();
     }
 
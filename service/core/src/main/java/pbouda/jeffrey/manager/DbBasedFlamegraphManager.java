@@ -19,7 +19,6 @@
 package pbouda.jeffrey.manager;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.TimeRangeRequest;
 import pbouda.jeffrey.TimeUtils;
 import pbouda.jeffrey.WorkingDirs;
@@ -30,7 +29,10 @@ import pbouda.jeffrey.generator.basic.event.EventSummary;
 import pbouda.jeffrey.generator.basic.info.EventInformationProvider;
 import pbouda.jeffrey.generator.flamegraph.GraphExporter;
 import pbouda.jeffrey.generator.flamegraph.GraphGenerator;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
+import pbouda.jeffrey.generator.timeseries.TimeseriesResolution;
 import pbouda.jeffrey.generator.timeseries.api.TimeseriesGenerator;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.model.EventSummaryResult;
 import pbouda.jeffrey.repository.GraphRepository;
 import pbouda.jeffrey.repository.model.GraphInfo;
@@ -41,13 +43,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-public class DbBasedFlamegraphManager extends AbstractDbBasedGraphManager {
+public class DbBasedFlamegraphManager extends AbstractDbBasedGraphManager implements FlamegraphManager {
 
     private final ProfileInfo profileInfo;
     private final GraphGenerator generator;
     private final TimeseriesGenerator timeseriesGenerator;
     private final Path profileRecordingDir;
     private final WorkingDirs workingDirs;
+    private final double minFrameRatio;
+    private final DecompressedRecordingCache recordingCache;
 
     public DbBasedFlamegraphManager(
             ProfileInfo profileInfo,
@@ -55,7 +59,9 @@ public class DbBasedFlamegraphManager extends AbstractDbBasedGraphManager {
             GraphRepository repository,
             GraphGenerator generator,
             GraphExporter graphExporter,
-            TimeseriesGenerator timeseriesGenerator) {
+            TimeseriesGenerator timeseriesGenerator,
+            double minFrameRatio,
+            DecompressedRecordingCache recordingCache) {
 
         super(profileInfo, workingDirs, repository, graphExporter);
 
@@ -64,36 +70,44 @@ public class DbBasedFlamegraphManager extends AbstractDbBasedGraphManager {
         this.profileInfo = profileInfo;
         this.generator = generator;
         this.timeseriesGenerator = timeseriesGenerator;
+        this.minFrameRatio = minFrameRatio;
+        this.recordingCache = recordingCache;
     }
 
     @Override
     public Map<String, EventSummaryResult> supportedEvents() {
         List<EventSummary> eventSummaries =
-                new EventInformationProvider(workingDirs.profileRecordings(profileInfo)).get();
+                new EventInformationProvider(workingDirs.profileRecordings(profileInfo), recordingCache).get();
 
         return eventSummaries.stream()
                 .collect(Collectors.toMap(s -> s.eventType().getName(), EventSummaryResult::new));
     }
 
     @Override
-    public ObjectNode generate(Type eventType, TimeRangeRequest timeRangeRequest, boolean threadMode) {
-        TimeRange timeRange = null;
-        if (timeRangeRequest != null) {
-            timeRange = TimeRange.create(
-                    timeRangeRequest.start(),
-                    timeRangeRequest.end(),
-                    timeRangeRequest.absoluteTime());
-        }
+    public GraphOutput generate(Type eventType, TimeRangeRequest timeRangeRequest, boolean threadMode) {
+        return generator.generate(generateConfig(eventType, timeRangeRequest, threadMode, null));
+    }
 
-        Config config = Config.primaryBuilder()
+    @Override
+    public GraphOutput generateSubtree(
+            Type eventType, TimeRangeRequest timeRangeRequest, boolean threadMode, long frameId) {
+
+        return generator.generate(generateConfig(eventType, timeRangeRequest, threadMode, frameId));
+    }
+
+    private Config generateConfig(
+            Type eventType, TimeRangeRequest timeRangeRequest, boolean threadMode, Long subtreeId) {
+
+        return Config.primaryBuilder()
                 .withPrimaryRecordingDir(profileRecordingDir)
+                .withPrimaryEventIndex(workingDirs.profileEventIndex(profileInfo))
                 .withPrimaryStart(profileInfo.startedAt())
                 .withEventType(eventType)
                 .withThreadMode(threadMode)
-                .withTimeRange(timeRange)
+                .withTimeRange(toTimeRange(timeRangeRequest))
+                .withMinFrameRatio(minFrameRatio)
+                .withSubtreeId(subtreeId)
                 .build();
-
-        return generator.generate(config);
     }
 
     @Override
@@ -101,6 +115,7 @@ public class DbBasedFlamegraphManager extends AbstractDbBasedGraphManager {
         GraphInfo graphInfo = GraphInfo.custom(profileInfo.id(), eventType, threadMode, weight, flamegraphName);
         Config config = Config.primaryBuilder()
                 .withPrimaryRecordingDir(profileRecordingDir)
+                .withPrimaryEventIndex(workingDirs.profileEventIndex(profileInfo))
                 .withPrimaryStart(profileInfo.startedAt())
                 .withEventType(eventType)
                 .withThreadMode(threadMode)
@@ -112,28 +127,49 @@ public class DbBasedFlamegraphManager extends AbstractDbBasedGraphManager {
     }
 
     @Override
-    public ArrayNode timeseries(Type eventType, boolean useWeight) {
+    public ArrayNode timeseries(
+            Type eventType, TimeRangeRequest timeRange, TimeseriesResolution resolution, boolean useWeight) {
+
         Config config = Config.primaryBuilder()
                 .withPrimaryRecordingDir(profileRecordingDir)
+                .withPrimaryEventIndex(workingDirs.profileEventIndex(profileInfo))
                 .withEventType(eventType)
                 .withPrimaryStart(profileInfo.startedAt())
+                .withTimeRange(toTimeRange(timeRange))
                 .withCollectWeight(useWeight)
                 .build();
 
-        return timeseriesGenerator.generate(config);
+        return timeseriesGenerator.generate(config, resolution);
     }
 
     @Override
-    public ArrayNode timeseries(Type eventType, String searchPattern, boolean useWeight) {
+    public ArrayNode timeseries(
+            Type eventType,
+            List<String> searchPatterns,
+            TimeRangeRequest timeRange,
+            TimeseriesResolution resolution,
+            boolean useWeight) {
+
         Config config = Config.primaryBuilder()
                 .withPrimaryRecordingDir(profileRecordingDir)
                 .withPrimaryStart(profileInfo.startedAt())
                 .withEventType(eventType)
-                .withSearchPattern(searchPattern)
+                .withSearchPatterns(searchPatterns)
+                .withTimeRange(toTimeRange(timeRange))
                 .withCollectWeight(useWeight)
                 .build();
 
-        return timeseriesGenerator.generate(config);
+        return timeseriesGenerator.generate(config, resolution);
+    }
+
+    private static TimeRange toTimeRange(TimeRangeRequest timeRangeRequest) {
+        if (timeRangeRequest == null) {
+            return null;
+        }
+        return TimeRange.create(
+                timeRangeRequest.start(),
+                timeRangeRequest.end(),
+                timeRangeRequest.absoluteTime());
     }
 
     @Override
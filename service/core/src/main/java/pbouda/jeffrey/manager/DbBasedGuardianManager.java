@@ -18,12 +18,12 @@
 
 package pbouda.jeffrey.manager;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import pbouda.jeffrey.WorkingDirs;
 import pbouda.jeffrey.common.Config;
 import pbouda.jeffrey.common.ConfigBuilder;
 import pbouda.jeffrey.frameir.marker.Marker;
 import pbouda.jeffrey.generator.flamegraph.GraphGenerator;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 import pbouda.jeffrey.guardian.Guardian;
 import pbouda.jeffrey.guardian.GuardianResult;
 import pbouda.jeffrey.guardian.guard.GuardAnalysisResult;
@@ -68,7 +68,7 @@ public class DbBasedGuardianManager implements GuardianManager {
     }
 
     @Override
-    public JsonNode generateFlamegraph(GuardVisualization visualization) {
+    public GraphOutput generateFlamegraph(GuardVisualization visualization) {
         Config config = Config.primaryBuilder()
                 .withPrimaryRecordingDir(workingDirs.profileRecordingDir(profileInfo))
                 .withPrimaryStart(profileInfo.startedAt())
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.WorkingDirs;
 import pbouda.jeffrey.jfr.configuration.ProfileInformationProvider;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.repository.CacheKey;
 import pbouda.jeffrey.repository.CacheRepository;
 import pbouda.jeffrey.repository.model.ProfileInfo;
@@ -36,10 +37,12 @@ public class DbBasedProfileInfoManager implements ProfileInfoManager {
     public DbBasedProfileInfoManager(
             ProfileInfo profileInfo,
             WorkingDirs workingDirs,
-            CacheRepository cacheRepository) {
+            CacheRepository cacheRepository,
+            DecompressedRecordingCache recordingCache) {
 
         this.cacheRepository = cacheRepository;
-        this.infoProvider = new ProfileInformationProvider(workingDirs.profileRecordings(profileInfo).getFirst());
+        this.infoProvider = new ProfileInformationProvider(
+                workingDirs.profileRecordings(profileInfo).getFirst(), recordingCache);
     }
 
     @Override
@@ -25,7 +25,7 @@ public class DbBasedProfileManager implements ProfileManager {
 
     private final ProfileInfo profileInfo;
     private final WorkingDirs workingDirs;
-    private final GraphManager.FlamegraphFactory flamegraphManagerFactory;
+    private final FlamegraphManager.Factory flamegraphManagerFactory;
     private final GraphManager.DiffgraphFactory diffgraphManagerFactory;
     private final SubSecondManager.Factory subSecondManagerFactory;
     private final TimeseriesManager.Factory timeseriesManagerFactory;
@@ -37,7 +37,7 @@ public class DbBasedProfileManager implements ProfileManager {
     public DbBasedProfileManager(
             ProfileInfo profileInfo,
             WorkingDirs workingDirs,
-            GraphManager.FlamegraphFactory flamegraphManagerFactory,
+            FlamegraphManager.Factory flamegraphManagerFactory,
             GraphManager.DiffgraphFactory diffgraphManagerFactory,
             SubSecondManager.Factory subSecondManagerFactory,
             TimeseriesManager.Factory timeseriesManagerFactory,
@@ -74,7 +74,7 @@ public class DbBasedProfileManager implements ProfileManager {
     }
 
     @Override
-    public GraphManager flamegraphManager() {
+    public FlamegraphManager flamegraphManager() {
         return flamegraphManagerFactory.apply(profileInfo);
     }
 
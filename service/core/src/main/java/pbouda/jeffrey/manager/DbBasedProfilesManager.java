@@ -22,7 +22,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pbouda.jeffrey.FlywayMigration;
 import pbouda.jeffrey.WorkingDirs;
+import pbouda.jeffrey.common.FileUtils;
 import pbouda.jeffrey.generator.basic.ProfilingStartTimeProcessor;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
 import pbouda.jeffrey.manager.action.ProfilePostCreateAction;
 import pbouda.jeffrey.manager.action.ProfileRecordingInitializer;
@@ -42,17 +44,20 @@ public class DbBasedProfilesManager implements ProfilesManager {
     private final ProfilePostCreateAction postCreateAction;
     private final ProfileRecordingInitializer recordingInitializer;
     private final ProfileManager.Factory profileManagerFactory;
+    private final DecompressedRecordingCache recordingCache;
 
     public DbBasedProfilesManager(
             ProfileManager.Factory profileManagerFactory,
             WorkingDirs workingDirs,
             ProfilePostCreateAction postCreateAction,
-            ProfileRecordingInitializer recordingInitializer) {
+            ProfileRecordingInitializer recordingInitializer,
+            DecompressedRecordingCache recordingCache) {
 
         this.profileManagerFactory = profileManagerFactory;
         this.workingDirs = workingDirs;
         this.postCreateAction = postCreateAction;
         this.recordingInitializer = recordingInitializer;
+        this.recordingCache = recordingCache;
     }
 
     @Override
@@ -73,17 +78,18 @@ public class DbBasedProfilesManager implements ProfilesManager {
 
         // Name derived from the recording
         // It can be a part of Profile Creation in the future.
-        String profileName = recordingPath.getFileName().toString().replace(".jfr", "");
+        String profileName = FileUtils.recordingName(recordingPath);
 
-        var profilingStartTime = RecordingIterators.singleAndCollectIdentical(
-                absoluteOriginalRecordingPath, new ProfilingStartTimeProcessor());
+        // Initializes the profile's recording - copying to the workspace
+        recordingInitializer.initialize(profileId, absoluteOriginalRecordingPath);
+
+        // Read from the profile's recording, the original recording can be compressed
+        var profilingStartTime = RecordingIterators.fileOrDirAndCollectIdentical(
+                workingDirs.profileRecordingDir(profileId), new ProfilingStartTimeProcessor(), recordingCache);
 
         ProfileInfo profileInfo = new ProfileInfo(
                 profileId, profileName, recordingPath.toString(), Instant.now(), profilingStartTime);
 
-        // Initializes the profile's recording - copying to the workspace
-        recordingInitializer.initialize(profileId, absoluteOriginalRecordingPath);
-
         Path profileInfoPath = workingDirs.createProfileInfo(profileInfo);
         LOG.info("New profile's info generated: profile_info={}", profileInfoPath);
 
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import pbouda.jeffrey.WorkingDirs;
 import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.generator.subsecond.SubSecondConfig;
+import pbouda.jeffrey.generator.subsecond.SubSecondConfigBuilder;
 import pbouda.jeffrey.generator.subsecond.api.SubSecondGenerator;
 import pbouda.jeffrey.repository.SubSecondRepository;
 import pbouda.jeffrey.repository.model.ProfileInfo;
@@ -36,17 +37,24 @@ public class DbBasedSubSecondManager implements SubSecondManager {
     private final WorkingDirs workingDirs;
     private final SubSecondRepository subSecondRepository;
     private final SubSecondGenerator subSecondGenerator;
+    private final Duration pageDuration;
 
+    /**
+     * @param pageDuration default duration of the generated time window (page), the following pages are
+     *                     requested explicitly, {@link Duration#ZERO} to generate the whole profile at once.
+     */
     public DbBasedSubSecondManager(
             ProfileInfo profileInfo,
             WorkingDirs workingDirs,
             SubSecondRepository subSecondRepository,
-            SubSecondGenerator subSecondGenerator) {
+            SubSecondGenerator subSecondGenerator,
+            Duration pageDuration) {
 
         this.profileInfo = profileInfo;
         this.workingDirs = workingDirs;
         this.subSecondRepository = subSecondRepository;
         this.subSecondGenerator = subSecondGenerator;
+        this.pageDuration = pageDuration;
     }
 
     @Override
@@ -55,17 +63,23 @@ public class DbBasedSubSecondManager implements SubSecondManager {
     }
 
     @Override
-    public JsonNode generate(Type eventType, boolean collectWeight) {
-        SubSecondConfig subSecondConfig = SubSecondConfig.builder()
+    public JsonNode generate(
+            Type eventType, boolean collectWeight, Duration start, Duration duration, Duration bucketSize) {
+
+        SubSecondConfigBuilder builder = SubSecondConfig.builder()
                 .withRecordingDir(workingDirs.profileRecordingDir(profileInfo))
                 .withEventType(eventType)
                 .withProfilingStart(profileInfo.startedAt())
-                .withGeneratingStart(Duration.ZERO)
-                .withDuration(Duration.ofMinutes(5))
+                .withGeneratingStart(start == null ? Duration.ZERO : start)
+                .withDuration(duration == null ? pageDuration : duration)
                 .withCollectWeight(collectWeight)
-                .build();
+                .withEventIndex(workingDirs.profileEventIndex(profileInfo));
+
+        if (bucketSize != null) {
+            builder.withBucketSize(bucketSize);
+        }
 
-        return subSecondGenerator.generate(subSecondConfig);
+        return subSecondGenerator.generate(builder.build());
     }
 
     @Override
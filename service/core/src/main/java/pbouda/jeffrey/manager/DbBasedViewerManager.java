@@ -20,6 +20,7 @@ package pbouda.jeffrey.manager;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
 import pbouda.jeffrey.repository.CacheKey;
 import pbouda.jeffrey.repository.CacheRepository;
 import pbouda.jeffrey.viewer.EventViewerGenerator;
@@ -31,26 +32,38 @@ import java.util.Optional;
 public class DbBasedViewerManager implements EventViewerManager {
 
     private final List<Path> recordings;
+    private final Path eventIndex;
     private final CacheRepository cacheRepository;
     private final EventViewerGenerator generator;
 
+    /**
+     * @param recordings      recordings of the profile.
+     * @param eventIndex      file of the index of events, the missing index is created in the same pass over
+     *                        the recordings as the event types, {@code null} if the index is not used.
+     * @param cacheRepository cache of the generated event types.
+     * @param generator       generator of the events and their types.
+     */
     public DbBasedViewerManager(
             List<Path> recordings,
+            Path eventIndex,
             CacheRepository cacheRepository,
             EventViewerGenerator generator) {
 
         this.recordings = recordings;
+        this.eventIndex = eventIndex;
         this.cacheRepository = cacheRepository;
         this.generator = generator;
     }
 
     @Override
     public JsonNode allEventTypes() {
+        // The index written by an older version is created again, the same way as the missing one
+        Path missingIndex = eventIndex != null && !EventIndex.isCurrent(eventIndex) ? eventIndex : null;
         Optional<JsonNode> resultOpt = cacheRepository.get(CacheKey.ALL_EVENT_TYPES);
-        if (resultOpt.isPresent()) {
+        if (resultOpt.isPresent() && missingIndex == null) {
             return resultOpt.get();
         } else {
-            JsonNode allEventTypes = generator.allEventTypes(recordings);
+            JsonNode allEventTypes = generator.allEventTypes(recordings, missingIndex);
             cacheRepository.insert(CacheKey.ALL_EVENT_TYPES, allEventTypes);
             return allEventTypes;
         }
@@ -20,11 +20,15 @@ package pbouda.jeffrey.manager;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import pbouda.jeffrey.WorkingDirs;
+import pbouda.jeffrey.common.CompressionUtils;
+import pbouda.jeffrey.common.FileUtils;
 import pbouda.jeffrey.common.Json;
 import pbouda.jeffrey.common.treetable.RecordingData;
 import pbouda.jeffrey.common.treetable.Tree;
 import pbouda.jeffrey.common.treetable.TreeData;
 import pbouda.jeffrey.jfr.ReadOneEventProcessor;
+import pbouda.jeffrey.jfrparser.jdk.ChunkHeader;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
 import pbouda.jeffrey.repository.RecordingRepository;
 import pbouda.jeffrey.repository.model.ProfileInfo;
@@ -41,12 +45,15 @@ public class FileBasedRecordingManager implements RecordingManager {
 
     private final WorkingDirs workingDirs;
     private final RecordingRepository recordingRepository;
+    private final DecompressedRecordingCache recordingCache;
 
     public FileBasedRecordingManager(
             WorkingDirs workingDirs,
-            RecordingRepository recordingRepository) {
+            RecordingRepository recordingRepository,
+            DecompressedRecordingCache recordingCache) {
         this.workingDirs = workingDirs;
         this.recordingRepository = recordingRepository;
+        this.recordingCache = recordingCache;
     }
 
     @Override
@@ -93,13 +100,30 @@ public class FileBasedRecordingManager implements RecordingManager {
         }
 
         try {
-            RecordingIterators.singleAndCollectIdentical(recordingPath, new ReadOneEventProcessor());
+            if (recordingPath.getFileName().toString().endsWith(FileUtils.JFR_EXTENSION)) {
+                RecordingIterators.singleAndCollectIdentical(
+                        recordingPath, new ReadOneEventProcessor(), recordingCache);
+            } else {
+                validateCompressed(recordingPath);
+            }
         } catch (Exception ex) {
             Files.deleteIfExists(recordingPath);
             throw ex;
         }
     }
 
+    /**
+     * Only the header of the first chunk is checked, the compressed recording is not decompressed
+     * as a whole before it's split into the profile.
+     */
+    private static void validateCompressed(Path recording) throws IOException {
+        try (InputStream input = CompressionUtils.decompressing(recording)) {
+            if (ChunkHeader.read(input, 0, new byte[ChunkHeader.HEADER_SIZE]) == null) {
+                throw new IOException("Compressed recording is empty: " + recording);
+            }
+        }
+    }
+
     @Override
     public void delete(Path filename) {
         try {
@@ -0,0 +1,49 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.manager;
+
+import pbouda.jeffrey.TimeRangeRequest;
+import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
+import pbouda.jeffrey.repository.model.ProfileInfo;
+
+import java.util.function.Function;
+
+/**
+ * Graph manager of a single profile, in addition to the graphs shared with the differential graphs,
+ * it provides the subtrees of the frames.
+ */
+public interface FlamegraphManager extends GraphManager {
+
+    @FunctionalInterface
+    interface Factory extends Function<ProfileInfo, FlamegraphManager> {
+    }
+
+    /**
+     * Generates only the subtree of the frame with the given ID, the subtree is pruned relatively to the number
+     * of samples of the frame, therefore, it reveals the frames that were collapsed in the whole graph.
+     *
+     * @param eventType  type of the events in the graph.
+     * @param timeRange  time range of the graph.
+     * @param threadMode whether the frames are grouped by threads.
+     * @param frameId    stable ID of the frame emitted in the generated graph.
+     * @return subtree of the frame.
+     */
+    GraphOutput generateSubtree(Type eventType, TimeRangeRequest timeRange, boolean threadMode, long frameId);
+}
@@ -19,9 +19,10 @@
 package pbouda.jeffrey.manager;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.TimeRangeRequest;
 import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
+import pbouda.jeffrey.generator.timeseries.TimeseriesResolution;
 import pbouda.jeffrey.model.EventSummaryResult;
 import pbouda.jeffrey.repository.model.GraphContent;
 import pbouda.jeffrey.repository.model.GraphInfo;
@@ -31,14 +32,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
-import java.util.function.Function;
 
 public interface GraphManager {
 
-    @FunctionalInterface
-    interface FlamegraphFactory extends Function<ProfileInfo, GraphManager> {
-    }
-
     @FunctionalInterface
     interface DiffgraphFactory extends BiFunction<ProfileInfo, ProfileInfo, GraphManager> {
     }
@@ -47,13 +43,39 @@ public interface GraphManager {
 
     Map<String, EventSummaryResult> supportedEvents();
 
-    ObjectNode generate(Type eventType, TimeRangeRequest timeRange, boolean threadMode);
+    GraphOutput generate(Type eventType, TimeRangeRequest timeRange, boolean threadMode);
 
     void save(Type eventType, TimeRangeRequest timeRange, String flamegraphName, boolean threadMode, boolean weight);
 
-    ArrayNode timeseries(Type eventType, boolean useWeight);
-
-    ArrayNode timeseries(Type eventType, String searchPattern, boolean useWeight);
+    /**
+     * Generates the timeseries of the events, the series contain at most {@link TimeseriesResolution#maxPoints()}
+     * points in the finest resolution fitting into the time range.
+     *
+     * @param eventType  type of the events in the timeseries.
+     * @param timeRange  time range of the timeseries, {@code null} for the whole profile.
+     * @param resolution maximum number of the points and the downsampling.
+     * @param useWeight  whether the weight of the events is used instead of the number of samples.
+     * @return series of the timeseries.
+     */
+    ArrayNode timeseries(Type eventType, TimeRangeRequest timeRange, TimeseriesResolution resolution, boolean useWeight);
+
+    /**
+     * Generates the timeseries of the events not matching any search pattern and one timeseries
+     * of the matching events for every search pattern, all patterns are matched in a single pass.
+     *
+     * @param eventType      type of the events in the timeseries.
+     * @param searchPatterns patterns searched in the frames of the stacktraces.
+     * @param timeRange      time range of the timeseries, {@code null} for the whole profile.
+     * @param resolution     maximum number of the points and the downsampling.
+     * @param useWeight      whether the weight of the events is used instead of the number of samples.
+     * @return series of the timeseries.
+     */
+    ArrayNode timeseries(
+            Type eventType,
+            List<String> searchPatterns,
+            TimeRangeRequest timeRange,
+            TimeseriesResolution resolution,
+            boolean useWeight);
 
     Optional<GraphContent> get(String flamegraphId);
 
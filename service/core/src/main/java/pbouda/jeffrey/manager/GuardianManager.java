@@ -18,8 +18,8 @@
 
 package pbouda.jeffrey.manager;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import pbouda.jeffrey.common.analysis.AutoAnalysisResult;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 import pbouda.jeffrey.guardian.guard.GuardAnalysisResult;
 import pbouda.jeffrey.guardian.guard.GuardVisualization;
 import pbouda.jeffrey.repository.model.ProfileInfo;
@@ -47,5 +47,5 @@ public interface GuardianManager {
      * @param visualization data from guard visualization to generate a flamegraph with warnings.
      * @return JSON representation of the flamegraph
      */
-    JsonNode generateFlamegraph(GuardVisualization visualization);
+    GraphOutput generateFlamegraph(GuardVisualization visualization);
 }
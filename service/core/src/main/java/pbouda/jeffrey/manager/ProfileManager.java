@@ -34,7 +34,7 @@ public interface ProfileManager {
 
     ProfileAutoAnalysisManager profileAutoAnalysisManager();
 
-    GraphManager flamegraphManager();
+    FlamegraphManager flamegraphManager();
 
     GraphManager diffgraphManager(ProfileManager secondaryManager);
 
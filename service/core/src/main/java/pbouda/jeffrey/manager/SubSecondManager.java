@@ -23,6 +23,7 @@ import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.repository.model.SubSecondInfo;
 import pbouda.jeffrey.repository.model.ProfileInfo;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.function.Function;
 
@@ -34,7 +35,17 @@ public interface SubSecondManager {
 
     List<SubSecondInfo> all();
 
-    JsonNode generate(Type eventType, boolean collectWeight);
+    /**
+     * Generates the heatmap of the single time window (page) of the profile.
+     *
+     * @param eventType     type of the events in the heatmap.
+     * @param collectWeight sums the weight of the events instead of the number of the events.
+     * @param start         start of the time window relative to the start of the profile.
+     * @param duration      duration of the time window, {@code null} for the default duration of the page.
+     * @param bucketSize    size of the single bucket of the heatmap, {@code null} for the default size.
+     * @return data of the heatmap.
+     */
+    JsonNode generate(Type eventType, boolean collectWeight, Duration start, Duration duration, Duration bucketSize);
 
     void delete(String subSecondId);
 
@@ -19,22 +19,37 @@
 package pbouda.jeffrey.manager.action;
 
 import pbouda.jeffrey.WorkingDirs;
-import pbouda.jeffrey.tools.api.JfrTool;
+import pbouda.jeffrey.common.CompressionUtils;
+import pbouda.jeffrey.tools.impl.chunk.ChunkSplitter;
 
 import java.nio.file.Path;
 
 public class ChunkBasedRecordingInitializer implements ProfileRecordingInitializer {
 
     private final WorkingDirs workingDirs;
-    private final JfrTool jfrTool;
+    private final ChunkSplitter chunkSplitter;
+    private final boolean virtualChunks;
 
-    public ChunkBasedRecordingInitializer(WorkingDirs workingDirs, JfrTool jfrTool) {
+    /**
+     * @param workingDirs   working directories of the profiles.
+     * @param chunkSplitter splits the recording into the files of the profile.
+     * @param virtualChunks only views of the ranges of the original recording are created in the profile's
+     *                      directory instead of copying the chunks, the chunks of a compressed recording
+     *                      are always copied.
+     */
+    public ChunkBasedRecordingInitializer(WorkingDirs workingDirs, ChunkSplitter chunkSplitter, boolean virtualChunks) {
         this.workingDirs = workingDirs;
-        this.jfrTool = jfrTool;
+        this.chunkSplitter = chunkSplitter;
+        this.virtualChunks = virtualChunks;
     }
 
     @Override
     public void initialize(String profileId, Path sourceRecording) {
-        jfrTool.disassemble(sourceRecording, workingDirs.profileRecordingDir(profileId));
+        Path recordingDir = workingDirs.profileRecordingDir(profileId);
+        if (virtualChunks && !CompressionUtils.isCompressed(sourceRecording)) {
+            chunkSplitter.splitToViews(sourceRecording, recordingDir);
+        } else {
+            chunkSplitter.split(sourceRecording, recordingDir);
+        }
     }
 }
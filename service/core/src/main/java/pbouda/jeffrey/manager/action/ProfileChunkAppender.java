@@ -0,0 +1,149 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.manager.action;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pbouda.jeffrey.WorkingDirs;
+import pbouda.jeffrey.jfrparser.jdk.ChunkHeader;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexCache;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexWriter;
+import pbouda.jeffrey.repository.CacheRepository;
+import pbouda.jeffrey.repository.GraphCacheRepository;
+import pbouda.jeffrey.repository.JdbcTemplateFactory;
+import pbouda.jeffrey.repository.model.ProfileInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends finished chunks of a continuously running recording to the existing profile. Every chunk is a separate
+ * recording in the profile's recording directory, therefore, the per-chunk partial results of flamegraphs are
+ * computed only for the new chunks and the already aggregated chunks are taken from the caches. The index
+ * of events is extended only by the new chunks, and only the cached graphs whose time window reaches the new chunks
+ * are invalidated.
+ */
+public class ProfileChunkAppender {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProfileChunkAppender.class);
+
+    private final WorkingDirs workingDirs;
+    private final JdbcTemplateFactory jdbcTemplateFactory;
+    private final EventIndexCache eventIndexCache;
+    private final long graphCacheSize;
+    private final DecompressedRecordingCache recordingCache;
+
+    /**
+     * @param workingDirs         working directories of the profiles.
+     * @param jdbcTemplateFactory databases of the profiles.
+     * @param eventIndexCache     opened indexes of events, the index of the profile is reopened after appending.
+     * @param graphCacheSize      maximum size of the cached graphs in the profile's database.
+     * @param recordingCache      local uncompressed copies of the compressed chunks.
+     */
+    public ProfileChunkAppender(
+            WorkingDirs workingDirs,
+            JdbcTemplateFactory jdbcTemplateFactory,
+            EventIndexCache eventIndexCache,
+            long graphCacheSize,
+            DecompressedRecordingCache recordingCache) {
+
+        this.workingDirs = workingDirs;
+        this.jdbcTemplateFactory = jdbcTemplateFactory;
+        this.eventIndexCache = eventIndexCache;
+        this.graphCacheSize = graphCacheSize;
+        this.recordingCache = recordingCache;
+    }
+
+    /**
+     * Copies the chunks into the profile's recording directory, appends the new chunks to the index of events and
+     * invalidates the data derived from all recordings of the profile (cached information, event types, rules)
+     * and the cached graphs whose time window reaches the new chunks.
+     *
+     * @param profileInfo profile to append the chunks to.
+     * @param chunks      finished chunks, the chunks already existing in the profile are skipped.
+     * @return number of the appended chunks.
+     */
+    public int append(ProfileInfo profileInfo, List<Path> chunks) {
+        Path recordingDir = workingDirs.profileRecordingDir(profileInfo);
+
+        List<Path> appended = new ArrayList<>();
+        for (Path chunk : chunks) {
+            Path target = recordingDir.resolve(chunk.getFileName());
+            if (Files.exists(target)) {
+                continue;
+            }
+
+            // The chunk becomes visible for the generators only when it's completely copied
+            Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            try {
+                Files.copy(chunk, temporary, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+                appended.add(target);
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot append the chunk to the profile: " + chunk, e);
+            }
+        }
+
+        if (appended.isEmpty()) {
+            return 0;
+        }
+
+        JdbcTemplate jdbcTemplate = jdbcTemplateFactory.create(profileInfo);
+        // All the entries are derived from the whole profile (information, event types, rules)
+        new CacheRepository(jdbcTemplate).deleteAll();
+        int invalidatedGraphs = new GraphCacheRepository(jdbcTemplate, graphCacheSize)
+                .invalidate(earliestStart(appended));
+
+        // Only the profiles initialized by post-create actions contain the index. The index of an older version
+        // is not extended, it's created again with the event types that have been deleted from the cache above.
+        Path eventIndex = workingDirs.profileEventIndex(profileInfo);
+        if (EventIndex.isCurrent(eventIndex)) {
+            EventIndexWriter.append(appended, eventIndex, recordingCache);
+            eventIndexCache.invalidate(eventIndex);
+        }
+        LOG.info("Chunks appended to the profile: profile_id={} chunks={} invalidated_graphs={}",
+                profileInfo.id(), appended.size(), invalidatedGraphs);
+        return appended.size();
+    }
+
+    /**
+     * Start of the earliest appended chunk, or {@link Long#MIN_VALUE} (all graphs are invalidated) if any chunk
+     * header cannot be read.
+     */
+    private long earliestStart(List<Path> chunks) {
+        long earliest = Long.MAX_VALUE;
+        for (Path chunk : chunks) {
+            List<ChunkHeader> headers = recordingCache.chunkHeaders(chunk);
+            if (headers.isEmpty()) {
+                return Long.MIN_VALUE;
+            }
+            for (ChunkHeader header : headers) {
+                earliest = Math.min(earliest, header.startNanos());
+            }
+        }
+        return earliest;
+    }
+}
@@ -18,10 +18,21 @@
 
 package pbouda.jeffrey.manager.action;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pbouda.jeffrey.WorkingDirs;
 import pbouda.jeffrey.manager.ProfileManager;
 
 public class ProfilePostCreateActionImpl implements ProfilePostCreateAction {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ProfilePostCreateActionImpl.class);
+
+    private final WorkingDirs workingDirs;
+
+    public ProfilePostCreateActionImpl(WorkingDirs workingDirs) {
+        this.workingDirs = workingDirs;
+    }
+
     @Override
     public void execute(ProfileManager profileManager) {
         // Create and cache Information
@@ -32,8 +43,10 @@ public class ProfilePostCreateActionImpl implements ProfilePostCreateAction {
         profileManager.profileAutoAnalysisManager()
                 .ruleResults();
 
-        // Create and cache data for EventViewer
+        // Create and cache data for EventViewer, the index of events is created in the same pass
+        // over the recordings, generators read the index instead of parsing the recordings
         profileManager.eventViewerManager()
                 .allEventTypes();
+        LOG.info("Event index created: {}", workingDirs.profileEventIndex(profileManager.info()));
     }
 }
@@ -19,6 +19,8 @@
 package pbouda.jeffrey.manager.action;
 
 import pbouda.jeffrey.WorkingDirs;
+import pbouda.jeffrey.common.CompressionUtils;
+import pbouda.jeffrey.common.FileUtils;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -34,6 +36,13 @@ public class SingleFileRecordingInitializer implements ProfileRecordingInitializ
 
     @Override
     public void initialize(String profileId, Path sourceRecording) {
+        if (CompressionUtils.isCompressed(sourceRecording)) {
+            Path target = workingDirs.profileRecordingDir(profileId)
+                    .resolve(FileUtils.recordingName(sourceRecording) + FileUtils.JFR_EXTENSION);
+            CompressionUtils.decompress(sourceRecording, target);
+            return;
+        }
+
         Path target = workingDirs.profileRecordingDir(profileId)
                 .resolve(sourceRecording.getFileName());
         try {
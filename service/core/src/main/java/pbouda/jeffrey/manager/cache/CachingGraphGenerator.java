@@ -0,0 +1,147 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.manager.cache;
+
+import pbouda.jeffrey.common.AbsoluteTimeRange;
+import pbouda.jeffrey.common.Config;
+import pbouda.jeffrey.frameir.marker.Marker;
+import pbouda.jeffrey.generator.flamegraph.BinaryGraphOutput;
+import pbouda.jeffrey.generator.flamegraph.GraphGenerator;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
+import pbouda.jeffrey.jfrparser.jdk.ProcessableEvents;
+import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
+import pbouda.jeffrey.repository.GraphCacheRepository;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Caches the generated graphs in the binary format using the fingerprint of the {@link Config} as a key
+ * (only the recordings that can contain the events in the time range are part of the key, the chunks appended
+ * to the profile after the time range do not change the key):
+ * <ul>
+ *     <li>The graph is looked up in the memory first ({@link InMemoryGraphCache} shared by all profiles)</li>
+ *     <li>Then in the profile's database ({@link GraphCacheRepository}), the found graph is put back to the memory</li>
+ *     <li>Otherwise, the graph is generated by the delegate and stored into both tiers</li>
+ * </ul>
+ * Graphs with markers are never cached, and the graphs that cannot be written in the binary format as well.
+ */
+public class CachingGraphGenerator implements GraphGenerator {
+
+    private final GraphGenerator delegate;
+    private final InMemoryGraphCache memoryCache;
+    private final GraphCacheRepository repository;
+    private final DecompressedRecordingCache recordingCache;
+
+    public CachingGraphGenerator(
+            GraphGenerator delegate,
+            InMemoryGraphCache memoryCache,
+            GraphCacheRepository repository,
+            DecompressedRecordingCache recordingCache) {
+
+        this.delegate = delegate;
+        this.memoryCache = memoryCache;
+        this.repository = repository;
+        this.recordingCache = recordingCache;
+    }
+
+    @Override
+    public GraphOutput generate(Config config) {
+        String key = cacheKey(config);
+
+        byte[] content = memoryCache.get(key);
+        if (content == null) {
+            content = repository.get(key).orElse(null);
+            if (content != null) {
+                memoryCache.put(key, content);
+            }
+        }
+        if (content != null) {
+            return BinaryGraphOutput.of(content);
+        }
+
+        GraphOutput output = delegate.generate(config);
+        if (output instanceof BinaryGraphOutput binaryOutput) {
+            byte[] generated = binaryOutput.toBinaryByteArray();
+            memoryCache.put(key, generated);
+            repository.insert(key, windowEnd(config), generated);
+            return BinaryGraphOutput.of(generated);
+        } else {
+            return output;
+        }
+    }
+
+    @Override
+    public GraphOutput generate(Config config, List<Marker> markers) {
+        if (markers.isEmpty()) {
+            return generate(config);
+        } else {
+            return delegate.generate(config, markers);
+        }
+    }
+
+    private String cacheKey(Config config) {
+        ProcessableEvents events = new ProcessableEvents(config.eventType());
+        Config contributing = new Config(
+                config.type(),
+                config.primaryId(),
+                config.secondaryId(),
+                contributingRecordings(config.primaryRecordings(), config.primaryTimeRange(), events),
+                contributingRecordings(config.secondaryRecordings(), config.secondaryTimeRange(), events),
+                config.eventType(),
+                config.primaryStart(),
+                config.secondaryStart(),
+                config.primaryTimeRange(),
+                config.secondaryTimeRange(),
+                config.searchPatterns(),
+                config.threadMode(),
+                config.collectWeight(),
+                config.primaryEventIndex(),
+                config.minFrameRatio(),
+                config.subtreeId());
+
+        return contributing.fingerprint();
+    }
+
+    private List<Path> contributingRecordings(
+            List<Path> recordings, AbsoluteTimeRange timeRange, ProcessableEvents events) {
+
+        if (recordings == null || timeRange == null) {
+            return recordings;
+        }
+        return recordings.stream()
+                .filter(recording -> !RecordingIterators.isOutsideOfTimeRange(
+                        recording, timeRange, events, recordingCache))
+                .toList();
+    }
+
+    /**
+     * The latest start of an appended chunk that changes the graph.
+     */
+    private static long windowEnd(Config config) {
+        ProcessableEvents events = new ProcessableEvents(config.eventType());
+        long windowEnd = RecordingIterators.latestContributingChunkStart(config.primaryTimeRange(), events);
+        if (config.secondaryTimeRange() != null) {
+            windowEnd = Math.max(windowEnd,
+                    RecordingIterators.latestContributingChunkStart(config.secondaryTimeRange(), events));
+        }
+        return windowEnd;
+    }
+}
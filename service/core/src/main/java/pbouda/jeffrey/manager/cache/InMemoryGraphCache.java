@@ -0,0 +1,63 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.manager.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU cache of the generated graphs in the binary format shared by all profiles. The size of the cache
+ * is limited by the total size of the cached graphs, the least recently used graphs are evicted first.
+ */
+public class InMemoryGraphCache {
+
+    private final long maxSize;
+    private final Map<String, byte[]> graphs = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * @param maxSize maximum total size of the cached graphs in bytes, {@code 0} disables the cache.
+     */
+    public InMemoryGraphCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public synchronized byte[] get(String key) {
+        return graphs.get(key);
+    }
+
+    public synchronized void put(String key, byte[] content) {
+        if (content.length > maxSize) {
+            return;
+        }
+
+        byte[] previous = graphs.put(key, content);
+        if (previous != null) {
+            size -= previous.length;
+        }
+        size += content.length;
+
+        Iterator<byte[]> iterator = graphs.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().length;
+            iterator.remove();
+        }
+    }
+}
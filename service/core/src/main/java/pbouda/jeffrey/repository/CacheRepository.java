@@ -22,7 +22,6 @@ import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.support.SqlLobValue;
 import pbouda.jeffrey.common.Json;
 
 import java.io.IOException;
@@ -41,6 +40,10 @@ public class CacheRepository {
             SELECT content FROM cache WHERE key = ?
             """;
 
+    private static final String DELETE_ALL = """
+            DELETE FROM cache
+            """;
+
     private final JdbcTemplate jdbcTemplate;
 
     public CacheRepository(JdbcTemplate jdbcTemplate) {
@@ -50,7 +53,7 @@ public class CacheRepository {
     public void insert(String key, JsonNode content) {
         jdbcTemplate.update(
                 INSERT,
-                new Object[]{key, new SqlLobValue(content.toString())},
+                new Object[]{key, Repos.compressed(Json.toByteArray(content))},
                 new int[]{Types.VARCHAR, Types.BLOB});
     }
 
@@ -63,11 +66,14 @@ public class CacheRepository {
         }
     }
 
+    public void deleteAll() {
+        jdbcTemplate.update(DELETE_ALL);
+    }
+
     public static RowMapper<JsonNode> get() {
         return (rs, __) -> {
-            try {
-                InputStream content = rs.getBinaryStream("content");
-                return Json.mapper().readTree(content.readAllBytes());
+            try (InputStream content = Repos.decompressed(rs.getBytes("content"))) {
+                return Json.mapper().readTree(content);
             } catch (SQLException | IOException e) {
                 throw new RuntimeException("Cannot retrieve a binary content", e);
             }
@@ -0,0 +1,114 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.repository;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Types;
+import java.util.Optional;
+
+/**
+ * Size-bounded cache of the generated graphs in the profile's database. The least recently accessed graphs
+ * are evicted after inserting a new graph if the total size of the graphs exceeds the maximum size.
+ * Every graph keeps the end of the time window it depends on, the graphs that can be changed by the chunks
+ * appended to the profile are invalidated explicitly.
+ */
+public class GraphCacheRepository {
+
+    private static final String INSERT = """
+            INSERT OR REPLACE INTO main.graph_cache (key, size, accessed_at, window_end, content)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+
+    private static final String SELECT_CONTENT = """
+            SELECT content FROM main.graph_cache WHERE key = ?
+            """;
+
+    private static final String TOUCH = """
+            UPDATE main.graph_cache SET accessed_at = ? WHERE key = ?
+            """;
+
+    private static final String INVALIDATE = """
+            DELETE FROM main.graph_cache WHERE window_end >= ?
+            """;
+
+    private static final String EVICT = """
+            DELETE FROM main.graph_cache WHERE key IN (
+                SELECT key FROM (
+                    SELECT key, SUM(size) OVER (ORDER BY accessed_at DESC, key) AS total FROM main.graph_cache
+                ) WHERE total > ?
+            )
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxSize;
+
+    /**
+     * @param jdbcTemplate database of the profile.
+     * @param maxSize      maximum total size of the cached graphs in bytes, {@code 0} disables the cache.
+     */
+    public GraphCacheRepository(JdbcTemplate jdbcTemplate, long maxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key       fingerprint of the graph's configuration.
+     * @param windowEnd latest start of a chunk (epoch nanos) that can change the graph,
+     *                  {@link Long#MAX_VALUE} if any appended chunk changes the graph.
+     * @param content   graph in the binary format.
+     */
+    public void insert(String key, long windowEnd, byte[] content) {
+        if (content.length > maxSize) {
+            return;
+        }
+
+        jdbcTemplate.update(
+                INSERT,
+                new Object[]{key, content.length, System.currentTimeMillis(), windowEnd, Repos.compressed(content)},
+                new int[]{Types.VARCHAR, Types.INTEGER, Types.BIGINT, Types.BIGINT, Types.BLOB});
+
+        jdbcTemplate.update(EVICT, maxSize);
+    }
+
+    /**
+     * Removes the graphs whose time window reaches the chunks appended to the profile.
+     *
+     * @param appendedStart start of the earliest appended chunk in epoch nanos.
+     * @return number of the removed graphs.
+     */
+    public int invalidate(long appendedStart) {
+        return jdbcTemplate.update(INVALIDATE, appendedStart);
+    }
+
+    public Optional<byte[]> get(String key) {
+        if (maxSize == 0) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] content = jdbcTemplate.queryForObject(SELECT_CONTENT, Repos.contentByteArray(), key);
+            jdbcTemplate.update(TOUCH, System.currentTimeMillis(), key);
+            return Optional.ofNullable(content);
+        } catch (EmptyResultDataAccessException ex) {
+            return Optional.empty();
+        }
+    }
+}
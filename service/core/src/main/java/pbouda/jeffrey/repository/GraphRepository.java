@@ -18,12 +18,11 @@
 
 package pbouda.jeffrey.repository;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.support.SqlLobValue;
 import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.common.GraphType;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 import pbouda.jeffrey.repository.model.GraphContent;
 import pbouda.jeffrey.repository.model.GraphInfo;
 
@@ -82,7 +81,7 @@ public class GraphRepository {
         this.graphType = graphType;
     }
 
-    public void insert(GraphInfo fg, ObjectNode content) {
+    public void insert(GraphInfo fg, GraphOutput content) {
         jdbcTemplate.update(
                 INSERT,
                 new Object[]{
@@ -95,7 +94,7 @@ public class GraphRepository {
                         fg.complete() ? 1 : null,
                         fg.name(),
                         fg.createdAt().getEpochSecond(),
-                        new SqlLobValue(content.toString())
+                        Repos.compressed(content)
                 }, INSERT_TYPES);
     }
 
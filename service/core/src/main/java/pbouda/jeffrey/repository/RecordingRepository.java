@@ -19,6 +19,7 @@
 package pbouda.jeffrey.repository;
 
 import pbouda.jeffrey.WorkingDirs;
+import pbouda.jeffrey.common.FileUtils;
 import pbouda.jeffrey.repository.model.Recording;
 
 import java.io.IOException;
@@ -52,7 +53,7 @@ public class RecordingRepository {
     }
 
     private static Predicate<Path> hasJfrSuffix() {
-        return f -> f.getFileName().toString().endsWith(".jfr");
+        return FileUtils::isRecording;
     }
 
     private Recording toProfile(Path file) {
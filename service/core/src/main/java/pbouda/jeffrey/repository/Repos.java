@@ -18,24 +18,39 @@
 
 package pbouda.jeffrey.repository;
 
+import com.fasterxml.jackson.core.JsonParser;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.support.SqlLobValue;
+import pbouda.jeffrey.common.CompressionUtils;
 import pbouda.jeffrey.common.Json;
 import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.common.GraphType;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 import pbouda.jeffrey.repository.model.GraphContent;
 import pbouda.jeffrey.repository.model.GraphInfo;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.time.Instant;
 
+/**
+ * Mappers of the rows and the format of the content BLOBs. The first byte of the BLOB is the format
+ * of the content ({@link #FORMAT_RAW}, {@link #FORMAT_GZIP}), the content is compressed using gzip when it's
+ * written. The BLOBs written before the format byte was introduced start with a printable character
+ * (JSON or the magic of the binary graph) and are read as uncompressed content.
+ */
 public abstract class Repos {
 
+    static final int FORMAT_RAW = 0;
+    static final int FORMAT_GZIP = 1;
+
     public static RowMapper<byte[]> contentByteArray() {
         return (rs, __) -> {
-            try {
-                InputStream content = rs.getBinaryStream("content");
+            try (InputStream content = decompressed(rs.getBytes("content"))) {
                 return content.readAllBytes();
             } catch (SQLException | IOException e) {
                 throw new RuntimeException("Cannot retrieve a binary content", e);
@@ -43,11 +58,13 @@ public abstract class Repos {
         };
     }
 
+    /**
+     * The graph is kept compressed in memory, it's decompressed and copied token by token into the target
+     * generator only when the graph is written (e.g. into the HTTP response).
+     */
     public static RowMapper<GraphContent> contentJson() {
         return (rs, __) -> {
             try {
-                InputStream stream = rs.getBinaryStream("content");
-
                 return new GraphContent(
                         rs.getString("id"),
                         rs.getString("name"),
@@ -55,13 +72,66 @@ public abstract class Repos {
                         GraphType.valueOf(rs.getString("graph_type")),
                         rs.getBoolean("use_thread_mode"),
                         rs.getBoolean("use_weight"),
-                        Json.mapper().readTree(stream.readAllBytes()));
-            } catch (SQLException | IOException e) {
+                        jsonOutput(rs.getBytes("content")));
+            } catch (SQLException e) {
                 throw new RuntimeException("Cannot retrieve a binary content", e);
             }
         };
     }
 
+    public static SqlLobValue compressed(byte[] content) {
+        return compressedWith(output -> output.write(content));
+    }
+
+    public static SqlLobValue compressed(GraphOutput content) {
+        return compressedWith(content::writeTo);
+    }
+
+    private static SqlLobValue compressedWith(ContentWriter writer) {
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        blob.write(FORMAT_GZIP);
+        try (OutputStream output = CompressionUtils.compressingGzip(blob)) {
+            writer.write(output);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot compress the content", e);
+        }
+        return new SqlLobValue(blob.toByteArray());
+    }
+
+    /**
+     * Resolves the format of the BLOB and returns the stream of the uncompressed content.
+     *
+     * @param blob content BLOB in any format, {@code null} is an empty content.
+     * @return stream of the uncompressed content.
+     */
+    public static InputStream decompressed(byte[] blob) throws IOException {
+        if (blob == null || blob.length == 0) {
+            return InputStream.nullInputStream();
+        }
+
+        return switch (blob[0]) {
+            case FORMAT_GZIP -> CompressionUtils.decompressingGzip(
+                    new ByteArrayInputStream(blob, 1, blob.length - 1));
+            case FORMAT_RAW -> new ByteArrayInputStream(blob, 1, blob.length - 1);
+            // Legacy content without the format byte
+            default -> new ByteArrayInputStream(blob);
+        };
+    }
+
+    private static GraphOutput jsonOutput(byte[] blob) {
+        return generator -> {
+            try (JsonParser parser = Json.mapper().getFactory().createParser(decompressed(blob))) {
+                parser.nextToken();
+                generator.copyCurrentStructure(parser);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(OutputStream output) throws IOException;
+    }
+
     public static RowMapper<GraphInfo> infoMapper() {
         return (rs, __) -> {
             try {
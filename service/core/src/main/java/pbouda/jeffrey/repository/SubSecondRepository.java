@@ -20,7 +20,6 @@ package pbouda.jeffrey.repository;
 
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.support.SqlLobValue;
 import pbouda.jeffrey.repository.model.SubSecondInfo;
 
 import java.sql.ResultSet;
@@ -71,7 +70,7 @@ public class SubSecondRepository {
                         heatmap.profileId(),
                         heatmap.name(),
                         heatmap.createdAt().getEpochSecond(),
-                        new SqlLobValue(content)
+                        Repos.compressed(content)
                 },
                 new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.BLOB});
     }
@@ -21,7 +21,7 @@ package pbouda.jeffrey.repository;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.support.SqlLobValue;
+import pbouda.jeffrey.common.Json;
 import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.repository.model.TimeseriesInfo;
 
@@ -67,7 +67,7 @@ public class TimeseriesRepository {
                         timeseries.profileId(),
                         timeseries.eventType().code(),
                         timeseries.createdAt().getEpochSecond(),
-                        new SqlLobValue(content.toString().getBytes())
+                        Repos.compressed(Json.toByteArray(content))
                 },
                 new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.BLOB});
     }
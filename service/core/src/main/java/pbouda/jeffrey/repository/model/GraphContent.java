@@ -18,11 +18,14 @@
 
 package pbouda.jeffrey.repository.model;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.common.GraphType;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
+import pbouda.jeffrey.generator.flamegraph.GraphOutputSerializer;
 
 public record GraphContent(
         String id, String name, Type eventType, GraphType graphType,
-        boolean useThreadMode, boolean useWeight, JsonNode content) {
+        boolean useThreadMode, boolean useWeight,
+        @JsonSerialize(using = GraphOutputSerializer.class) GraphOutput content) {
 }
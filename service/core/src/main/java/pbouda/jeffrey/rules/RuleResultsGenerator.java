@@ -27,6 +27,7 @@ import org.openjdk.jmc.flightrecorder.rules.util.RulesToolkit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pbouda.jeffrey.common.analysis.AutoAnalysisResult;
+import pbouda.jeffrey.jfrparser.jdk.RecordingView;
 
 import java.io.File;
 import java.nio.file.Path;
@@ -42,7 +43,8 @@ public class RuleResultsGenerator {
 
     public static List<AutoAnalysisResult> generate(List<Path> recordings) {
         try {
-            List<File> files = recordings.stream()
+            // The whole original recordings of the views are loaded, they contain all chunks of the views
+            List<File> files = RecordingView.sources(recordings).stream()
                     .map(Path::toFile)
                     .toList();
 
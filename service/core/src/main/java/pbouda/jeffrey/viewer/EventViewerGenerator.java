@@ -31,9 +31,11 @@ public interface EventViewerGenerator {
      * all event types available for the current profile.
      *
      * @param recordings collection of paths to the JFR recording files
+     * @param eventIndex file of the index of events created in the same pass over the recordings,
+     *                   {@code null} if the index is not created
      * @return all event types for the current profile in the format of PrimeVue TreeTable
      */
-    JsonNode allEventTypes(List<Path> recordings);
+    JsonNode allEventTypes(List<Path> recordings, Path eventIndex);
 
     /**
      * Generates and provides all events of the given type.
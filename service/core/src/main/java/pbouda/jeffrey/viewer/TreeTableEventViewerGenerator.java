@@ -30,7 +30,9 @@ import pbouda.jeffrey.common.treetable.Tree;
 import pbouda.jeffrey.common.treetable.TreeData;
 import pbouda.jeffrey.generator.basic.event.EventSummary;
 import pbouda.jeffrey.generator.basic.info.EventInformationProvider;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexWriter;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -87,11 +89,21 @@ public class TreeTableEventViewerGenerator implements EventViewerGenerator {
 
     private static final List<String> IGNORED_FIELDS = List.of("stackTrace");
 
+    private final DecompressedRecordingCache recordingCache;
+
+    public TreeTableEventViewerGenerator(DecompressedRecordingCache recordingCache) {
+        this.recordingCache = recordingCache;
+    }
+
     @Override
-    public JsonNode allEventTypes(List<Path> recordings) {
+    public JsonNode allEventTypes(List<Path> recordings, Path eventIndex) {
         Tree tree = new Tree();
 
-        List<EventSummary> eventTypeCount = new EventInformationProvider(recordings).get();
+        EventInformationProvider informationProvider = eventIndex == null
+                ? new EventInformationProvider(recordings, recordingCache)
+                : new EventInformationProvider(recordings, recordingCache, new EventIndexWriter(eventIndex));
+
+        List<EventSummary> eventTypeCount = informationProvider.get();
         for (EventSummary eventSummary : eventTypeCount) {
             EventType eventType = eventSummary.eventType();
 
@@ -113,8 +125,9 @@ public class TreeTableEventViewerGenerator implements EventViewerGenerator {
         return event.getField("stackTrace") != null;
     }
 
-    private static List<EventType> readAllEventTypes(Path recording) {
-        try (RecordingFile rec = new RecordingFile(recording)) {
+    private List<EventType> readAllEventTypes(Path recording) {
+        try (DecompressedRecordingCache.Lease lease = recordingCache.acquire(recording);
+             RecordingFile rec = new RecordingFile(lease.wholeFile())) {
             return rec.readEventTypes();
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -125,7 +138,8 @@ public class TreeTableEventViewerGenerator implements EventViewerGenerator {
     public JsonNode events(List<Path> recordings, Type eventType) {
         return RecordingIterators.singleAndCollectIdentical(
                 recordings.getFirst(),
-                new ListEventsProcessor(eventType, IGNORED_FIELDS));
+                new ListEventsProcessor(eventType, IGNORED_FIELDS),
+                recordingCache);
     }
 
     @Override
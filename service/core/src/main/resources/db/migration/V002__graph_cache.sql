@@ -16,9 +16,10 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package pbouda.jeffrey.generator.subsecond;
-
-import java.util.List;
-
-public record SingleResult(long maxValue, List<SecondColumn> columns) {
-}
+CREATE TABLE IF NOT EXISTS main.graph_cache
+(
+    key         TEXT PRIMARY KEY,
+    size        INTEGER NOT NULL,
+    accessed_at INTEGER NOT NULL,
+    content     BLOB    NOT NULL
+);
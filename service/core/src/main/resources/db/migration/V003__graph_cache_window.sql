@@ -16,9 +16,6 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package pbouda.jeffrey.generator.timeseries;
-
-import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
-
-public record SearchMaps(LongLongHashMap values, LongLongHashMap matchedValues) {
-}
+-- End of the time window the graph depends on (epoch nanos), appending a chunk that starts before the end
+-- of the window invalidates the graph
+ALTER TABLE main.graph_cache ADD COLUMN window_end INTEGER NOT NULL DEFAULT 9223372036854775807;
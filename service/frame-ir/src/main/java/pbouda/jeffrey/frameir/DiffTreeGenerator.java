@@ -34,35 +34,50 @@ public class DiffTreeGenerator {
 
     public DiffFrame generate() {
         DiffFrame artificialNode = new DiffFrame(DiffFrame.Type.SHARED, null, "-", FrameType.UNKNOWN);
-        walkTree(artificialNode, "all", primary, secondary);
+        walkTree(artificialNode, "all",
+                primary.tree(), primary.index(),
+                secondary.tree(), secondary.index());
         return artificialNode.get("all");
     }
 
-    private void walkTree(TreeMap<String, DiffFrame> diffFrame, String currentMethodName, Frame primary, Frame secondary) {
-        if (secondary == null) {
-            diffFrame.put(currentMethodName, DiffFrame.added(primary, currentMethodName));
-        } else if (primary == null) {
-            diffFrame.put(currentMethodName, DiffFrame.removed(secondary, currentMethodName));
+    private void walkTree(
+            TreeMap<String, DiffFrame> diffFrame,
+            String currentMethodName,
+            FrameTree primaryTree,
+            int primary,
+            FrameTree secondaryTree,
+            int secondary) {
+
+        if (secondary == FrameTree.NO_NODE) {
+            diffFrame.put(currentMethodName, DiffFrame.added(primaryTree.frame(primary), currentMethodName));
+        } else if (primary == FrameTree.NO_NODE) {
+            diffFrame.put(currentMethodName, DiffFrame.removed(secondaryTree.frame(secondary), currentMethodName));
         } else {
             DiffFrame newFrame = DiffFrame.shared(
                     currentMethodName,
-                    primary.frameType(),
-                    primary.totalSamples(),
-                    primary.totalWeight(),
-                    secondary.totalSamples(),
-                    secondary.totalWeight());
+                    primaryTree.frameType(primary),
+                    primaryTree.totalSamples(primary),
+                    primaryTree.totalWeight(primary),
+                    secondaryTree.totalSamples(secondary),
+                    secondaryTree.totalWeight(secondary));
 
             diffFrame.put(currentMethodName, newFrame);
 
             Set<String> nextLayer = new HashSet<>();
-            nextLayer.addAll(secondary.keySet());
-            nextLayer.addAll(primary.keySet());
+            addChildNames(nextLayer, secondaryTree, secondary);
+            addChildNames(nextLayer, primaryTree, primary);
 
             for (String methodName : nextLayer) {
-                Frame newSecondary = secondary.get(methodName);
-                Frame newPrimary = primary.get(methodName);
-                walkTree(newFrame, methodName, newPrimary, newSecondary);
+                int newSecondary = secondaryTree.child(secondary, methodName);
+                int newPrimary = primaryTree.child(primary, methodName);
+                walkTree(newFrame, methodName, primaryTree, newPrimary, secondaryTree, newSecondary);
             }
         }
     }
+
+    private static void addChildNames(Set<String> names, FrameTree tree, int node) {
+        for (int child = tree.firstChild(node); child != FrameTree.NO_NODE; child = tree.nextSibling(child)) {
+            names.add(tree.methodName(child));
+        }
+    }
 }
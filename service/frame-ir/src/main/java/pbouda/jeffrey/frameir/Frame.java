@@ -23,61 +23,43 @@ import pbouda.jeffrey.frameir.marker.MarkerType;
 
 import java.util.*;
 
-public class Frame extends TreeMap<String, Frame> {
+/**
+ * Lightweight view on a single node of {@link FrameTree}. The frame does not hold any data, all the data are
+ * kept in the columns of the tree. Children of the frame are available using the Map-based API
+ * (method name -> frame) sorted by the method names.
+ */
+public class Frame extends AbstractMap<String, Frame> {
+
+    private final FrameTree tree;
+    private final int index;
+
     /**
-     * Path to the current frame in the tree structure from IDs
+     * Creates a new root frame (with a new tree) if the parent is null, otherwise, it creates a new frame
+     * in the parent's tree. The new frame is not a child of the parent until it's added using
+     * {@link #put(String, Frame)}.
+     *
+     * @param parent     parent of the frame or null for the root frame.
+     * @param methodName method name of the frame.
+     * @param lineNumber line number of the frame.
+     * @param bci        bytecode index of the frame.
      */
-    private final List<String> framePath;
-    private final String methodName;
-    private final int lineNumber;
-    private final int bci;
-
-    private FrameType syntheticFrameType;
-    private MarkerType marker;
-
-    // weight can be samples, but also allocated memory
-    private long totalSamples;
-    private long totalWeight;
-    private long selfSamples;
-    private long selfWeight;
-
-    private long c1Samples;
-    private long nativeSamples;
-    private long cppSamples;
-    private long interpretedSamples;
-    private long jitCompiledSamples;
-    private long inlinedSamples;
-    private long kernelSamples;
-
-    private final Frame parent;
-
     public Frame(Frame parent, String methodName, int lineNumber, int bci) {
         if (parent == null) {
-            this.framePath = List.of();
+            this.tree = new FrameTree(methodName, lineNumber, bci);
+            this.index = FrameTree.ROOT;
         } else {
-            List<String> framePath = new ArrayList<>(parent.framePath);
-            framePath.add(methodName);
-            this.framePath = List.copyOf(framePath);
+            this.tree = parent.tree;
+            this.index = tree.newNode(parent.index, methodName, lineNumber, bci);
         }
+    }
 
-        this.parent = parent;
-        this.methodName = methodName;
-        this.lineNumber = lineNumber;
-        this.bci = bci;
+    Frame(FrameTree tree, int index) {
+        this.tree = tree;
+        this.index = index;
     }
 
     public void merge(Frame frame) {
-        totalSamples += frame.totalSamples;
-        totalWeight += frame.totalWeight;
-        selfSamples += frame.selfSamples;
-        selfWeight += frame.selfWeight;
-        c1Samples += frame.c1Samples;
-        nativeSamples += frame.nativeSamples;
-        cppSamples += frame.cppSamples;
-        interpretedSamples += frame.interpretedSamples;
-        jitCompiledSamples += frame.jitCompiledSamples;
-        inlinedSamples += frame.inlinedSamples;
-        kernelSamples += frame.kernelSamples;
+        tree.mergeNode(index, frame.tree, frame.index);
     }
 
     public void increment(FrameType type, long weight, boolean isTopFrame) {
@@ -85,29 +67,7 @@ public class Frame extends TreeMap<String, Frame> {
     }
 
     public void increment(FrameType type, long weight, long samples, boolean isTopFrame) {
-        totalSamples += samples;
-        totalWeight += weight;
-
-        if (isTopFrame) {
-            selfSamples += samples;
-            selfWeight += weight;
-        }
-
-        switch (type) {
-            case C1_COMPILED -> c1Samples += samples;
-            case NATIVE -> nativeSamples += samples;
-            case CPP -> cppSamples += samples;
-            case INTERPRETED -> interpretedSamples += samples;
-            case JIT_COMPILED -> jitCompiledSamples += samples;
-            case INLINED -> inlinedSamples += samples;
-            case KERNEL -> kernelSamples += samples;
-            case THREAD_NAME_SYNTHETIC,
-                 ALLOCATED_OBJECT_SYNTHETIC,
-                 ALLOCATED_OBJECT_IN_NEW_TLAB_SYNTHETIC,
-                 ALLOCATED_OBJECT_OUTSIDE_TLAB_SYNTHETIC,
-                 LAMBDA_SYNTHETIC,
-                 BLOCKING_OBJECT_SYNTHETIC -> syntheticFrameType = type;
-        }
+        tree.increment(index, type, weight, samples, isTopFrame);
     }
 
     /**
@@ -117,115 +77,151 @@ public class Frame extends TreeMap<String, Frame> {
      * @param marker the marker to apply to the frame according to the path.
      */
     public void applyMarker(Marker marker) {
-        _applyMarker(marker, 0);
-    }
-
-    private void _applyMarker(Marker marker, int frameIndex) {
-        if (frameIndex == marker.path().frames().size()) {
-            this.marker = marker.markerType();
-        } else {
-            String frameName = marker.path().frames().get(frameIndex);
-            Frame child = get(frameName);
-            if (child != null) {
-                child._applyMarker(marker, frameIndex + 1);
-            }
-        }
+        tree.applyMarker(index, marker);
     }
 
     public String resolveColor() {
-        if (marker != null) {
-            return marker.color();
-        } else {
-            return frameType().color();
-        }
+        return tree.resolveColor(index);
     }
 
     public void setMarker(MarkerType marker) {
-        this.marker = marker;
+        tree.setMarker(index, marker);
     }
 
     public FrameType frameType() {
-        if (inlinedSamples * 3 >= totalSamples) {
-            return FrameType.INLINED;
-        } else if (c1Samples * 2 >= totalSamples) {
-            return FrameType.C1_COMPILED;
-        } else if (interpretedSamples * 2 >= totalSamples) {
-            return FrameType.INTERPRETED;
-        } else if (cppSamples > 0) {
-            return FrameType.CPP;
-        } else if (kernelSamples > 0) {
-            return FrameType.KERNEL;
-        } else if (nativeSamples > 0) {
-            return FrameType.NATIVE;
-        } else if (syntheticFrameType != null){
-            return syntheticFrameType;
-        } else {
-            return FrameType.JIT_COMPILED;
-        }
+        return tree.frameType(index);
+    }
+
+    public FrameTree tree() {
+        return tree;
     }
 
+    public int index() {
+        return index;
+    }
+
+    /**
+     * Path to the current frame in the tree structure, computed on demand from the parents.
+     *
+     * @return method names from the root to the current frame.
+     */
     public List<String> framePath() {
-        return framePath;
+        return tree.path(index);
     }
 
     public Frame parent() {
-        return parent;
+        int parent = tree.parent(index);
+        return parent == FrameTree.NO_NODE ? null : tree.frame(parent);
     }
 
     public String methodName() {
-        return methodName;
+        return tree.methodName(index);
     }
 
     public int lineNumber() {
-        return lineNumber;
+        return tree.lineNumber(index);
     }
 
     public int bci() {
-        return bci;
+        return tree.bci(index);
     }
 
     public long totalSamples() {
-        return totalSamples;
+        return tree.totalSamples(index);
     }
 
     public long totalWeight() {
-        return totalWeight;
+        return tree.totalWeight(index);
     }
 
     public long inlinedSamples() {
-        return inlinedSamples;
+        return tree.inlinedSamples(index);
     }
 
     public long c1Samples() {
-        return c1Samples;
+        return tree.c1Samples(index);
     }
 
     public long jitCompiledSamples() {
-        return jitCompiledSamples;
+        return tree.jitCompiledSamples(index);
     }
 
     public long interpretedSamples() {
-        return interpretedSamples;
+        return tree.interpretedSamples(index);
     }
 
     public long selfWeight() {
-        return selfWeight;
+        return tree.selfWeight(index);
     }
 
     public long selfSamples() {
-        return selfSamples;
+        return tree.selfSamples(index);
     }
 
     public int depth(long cutoff) {
-        int depth = 0;
-        if (size() > 0) {
-            for (Frame child : values()) {
-                if (child.totalSamples >= cutoff) {
-                    depth = Math.max(depth, child.depth(cutoff));
-                }
-            }
+        return tree.depth(index, cutoff);
+    }
+
+    @Override
+    public Frame get(Object methodName) {
+        if (!(methodName instanceof String name)) {
+            return null;
         }
-        return depth + 1;
+        int child = tree.child(index, name);
+        return child == FrameTree.NO_NODE ? null : tree.frame(child);
+    }
+
+    @Override
+    public boolean containsKey(Object methodName) {
+        return get(methodName) != null;
+    }
+
+    @Override
+    public Frame put(String methodName, Frame frame) {
+        int previous = tree.put(index, methodName, frame.tree, frame.index);
+        return previous == FrameTree.NO_NODE ? null : tree.frame(previous);
+    }
+
+    @Override
+    public int size() {
+        return tree.childCount(index);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tree.firstChild(index) == FrameTree.NO_NODE;
+    }
+
+    @Override
+    public Set<Entry<String, Frame>> entrySet() {
+        int[] children = tree.children(index);
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Frame>> iterator() {
+                return new Iterator<>() {
+                    private int position = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < children.length;
+                    }
+
+                    @Override
+                    public Entry<String, Frame> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int child = children[position++];
+                        return new SimpleImmutableEntry<>(tree.methodName(child), tree.frame(child));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return children.length;
+            }
+        };
     }
 
     @Override
@@ -234,59 +230,61 @@ public class Frame extends TreeMap<String, Frame> {
         if (!(o instanceof Frame frame)) return false;
         if (!super.equals(o)) return false;
 
-        return lineNumber == frame.lineNumber && bci == frame.bci
-                && totalSamples == frame.totalSamples && totalWeight == frame.totalWeight
-                && selfSamples == frame.selfSamples && selfWeight == frame.selfWeight
-                && c1Samples == frame.c1Samples && nativeSamples == frame.nativeSamples
-                && cppSamples == frame.cppSamples && interpretedSamples == frame.interpretedSamples
-                && jitCompiledSamples == frame.jitCompiledSamples && inlinedSamples == frame.inlinedSamples
-                && kernelSamples == frame.kernelSamples && Objects.equals(methodName, frame.methodName)
-                && syntheticFrameType == frame.syntheticFrameType;
+        return lineNumber() == frame.lineNumber() && bci() == frame.bci()
+                && totalSamples() == frame.totalSamples() && totalWeight() == frame.totalWeight()
+                && selfSamples() == frame.selfSamples() && selfWeight() == frame.selfWeight()
+                && c1Samples() == frame.c1Samples() && tree.nativeSamples(index) == frame.tree.nativeSamples(frame.index)
+                && tree.cppSamples(index) == frame.tree.cppSamples(frame.index)
+                && interpretedSamples() == frame.interpretedSamples()
+                && jitCompiledSamples() == frame.jitCompiledSamples() && inlinedSamples() == frame.inlinedSamples()
+                && tree.kernelSamples(index) == frame.tree.kernelSamples(frame.index)
+                && Objects.equals(methodName(), frame.methodName())
+                && tree.syntheticFrameType(index) == frame.tree.syntheticFrameType(frame.index);
     }
 
     @Override
     public int hashCode() {
         int result = super.hashCode();
-        result = 31 * result + Objects.hashCode(methodName);
-        result = 31 * result + lineNumber;
-        result = 31 * result + bci;
-        result = 31 * result + Objects.hashCode(syntheticFrameType);
-        result = 31 * result + Long.hashCode(totalSamples);
-        result = 31 * result + Long.hashCode(totalWeight);
-        result = 31 * result + Long.hashCode(selfSamples);
-        result = 31 * result + Long.hashCode(selfWeight);
-        result = 31 * result + Long.hashCode(c1Samples);
-        result = 31 * result + Long.hashCode(nativeSamples);
-        result = 31 * result + Long.hashCode(cppSamples);
-        result = 31 * result + Long.hashCode(interpretedSamples);
-        result = 31 * result + Long.hashCode(jitCompiledSamples);
-        result = 31 * result + Long.hashCode(inlinedSamples);
-        result = 31 * result + Long.hashCode(kernelSamples);
+        result = 31 * result + Objects.hashCode(methodName());
+        result = 31 * result + lineNumber();
+        result = 31 * result + bci();
+        result = 31 * result + Objects.hashCode(tree.syntheticFrameType(index));
+        result = 31 * result + Long.hashCode(totalSamples());
+        result = 31 * result + Long.hashCode(totalWeight());
+        result = 31 * result + Long.hashCode(selfSamples());
+        result = 31 * result + Long.hashCode(selfWeight());
+        result = 31 * result + Long.hashCode(c1Samples());
+        result = 31 * result + Long.hashCode(tree.nativeSamples(index));
+        result = 31 * result + Long.hashCode(tree.cppSamples(index));
+        result = 31 * result + Long.hashCode(interpretedSamples());
+        result = 31 * result + Long.hashCode(jitCompiledSamples());
+        result = 31 * result + Long.hashCode(inlinedSamples());
+        result = 31 * result + Long.hashCode(tree.kernelSamples(index));
         return result;
     }
 
     @Override
     public String toString() {
         return "Frame{" +
-                "methodName='" + methodName + '\'' +
-                ", lineNumber=" + lineNumber +
-                ", bci=" + bci +
-                ", syntheticFrameType=" + syntheticFrameType +
-                ", totalSamples=" + totalSamples +
-                ", totalWeight=" + totalWeight +
-                ", selfSamples=" + selfSamples +
-                ", selfWeight=" + selfWeight +
-                ", c1Samples=" + c1Samples +
-                ", nativeSamples=" + nativeSamples +
-                ", cppSamples=" + cppSamples +
-                ", interpretedSamples=" + interpretedSamples +
-                ", jitCompiledSamples=" + jitCompiledSamples +
-                ", inlinedSamples=" + inlinedSamples +
-                ", kernelSamples=" + kernelSamples +
+                "methodName='" + methodName() + '\'' +
+                ", lineNumber=" + lineNumber() +
+                ", bci=" + bci() +
+                ", syntheticFrameType=" + tree.syntheticFrameType(index) +
+                ", totalSamples=" + totalSamples() +
+                ", totalWeight=" + totalWeight() +
+                ", selfSamples=" + selfSamples() +
+                ", selfWeight=" + selfWeight() +
+                ", c1Samples=" + c1Samples() +
+                ", nativeSamples=" + tree.nativeSamples(index) +
+                ", cppSamples=" + tree.cppSamples(index) +
+                ", interpretedSamples=" + interpretedSamples() +
+                ", jitCompiledSamples=" + jitCompiledSamples() +
+                ", inlinedSamples=" + inlinedSamples() +
+                ", kernelSamples=" + tree.kernelSamples(index) +
                 '}';
     }
 
     public static Frame emptyFrame() {
-        return new Frame(null, "-", 0, 0);
+        return new FrameTree().root();
     }
 }
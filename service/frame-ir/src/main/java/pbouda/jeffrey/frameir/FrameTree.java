@@ -0,0 +1,775 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.frameir;
+
+import pbouda.jeffrey.frameir.marker.Marker;
+import pbouda.jeffrey.frameir.marker.MarkerType;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, column-oriented representation of the tree of frames. Every node is identified by its index,
+ * the nodes are stored in primitive arrays (columns) instead of objects:
+ * <ul>
+ *     <li>method names are interned in {@link SymbolTable} and the node keeps only an ID of the method name,
+ *     trees sharing the same table are merged by comparing the IDs</li>
+ *     <li>all counters (samples, weight, samples by frame types) are stored in {@code long[]} columns</li>
+ *     <li>children are linked using offsets to the first child and to the next sibling, a child with a given
+ *     method name is resolved using a primitive hash index {@code (parent, method) -> child}</li>
+ *     <li>path of the frame is not stored, it's computed on demand from the links to the parents</li>
+ * </ul>
+ * A parent is always created before its children, therefore, the parent has always a lower index than its children.
+ * <p/>
+ * {@link Frame} is a lightweight view on a single node of the tree to keep the Map-based API of the frames.
+ */
+public final class FrameTree {
+
+    public static final int ROOT = 0;
+    public static final int NO_NODE = -1;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int TOTAL_SAMPLES = 0;
+    private static final int TOTAL_WEIGHT = 1;
+    private static final int SELF_SAMPLES = 2;
+    private static final int SELF_WEIGHT = 3;
+    private static final int C1_SAMPLES = 4;
+    private static final int NATIVE_SAMPLES = 5;
+    private static final int CPP_SAMPLES = 6;
+    private static final int INTERPRETED_SAMPLES = 7;
+    private static final int JIT_COMPILED_SAMPLES = 8;
+    private static final int INLINED_SAMPLES = 9;
+    private static final int KERNEL_SAMPLES = 10;
+    private static final int COUNTERS = 11;
+
+    private static final FrameType[] FRAME_TYPES = FrameType.values();
+    private static final MarkerType[] MARKER_TYPES = MarkerType.values();
+
+    private final SymbolTable symbols;
+
+    private final ChildIndex childIndex = new ChildIndex();
+
+    private int size;
+    private int[] parents;
+    private int[] methods;
+    private int[] lineNumbers;
+    private int[] bcis;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    // ordinal + 1, zero means that the value is not set
+    private byte[] syntheticTypes;
+    private byte[] markers;
+    private final long[][] counters = new long[COUNTERS][];
+
+    public FrameTree() {
+        this(new SymbolTable());
+    }
+
+    public FrameTree(SymbolTable symbols) {
+        this(symbols, "-", 0, 0);
+    }
+
+    public FrameTree(String rootMethodName, int lineNumber, int bci) {
+        this(new SymbolTable(), rootMethodName, lineNumber, bci);
+    }
+
+    public FrameTree(SymbolTable symbols, String rootMethodName, int lineNumber, int bci) {
+        this.symbols = symbols;
+        this.parents = new int[INITIAL_CAPACITY];
+        this.methods = new int[INITIAL_CAPACITY];
+        this.lineNumbers = new int[INITIAL_CAPACITY];
+        this.bcis = new int[INITIAL_CAPACITY];
+        this.firstChildren = new int[INITIAL_CAPACITY];
+        this.nextSiblings = new int[INITIAL_CAPACITY];
+        this.syntheticTypes = new byte[INITIAL_CAPACITY];
+        this.markers = new byte[INITIAL_CAPACITY];
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i] = new long[INITIAL_CAPACITY];
+        }
+
+        newNode(NO_NODE, rootMethodName, lineNumber, bci);
+    }
+
+    /**
+     * Returns the child of the parent with the given method name, or creates a new one and links it to the parent.
+     *
+     * @param parent     index of the parent node.
+     * @param methodName method name of the child.
+     * @param lineNumber line number of the newly created child.
+     * @param bci        bytecode index of the newly created child.
+     * @return index of the existing or newly created child.
+     */
+    public int addChild(int parent, String methodName, int lineNumber, int bci) {
+        return addChild(parent, symbols.intern(methodName), lineNumber, bci);
+    }
+
+    /**
+     * Returns the child of the parent with the given method, or creates a new one and links it to the parent.
+     *
+     * @param parent     index of the parent node.
+     * @param methodId   ID of the method name in the {@link SymbolTable} of this tree.
+     * @param lineNumber line number of the newly created child.
+     * @param bci        bytecode index of the newly created child.
+     * @return index of the existing or newly created child.
+     */
+    public int addChild(int parent, int methodId, int lineNumber, int bci) {
+        int child = childIndex.get(parent, methodId);
+        if (child == NO_NODE) {
+            child = newNode(parent, methodId, lineNumber, bci);
+            link(parent, methodId, child);
+        }
+        return child;
+    }
+
+    /**
+     * Creates a new node that is not linked to the parent (it's not one of the parent's children),
+     * see {@link #put(int, String, FrameTree, int)}.
+     *
+     * @param parent     index of the parent node.
+     * @param methodName method name of the node.
+     * @param lineNumber line number of the node.
+     * @param bci        bytecode index of the node.
+     * @return index of the newly created node.
+     */
+    int newNode(int parent, String methodName, int lineNumber, int bci) {
+        return newNode(parent, symbols.intern(methodName), lineNumber, bci);
+    }
+
+    /**
+     * Puts the subtree of the source node as a child of the parent under the given method name. It replaces
+     * the existing child with the same method name (the same semantics as {@link Map#put(Object, Object)}).
+     * If the source node is an unlinked node of the parent, it's linked directly, otherwise, the whole
+     * subtree is copied.
+     *
+     * @param parent     index of the parent node.
+     * @param methodName method name (key) of the child.
+     * @param source     tree of the source node.
+     * @param sourceNode index of the source node.
+     * @return index of the previous child with the same method name, or {@link #NO_NODE}.
+     */
+    int put(int parent, String methodName, FrameTree source, int sourceNode) {
+        int methodId = symbols.intern(methodName);
+        int previous = childIndex.get(parent, methodId);
+        if (source == this && previous == sourceNode) {
+            return previous;
+        }
+
+        int child;
+        if (source == this && parents[sourceNode] == parent && methods[sourceNode] == methodId) {
+            child = sourceNode;
+        } else {
+            child = newNode(parent, methodId, source.lineNumber(sourceNode), source.bci(sourceNode));
+            merge(child, source, sourceNode);
+        }
+
+        link(parent, methodId, child);
+        return previous;
+    }
+
+    /**
+     * Merges the subtree of the source node into the target node. The counters of all nodes are summed up,
+     * the missing children are created. It doesn't use recursion, the depth of the tree is not limited.
+     * If both trees share the same {@link SymbolTable}, the children are matched using IDs of the method names
+     * without resolving the names.
+     *
+     * @param target     index of the target node in this tree.
+     * @param source     tree of the source node.
+     * @param sourceNode index of the source node.
+     */
+    public void merge(int target, FrameTree source, int sourceNode) {
+        boolean sameSymbols = source.symbols == symbols;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = target;
+        stack[top++] = sourceNode;
+
+        while (top > 0) {
+            int src = stack[--top];
+            int dst = stack[--top];
+            mergeNode(dst, source, src);
+
+            for (int srcChild = source.firstChild(src); srcChild != NO_NODE; srcChild = source.nextSibling(srcChild)) {
+                int methodId = sameSymbols
+                        ? source.methods[srcChild]
+                        : symbols.intern(source.methodName(srcChild));
+                int dstChild = addChild(dst, methodId, source.lineNumber(srcChild), source.bci(srcChild));
+
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = dstChild;
+                stack[top++] = srcChild;
+            }
+        }
+    }
+
+    /**
+     * Sums up the counters of the source node into the target node (without children).
+     *
+     * @param target     index of the target node in this tree.
+     * @param source     tree of the source node.
+     * @param sourceNode index of the source node.
+     */
+    public void mergeNode(int target, FrameTree source, int sourceNode) {
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i][target] += source.counters[i][sourceNode];
+        }
+        if (syntheticTypes[target] == 0) {
+            syntheticTypes[target] = source.syntheticTypes[sourceNode];
+        }
+        if (markers[target] == 0) {
+            markers[target] = source.markers[sourceNode];
+        }
+    }
+
+    /**
+     * Writes the subtree of the node (e.g. the partial result of a single chunk). The nodes are written from
+     * the parents to the children, the method names are written as references into a table of names built
+     * on the fly, all numbers are varints. It doesn't use recursion.
+     *
+     * @param node   index of the root of the written subtree.
+     * @param output target output.
+     * @throws IOException if the subtree cannot be written.
+     */
+    public void writeTo(int node, DataOutput output) throws IOException {
+        Map<Integer, Integer> names = new HashMap<>();
+        int[] newIndexes = new int[size];
+        int written = 0;
+
+        writeVarLong(output, subtreeSize(node));
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int current = stack[--top];
+            newIndexes[current] = written++;
+
+            writeVarLong(output, current == node ? 0 : newIndexes[parents[current]] + 1);
+            Integer name = names.get(methods[current]);
+            if (name != null) {
+                writeVarLong(output, name);
+            } else {
+                writeVarLong(output, names.size());
+                names.put(methods[current], names.size());
+                output.writeUTF(symbols.symbol(methods[current]));
+            }
+            writeVarLong(output, lineNumbers[current]);
+            writeVarLong(output, bcis[current]);
+            output.writeByte(syntheticTypes[current]);
+            output.writeByte(markers[current]);
+            for (int i = 0; i < COUNTERS; i++) {
+                writeVarLong(output, counters[i][current]);
+            }
+
+            for (int child = firstChildren[current]; child != NO_NODE; child = nextSiblings[child]) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = child;
+            }
+        }
+    }
+
+    /**
+     * Reads the tree written by {@link #writeTo(int, DataOutput)}.
+     *
+     * @param input   source input.
+     * @param symbols table for the method names of the new tree.
+     * @return a new tree.
+     * @throws IOException if the tree cannot be read.
+     */
+    public static FrameTree readFrom(DataInput input, SymbolTable symbols) throws IOException {
+        int count = (int) readVarLong(input);
+        List<String> names = new ArrayList<>();
+        FrameTree tree = null;
+        for (int i = 0; i < count; i++) {
+            int parent = (int) readVarLong(input) - 1;
+            int name = (int) readVarLong(input);
+            if (name == names.size()) {
+                names.add(input.readUTF());
+            }
+            int lineNumber = (int) readVarLong(input);
+            int bci = (int) readVarLong(input);
+
+            int node;
+            if (tree == null) {
+                tree = new FrameTree(symbols, names.get(name), lineNumber, bci);
+                node = ROOT;
+            } else {
+                node = tree.addChild(parent, names.get(name), lineNumber, bci);
+            }
+            tree.syntheticTypes[node] = input.readByte();
+            tree.markers[node] = input.readByte();
+            for (int j = 0; j < COUNTERS; j++) {
+                tree.counters[j][node] = readVarLong(input);
+            }
+        }
+        return tree;
+    }
+
+    private int subtreeSize(int node) {
+        int count = 0;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int current = stack[--top];
+            count++;
+            for (int child = firstChildren[current]; child != NO_NODE; child = nextSiblings[child]) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = child;
+            }
+        }
+        return count;
+    }
+
+    private static void writeVarLong(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = input.readByte();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+
+    public void increment(int node, FrameType type, long weight, long samples, boolean isTopFrame) {
+        counters[TOTAL_SAMPLES][node] += samples;
+        counters[TOTAL_WEIGHT][node] += weight;
+
+        if (isTopFrame) {
+            counters[SELF_SAMPLES][node] += samples;
+            counters[SELF_WEIGHT][node] += weight;
+        }
+
+        switch (type) {
+            case C1_COMPILED -> counters[C1_SAMPLES][node] += samples;
+            case NATIVE -> counters[NATIVE_SAMPLES][node] += samples;
+            case CPP -> counters[CPP_SAMPLES][node] += samples;
+            case INTERPRETED -> counters[INTERPRETED_SAMPLES][node] += samples;
+            case JIT_COMPILED -> counters[JIT_COMPILED_SAMPLES][node] += samples;
+            case INLINED -> counters[INLINED_SAMPLES][node] += samples;
+            case KERNEL -> counters[KERNEL_SAMPLES][node] += samples;
+            case THREAD_NAME_SYNTHETIC,
+                 ALLOCATED_OBJECT_SYNTHETIC,
+                 ALLOCATED_OBJECT_IN_NEW_TLAB_SYNTHETIC,
+                 ALLOCATED_OBJECT_OUTSIDE_TLAB_SYNTHETIC,
+                 LAMBDA_SYNTHETIC,
+                 BLOCKING_OBJECT_SYNTHETIC -> syntheticTypes[node] = (byte) (type.ordinal() + 1);
+        }
+    }
+
+    /**
+     * Applies the marker to the node. If the path from the marker is not fully resolved, it will be applied to the
+     * first node that matches the path, and goes iteratively to the next children.
+     *
+     * @param node   index of the node where the path of the marker starts.
+     * @param marker the marker to apply to the node according to the path.
+     */
+    public void applyMarker(int node, Marker marker) {
+        int current = node;
+        for (String frameName : marker.path().frames()) {
+            current = child(current, frameName);
+            if (current == NO_NODE) {
+                return;
+            }
+        }
+        setMarker(current, marker.markerType());
+    }
+
+    public void setMarker(int node, MarkerType marker) {
+        markers[node] = marker == null ? 0 : (byte) (marker.ordinal() + 1);
+    }
+
+    public MarkerType marker(int node) {
+        byte marker = markers[node];
+        return marker == 0 ? null : MARKER_TYPES[marker - 1];
+    }
+
+    public FrameType syntheticFrameType(int node) {
+        byte type = syntheticTypes[node];
+        return type == 0 ? null : FRAME_TYPES[type - 1];
+    }
+
+    public FrameType frameType(int node) {
+        long totalSamples = counters[TOTAL_SAMPLES][node];
+        if (counters[INLINED_SAMPLES][node] * 3 >= totalSamples) {
+            return FrameType.INLINED;
+        } else if (counters[C1_SAMPLES][node] * 2 >= totalSamples) {
+            return FrameType.C1_COMPILED;
+        } else if (counters[INTERPRETED_SAMPLES][node] * 2 >= totalSamples) {
+            return FrameType.INTERPRETED;
+        } else if (counters[CPP_SAMPLES][node] > 0) {
+            return FrameType.CPP;
+        } else if (counters[KERNEL_SAMPLES][node] > 0) {
+            return FrameType.KERNEL;
+        } else if (counters[NATIVE_SAMPLES][node] > 0) {
+            return FrameType.NATIVE;
+        } else if (syntheticTypes[node] != 0) {
+            return syntheticFrameType(node);
+        } else {
+            return FrameType.JIT_COMPILED;
+        }
+    }
+
+    public String resolveColor(int node) {
+        MarkerType marker = marker(node);
+        if (marker != null) {
+            return marker.color();
+        } else {
+            return frameType(node).color();
+        }
+    }
+
+    /**
+     * Finds the child of the parent with the given method name.
+     *
+     * @param parent     index of the parent node.
+     * @param methodName method name of the child.
+     * @return index of the child, or {@link #NO_NODE} if the parent does not contain such a child.
+     */
+    public int child(int parent, String methodName) {
+        int methodId = symbols.lookup(methodName);
+        return methodId == SymbolTable.NO_SYMBOL ? NO_NODE : childIndex.get(parent, methodId);
+    }
+
+    public int firstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Children of the node sorted by their method names.
+     *
+     * @param node index of the parent node.
+     * @return indexes of the children.
+     */
+    public int[] children(int node) {
+        int count = childCount(node);
+        if (count == 0) {
+            return new int[0];
+        }
+
+        int[] ranks = symbols.ranks();
+        long[] sortable = new long[count];
+        int i = 0;
+        for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+            sortable[i++] = ((long) ranks[methods[child]] << 32) | child;
+        }
+        Arrays.sort(sortable);
+
+        int[] children = new int[count];
+        for (int j = 0; j < count; j++) {
+            children[j] = (int) sortable[j];
+        }
+        return children;
+    }
+
+    /**
+     * Path to the node from the root (the root is not included), computed from the links to the parents.
+     *
+     * @param node index of the node.
+     * @return method names on the path from the root to the node.
+     */
+    public List<String> path(int node) {
+        List<String> path = new ArrayList<>();
+        for (int current = node; parents[current] != NO_NODE; current = parents[current]) {
+            path.add(methodName(current));
+        }
+        return path.reversed();
+    }
+
+    /**
+     * Maximum depth of the subtree, only the nodes with the total samples higher or equal to the cutoff are
+     * taken into account (the node itself is always counted).
+     *
+     * @param node   index of the node.
+     * @param cutoff minimum number of total samples.
+     * @return maximum depth of the subtree.
+     */
+    public int depth(int node, long cutoff) {
+        int maxDepth = 0;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = node;
+        stack[top++] = 1;
+
+        while (top > 0) {
+            int depth = stack[--top];
+            int current = stack[--top];
+            maxDepth = Math.max(maxDepth, depth);
+
+            for (int child = firstChildren[current]; child != NO_NODE; child = nextSiblings[child]) {
+                if (counters[TOTAL_SAMPLES][child] >= cutoff) {
+                    if (top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = child;
+                    stack[top++] = depth + 1;
+                }
+            }
+        }
+        return maxDepth;
+    }
+
+    public Frame frame(int node) {
+        return new Frame(this, node);
+    }
+
+    public Frame root() {
+        return frame(ROOT);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int parent(int node) {
+        return parents[node];
+    }
+
+    public String methodName(int node) {
+        return symbols.symbol(methods[node]);
+    }
+
+    public int methodId(int node) {
+        return methods[node];
+    }
+
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    public int lineNumber(int node) {
+        return lineNumbers[node];
+    }
+
+    public int bci(int node) {
+        return bcis[node];
+    }
+
+    public long totalSamples(int node) {
+        return counters[TOTAL_SAMPLES][node];
+    }
+
+    public long totalWeight(int node) {
+        return counters[TOTAL_WEIGHT][node];
+    }
+
+    public long selfSamples(int node) {
+        return counters[SELF_SAMPLES][node];
+    }
+
+    public long selfWeight(int node) {
+        return counters[SELF_WEIGHT][node];
+    }
+
+    public long c1Samples(int node) {
+        return counters[C1_SAMPLES][node];
+    }
+
+    public long nativeSamples(int node) {
+        return counters[NATIVE_SAMPLES][node];
+    }
+
+    public long cppSamples(int node) {
+        return counters[CPP_SAMPLES][node];
+    }
+
+    public long interpretedSamples(int node) {
+        return counters[INTERPRETED_SAMPLES][node];
+    }
+
+    public long jitCompiledSamples(int node) {
+        return counters[JIT_COMPILED_SAMPLES][node];
+    }
+
+    public long inlinedSamples(int node) {
+        return counters[INLINED_SAMPLES][node];
+    }
+
+    public long kernelSamples(int node) {
+        return counters[KERNEL_SAMPLES][node];
+    }
+
+    private int newNode(int parent, int methodId, int lineNumber, int bci) {
+        if (size == parents.length) {
+            grow();
+        }
+
+        int node = size++;
+        parents[node] = parent;
+        methods[node] = methodId;
+        lineNumbers[node] = lineNumber;
+        bcis[node] = bci;
+        firstChildren[node] = NO_NODE;
+        nextSiblings[node] = NO_NODE;
+        return node;
+    }
+
+    /**
+     * Links the child to the parent, the existing child with the same method name is replaced.
+     */
+    private void link(int parent, int methodId, int child) {
+        int previous = childIndex.put(parent, methodId, child);
+        if (previous == NO_NODE) {
+            nextSiblings[child] = firstChildren[parent];
+            firstChildren[parent] = child;
+        } else {
+            nextSiblings[child] = nextSiblings[previous];
+            nextSiblings[previous] = NO_NODE;
+            if (firstChildren[parent] == previous) {
+                firstChildren[parent] = child;
+            } else {
+                int sibling = firstChildren[parent];
+                while (nextSiblings[sibling] != previous) {
+                    sibling = nextSiblings[sibling];
+                }
+                nextSiblings[sibling] = child;
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = parents.length * 2;
+        parents = Arrays.copyOf(parents, capacity);
+        methods = Arrays.copyOf(methods, capacity);
+        lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+        bcis = Arrays.copyOf(bcis, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        syntheticTypes = Arrays.copyOf(syntheticTypes, capacity);
+        markers = Arrays.copyOf(markers, capacity);
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i] = Arrays.copyOf(counters[i], capacity);
+        }
+    }
+
+    /**
+     * Open-addressing hash index {@code (parent, method) -> child} with primitive keys and values.
+     */
+    private static final class ChildIndex {
+
+        private static final long EMPTY = -1L;
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        private ChildIndex() {
+            this.keys = new long[INITIAL_CAPACITY];
+            this.values = new int[INITIAL_CAPACITY];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        private int get(int parent, int methodId) {
+            long key = key(parent, methodId);
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+            return NO_NODE;
+        }
+
+        private int put(int parent, int methodId, int child) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash();
+            }
+
+            long key = key(parent, methodId);
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    int previous = values[slot];
+                    values[slot] = child;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = key;
+            values[slot] = child;
+            size++;
+            return NO_NODE;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            this.keys = new long[oldKeys.length * 2];
+            this.values = new int[oldValues.length * 2];
+            Arrays.fill(keys, EMPTY);
+
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static long key(int parent, int methodId) {
+            return ((long) parent << 32) | (methodId & 0xFFFFFFFFL);
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -33,7 +33,8 @@ public enum FrameType {
     BLOCKING_OBJECT_SYNTHETIC("Blocking Object (Synthetic)", "#e17e5a"),
     LAMBDA_SYNTHETIC("Lambda (Synthetic)", "#b3c6ff"),
     UNKNOWN("Unknown", false, "Unknown", "#000000"),
-    HIGHLIGHTED_WARNING("Highlighted Warning", "#ed0202");
+    HIGHLIGHTED_WARNING("Highlighted Warning", "#ed0202"),
+    COLLAPSED_SYNTHETIC("Collapsed Frames (Synthetic)", "#d3d3d3");
 
     private static final FrameType[] VALUES = values();
 
@@ -0,0 +1,150 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.frameir.collector;
+
+import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.FrameTree;
+import pbouda.jeffrey.jfrparser.jdk.ChunkPartialCache;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU cache of the partial frames of the whole chunks. The size of the cache is limited by the total
+ * number of the frames (nodes of the trees) of all cached partials, the least recently used partials are evicted
+ * first. The partials are cached per scope (e.g. event type and thread mode) and validated using the size
+ * and the last modification time of the chunk file. The partials are copied when they are put into the cache
+ * and when they are taken out of the cache, the cached trees are never modified.
+ */
+public class ChunkFrameCache {
+
+    private final long maxFrames;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long frames;
+
+    /**
+     * @param maxFrames maximum number of frames of all cached partials, {@code 0} disables the cache.
+     */
+    public ChunkFrameCache(long maxFrames) {
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * Partials of the chunks generated by the same kind of processor, the scope must contain everything
+     * that changes the partial frames except the time range.
+     *
+     * @param scope identification of the processor.
+     * @return cache of the partial frames of the given scope.
+     */
+    public ChunkPartialCache<Frame> scope(String scope) {
+        return new ChunkPartialCache<>() {
+            @Override
+            public Frame get(Path recording) {
+                return ChunkFrameCache.this.get(new Key(scope, recording));
+            }
+
+            @Override
+            public void put(Path recording, Frame partial) {
+                ChunkFrameCache.this.put(new Key(scope, recording), partial);
+            }
+        };
+    }
+
+    private Frame get(Key key) {
+        Frame cached = lookup(key);
+        return cached == null ? null : copy(cached);
+    }
+
+    private void put(Key key, Frame partial) {
+        if (maxFrames == 0) {
+            return;
+        }
+
+        Frame copy = copy(partial);
+        if (copy.tree().size() <= maxFrames) {
+            store(key, copy);
+        }
+    }
+
+    private synchronized Frame lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        } else if (!entry.stamp().equals(FileStamp.of(key.recording()))) {
+            remove(key);
+            return null;
+        } else {
+            return entry.partial();
+        }
+    }
+
+    private synchronized void store(Key key, Frame partial) {
+        remove(key);
+        entries.put(key, new Entry(partial, FileStamp.of(key.recording())));
+        frames += partial.tree().size();
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (frames > maxFrames && iterator.hasNext()) {
+            frames -= iterator.next().partial().tree().size();
+            iterator.remove();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            frames -= removed.partial().tree().size();
+        }
+    }
+
+    /**
+     * Copies the subtree of the partial frame into a new tree sharing the same {@link SymbolTable}.
+     */
+    private static Frame copy(Frame partial) {
+        FrameTree source = partial.tree();
+        FrameTree copy = new FrameTree(
+                source.symbols(), partial.methodName(), partial.lineNumber(), partial.bci());
+        copy.merge(FrameTree.ROOT, source, partial.index());
+        return copy.root();
+    }
+
+    private record Key(String scope, Path recording) {
+    }
+
+    private record Entry(Frame partial, FileStamp stamp) {
+    }
+
+    private record FileStamp(long size, long lastModified) {
+
+        private static FileStamp of(Path recording) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(recording, BasicFileAttributes.class);
+                return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return new FileStamp(-1, -1);
+            }
+        }
+    }
+}
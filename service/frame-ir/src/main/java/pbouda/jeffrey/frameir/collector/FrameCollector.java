@@ -18,16 +18,25 @@
 
 package pbouda.jeffrey.frameir.collector;
 
-import pbouda.jeffrey.common.Collector;
+import pbouda.jeffrey.common.ParallelCollector;
+import pbouda.jeffrey.common.Schedulers;
+import pbouda.jeffrey.common.SerializableCollector;
 import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.FrameTree;
 import pbouda.jeffrey.frameir.marker.Marker;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
-public class FrameCollector<OUTPUT> implements Collector<Frame, OUTPUT> {
+public class FrameCollector<OUTPUT>
+        implements ParallelCollector<Frame, OUTPUT>, SerializableCollector<Frame, OUTPUT> {
+
+    private static final ParallelFrameMerger MERGER = new ParallelFrameMerger(Schedulers.forkJoin());
 
     private final Function<Frame, OUTPUT> graphBuilder;
     private final List<Marker> markers;
@@ -46,34 +55,44 @@ public class FrameCollector<OUTPUT> implements Collector<Frame, OUTPUT> {
         return Frame::emptyFrame;
     }
 
+    /**
+     * Merges the second frame (including the whole subtree) into the first one.
+     *
+     * @param partial1 the first frame object.
+     * @param partial2 the second frame object.
+     * @return the first frame containing the merged values.
+     */
     @Override
     public Frame combiner(Frame partial1, Frame partial2) {
-        mergeFrames(partial1, partial2);
+        partial1.tree().merge(partial1.index(), partial2.tree(), partial2.index());
         return partial1;
     }
 
-    @Override
-    public OUTPUT finisher(Frame combined) {
-        markers.forEach(combined::applyMarker);
-        return graphBuilder.apply(combined);
-    }
-
     /**
-     * Merges the second frame into the first one.
+     * Merges all partial frames into a new frame at once, the disjoint subtrees are merged in parallel,
+     * see {@link ParallelFrameMerger}.
      *
-     * @param frame1 the first frame object.
-     * @param frame2 the second frame object.
+     * @param partials all partial frames.
+     * @return a new frame containing the merged values.
      */
-    private void mergeFrames(Frame frame1, Frame frame2) {
-        frame1.merge(frame2);
+    @Override
+    public Frame combineAll(List<Frame> partials) {
+        return MERGER.merge(partials);
+    }
+
+    @Override
+    public void writePartial(Frame partial, DataOutput output) throws IOException {
+        partial.tree().writeTo(partial.index(), output);
+    }
 
-        for (Map.Entry<String, Frame> entry : frame2.entrySet()) {
-            Frame frame = frame1.get(entry.getKey());
-            if (frame == null) {
-                frame1.put(entry.getKey(), entry.getValue());
-            } else {
-                mergeFrames(frame, entry.getValue());
-            }
-        }
+    @Override
+    public Frame readPartial(DataInput input) throws IOException {
+        return FrameTree.readFrom(input, new SymbolTable()).root();
+    }
+
+    @Override
+    public OUTPUT finisher(Frame combined) {
+        markers.forEach(combined::applyMarker);
+        return graphBuilder.apply(combined);
     }
 }
@@ -0,0 +1,161 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.frameir.collector;
+
+import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.FrameTree;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Merges multiple partial frames (very likely from different chunks of the recording) into a new tree at once:
+ * <ul>
+ *     <li>The top-level children of all partial frames are grouped by their method names, the groups are disjoint
+ *     subtrees, and every group is merged into its own tree in parallel. If all the partial frames have only
+ *     a single common child (e.g. {@code Thread#run}), the split is made on the first level having more
+ *     children.</li>
+ *     <li>The merged groups are linked into the resulting tree, every node of the result is copied only once,
+ *     instead of merging the same nodes repeatedly when the partial frames are merged in pairs.</li>
+ * </ul>
+ * All merges use {@link FrameTree#merge(int, FrameTree, int)} which does not use recursion, the depth of
+ * the stacktraces is not limited.
+ */
+class ParallelFrameMerger {
+
+    private final ForkJoinPool pool;
+
+    ParallelFrameMerger(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    Frame merge(List<Frame> partials) {
+        Frame first = partials.getFirst();
+        if (partials.size() == 1) {
+            return first;
+        }
+
+        SymbolTable symbols = sharedSymbols(partials);
+        FrameTree result = new FrameTree(
+                symbols,
+                first.tree().methodName(first.index()),
+                first.tree().lineNumber(first.index()),
+                first.tree().bci(first.index()));
+
+        // Walks down the common path until there are more children to merge in parallel
+        List<Frame> current = partials;
+        int target = FrameTree.ROOT;
+        Map<String, List<Frame>> groups;
+        while (true) {
+            for (Frame frame : current) {
+                result.mergeNode(target, frame.tree(), frame.index());
+            }
+
+            groups = groupChildren(current);
+            if (groups.size() != 1) {
+                break;
+            }
+
+            Map.Entry<String, List<Frame>> single = groups.entrySet().iterator().next();
+            Frame child = single.getValue().getFirst();
+            target = result.addChild(target, single.getKey(), child.lineNumber(), child.bci());
+            current = single.getValue();
+        }
+
+        List<GroupMergeTask> tasks = new ArrayList<>(groups.size());
+        for (List<Frame> group : groups.values()) {
+            tasks.add(new GroupMergeTask(symbols, group));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        for (GroupMergeTask task : tasks) {
+            FrameTree merged = task.join();
+            int child = result.addChild(
+                    target, merged.methodName(FrameTree.ROOT), merged.lineNumber(FrameTree.ROOT), merged.bci(FrameTree.ROOT));
+            result.merge(child, merged, FrameTree.ROOT);
+        }
+        return result.root();
+    }
+
+    /**
+     * Children of all frames grouped by the method name, the groups are kept in the order of their first occurrence.
+     */
+    private static Map<String, List<Frame>> groupChildren(List<Frame> frames) {
+        Map<String, List<Frame>> groups = new LinkedHashMap<>();
+        for (Frame frame : frames) {
+            FrameTree tree = frame.tree();
+            for (int child = tree.firstChild(frame.index()); child != FrameTree.NO_NODE; child = tree.nextSibling(child)) {
+                groups.computeIfAbsent(tree.methodName(child), __ -> new ArrayList<>())
+                        .add(tree.frame(child));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * The merged trees use the same {@link SymbolTable} as the partial frames (all processors of a single
+     * generation share the table), then the nodes are merged using IDs of the method names.
+     */
+    private static SymbolTable sharedSymbols(List<Frame> partials) {
+        SymbolTable symbols = partials.getFirst().tree().symbols();
+        for (Frame partial : partials) {
+            if (partial.tree().symbols() != symbols) {
+                return new SymbolTable();
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Merges the same child of all partial frames into a new tree, the tables of symbols are thread-safe,
+     * the partial trees are only read.
+     */
+    private static class GroupMergeTask extends RecursiveTask<FrameTree> {
+
+        private final SymbolTable symbols;
+        private final List<Frame> group;
+
+        private GroupMergeTask(SymbolTable symbols, List<Frame> group) {
+            this.symbols = symbols;
+            this.group = group;
+        }
+
+        @Override
+        protected FrameTree compute() {
+            Frame first = group.getFirst();
+            FrameTree tree = new FrameTree(
+                    symbols, first.tree().methodName(first.index()), first.lineNumber(), first.bci());
+            for (Frame frame : group) {
+                tree.merge(FrameTree.ROOT, frame.tree(), frame.index());
+            }
+            return tree;
+        }
+    }
+}
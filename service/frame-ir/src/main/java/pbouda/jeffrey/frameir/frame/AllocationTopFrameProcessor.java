@@ -19,15 +19,21 @@
 package pbouda.jeffrey.frameir.frame;
 
 import jdk.jfr.consumer.RecordedFrame;
-import pbouda.jeffrey.common.RecordedClassMapper;
 import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.frameir.FrameType;
 import pbouda.jeffrey.frameir.record.AllocationRecord;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
 
 import java.util.List;
 
 public class AllocationTopFrameProcessor extends SingleFrameProcessor<AllocationRecord> {
 
+    private final ChunkSymbols symbols;
+
+    public AllocationTopFrameProcessor(ChunkSymbols symbols) {
+        this.symbols = symbols;
+    }
+
     @Override
     public NewFrame processSingle(AllocationRecord record, RecordedFrame currFrame, boolean topFrame) {
         FrameType currentFrameType;
@@ -40,7 +46,7 @@ public class AllocationTopFrameProcessor extends SingleFrameProcessor<Allocation
         }
 
         return new NewFrame(
-                RecordedClassMapper.map(record.allocatedClass()),
+                symbols.className(record.allocatedClass()),
                 currFrame.getLineNumber(),
                 currFrame.getBytecodeIndex(),
                 currentFrameType,
@@ -48,6 +54,11 @@ public class AllocationTopFrameProcessor extends SingleFrameProcessor<Allocation
                 record.sampleWeight());
     }
 
+    @Override
+    public Object cacheKey(AllocationRecord record) {
+        return record.allocatedClass();
+    }
+
     @Override
     public boolean isApplicable(AllocationRecord record, List<RecordedFrame> stacktrace, int currIndex) {
         return currIndex == (stacktrace.size() - 1);
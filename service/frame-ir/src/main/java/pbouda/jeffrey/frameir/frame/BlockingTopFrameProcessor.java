@@ -19,18 +19,24 @@
 package pbouda.jeffrey.frameir.frame;
 
 import jdk.jfr.consumer.RecordedFrame;
-import pbouda.jeffrey.common.RecordedClassMapper;
 import pbouda.jeffrey.frameir.FrameType;
 import pbouda.jeffrey.frameir.record.BlockingRecord;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
 
 import java.util.List;
 
 public class BlockingTopFrameProcessor extends SingleFrameProcessor<BlockingRecord> {
 
+    private final ChunkSymbols symbols;
+
+    public BlockingTopFrameProcessor(ChunkSymbols symbols) {
+        this.symbols = symbols;
+    }
+
     @Override
     public NewFrame processSingle(BlockingRecord record, RecordedFrame currFrame, boolean topFrame) {
         return new NewFrame(
-                RecordedClassMapper.map(record.blockingClass()),
+                symbols.className(record.blockingClass()),
                 currFrame.getLineNumber(),
                 currFrame.getBytecodeIndex(),
                 FrameType.BLOCKING_OBJECT_SYNTHETIC,
@@ -38,6 +44,11 @@ public class BlockingTopFrameProcessor extends SingleFrameProcessor<BlockingReco
                 record.sampleWeight());
     }
 
+    @Override
+    public Object cacheKey(BlockingRecord record) {
+        return record.blockingClass();
+    }
+
     @Override
     public boolean isApplicable(BlockingRecord record, List<RecordedFrame> stacktrace, int currIndex) {
         return currIndex == (stacktrace.size() - 1);
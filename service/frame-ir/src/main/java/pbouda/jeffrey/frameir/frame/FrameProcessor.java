@@ -22,13 +22,18 @@ import jdk.jfr.consumer.RecordedFrame;
 import jdk.jfr.consumer.RecordedThread;
 import pbouda.jeffrey.frameir.FrameType;
 import pbouda.jeffrey.frameir.record.StackBasedRecord;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
 
 import java.util.List;
 
 public interface FrameProcessor<T extends StackBasedRecord> {
 
+    /**
+     * Newly created frame, the method name is kept as an ID from {@link ChunkSymbols} and it's resolved
+     * to the string only when the tree is rendered.
+     */
     record NewFrame(
-            String methodName,
+            int methodId,
             int lineNumber,
             int bytecodeIndex,
             FrameType frameType,
@@ -72,30 +77,51 @@ public interface FrameProcessor<T extends StackBasedRecord> {
         }
     }
 
+    /**
+     * Part of the record (apart from the stacktrace) that the generated frames depend on, e.g. an allocated class
+     * for the top frame. Records with the same stacktrace and the same key generate the same frames,
+     * therefore, the frames can be cached.
+     *
+     * @param record a record which is being currently processed.
+     * @return object compared by identity, or {@code null} if the frames depend only on the stacktrace.
+     */
+    default Object cacheKey(T record) {
+        return null;
+    }
+
     /**
      * Standard way of naming the frames, it could be interesting for the majority of implemetations.
+     * The name is built only once per method (or thread) in the chunk, the next calls return the cached ID.
      *
+     * @param symbols   symbols of the currently processed chunk.
      * @param frame     currently processed frame.
      * @param thread    thread for generating the name in thread-mode.
      * @param frameType type of the current frame.
-     * @return standard name of the current frame.
+     * @return ID of the standard name of the current frame.
      */
-    static String generateName(RecordedFrame frame, RecordedThread thread, FrameType frameType) {
+    static int generateName(ChunkSymbols symbols, RecordedFrame frame, RecordedThread thread, FrameType frameType) {
         return switch (frameType) {
-            case JIT_COMPILED, C1_COMPILED, INTERPRETED, INLINED ->
-                    frame.getMethod().getType().getName() + "#" + frame.getMethod().getName();
-            case CPP, KERNEL, NATIVE -> frame.getMethod().getName();
-            case THREAD_NAME_SYNTHETIC -> methodNameBasedThread(thread);
+            case JIT_COMPILED, C1_COMPILED, INTERPRETED, INLINED -> symbols.method(frame.getMethod());
+            case CPP, KERNEL, NATIVE -> symbols.methodName(frame.getMethod());
+            case THREAD_NAME_SYNTHETIC -> symbols.thread(thread, FrameProcessor::methodNameBasedThread);
             case UNKNOWN -> throw new IllegalArgumentException("Unknown Frame occurred in JFR");
             default -> throw new IllegalStateException("Unexpected value: " + frameType);
         };
     }
 
     private static String methodNameBasedThread(RecordedThread thread) {
-        if (thread.getJavaThreadId() > 0) {
-            return thread.getJavaName() + " (" + thread.getJavaThreadId() + ")";
+        return threadName(thread.getJavaName(), thread.getJavaThreadId(), thread.getOSName(), thread.getId());
+    }
+
+    /**
+     * Name of the synthetic thread frame, Java threads are named by the Java name and ID, the other threads
+     * by the OS name and the JFR ID.
+     */
+    static String threadName(String javaName, long javaThreadId, String osName, long id) {
+        if (javaThreadId > 0) {
+            return javaName + " (" + javaThreadId + ")";
         } else {
-            return thread.getOSName() + " (" + thread.getId() + ")";
+            return osName + " (" + id + ")";
         }
     }
 }
@@ -21,16 +21,21 @@ package pbouda.jeffrey.frameir.frame;
 import jdk.jfr.consumer.RecordedFrame;
 import pbouda.jeffrey.frameir.FrameType;
 import pbouda.jeffrey.frameir.record.StackBasedRecord;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class LambdaFrameProcessor<T extends StackBasedRecord> implements FrameProcessor<T> {
 
+    private static final String LAMBDA_FRAME_NAME = "Lambda Frame (Synthetic)";
+
     private final LambdaMatcher lambdaMatcher;
+    private final int lambdaFrameId;
 
-    public LambdaFrameProcessor(LambdaMatcher lambdaMatcher) {
+    public LambdaFrameProcessor(LambdaMatcher lambdaMatcher, ChunkSymbols symbols) {
         this.lambdaMatcher = lambdaMatcher;
+        this.lambdaFrameId = symbols.intern(LAMBDA_FRAME_NAME);
     }
 
     @Override
@@ -58,7 +63,7 @@ public class LambdaFrameProcessor<T extends StackBasedRecord> implements FramePr
 
     private NewFrame createLambdaSynthetic(RecordedFrame currFrame, T record, boolean isTopFrame) {
         return new NewFrame(
-                "Lambda Frame (Synthetic)",
+                lambdaFrameId,
                 currFrame.getLineNumber(),
                 currFrame.getBytecodeIndex(),
                 FrameType.LAMBDA_SYNTHETIC,
@@ -21,15 +21,18 @@ package pbouda.jeffrey.frameir.frame;
 import jdk.jfr.consumer.RecordedFrame;
 import pbouda.jeffrey.frameir.FrameType;
 import pbouda.jeffrey.frameir.record.StackBasedRecord;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
 
 import java.util.List;
 
 public class NormalFrameProcessor<T extends StackBasedRecord> extends SingleFrameProcessor<T> {
 
     private final LambdaMatcher lambdaMatcher;
+    private final ChunkSymbols symbols;
 
-    public NormalFrameProcessor(LambdaMatcher lambdaMatcher) {
+    public NormalFrameProcessor(LambdaMatcher lambdaMatcher, ChunkSymbols symbols) {
         this.lambdaMatcher = lambdaMatcher;
+        this.symbols = symbols;
     }
 
     @Override
@@ -42,7 +45,7 @@ public class NormalFrameProcessor<T extends StackBasedRecord> extends SingleFram
         FrameType frameType = FrameType.fromCode(currFrame.getType());
 
         return new NewFrame(
-                FrameProcessor.generateName(currFrame, record.thread(), frameType),
+                FrameProcessor.generateName(symbols, currFrame, record.thread(), frameType),
                 currFrame.getLineNumber(),
                 currFrame.getBytecodeIndex(),
                 frameType,
@@ -21,6 +21,7 @@ package pbouda.jeffrey.frameir.frame;
 import jdk.jfr.consumer.RecordedFrame;
 import pbouda.jeffrey.frameir.FrameType;
 import pbouda.jeffrey.frameir.record.StackBasedRecord;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
 
 import java.util.List;
 
@@ -29,12 +30,18 @@ public class ThreadFrameProcessor<T extends StackBasedRecord> extends SingleFram
     // Guards that the processor can be invoked only once at the very beginning for every record.
     private T currentRecord = null;
 
+    private final ChunkSymbols symbols;
+
+    public ThreadFrameProcessor(ChunkSymbols symbols) {
+        this.symbols = symbols;
+    }
+
     @Override
     public NewFrame processSingle(T record, RecordedFrame currFrame, boolean topFrame) {
         currentRecord = record;
 
         return new NewFrame(
-                FrameProcessor.generateName(null, record.thread(), FrameType.THREAD_NAME_SYNTHETIC),
+                FrameProcessor.generateName(symbols, null, record.thread(), FrameType.THREAD_NAME_SYNTHETIC),
                 0,
                 0,
                 FrameType.THREAD_NAME_SYNTHETIC,
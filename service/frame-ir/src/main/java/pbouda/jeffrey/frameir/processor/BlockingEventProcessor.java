@@ -32,7 +32,15 @@ public class BlockingEventProcessor extends StacktraceBasedEventProcessor<Blocki
     private final Type eventType;
 
     public BlockingEventProcessor(Type eventType, AbsoluteTimeRange absoluteTimeRange, boolean threadMode) {
-        super(List.of(eventType), absoluteTimeRange, new BlockingTreeBuilder(threadMode));
+        this(eventType, absoluteTimeRange, new BlockingTreeBuilder(threadMode));
+    }
+
+    public BlockingEventProcessor(
+            Type eventType,
+            AbsoluteTimeRange absoluteTimeRange,
+            BlockingTreeBuilder treeBuilder) {
+
+        super(List.of(eventType), absoluteTimeRange, treeBuilder);
         this.eventType = eventType;
     }
 
@@ -22,11 +22,19 @@ import pbouda.jeffrey.common.AbsoluteTimeRange;
 import pbouda.jeffrey.common.Config;
 import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.tree.AllocationTreeBuilder;
+import pbouda.jeffrey.frameir.tree.BlockingTreeBuilder;
+import pbouda.jeffrey.frameir.tree.SimpleTreeBuilder;
 import pbouda.jeffrey.jfrparser.jdk.EventProcessor;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
 
 import java.util.List;
 import java.util.function.Supplier;
 
+/**
+ * All processors created by a single supplier share the same {@link SymbolTable}, the partial trees
+ * of all chunks are then merged by comparing IDs of the method names.
+ */
 public abstract class EventProcessors {
 
     private static final List<Type> ALLOC_TLAB_TYPES = List.of(
@@ -35,24 +43,38 @@ public abstract class EventProcessors {
     private static final List<Type> ALLOC_SAMPLE_TYPES = List.of(Type.OBJECT_ALLOCATION_SAMPLE);
 
     public static Supplier<EventProcessor<Frame>> simple(Config config) {
-        return () -> new SimpleEventProcessor(config.eventType(), config.primaryTimeRange(), config.threadMode());
+        return simple(config.eventType(), config);
     }
 
     public static Supplier<EventProcessor<Frame>> executionSamples(Config config) {
-        return () -> new SimpleEventProcessor(Type.EXECUTION_SAMPLE, config.primaryTimeRange(), config.threadMode());
+        return simple(Type.EXECUTION_SAMPLE, config);
     }
 
     public static Supplier<EventProcessor<Frame>> allocationTlab(
             AbsoluteTimeRange timeRange, boolean threadMode) {
-        return () -> new AllocationEventProcessor(ALLOC_TLAB_TYPES, timeRange, threadMode);
+        return allocation(ALLOC_TLAB_TYPES, timeRange, threadMode);
     }
 
     public static Supplier<EventProcessor<Frame>> allocationSamples(
             AbsoluteTimeRange timeRange, boolean threadMode) {
-        return () -> new AllocationEventProcessor(ALLOC_SAMPLE_TYPES, timeRange, threadMode);
+        return allocation(ALLOC_SAMPLE_TYPES, timeRange, threadMode);
     }
 
     public static Supplier<EventProcessor<Frame>> blocking(Config config, Type type) {
-        return () -> new BlockingEventProcessor(type, config.primaryTimeRange(), config.threadMode());
+        SymbolTable symbols = new SymbolTable();
+        return () -> new BlockingEventProcessor(
+                type, config.primaryTimeRange(), new BlockingTreeBuilder(config.threadMode(), symbols));
+    }
+
+    private static Supplier<EventProcessor<Frame>> simple(Type type, Config config) {
+        SymbolTable symbols = new SymbolTable();
+        return () -> new SimpleEventProcessor(
+                List.of(type), config.primaryTimeRange(), new SimpleTreeBuilder(config.threadMode(), symbols));
+    }
+
+    private static Supplier<EventProcessor<Frame>> allocation(
+            List<Type> types, AbsoluteTimeRange timeRange, boolean threadMode) {
+        SymbolTable symbols = new SymbolTable();
+        return () -> new AllocationEventProcessor(types, timeRange, new AllocationTreeBuilder(threadMode, symbols));
     }
 }
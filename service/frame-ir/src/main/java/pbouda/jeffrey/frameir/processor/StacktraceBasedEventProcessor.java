@@ -51,6 +51,11 @@ public abstract class StacktraceBasedEventProcessor<T extends StackBasedRecord>
         return processableEvents;
     }
 
+    @Override
+    public AbsoluteTimeRange timeRange() {
+        return timeRange;
+    }
+
     @Override
     public Result onEvent(RecordedEvent event) {
         Instant eventTime = event.getStartTime();
@@ -21,18 +21,27 @@ package pbouda.jeffrey.frameir.tree;
 import pbouda.jeffrey.frameir.frame.AllocationTopFrameProcessor;
 import pbouda.jeffrey.frameir.frame.FrameProcessor;
 import pbouda.jeffrey.frameir.record.AllocationRecord;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
+
+import java.util.function.Function;
 
 public class AllocationTreeBuilder extends FrameTreeBuilder<AllocationRecord> {
 
     public AllocationTreeBuilder(boolean threadMode) {
-        this(false, threadMode, new AllocationTopFrameProcessor());
+        this(threadMode, new SymbolTable());
+    }
+
+    public AllocationTreeBuilder(boolean threadMode, SymbolTable symbols) {
+        this(false, threadMode, symbols, AllocationTopFrameProcessor::new);
     }
 
     public AllocationTreeBuilder(
             boolean lambdaFrameHandling,
             boolean threadModeEnabled,
-            FrameProcessor<AllocationRecord> topFrameProcessor) {
+            SymbolTable symbols,
+            Function<ChunkSymbols, FrameProcessor<AllocationRecord>> topFrameProcessor) {
 
-        super(lambdaFrameHandling, threadModeEnabled, topFrameProcessor);
+        super(lambdaFrameHandling, threadModeEnabled, symbols, topFrameProcessor);
     }
 }
@@ -20,10 +20,15 @@ package pbouda.jeffrey.frameir.tree;
 
 import pbouda.jeffrey.frameir.frame.BlockingTopFrameProcessor;
 import pbouda.jeffrey.frameir.record.BlockingRecord;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
 
 public class BlockingTreeBuilder extends FrameTreeBuilder<BlockingRecord> {
 
     public BlockingTreeBuilder(boolean threadMode) {
-        super(false, threadMode, new BlockingTopFrameProcessor());
+        this(threadMode, new SymbolTable());
+    }
+
+    public BlockingTreeBuilder(boolean threadMode, SymbolTable symbols) {
+        super(false, threadMode, symbols, BlockingTopFrameProcessor::new);
     }
 }
@@ -20,54 +20,82 @@ package pbouda.jeffrey.frameir.tree;
 
 import jdk.jfr.consumer.RecordedFrame;
 import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.FrameTree;
 import pbouda.jeffrey.frameir.FrameType;
 import pbouda.jeffrey.frameir.frame.*;
 import pbouda.jeffrey.frameir.frame.FrameProcessor.NewFrame;
 import pbouda.jeffrey.frameir.record.StackBasedRecord;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
 
 import java.util.ArrayList;
-import java.util.IdentityHashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Function;
 
 public abstract class FrameTreeBuilder<T extends StackBasedRecord> {
 
-    private record CachedFrame(Frame frame, FrameType frameType) {
-    }
-
     private static final Logger LOG = LoggerFactory.getLogger(FrameTreeBuilder.class);
 
-    private final Frame root = Frame.emptyFrame();
+    private static final FrameType[] FRAME_TYPES = FrameType.values();
+
+    private final FrameTree tree;
+
+    private final ChunkSymbols symbols;
 
     private final List<FrameProcessor<T>> processors;
 
-    private final Map<RecordedStackTrace, List<CachedFrame>> frameCache = new IdentityHashMap<>();
+    private final boolean threadModeEnabled;
+
+    private final FrameProcessor<T> threadFrameProcessor;
+
+    private final FrameProcessor<T> topFrameProcessor;
+
+    private final StacktraceCache frameCache = new StacktraceCache(StacktraceCache.DEFAULT_MAX_SIZE);
 
+    /**
+     * Creates a builder of the tree for a single chunk.
+     *
+     * @param lambdaFrameHandling handles frames belonging to lambdas as a single synthetic frame.
+     * @param threadModeEnabled   adds a synthetic frame with the thread name at the beginning of every stacktrace.
+     * @param symbols             table of symbols shared by all builders whose trees will be merged together.
+     * @param topFrameProcessor   creates an optional processor of the top frame using the symbols of the chunk.
+     */
     public FrameTreeBuilder(
             boolean lambdaFrameHandling,
             boolean threadModeEnabled,
-            FrameProcessor<T> topFrameProcessor) {
+            SymbolTable symbols,
+            Function<ChunkSymbols, FrameProcessor<T>> topFrameProcessor) {
+
+        ChunkSymbols chunkSymbols = new ChunkSymbols(symbols);
+        this.symbols = chunkSymbols;
+        this.tree = new FrameTree(symbols);
+        this.threadModeEnabled = threadModeEnabled;
 
         LambdaMatcher lambdaMatcher = lambdaFrameHandling
                 ? new LambdaMatcher()
                 : LambdaMatcher.ALWAYS_FALSE;
 
+        // The thread frame does not consume any frame of the stacktrace, it's added before processing the frames
+        this.threadFrameProcessor = threadModeEnabled ? new ThreadFrameProcessor<>(chunkSymbols) : null;
+
         this.processors = new ArrayList<>();
-        if (threadModeEnabled) {
-            processors.add(new ThreadFrameProcessor<>());
-        }
 
         if (lambdaFrameHandling) {
-            processors.add(new LambdaFrameProcessor<>(lambdaMatcher));
+            processors.add(new LambdaFrameProcessor<>(lambdaMatcher, chunkSymbols));
         }
 
-        processors.add(new NormalFrameProcessor<>(lambdaMatcher));
+        processors.add(new NormalFrameProcessor<>(lambdaMatcher, chunkSymbols));
 
         if (topFrameProcessor != null) {
-            processors.add(topFrameProcessor);
+            this.topFrameProcessor = topFrameProcessor.apply(chunkSymbols);
+            processors.add(this.topFrameProcessor);
+        } else {
+            this.topFrameProcessor = null;
         }
     }
 
@@ -82,65 +110,121 @@ public abstract class FrameTreeBuilder<T extends StackBasedRecord> {
             return;
         }
 
+        RecordedThread thread = threadModeEnabled ? record.thread() : null;
+        Object topFrameKey = topFrameProcessor != null ? topFrameProcessor.cacheKey(record) : null;
+        // Avoid allocating the key in the most common case, the frames depend only on the stacktrace
+        Object cacheKey = thread == null && topFrameKey == null
+                ? stacktrace
+                : new StacktraceCache.StackKey(stacktrace, thread, topFrameKey);
+
         // Fast-path (Stacktrace has been already processed)
-        List<CachedFrame> cachedFrame = frameCache.get(stacktrace);
-        if (cachedFrame != null) {
-            processFastPath(cachedFrame, record);
+        int[] cachedPath = frameCache.get(cacheKey);
+        if (cachedPath != null) {
+            processFastPath(cachedPath, record);
             return;
         }
 
-        // Slow-path
-        Frame parent = root;
         List<RecordedFrame> frames = stacktrace.getFrames().reversed();
 
-        List<CachedFrame> framePath = new ArrayList<>();
+        // Different instance of the stacktrace with the same frames
+        StacktraceCache.ContentKey contentKey = contentKey(frames, thread, topFrameKey);
+        cachedPath = frameCache.getByContent(cacheKey, contentKey);
+        if (cachedPath != null) {
+            processFastPath(cachedPath, record);
+            return;
+        }
+
+        // Slow-path
+        int parent = FrameTree.ROOT;
+        int[] framePath = new int[frames.size() * 2 + 2];
+        int pathLength = 0;
+        if (threadFrameProcessor != null && !frames.isEmpty()) {
+            for (NewFrame newFrame : threadFrameProcessor.checkAndProcess(record, frames, 0)) {
+                parent = addFrameToLayer(newFrame, parent);
+                framePath[pathLength++] = parent;
+                framePath[pathLength++] = newFrame.frameType().ordinal();
+            }
+        }
+
         int newFramesCount;
         for (int i = 0; i < frames.size(); i = i + newFramesCount) {
             newFramesCount = 0;
             for (FrameProcessor<T> processor : processors) {
                 for (NewFrame newFrame : processor.checkAndProcess(record, frames, i)) {
                     parent = addFrameToLayer(newFrame, parent);
-                    framePath.add(new CachedFrame(parent, newFrame.frameType()));
+                    if (pathLength + 2 > framePath.length) {
+                        framePath = Arrays.copyOf(framePath, framePath.length * 2 + 2);
+                    }
+                    framePath[pathLength++] = parent;
+                    framePath[pathLength++] = newFrame.frameType().ordinal();
                     newFramesCount++;
                 }
             }
         }
 
-        frameCache.put(stacktrace, framePath);
+        if (pathLength != framePath.length) {
+            framePath = Arrays.copyOf(framePath, pathLength);
+        }
+        frameCache.put(cacheKey, contentKey, framePath);
+        // Counted the same way as the cached path, the result must not depend on the hits of the cache
+        processFastPath(framePath, record);
     }
 
-    private void processFastPath(List<CachedFrame> cachedFrames, T record) {
-        for (int i = 0; i < cachedFrames.size(); i++) {
-            CachedFrame cachedFrame = cachedFrames.get(i);
-            cachedFrame.frame.increment(
-                    cachedFrame.frameType, record.sampleWeight(), isLastFrame(i, cachedFrames.size()));
+    private StacktraceCache.ContentKey contentKey(List<RecordedFrame> frames, RecordedThread thread, Object topFrame) {
+        int[] content = new int[frames.size() * 4];
+        int i = 0;
+        for (RecordedFrame frame : frames) {
+            content[i++] = symbols.method(frame.getMethod());
+            content[i++] = frame.getLineNumber();
+            content[i++] = frame.getBytecodeIndex();
+            content[i++] = FrameType.fromCode(frame.getType()).ordinal();
         }
+        return new StacktraceCache.ContentKey(content, thread, topFrame);
     }
 
-    private static boolean isLastFrame(int i, int frameCount) {
-        return (i + 1) == frameCount;
+    private void processFastPath(int[] cachedPath, T record) {
+        for (int i = 0; i < cachedPath.length; i += 2) {
+            tree.increment(
+                    cachedPath[i],
+                    FRAME_TYPES[cachedPath[i + 1]],
+                    record.sampleWeight(),
+                    1,
+                    isLastFrame(i, cachedPath.length));
+        }
     }
 
-    private static Frame addFrameToLayer(NewFrame newFrame, Frame parent) {
-        Frame resolvedFrame = parent.get(newFrame.methodName());
-        if (resolvedFrame == null) {
-            resolvedFrame = new Frame(parent, newFrame.methodName(), newFrame.lineNumber(), newFrame.bytecodeIndex());
-            parent.put(newFrame.methodName(), resolvedFrame);
-        }
+    private static boolean isLastFrame(int i, int pathLength) {
+        return (i + 2) == pathLength;
+    }
+
+    /**
+     * Counters of the stacktrace cache, how many stacktraces were resolved without the frame processors.
+     *
+     * @return current statistics of the stacktrace cache.
+     */
+    public StacktraceCacheStatistics cacheStatistics() {
+        return frameCache.statistics();
+    }
 
-        resolvedFrame.increment(newFrame.frameType(), newFrame.sampleWeight(), newFrame.isTopFrame());
-        return resolvedFrame;
+    private int addFrameToLayer(NewFrame newFrame, int parent) {
+        return tree.addChild(parent, newFrame.methodId(), newFrame.lineNumber(), newFrame.bytecodeIndex());
     }
 
     public Frame build() {
         long allWeight = 0;
         long allSamples = 0;
-        for (Frame frame : root.values()) {
-            allSamples += frame.totalSamples();
-            allWeight += frame.totalWeight();
+        for (int child = tree.firstChild(FrameTree.ROOT); child != FrameTree.NO_NODE; child = tree.nextSibling(child)) {
+            allSamples += tree.totalSamples(child);
+            allWeight += tree.totalWeight(child);
         }
 
-        root.increment(FrameType.NATIVE, allWeight, allSamples, false);
-        return root;
+        tree.increment(FrameTree.ROOT, FrameType.NATIVE, allWeight, allSamples, false);
+
+        if (LOG.isDebugEnabled()) {
+            StacktraceCacheStatistics stats = frameCache.statistics();
+            LOG.debug("Stacktrace cache: hits={} content_hits={} misses={} evictions={} hit_rate={}",
+                    stats.hits(), stats.contentHits(), stats.misses(), stats.evictions(), stats.hitRate());
+        }
+        return tree.root();
     }
 }
@@ -0,0 +1,150 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.frameir.tree;
+
+import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.FrameTree;
+import pbouda.jeffrey.frameir.FrameType;
+import pbouda.jeffrey.frameir.frame.FrameProcessor;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedEvents;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedStacks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the same tree as {@link SimpleTreeBuilder} (every event with the weight {@code 1}, without lambda frames)
+ * from the stacktraces and threads of the event index instead of parsing the recordings. The path of the frames
+ * is resolved only once per distinct stacktrace (and thread in thread-mode) of the segment.
+ */
+public class IndexedTreeBuilder {
+
+    private static final FrameType[] FRAME_TYPES = FrameType.values();
+
+    private final FrameTree tree;
+
+    private final boolean threadModeEnabled;
+
+    /**
+     * @param threadModeEnabled adds a synthetic frame with the thread name at the beginning of every stacktrace.
+     */
+    public IndexedTreeBuilder(boolean threadModeEnabled) {
+        this.tree = new FrameTree();
+        this.threadModeEnabled = threadModeEnabled;
+    }
+
+    /**
+     * Adds all events of the segment started in the given time range (both bounds are inclusive).
+     *
+     * @param events     events of a single segment of the index.
+     * @param startNanos start of the time range in epoch nanos.
+     * @param endNanos   end of the time range in epoch nanos.
+     */
+    public void addEvents(IndexedEvents events, long startNanos, long endNanos) {
+        int from = events.lowerBound(startNanos);
+        int to = events.upperBound(endNanos);
+        if (from >= to) {
+            return;
+        }
+
+        IndexedStacks stacks = events.stacks();
+        // The same threads as the simple processor, only the sampled threads are available in thread-mode
+        boolean threadFrames = threadModeEnabled
+                && events.threadField() == IndexedEvents.ThreadField.SAMPLED_THREAD;
+
+        Map<Long, int[]> paths = new HashMap<>();
+        for (int row = from; row < to; row++) {
+            int stack = events.stack(row);
+            if (stack < 0) {
+                continue;
+            }
+
+            int thread = threadFrames ? events.thread(row) : -1;
+            long key = ((long) stack << 32) | (thread & 0xFFFFFFFFL);
+            int[] path = paths.get(key);
+            if (path == null) {
+                path = resolvePath(stacks, stack, thread);
+                paths.put(key, path);
+            }
+
+            for (int i = 0; i < path.length; i += 2) {
+                tree.increment(path[i], FRAME_TYPES[path[i + 1]], 1, 1, (i + 2) == path.length);
+            }
+        }
+    }
+
+    private int[] resolvePath(IndexedStacks stacks, int stack, int thread) {
+        int[] frames = stacks.frames(stack);
+        if (frames.length == 0) {
+            return new int[0];
+        }
+
+        int parent = FrameTree.ROOT;
+        int[] path = new int[frames.length * 2 + 2];
+        int pathLength = 0;
+        if (thread >= 0) {
+            String threadName = FrameProcessor.threadName(
+                    stacks.threadJavaName(thread),
+                    stacks.threadJavaId(thread),
+                    stacks.threadOsName(thread),
+                    stacks.threadId(thread));
+
+            parent = tree.addChild(parent, threadName, 0, 0);
+            path[pathLength++] = parent;
+            path[pathLength++] = FrameType.THREAD_NAME_SYNTHETIC.ordinal();
+        }
+
+        for (int frame : frames) {
+            FrameType frameType = FrameType.fromCode(stacks.frameType(frame));
+            parent = tree.addChild(
+                    parent,
+                    frameName(stacks, frame, frameType),
+                    stacks.frameLineNumber(frame),
+                    stacks.frameBytecodeIndex(frame));
+            path[pathLength++] = parent;
+            path[pathLength++] = frameType.ordinal();
+        }
+        return pathLength == path.length ? path : Arrays.copyOf(path, pathLength);
+    }
+
+    /**
+     * The same names as {@link FrameProcessor#generateName}.
+     */
+    private static String frameName(IndexedStacks stacks, int frame, FrameType frameType) {
+        return switch (frameType) {
+            case JIT_COMPILED, C1_COMPILED, INTERPRETED, INLINED -> stacks.frameName(frame);
+            case CPP, KERNEL, NATIVE -> stacks.frameMethodName(frame);
+            case UNKNOWN -> throw new IllegalArgumentException("Unknown Frame occurred in JFR");
+            default -> throw new IllegalStateException("Unexpected value: " + frameType);
+        };
+    }
+
+    public Frame build() {
+        long allWeight = 0;
+        long allSamples = 0;
+        for (int child = tree.firstChild(FrameTree.ROOT); child != FrameTree.NO_NODE; child = tree.nextSibling(child)) {
+            allSamples += tree.totalSamples(child);
+            allWeight += tree.totalWeight(child);
+        }
+
+        tree.increment(FrameTree.ROOT, FrameType.NATIVE, allWeight, allSamples, false);
+        return tree.root();
+    }
+}
@@ -19,6 +19,7 @@
 package pbouda.jeffrey.frameir.tree;
 
 import pbouda.jeffrey.frameir.record.StackBasedRecord;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
 
 public class SimpleTreeBuilder extends FrameTreeBuilder<StackBasedRecord> {
 
@@ -26,7 +27,15 @@ public class SimpleTreeBuilder extends FrameTreeBuilder<StackBasedRecord> {
         this(false, threadMode);
     }
 
+    public SimpleTreeBuilder(boolean threadMode, SymbolTable symbols) {
+        this(false, threadMode, symbols);
+    }
+
     public SimpleTreeBuilder(boolean lambdaFrameHandling, boolean threadMode) {
-        super(lambdaFrameHandling, threadMode, null);
+        this(lambdaFrameHandling, threadMode, new SymbolTable());
+    }
+
+    public SimpleTreeBuilder(boolean lambdaFrameHandling, boolean threadMode, SymbolTable symbols) {
+        super(lambdaFrameHandling, threadMode, symbols, null);
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.frameir.tree;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded LRU cache of already processed stacktraces. The value is a flat array of pairs
+ * {@code [node, frameType ordinal, node, frameType ordinal, ...]} describing the resolved path in the tree.
+ * <p/>
+ * The primary key is the identity of the JFR stacktrace (the parser resolves every stacktrace of the constant pool
+ * only once per chunk), the secondary key is the content of the stacktrace that catches different instances
+ * with the same frames. Both keys carry also the parts of the record the generated frames depend on
+ * (e.g. the thread in the thread-mode).
+ */
+class StacktraceCache {
+
+    static final int DEFAULT_MAX_SIZE = 16_384;
+
+    private final Map<Object, int[]> byIdentity;
+    private final Map<ContentKey, int[]> byContent;
+
+    private long hits;
+    private long contentHits;
+    private long misses;
+    private long evictions;
+
+    StacktraceCache(int maxSize) {
+        this.byIdentity = new LruMap<>(maxSize);
+        this.byContent = new LruMap<>(maxSize);
+    }
+
+    int[] get(Object key) {
+        int[] path = byIdentity.get(key);
+        if (path != null) {
+            hits++;
+        }
+        return path;
+    }
+
+    int[] getByContent(Object key, ContentKey contentKey) {
+        int[] path = byContent.get(contentKey);
+        if (path != null) {
+            contentHits++;
+            byIdentity.put(key, path);
+        } else {
+            misses++;
+        }
+        return path;
+    }
+
+    void put(Object key, ContentKey contentKey, int[] path) {
+        byIdentity.put(key, path);
+        byContent.put(contentKey, path);
+    }
+
+    StacktraceCacheStatistics statistics() {
+        return new StacktraceCacheStatistics(hits, contentHits, misses, evictions);
+    }
+
+    /**
+     * Identity of the stacktrace together with the parts of the record the generated frames depend on.
+     * JFR objects don't override equals/hashCode, therefore, they are compared by identity.
+     */
+    record StackKey(Object stacktrace, Object thread, Object topFrame) {
+    }
+
+    /**
+     * Content of the stacktrace, every frame is described by {@code [method, line, bci, type]} IDs.
+     */
+    static final class ContentKey {
+
+        private final int[] frames;
+        private final Object thread;
+        private final Object topFrame;
+        private final int hash;
+
+        ContentKey(int[] frames, Object thread, Object topFrame) {
+            this.frames = frames;
+            this.thread = thread;
+            this.topFrame = topFrame;
+            this.hash = 31 * (31 * Arrays.hashCode(frames) + Objects.hashCode(thread)) + Objects.hashCode(topFrame);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ContentKey other
+                    && hash == other.hash
+                    && thread == other.thread
+                    && topFrame == other.topFrame
+                    && Arrays.equals(frames, other.frames);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final class LruMap<K> extends LinkedHashMap<K, int[]> {
+
+        private final int maxSize;
+
+        private LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, int[]> eldest) {
+            if (size() > maxSize) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.frameir.tree;
+
+/**
+ * Counters of the stacktrace cache of a single {@link FrameTreeBuilder}.
+ *
+ * @param hits        stacktraces found by the identity of the JFR stacktrace.
+ * @param contentHits stacktraces found by their content (different instance with the same frames).
+ * @param misses      stacktraces that had to be processed by the frame processors.
+ * @param evictions   entries removed from the cache because of its size limit.
+ */
+public record StacktraceCacheStatistics(long hits, long contentHits, long misses, long evictions) {
+
+    public double hitRate() {
+        long total = hits + contentHits + misses;
+        return total == 0 ? 0 : (double) (hits + contentHits) / total;
+    }
+}
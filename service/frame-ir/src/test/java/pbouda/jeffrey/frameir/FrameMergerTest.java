@@ -22,6 +22,8 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import pbouda.jeffrey.frameir.collector.FrameCollector;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class FrameMergerTest {
@@ -211,6 +213,59 @@ class FrameMergerTest {
         }
     }
 
+    @Nested
+    class CombineAllTest {
+
+        @Test
+        public void combinesAllLikeCombiner() {
+            Frame expected = new FrameCollector<>(null).combiner(threeLayeredFrame(), valuedFrame());
+            expected = new FrameCollector<>(null).combiner(expected, threeLayeredFrame());
+
+            Frame actual = new FrameCollector<>(null)
+                    .combineAll(List.of(threeLayeredFrame(), valuedFrame(), threeLayeredFrame()));
+            assertEquals(expected, actual);
+        }
+
+        @Test
+        public void combinesAllBelowCommonPath() {
+            Frame left = frame(null, "-");
+            Frame leftThread = frame(left, "run");
+            leftThread.increment(FrameType.JIT_COMPILED, 1, 1, false);
+            left.put("run", leftThread);
+            leftThread.put("a", valuedFrame());
+
+            Frame right = frame(null, "-");
+            Frame rightThread = frame(right, "run");
+            rightThread.increment(FrameType.JIT_COMPILED, 2, 2, false);
+            right.put("run", rightThread);
+            rightThread.put("b", threeLayeredFrame());
+
+            Frame expected = frame(null, "-");
+            Frame expectedThread = frame(expected, "run");
+            expectedThread.increment(FrameType.JIT_COMPILED, 3, 3, false);
+            expected.put("run", expectedThread);
+            expectedThread.put("a", valuedFrame());
+            expectedThread.put("b", threeLayeredFrame());
+
+            Frame actual = new FrameCollector<>(null).combineAll(List.of(left, right));
+            assertEquals(expected, actual);
+        }
+
+        private static Frame valuedFrame() {
+            Frame root = frame(null, "-");
+            root.increment(FrameType.C1_COMPILED, 2, 2, false);
+
+            Frame a = frame(root, "a");
+            a.increment(FrameType.C1_COMPILED, 1, 1, true);
+            root.put("a", a);
+
+            Frame d = frame(root, "d");
+            d.increment(FrameType.NATIVE, 1, 1, true);
+            root.put("d", d);
+            return root;
+        }
+    }
+
     private static Frame frame(Frame parent, String methodName) {
         return new Frame(parent, methodName, 1, 1);
     }
@@ -0,0 +1,142 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.frameir;
+
+import org.junit.jupiter.api.Test;
+import pbouda.jeffrey.frameir.marker.MarkerType;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FrameTreeSerializationTest {
+
+    @Test
+    public void roundTripsSingleRoot() throws IOException {
+        FrameTree tree = new FrameTree("-", 0, 0);
+
+        FrameTree actual = roundTrip(tree, FrameTree.ROOT, new SymbolTable());
+        assertEquals(1, actual.size());
+        assertEquals(tree.root(), actual.root());
+    }
+
+    @Test
+    public void roundTripsWholeTree() throws IOException {
+        FrameTree tree = sampleTree();
+
+        FrameTree actual = roundTrip(tree, FrameTree.ROOT, new SymbolTable());
+        assertEquals(tree.size(), actual.size());
+        assertEquals(tree.root(), actual.root());
+    }
+
+    @Test
+    public void roundTripsSubtree() throws IOException {
+        FrameTree tree = sampleTree();
+        int run = tree.child(FrameTree.ROOT, "run");
+
+        FrameTree actual = roundTrip(tree, run, new SymbolTable());
+        assertEquals(4, actual.size());
+        assertEquals(tree.frame(run), actual.root());
+    }
+
+    @Test
+    public void keepsMarkersAndSyntheticTypes() throws IOException {
+        FrameTree tree = sampleTree();
+        int thread = tree.child(FrameTree.ROOT, "main");
+        int run = tree.child(FrameTree.ROOT, "run");
+        int compute = tree.child(run, "compute");
+        tree.setMarker(compute, MarkerType.WARNING);
+
+        FrameTree actual = roundTrip(tree, FrameTree.ROOT, new SymbolTable());
+        int actualRun = actual.child(FrameTree.ROOT, "run");
+        assertEquals(MarkerType.WARNING, actual.marker(actual.child(actualRun, "compute")));
+        assertNull(actual.marker(actualRun));
+        assertEquals(tree.syntheticFrameType(thread), actual.syntheticFrameType(actual.child(FrameTree.ROOT, "main")));
+        assertEquals(FrameType.THREAD_NAME_SYNTHETIC, actual.syntheticFrameType(actual.child(FrameTree.ROOT, "main")));
+    }
+
+    @Test
+    public void keepsLargeCountersAndPositions() throws IOException {
+        FrameTree tree = new FrameTree("-", 0, 0);
+        int child = tree.addChild(FrameTree.ROOT, "big", Integer.MAX_VALUE, 65_535);
+        tree.increment(child, FrameType.NATIVE, Long.MAX_VALUE, 1L << 40, true);
+        tree.increment(FrameTree.ROOT, FrameType.JIT_COMPILED, Long.MAX_VALUE, 1L << 40, false);
+
+        FrameTree actual = roundTrip(tree, FrameTree.ROOT, new SymbolTable());
+        int actualChild = actual.child(FrameTree.ROOT, "big");
+        assertEquals(Integer.MAX_VALUE, actual.lineNumber(actualChild));
+        assertEquals(65_535, actual.bci(actualChild));
+        assertEquals(Long.MAX_VALUE, actual.totalWeight(actualChild));
+        assertEquals(1L << 40, actual.nativeSamples(actualChild));
+        assertEquals(tree.root(), actual.root());
+    }
+
+    @Test
+    public void mergesTreeReadIntoSharedSymbolTable() throws IOException {
+        SymbolTable symbols = new SymbolTable();
+        FrameTree target = new FrameTree(symbols);
+        int run = target.addChild(FrameTree.ROOT, "run", 1, 1);
+        target.increment(run, FrameType.JIT_COMPILED, 5, 5, true);
+
+        FrameTree partial = roundTrip(sampleTree(), FrameTree.ROOT, symbols);
+        target.merge(FrameTree.ROOT, partial, FrameTree.ROOT);
+
+        FrameTree expected = sampleTree();
+        int expectedRun = expected.child(FrameTree.ROOT, "run");
+        expected.increment(expectedRun, FrameType.JIT_COMPILED, 5, 5, true);
+        assertEquals(expected.root(), target.root());
+    }
+
+    private static FrameTree roundTrip(FrameTree tree, int node, SymbolTable symbols) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tree.writeTo(node, new DataOutputStream(bytes));
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        FrameTree actual = FrameTree.readFrom(input, symbols);
+        // the whole serialized subtree is consumed
+        assertEquals(-1, input.read());
+        return actual;
+    }
+
+    private static FrameTree sampleTree() {
+        FrameTree tree = new FrameTree("-", 0, 0);
+
+        int thread = tree.addChild(FrameTree.ROOT, "main", 0, 0);
+        tree.increment(thread, FrameType.THREAD_NAME_SYNTHETIC, 3, 3, false);
+        tree.increment(FrameTree.ROOT, FrameType.JIT_COMPILED, 3, 3, false);
+
+        int run = tree.addChild(FrameTree.ROOT, "run", 1, 1);
+        tree.increment(run, FrameType.INTERPRETED, 10, 2, false);
+        tree.increment(FrameTree.ROOT, FrameType.JIT_COMPILED, 10, 2, false);
+
+        int compute = tree.addChild(run, "compute", 42, 7);
+        tree.increment(compute, FrameType.C1_COMPILED, 6, 1, true);
+        int hash = tree.addChild(run, "hash", 100, 300);
+        tree.increment(hash, FrameType.INLINED, 4, 1, false);
+        // the same method name in a different branch is written as a reference
+        int nested = tree.addChild(hash, "compute", 43, 8);
+        tree.increment(nested, FrameType.KERNEL, 4, 1, true);
+        return tree;
+    }
+}
@@ -19,11 +19,12 @@
 package pbouda.jeffrey.guardian;
 
 import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.FrameTree;
 import pbouda.jeffrey.guardian.guard.Guard;
 import pbouda.jeffrey.guardian.guard.Guard.Result;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 public class FrameTraversal {
 
@@ -33,36 +34,47 @@ public class FrameTraversal {
         this.frame = frame;
     }
 
+    /**
+     * Traverses the tree of frames (depth-first, children in the alphabetical order) and evaluates the guards
+     * on every visited frame. It uses an explicit stack instead of recursion to handle very deep trees.
+     *
+     * @param guards guards to be evaluated on the frames.
+     */
     public void traverseWith(List<Guard> guards) {
-        _traverse(guards, frame);
-    }
+        FrameTree tree = frame.tree();
 
-    private Result _traverse(List<Guard> guards, Frame frame) {
-        Result current = Result.CONTINUE;
-        for (Guard guard : guards) {
-            Result result = guard.evaluate(frame);
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = frame.index();
 
-            if (result == Result.TERMINATE_IMMEDIATELY) {
-                return result;
-            }
+        while (top > 0) {
+            int node = stack[--top];
 
-            current = updateResult(current, result);
-        }
+            Result current = Result.CONTINUE;
+            for (Guard guard : guards) {
+                Result result = guard.evaluate(tree.frame(node));
 
-        // Go deep in the tree only if the current frame is market as CONTINUE with all guards.
-        // SKIP_SUBTREE can cause the whole subtree to be skipped.
-        if (current == Result.CONTINUE) {
-            for (Map.Entry<String, Frame> entry : frame.entrySet()) {
-                Result result = _traverse(guards, entry.getValue());
-
-                // Fast path for termination to quickly go back in the current recursion
+                // Fast path for termination to quickly stop the whole traversal
                 if (result == Result.TERMINATE_IMMEDIATELY) {
-                    return result;
+                    return;
+                }
+
+                current = updateResult(current, result);
+            }
+
+            // Go deep in the tree only if the current frame is market as CONTINUE with all guards.
+            // SKIP_SUBTREE can cause the whole subtree to be skipped.
+            if (current == Result.CONTINUE) {
+                int[] children = tree.children(node);
+                if (top + children.length > stack.length) {
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + children.length));
+                }
+                // Reversed order to visit the children in the alphabetical order
+                for (int i = children.length - 1; i >= 0; i--) {
+                    stack[top++] = children[i];
                 }
             }
         }
-
-        return current;
     }
 
     private static Result updateResult(Result current, Result result) {
@@ -24,34 +24,54 @@ import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.frameir.Frame;
 import pbouda.jeffrey.frameir.collector.FrameCollector;
 import pbouda.jeffrey.frameir.processor.EventProcessors;
+import pbouda.jeffrey.generator.basic.event.AllEventsCollector;
+import pbouda.jeffrey.generator.basic.event.AllEventsProcessor;
 import pbouda.jeffrey.generator.basic.event.EventSummary;
-import pbouda.jeffrey.generator.basic.info.EventInformationProvider;
 import pbouda.jeffrey.guardian.guard.Guard;
 import pbouda.jeffrey.guardian.guard.Guard.ProfileInfo;
 import pbouda.jeffrey.guardian.guard.JITCompilationGuard;
 import pbouda.jeffrey.guardian.guard.gc.*;
 import pbouda.jeffrey.guardian.guard.TotalSamplesGuard;
 import pbouda.jeffrey.guardian.preconditions.*;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
+import pbouda.jeffrey.jfrparser.jdk.FanOutRecordingIterator;
+import pbouda.jeffrey.jfrparser.jdk.ProcessableEvents;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
 
 import java.nio.file.Path;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class Guardian {
 
+    private final DecompressedRecordingCache recordingCache;
+
+    public Guardian(DecompressedRecordingCache recordingCache) {
+        this.recordingCache = recordingCache;
+    }
+
     public List<GuardianResult> process(Config config) {
-        Frame frame = RecordingIterators.automaticAndCollect(
-                config.primaryRecordings(),
+        // All the information is collected in a single pass over the recordings
+        FanOutRecordingIterator iterator = RecordingIterators.fanOut(config.primaryRecordings(), recordingCache);
+
+        Supplier<Frame> frameResult = iterator.register(
                 EventProcessors.executionSamples(config),
                 new FrameCollector<>(Function.identity()));
 
-        GuardRecordingInformation recordingInfo = RecordingIterators.automatic(
-                        config.primaryRecordings(), GuardRecordingInformationEventProcessor::new)
-                .partialCollect(new PreconditionsCollector());
+        Supplier<GuardRecordingInformation> recordingInfoResult = iterator.register(
+                GuardRecordingInformationEventProcessor::new,
+                new PreconditionsCollector());
+
+        Supplier<List<EventSummary>> eventSummariesResult = iterator.register(
+                () -> new AllEventsProcessor(ProcessableEvents.all()),
+                new AllEventsCollector());
+
+        iterator.iterate();
 
-        List<EventSummary> eventSummaries = new EventInformationProvider(config.primaryRecordings(), false)
-                .get();
+        Frame frame = frameResult.get();
+        GuardRecordingInformation recordingInfo = recordingInfoResult.get();
+        List<EventSummary> eventSummaries = eventSummariesResult.get();
 
         Preconditions preconditions = new PreconditionsBuilder()
                 .withEventTypes(eventSummaries)
@@ -93,7 +113,7 @@ public class Guardian {
                 .withPrimaryRecording(Path.of(homeDir, recordingPath))
                 .build();
 
-        Guardian guardian = new Guardian();
+        Guardian guardian = new Guardian(DecompressedRecordingCache.inTempDirectory());
         guardian.process(config);
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import pbouda.jeffrey.common.CompressionUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Header of a single chunk of the JFR recording. Only the fixed-size part of the header is read, the events
+ * and the metadata of the chunk are not touched.
+ *
+ * @param offset        position of the chunk in the recording (relative to the start of the {@link RecordingView}).
+ * @param size          size of the chunk in bytes.
+ * @param startNanos    start of the chunk in epoch nanos.
+ * @param durationNanos duration of the chunk in nanos, {@code 0} if the chunk has not been finished yet.
+ */
+public record ChunkHeader(long offset, long size, long startNanos, long durationNanos) {
+
+    public static final int HEADER_SIZE = 68;
+    private static final int MAGIC = 0x464C5200; // FLR\0
+    private static final int CHUNK_SIZE_POSITION = 8;
+    private static final int START_NANOS_POSITION = 32;
+    private static final int DURATION_NANOS_POSITION = 40;
+
+    /**
+     * End of the chunk in epoch nanos, or {@link Long#MAX_VALUE} if the chunk has not been finished yet.
+     *
+     * @return end of the chunk in epoch nanos.
+     */
+    public long endNanos() {
+        return durationNanos > 0 ? startNanos + durationNanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * Reads headers of all chunks in the recording file. If the file does not contain a valid sequence
+     * of chunks (e.g. the recording is still being written), an empty list is returned.
+     *
+     * The compressed recording is read from the decompressing stream, it's not decompressed to the disk.
+     *
+     * @param recording recording file consisting of one or more chunks, a compressed recording,
+     *                  or a descriptor of {@link RecordingView}.
+     * @return headers of all chunks, or an empty list if the headers cannot be read.
+     */
+    public static List<ChunkHeader> read(Path recording) {
+        return CompressionUtils.isCompressed(recording)
+                ? readCompressed(recording)
+                : read(RecordingView.of(recording));
+    }
+
+    /**
+     * Reads headers of all chunks in the view of the recording, see {@link #read(Path)}.
+     *
+     * @param view view of the uncompressed recording.
+     * @return headers of all chunks, or an empty list if the headers cannot be read.
+     */
+    public static List<ChunkHeader> read(RecordingView view) {
+        List<ChunkHeader> headers = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(view.file(), StandardOpenOption.READ)) {
+            long offset = 0;
+            while (offset < view.length()) {
+                buffer.clear();
+                if (!readFully(channel, buffer, view.offset() + offset)) {
+                    return List.of();
+                }
+
+                ChunkHeader header = parse(buffer, offset);
+                if (header == null || offset + header.size() > view.length()) {
+                    return List.of();
+                }
+
+                headers.add(header);
+                offset += header.size();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read chunk headers: " + view.file(), e);
+        }
+        return headers;
+    }
+
+    private static List<ChunkHeader> readCompressed(Path recording) {
+        List<ChunkHeader> headers = new ArrayList<>();
+        byte[] header = new byte[HEADER_SIZE];
+        try (InputStream input = CompressionUtils.decompressing(recording)) {
+            long offset = 0;
+            int length;
+            while ((length = input.readNBytes(header, 0, HEADER_SIZE)) > 0) {
+                ChunkHeader chunk = length == HEADER_SIZE ? parse(ByteBuffer.wrap(header), offset) : null;
+                if (chunk == null) {
+                    return List.of();
+                }
+
+                // Only the headers are needed, the rest of the chunk is skipped without keeping it
+                input.skipNBytes(chunk.size() - HEADER_SIZE);
+                headers.add(chunk);
+                offset += chunk.size();
+            }
+        } catch (EOFException e) {
+            return List.of();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read chunk headers: " + recording, e);
+        }
+        return headers;
+    }
+
+    /**
+     * Reads the header of the chunk from the stream positioned at the start of the chunk (e.g. the stream of
+     * the decompressed recording). The stream is positioned right after the header afterward.
+     *
+     * @param input  stream of the recording positioned at the start of the chunk.
+     * @param offset position of the chunk in the recording.
+     * @param header buffer of the {@link #HEADER_SIZE} to read the raw header into.
+     * @return header of the chunk, or {@code null} if the stream is already at its end.
+     * @throws IOException if the stream does not contain a valid header of the chunk.
+     */
+    public static ChunkHeader read(InputStream input, long offset, byte[] header) throws IOException {
+        int length = input.readNBytes(header, 0, HEADER_SIZE);
+        if (length == 0) {
+            return null;
+        }
+
+        ChunkHeader chunk = length == HEADER_SIZE ? parse(ByteBuffer.wrap(header), offset) : null;
+        if (chunk == null) {
+            throw new IOException("Invalid header of the chunk: offset=" + offset);
+        }
+        return chunk;
+    }
+
+    private static ChunkHeader parse(ByteBuffer buffer, long offset) {
+        long chunkSize = buffer.getLong(CHUNK_SIZE_POSITION);
+        if (buffer.getInt(0) != MAGIC || chunkSize < HEADER_SIZE) {
+            return null;
+        }
+
+        return new ChunkHeader(
+                offset,
+                chunkSize,
+                buffer.getLong(START_NANOS_POSITION),
+                buffer.getLong(DURATION_NANOS_POSITION));
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
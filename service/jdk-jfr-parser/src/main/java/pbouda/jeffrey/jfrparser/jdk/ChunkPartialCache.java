@@ -0,0 +1,87 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import java.nio.file.Path;
+
+/**
+ * Partial results of the whole recordings (very likely chunks of the bigger recording). The partial result
+ * of the recording is cached only if the time range of the processor covers the whole recording, then
+ * the partial result is the same for all time ranges covering the recording and the recording does not have
+ * to be parsed again.
+ * <p>
+ * The cache never shares the partial results with the caller, the returned partial result can be modified
+ * by the caller, and the cached partial result is not affected by the later modifications of the partial result
+ * passed to {@link #put(Path, Object)} (it's copied or serialized). The implementation is scoped to a single kind
+ * of processor (e.g. the event type and the thread mode).
+ *
+ * @param <PARTIAL> result of the single recording file
+ */
+public interface ChunkPartialCache<PARTIAL> {
+
+    /**
+     * Returns the cached partial result of the recording.
+     *
+     * @param recording recording file.
+     * @return a new instance of the cached partial result, or {@code null} if the recording has not been cached yet.
+     */
+    PARTIAL get(Path recording);
+
+    /**
+     * Caches the partial result of the whole recording.
+     *
+     * @param recording recording file.
+     * @param partial   partial result of the recording.
+     */
+    void put(Path recording, PARTIAL partial);
+
+    /**
+     * Looks up the partial results in the first cache (e.g. in memory), and then in the second one (e.g. persisted).
+     * The partial result found in the second cache is put into the first one, new partial results are put
+     * into both caches.
+     *
+     * @param first     cache that is used first.
+     * @param second    cache that is used if the partial result is missing in the first cache.
+     * @param <PARTIAL> result of the single recording file
+     * @return cache combining both caches.
+     */
+    static <PARTIAL> ChunkPartialCache<PARTIAL> tiered(
+            ChunkPartialCache<PARTIAL> first, ChunkPartialCache<PARTIAL> second) {
+
+        return new ChunkPartialCache<>() {
+            @Override
+            public PARTIAL get(Path recording) {
+                PARTIAL partial = first.get(recording);
+                if (partial == null) {
+                    partial = second.get(recording);
+                    if (partial != null) {
+                        first.put(recording, partial);
+                    }
+                }
+                return partial;
+            }
+
+            @Override
+            public void put(Path recording, PARTIAL partial) {
+                first.put(recording, partial);
+                second.put(recording, partial);
+            }
+        };
+    }
+}
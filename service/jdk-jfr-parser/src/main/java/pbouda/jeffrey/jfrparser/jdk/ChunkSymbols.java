@@ -0,0 +1,125 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedThread;
+import pbouda.jeffrey.common.RecordedClassMapper;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cache of symbols for a single chunk. JFR parser resolves every constant (method, class, thread) only once
+ * per chunk, all events of the chunk refer to the same instance. Therefore, the symbols are cached using
+ * the identity of the JFR objects and the names (e.g. {@code type#method}) are built and interned only once
+ * per chunk. The IDs come from the shared {@link SymbolTable}, they are the same across all chunks.
+ * <p/>
+ * It's not thread-safe, it's supposed to be used by a single processor that belongs to a single chunk.
+ */
+public final class ChunkSymbols {
+
+    private final SymbolTable table;
+    private final Map<RecordedMethod, Integer> methods = new IdentityHashMap<>();
+    private final Map<RecordedMethod, Integer> methodNames = new IdentityHashMap<>();
+    private final Map<RecordedClass, Integer> classes = new IdentityHashMap<>();
+    private final Map<RecordedThread, Integer> threads = new IdentityHashMap<>();
+
+    public ChunkSymbols(SymbolTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Fully-qualified name of the method {@code type#method}, or only the name of the method if it does not
+     * belong to any type.
+     *
+     * @param method method to resolve.
+     * @return ID of the fully-qualified name of the method.
+     */
+    public int method(RecordedMethod method) {
+        Integer id = methods.get(method);
+        if (id == null) {
+            RecordedClass type = method.getType();
+            String name = type != null ? type.getName() + "#" + method.getName() : method.getName();
+            id = table.intern(name);
+            methods.put(method, id);
+        }
+        return id;
+    }
+
+    /**
+     * Only the name of the method without the type (e.g. native and kernel frames).
+     *
+     * @param method method to resolve.
+     * @return ID of the name of the method.
+     */
+    public int methodName(RecordedMethod method) {
+        Integer id = methodNames.get(method);
+        if (id == null) {
+            id = table.intern(method.getName());
+            methodNames.put(method, id);
+        }
+        return id;
+    }
+
+    /**
+     * Human-readable name of the class, see {@link RecordedClassMapper}.
+     *
+     * @param clazz class to resolve.
+     * @return ID of the name of the class.
+     */
+    public int className(RecordedClass clazz) {
+        Integer id = classes.get(clazz);
+        if (id == null) {
+            id = table.intern(RecordedClassMapper.map(clazz));
+            classes.put(clazz, id);
+        }
+        return id;
+    }
+
+    /**
+     * Name of the thread generated by the provided naming function, the function is invoked only once per thread.
+     *
+     * @param thread thread to resolve.
+     * @param naming generates the name of the thread.
+     * @return ID of the name of the thread.
+     */
+    public int thread(RecordedThread thread, Function<RecordedThread, String> naming) {
+        Integer id = threads.get(thread);
+        if (id == null) {
+            id = table.intern(naming.apply(thread));
+            threads.put(thread, id);
+        }
+        return id;
+    }
+
+    public int intern(String symbol) {
+        return table.intern(symbol);
+    }
+
+    public String symbol(int id) {
+        return table.symbol(id);
+    }
+
+    public SymbolTable table() {
+        return table;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Time spent on parsing and merging a single chunk (recording file) of the profile.
+ *
+ * @param recording path to the chunk.
+ * @param size      size of the chunk in bytes.
+ * @param parsing   time spent on iterating over all events of the chunk.
+ * @param merging   time spent on merging the partial result of the chunk into the worker's partial result.
+ * @param thread    name of the thread that processed the chunk.
+ */
+public record ChunkTiming(Path recording, long size, Duration parsing, Duration merging, String thread) {
+}
@@ -0,0 +1,120 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import jdk.jfr.EventType;
+import jdk.jfr.consumer.RecordedEvent;
+import pbouda.jeffrey.common.AbsoluteTimeRange;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fans out every event read from the recording to multiple processors. The recording is decoded only once
+ * and every processor receives only the events matching its own {@link ProcessableEvents}. The processor that
+ * returns {@link Result#DONE} does not receive any other events, the whole processing is finished
+ * when all processors are done.
+ * <p/>
+ * The result is a list of partial results in the same order as the provided processors.
+ */
+public class CompositeEventProcessor implements EventProcessor<List<Object>> {
+
+    private final List<? extends EventProcessor<?>> processors;
+    private final List<ProcessableEvents> filters;
+    private final ProcessableEvents processableEvents;
+    private final AbsoluteTimeRange timeRange;
+    private final boolean[] done;
+    private int remaining;
+
+    public CompositeEventProcessor(List<? extends EventProcessor<?>> processors) {
+        this.processors = processors;
+        this.filters = processors.stream()
+                .map(EventProcessor::processableEvents)
+                .toList();
+        this.processableEvents = ProcessableEvents.anyOf(filters);
+        this.timeRange = union(processors);
+        this.done = new boolean[processors.size()];
+        this.remaining = processors.size();
+    }
+
+    @Override
+    public ProcessableEvents processableEvents() {
+        return processableEvents;
+    }
+
+    @Override
+    public AbsoluteTimeRange timeRange() {
+        return timeRange;
+    }
+
+    @Override
+    public void onStart() {
+        for (EventProcessor<?> processor : processors) {
+            processor.onStart();
+        }
+    }
+
+    @Override
+    public Result onEvent(RecordedEvent event) {
+        EventType eventType = event.getEventType();
+        for (int i = 0; i < done.length; i++) {
+            if (done[i]) {
+                continue;
+            }
+
+            if (filters.get(i).isProcessable(eventType)) {
+                Result result = processors.get(i).onEvent(event);
+                if (result == Result.DONE) {
+                    done[i] = true;
+                    remaining--;
+                }
+            }
+        }
+
+        return remaining == 0 ? Result.DONE : Result.CONTINUE;
+    }
+
+    @Override
+    public void onComplete() {
+        for (EventProcessor<?> processor : processors) {
+            processor.onComplete();
+        }
+    }
+
+    @Override
+    public List<Object> get() {
+        List<Object> partials = new ArrayList<>(processors.size());
+        for (EventProcessor<?> processor : processors) {
+            partials.add(processor.get());
+        }
+        return partials;
+    }
+
+    private static AbsoluteTimeRange union(List<? extends EventProcessor<?>> processors) {
+        Instant start = Instant.MAX;
+        Instant end = Instant.MIN;
+        for (EventProcessor<?> processor : processors) {
+            AbsoluteTimeRange range = processor.timeRange();
+            start = range.start().isBefore(start) ? range.start() : start;
+            end = range.end().isAfter(end) ? range.end() : end;
+        }
+        return processors.isEmpty() ? AbsoluteTimeRange.UNLIMITED : new AbsoluteTimeRange(start, end);
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pbouda.jeffrey.common.CompressionUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * LRU cache of the decompressed copies of the compressed recordings on the local disk, the parsers read
+ * the recordings only from the uncompressed files (e.g. memory-mapped). The cache holds also the copies of the ranges
+ * of {@link RecordingView}, the parsers reading only the whole files ({@link jdk.jfr.consumer.RecordingFile})
+ * read the copy instead of copying the range on every read. The size of the cache is limited by the total size
+ * of the files, the least recently used files are deleted first.
+ * <p/>
+ * The files are used through {@link Lease}, the file is pinned until the lease is closed and the eviction
+ * never deletes the pinned file, the cache can temporarily exceed its maximum size if all files are in use.
+ * <p/>
+ * The file is named after the path, the size and the modification time of the source file (and the range
+ * of the view), therefore, the files created before the restart of the application are reused, and a changed
+ * source file is copied again.
+ */
+public class DecompressedRecordingCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DecompressedRecordingCache.class);
+
+    private static final long DEFAULT_MAX_SIZE = 2L * 1024 * 1024 * 1024;
+
+    private final Path directory;
+    private final long maxSize;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private boolean initialized;
+
+    /**
+     * @param directory directory of the decompressed files, the cache owns all files in the directory.
+     * @param maxSize   maximum total size of the decompressed files in bytes which are not in use.
+     */
+    public DecompressedRecordingCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates the cache in the temporary directory for the applications without any configured directory
+     * (e.g. command line tools), the files are reused by the next run.
+     *
+     * @return new cache in the temporary directory.
+     */
+    public static DecompressedRecordingCache inTempDirectory() {
+        return new DecompressedRecordingCache(
+                Path.of(System.getProperty("java.io.tmpdir"), "jeffrey-decompressed"), DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Resolves the recording into a view of an uncompressed file, the compressed recording is decompressed
+     * if it's not cached yet. Concurrent calls for the same recording decompress it only once.
+     *
+     * @param recording regular recording file, compressed recording file, or a descriptor of {@link RecordingView}.
+     * @return lease of the resolved recording, the cached files are not deleted until the lease is closed.
+     */
+    public Lease acquire(Path recording) {
+        Lease lease = new Lease();
+        try {
+            if (CompressionUtils.isCompressed(recording)) {
+                Entry entry = lease.pin(resolve(decompressedName(recording), target ->
+                        CompressionUtils.decompress(recording, target), recording));
+                lease.view = new RecordingView(entry.file, 0, entry.size);
+            } else {
+                lease.view = RecordingView.of(recording);
+            }
+            return lease;
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads headers of all chunks in the recording without decompressing the compressed recording to the disk,
+     * the headers are read from the decompressed copy if it's already cached, otherwise, they are read from
+     * the decompressing stream.
+     *
+     * @param recording regular recording file, compressed recording file, or a descriptor of {@link RecordingView}.
+     * @return headers of all chunks, or an empty list if the headers cannot be read.
+     */
+    public List<ChunkHeader> chunkHeaders(Path recording) {
+        if (!CompressionUtils.isCompressed(recording)) {
+            return ChunkHeader.read(recording);
+        }
+
+        Entry entry;
+        synchronized (this) {
+            initialize();
+            entry = entries.get(decompressedName(recording));
+            if (entry == null || !entry.ready) {
+                return ChunkHeader.read(recording);
+            }
+            entry.pins++;
+        }
+
+        try {
+            return ChunkHeader.read(new RecordingView(entry.file, 0, entry.size));
+        } finally {
+            release(entry);
+        }
+    }
+
+    private static String decompressedName(Path compressed) {
+        return cacheName(compressed.toAbsolutePath() + ":" + fileStamp(compressed));
+    }
+
+    private static String viewName(RecordingView view) {
+        return cacheName(view.file().toAbsolutePath() + ":" + fileStamp(view.file())
+                + ":" + view.offset() + ":" + view.length());
+    }
+
+    /**
+     * Returns the pinned entry of the local copy, the copy is created if it's not cached yet.
+     */
+    private Entry resolve(String name, FileWriter writer, Path source) {
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                initialize();
+                entry = entries.computeIfAbsent(name, n -> new Entry(directory.resolve(n)));
+                entry.pins++;
+            }
+
+            synchronized (entry) {
+                if (entry.ready) {
+                    return entry;
+                }
+
+                if (entry.failed) {
+                    // The entry has been already removed, try again with a new one
+                    release(entry);
+                    continue;
+                }
+
+                try {
+                    writer.write(entry.file);
+                    entry.size = Files.size(entry.file);
+                } catch (IOException | RuntimeException e) {
+                    synchronized (this) {
+                        entry.failed = true;
+                        entries.remove(name, entry);
+                    }
+                    release(entry);
+                    throw new RuntimeException("Cannot create a local copy of the recording: " + source, e);
+                }
+
+                synchronized (this) {
+                    entry.ready = true;
+                    size += entry.size;
+                    evict();
+                }
+                return entry;
+            }
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.pins--;
+        evict();
+    }
+
+    private static String fileStamp(Path file) {
+        try {
+            return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read the recording: " + file, e);
+        }
+    }
+
+    private static String cacheName(String identity) {
+        return UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8)) + ".jfr";
+    }
+
+    /**
+     * Takes over the files decompressed before the restart, the oldest files are evicted first.
+     */
+    private void initialize() {
+        if (initialized) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(directory)) {
+                files = stream.toList();
+            }
+
+            List<Path> decompressed = files.stream()
+                    .filter(file -> file.getFileName().toString().endsWith(".jfr"))
+                    .sorted(Comparator.comparing(DecompressedRecordingCache::lastModified))
+                    .toList();
+
+            for (Path file : decompressed) {
+                Entry entry = new Entry(file);
+                entry.size = Files.size(file);
+                entry.ready = true;
+                entries.put(file.getFileName().toString(), entry);
+                size += entry.size;
+            }
+
+            // Leftovers of the interrupted decompression
+            for (Path file : files) {
+                if (!decompressed.contains(file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot initialize the cache of decompressed recordings: " + directory, e);
+        }
+
+        initialized = true;
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used files which are not in use, until the cache fits into the maximum size.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.ready && entry.pins == 0) {
+                iterator.remove();
+                size -= entry.size;
+                try {
+                    Files.deleteIfExists(entry.file);
+                } catch (IOException e) {
+                    LOG.warn("Cannot delete the decompressed recording: {}", entry.file, e);
+                }
+            }
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Local uncompressed files of the recording, the files are pinned in the cache until the lease is closed.
+     * The lease is intended for a single thread.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final List<Entry> pinned = new ArrayList<>();
+        private RecordingView view;
+        private Path wholeFile;
+
+        private Lease() {
+        }
+
+        private Entry pin(Entry entry) {
+            pinned.add(entry);
+            return entry;
+        }
+
+        /**
+         * View of the recording in the uncompressed file, e.g. for the memory-mapped reader or the reader
+         * of chunk headers.
+         *
+         * @return view of the uncompressed recording.
+         */
+        public RecordingView view() {
+            return view;
+        }
+
+        /**
+         * Resolves the file containing only the chunks of the recording for the parsers reading only the whole
+         * files (e.g. {@link jdk.jfr.consumer.RecordingFile}), the range of the view is copied only once
+         * and the copy is cached.
+         *
+         * @return the uncompressed file, or the copy of the range if the view covers only a part of the file.
+         */
+        public Path wholeFile() {
+            if (wholeFile == null) {
+                try {
+                    wholeFile = view.isWholeFile()
+                            ? view.file()
+                            : pin(resolve(viewName(view), view::copyTo, view.file())).file;
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot read the recording: " + view.file(), e);
+                }
+            }
+            return wholeFile;
+        }
+
+        /**
+         * Unpins the files of the recording, they can be evicted from the cache afterward.
+         */
+        @Override
+        public void close() {
+            for (Entry entry : pinned) {
+                release(entry);
+            }
+            pinned.clear();
+        }
+    }
+
+    @FunctionalInterface
+    private interface FileWriter {
+        void write(Path target) throws IOException;
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private long size;
+        private boolean ready;
+        private boolean failed;
+        private int pins;
+
+        private Entry(Path file) {
+            this.file = file;
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package pbouda.jeffrey.jfrparser.jdk;
 
 import jdk.jfr.consumer.RecordedEvent;
+import pbouda.jeffrey.common.AbsoluteTimeRange;
 
 import java.util.function.Supplier;
 
@@ -36,6 +37,17 @@ public interface EventProcessor<T> extends Supplier<T> {
      */
     ProcessableEvents processableEvents();
 
+    /**
+     * Time range of the events (their start time) the processor is interested in. The whole chunks outside
+     * the time range are skipped without decoding their events. The processor still needs to filter out
+     * the events outside the time range, the chunks are not aligned with the time range.
+     *
+     * @return time range of the processed events.
+     */
+    default AbsoluteTimeRange timeRange() {
+        return AbsoluteTimeRange.UNLIMITED;
+    }
+
     /**
      * This method is called before any event is passed to the processor.
      */
@@ -0,0 +1,188 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import pbouda.jeffrey.common.Collector;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Drives multiple independent processors from a single pass over the recordings. Every registered processor
+ * gets its own instance per recording file, all of them are fed from one {@code readEvent()} loop
+ * using {@link CompositeEventProcessor}, and their partial results are merged by their own collectors.
+ * <p/>
+ * Usage:
+ * <pre>
+ *  FanOutRecordingIterator iterator = RecordingIterators.fanOut(recordings, recordingCache);
+ *  Supplier&lt;Frame&gt; frame = iterator.register(EventProcessors.executionSamples(config), frameCollector);
+ *  Supplier&lt;List&lt;EventSummary&gt;&gt; events = iterator.register(allEventsSupplier, new AllEventsCollector());
+ *  iterator.iterate();
+ * </pre>
+ * Results are available from the returned suppliers after {@link #iterate()} is finished.
+ */
+public class FanOutRecordingIterator {
+
+    private final List<Path> recordings;
+    private final DecompressedRecordingCache recordingCache;
+    private final List<Registration<?, ?>> registrations = new ArrayList<>();
+
+    public FanOutRecordingIterator(List<Path> recordings, DecompressedRecordingCache recordingCache) {
+        this.recordings = recordings;
+        this.recordingCache = recordingCache;
+    }
+
+    /**
+     * Registers a new processor which participates in the single-pass iteration.
+     *
+     * @param processorSupplier creates a new processor for every recording file (a new instance for every call).
+     * @param collector         merges partial results of the recording files and transforms them into a result.
+     * @param <PARTIAL>         result of the single recording file
+     * @param <RESULT>          collected result of all recording files
+     * @return supplier of the result, available after {@link #iterate()} is finished.
+     */
+    public <PARTIAL, RESULT> Supplier<RESULT> register(
+            Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
+            Collector<PARTIAL, RESULT> collector) {
+
+        Registration<PARTIAL, RESULT> registration = new Registration<>(
+                processorSupplier, collector, collector::finisher);
+        registrations.add(registration);
+        return registration;
+    }
+
+    /**
+     * Registers a new processor which participates in the single-pass iteration. The partial result
+     * is not merged with any other partial results and it's returned without any modification,
+     * see {@link RecordingIterators#singleAndCollectIdentical(Path, EventProcessor, DecompressedRecordingCache)}.
+     * It's intended for a single recording, if there are more recordings, only one of the partial results
+     * is returned.
+     *
+     * @param processorSupplier creates a new processor for every recording file.
+     * @param <RESULT>          result of the single recording file
+     * @return supplier of the result, available after {@link #iterate()} is finished.
+     */
+    public <RESULT> Supplier<RESULT> registerIdentical(Supplier<? extends EventProcessor<RESULT>> processorSupplier) {
+        Registration<RESULT, RESULT> registration = new Registration<>(
+                processorSupplier, new RecordingFileIterator.IdentityCollector<>(), Function.identity());
+        registrations.add(registration);
+        return registration;
+    }
+
+    /**
+     * Iterates over all recordings only once and passes the events to all registered processors.
+     */
+    public void iterate() {
+        if (registrations.isEmpty()) {
+            return;
+        }
+
+        List<Object> partials = RecordingIterators.automatic(recordings, this::newCompositeProcessor, recordingCache)
+                .partialCollect(new CompositeCollector());
+
+        for (int i = 0; i < registrations.size(); i++) {
+            registrations.get(i).complete(partials.get(i));
+        }
+    }
+
+    private CompositeEventProcessor newCompositeProcessor() {
+        List<EventProcessor<?>> processors = registrations.stream()
+                .<EventProcessor<?>>map(Registration::newProcessor)
+                .toList();
+
+        return new CompositeEventProcessor(processors);
+    }
+
+    private class CompositeCollector implements Collector<List<Object>, List<Object>> {
+
+        @Override
+        public Supplier<List<Object>> empty() {
+            return () -> {
+                List<Object> partials = new ArrayList<>(registrations.size());
+                for (Registration<?, ?> registration : registrations) {
+                    partials.add(registration.empty());
+                }
+                return partials;
+            };
+        }
+
+        @Override
+        public List<Object> combiner(List<Object> partial1, List<Object> partial2) {
+            for (int i = 0; i < registrations.size(); i++) {
+                partial1.set(i, registrations.get(i).combine(partial1.get(i), partial2.get(i)));
+            }
+            return partial1;
+        }
+
+        @Override
+        public List<Object> finisher(List<Object> combined) {
+            return combined;
+        }
+    }
+
+    private static class Registration<PARTIAL, RESULT> implements Supplier<RESULT> {
+
+        private final Supplier<EventProcessor<PARTIAL>> processorSupplier;
+        private final Collector<PARTIAL, ?> collector;
+        private final Function<PARTIAL, RESULT> finisher;
+
+        private RESULT result;
+        private boolean completed = false;
+
+        private Registration(
+                Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
+                Collector<PARTIAL, ?> collector,
+                Function<PARTIAL, RESULT> finisher) {
+
+            this.processorSupplier = new NewInstanceSupplier<>(processorSupplier);
+            this.collector = collector;
+            this.finisher = finisher;
+        }
+
+        private EventProcessor<PARTIAL> newProcessor() {
+            return processorSupplier.get();
+        }
+
+        private PARTIAL empty() {
+            return collector.empty().get();
+        }
+
+        @SuppressWarnings("unchecked")
+        private PARTIAL combine(Object partial1, Object partial2) {
+            return collector.combiner((PARTIAL) partial1, (PARTIAL) partial2);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Object partial) {
+            this.result = finisher.apply((PARTIAL) partial);
+            this.completed = true;
+        }
+
+        @Override
+        public RESULT get() {
+            if (!completed) {
+                throw new IllegalStateException("Recordings have not been iterated yet");
+            }
+            return result;
+        }
+    }
+}
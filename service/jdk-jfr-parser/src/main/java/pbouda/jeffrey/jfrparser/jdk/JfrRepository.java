@@ -0,0 +1,93 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Chunks of a JFR repository (the directory configured using {@code -XX:FlightRecorderOptions:repository=...}).
+ * The JVM does not write the chunks directly into the repository, every start of the JVM creates
+ * a subdirectory {@code <yyyy_MM_dd_HH_mm_ss>_<pid>} and writes the chunks there:
+ * <pre>
+ *     repository/
+ *         2024_05_01_10_00_00_1234/
+ *             2024_05_01_10_00_00.jfr
+ *             2024_05_01_10_12_04.jfr
+ *         2024_05_01_11_30_00_5678/
+ *             2024_05_01_11_30_00.jfr
+ * </pre>
+ * The chunks are looked up in the repository and one level deeper, therefore, the repository can also point
+ * directly to the subdirectory of a single JVM. The chunks are ordered by the start time in their headers,
+ * the names of the files are local times and the subdirectories of different JVMs don't have to be
+ * in the same order.
+ */
+public final class JfrRepository {
+
+    /**
+     * Chunk file of the repository.
+     *
+     * @param file    file of the chunk.
+     * @param headers headers of the file, empty if the header has not been written yet.
+     */
+    public record Chunk(Path file, List<ChunkHeader> headers) {
+
+        /**
+         * @return start of the chunk in epoch nanos, {@link Long#MAX_VALUE} if the header has not been
+         * written yet (the chunk has just been created).
+         */
+        public long startNanos() {
+            return headers.isEmpty() ? Long.MAX_VALUE : headers.getFirst().startNanos();
+        }
+
+        /**
+         * @return {@code true} if all headers of the chunk are complete (the JVM finished the chunk).
+         */
+        public boolean isComplete() {
+            return !headers.isEmpty() && headers.stream().allMatch(header -> header.durationNanos() > 0);
+        }
+    }
+
+    private JfrRepository() {
+    }
+
+    /**
+     * Lists the chunks of all JVMs that wrote into the repository.
+     *
+     * @param repository JFR repository, or a subdirectory of a single JVM.
+     * @return chunks ordered by their start time, the newest chunk is the last one.
+     */
+    public static List<Chunk> chunks(Path repository) {
+        try (Stream<Path> stream = Files.walk(repository, 2)) {
+            return stream
+                    .filter(file -> file.getFileName().toString().endsWith(".jfr"))
+                    .filter(Files::isRegularFile)
+                    .map(file -> new Chunk(file, ChunkHeader.read(file)))
+                    .sorted(Comparator.comparingLong(Chunk::startNanos)
+                            .thenComparing(Chunk::file))
+                    .toList();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot list the chunks of the JFR repository: " + repository, e);
+        }
+    }
+}
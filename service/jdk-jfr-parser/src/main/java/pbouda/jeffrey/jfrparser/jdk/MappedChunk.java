@@ -0,0 +1,320 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single chunk of the JFR recording mapped into memory. The chunk header and metadata are parsed eagerly,
+ * the events are decoded lazily directly from the mapped buffer without creating any objects per event.
+ * <p/>
+ * Supports the format version 2 (JDK 11+) with compressed integers, see {@link #parse(ByteBuffer)}.
+ */
+final class MappedChunk {
+
+    static final int HEADER_SIZE = 68;
+
+    private static final byte[] MAGIC = {'F', 'L', 'R', '\0'};
+    private static final int SUPPORTED_MAJOR_VERSION = 2;
+    private static final int CHUNK_SIZE_POSITION = 8;
+    private static final int FILE_STATE_POSITION = 64;
+    private static final int FLAGS_POSITION = 67;
+    private static final byte UPDATING_CHUNK_HEADER = (byte) 255;
+    private static final int FLAG_COMPRESSED_INTS = 1;
+
+    private static final long METADATA_EVENT_TYPE = 0;
+    private static final long CHECKPOINT_EVENT_TYPE = 1;
+
+    private static final byte STRING_NULL = 0;
+    private static final byte STRING_EMPTY = 1;
+    private static final byte STRING_CONSTANT_POOL = 2;
+    private static final byte STRING_UTF8 = 3;
+    private static final byte STRING_CHAR_ARRAY = 4;
+    private static final byte STRING_LATIN1 = 5;
+
+    record Field(String name, long typeId, boolean constantPool, boolean array) {
+    }
+
+    record ClassDescriptor(long id, String name, List<Field> fields) {
+    }
+
+    private record Element(String name, Map<String, String> attributes, List<Element> children) {
+    }
+
+    private final ByteBuffer buffer;
+    private final long startNanos;
+    private final long startTicks;
+    private final double ticksPerNanos;
+    private final Map<Long, ClassDescriptor> classes;
+    private final Map<String, ClassDescriptor> classesByName;
+
+    private int position;
+
+    private MappedChunk(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.startNanos = buffer.getLong(32);
+        this.startTicks = buffer.getLong(48);
+        this.ticksPerNanos = buffer.getLong(56) / 1_000_000_000.0;
+        this.classes = new HashMap<>();
+        this.classesByName = new HashMap<>();
+    }
+
+    /**
+     * Reads the size of the chunk from the header, the header must be complete and supported
+     * by {@link #parse(ByteBuffer)}, otherwise {@code -1} is returned.
+     *
+     * @param header buffer containing at least {@link #HEADER_SIZE} bytes of the chunk header.
+     * @return size of the chunk in bytes, or {@code -1} if the chunk is not supported.
+     */
+    static long chunkSize(ByteBuffer header) {
+        header.order(ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                return -1;
+            }
+        }
+        if (header.getShort(4) != SUPPORTED_MAJOR_VERSION
+                || header.get(FILE_STATE_POSITION) == UPDATING_CHUNK_HEADER
+                || (header.get(FLAGS_POSITION) & FLAG_COMPRESSED_INTS) == 0) {
+            return -1;
+        }
+        long chunkSize = header.getLong(CHUNK_SIZE_POSITION);
+        return chunkSize > HEADER_SIZE ? chunkSize : -1;
+    }
+
+    /**
+     * Parses the header and the metadata of the chunk.
+     *
+     * @param buffer buffer containing the whole chunk, header included.
+     * @return parsed chunk ready to iterate over the events.
+     * @throws IllegalStateException if the chunk does not contain valid metadata.
+     */
+    static MappedChunk parse(ByteBuffer buffer) {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        MappedChunk chunk = new MappedChunk(buffer);
+        chunk.parseMetadata(Math.toIntExact(buffer.getLong(24)));
+        return chunk;
+    }
+
+    ClassDescriptor classDescriptor(String name) {
+        return classesByName.get(name);
+    }
+
+    ClassDescriptor classDescriptor(long id) {
+        return classes.get(id);
+    }
+
+    long convertTimestamp(long ticks) {
+        return startNanos + (long) ((ticks - startTicks) / ticksPerNanos);
+    }
+
+    long convertTimespan(long ticks) {
+        return (long) (ticks / ticksPerNanos);
+    }
+
+    int limit() {
+        return buffer.limit();
+    }
+
+    int position() {
+        return position;
+    }
+
+    void position(int position) {
+        this.position = position;
+    }
+
+    static boolean isEventWithPayload(long typeId) {
+        return typeId != METADATA_EVENT_TYPE && typeId != CHECKPOINT_EVENT_TYPE;
+    }
+
+    long readLong() {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            byte b = buffer.get(position++);
+            result |= (b & 0x7FL) << (7 * i);
+            if (b >= 0) {
+                return result;
+            }
+        }
+        return result | (buffer.get(position++) & 0xFFL) << 56;
+    }
+
+    int readInt() {
+        return (int) readLong();
+    }
+
+    /**
+     * Skips the value of the field, the value is not decoded.
+     *
+     * @param field field to skip.
+     */
+    void skip(Field field) {
+        if (field.array()) {
+            int count = readInt();
+            for (int i = 0; i < count; i++) {
+                skipSingle(field);
+            }
+        } else {
+            skipSingle(field);
+        }
+    }
+
+    private void skipSingle(Field field) {
+        if (field.constantPool()) {
+            readLong();
+            return;
+        }
+
+        ClassDescriptor type = classes.get(field.typeId());
+        if (type == null) {
+            throw new IllegalStateException("Unknown type of the field: " + field.name());
+        }
+
+        switch (type.name()) {
+            case "boolean", "byte" -> position++;
+            case "float" -> position += Float.BYTES;
+            case "double" -> position += Double.BYTES;
+            case "char", "short", "int", "long" -> readLong();
+            case "java.lang.String" -> skipString();
+            default -> {
+                for (Field nested : type.fields()) {
+                    skip(nested);
+                }
+            }
+        }
+    }
+
+    private void skipString() {
+        byte encoding = buffer.get(position++);
+        switch (encoding) {
+            case STRING_NULL, STRING_EMPTY -> {
+            }
+            case STRING_CONSTANT_POOL -> readLong();
+            case STRING_UTF8, STRING_LATIN1 -> {
+                int length = readInt();
+                position += length;
+            }
+            case STRING_CHAR_ARRAY -> {
+                int length = readInt();
+                for (int i = 0; i < length; i++) {
+                    readLong();
+                }
+            }
+            default -> throw new IllegalStateException("Unknown string encoding: " + encoding);
+        }
+    }
+
+    private String readString() {
+        byte encoding = buffer.get(position++);
+        return switch (encoding) {
+            case STRING_NULL -> null;
+            case STRING_EMPTY -> "";
+            case STRING_UTF8 -> readBytes(StandardCharsets.UTF_8);
+            case STRING_LATIN1 -> readBytes(StandardCharsets.ISO_8859_1);
+            case STRING_CHAR_ARRAY -> {
+                int length = readInt();
+                char[] chars = new char[length];
+                for (int i = 0; i < length; i++) {
+                    chars[i] = (char) readInt();
+                }
+                yield new String(chars);
+            }
+            default -> throw new IllegalStateException("Unsupported string encoding in metadata: " + encoding);
+        };
+    }
+
+    private String readBytes(Charset charset) {
+        int length = readInt();
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        position += length;
+        return new String(bytes, charset);
+    }
+
+    private void parseMetadata(int metadataOffset) {
+        position = metadataOffset;
+        readInt();  // size
+        if (readLong() != METADATA_EVENT_TYPE) {
+            throw new IllegalStateException("Metadata event expected at the position: " + metadataOffset);
+        }
+        readLong(); // start time
+        readLong(); // duration
+        readLong(); // metadata ID
+
+        int stringCount = readInt();
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            strings[i] = readString();
+        }
+
+        Element root = readElement(strings);
+        for (Element child : root.children()) {
+            if (child.name().equals("metadata")) {
+                for (Element clazz : child.children()) {
+                    if (clazz.name().equals("class")) {
+                        ClassDescriptor descriptor = toClassDescriptor(clazz);
+                        classes.put(descriptor.id(), descriptor);
+                        classesByName.put(descriptor.name(), descriptor);
+                    }
+                }
+            }
+        }
+    }
+
+    private Element readElement(String[] strings) {
+        String name = strings[readInt()];
+        int attributeCount = readInt();
+        Map<String, String> attributes = new HashMap<>(attributeCount * 2);
+        for (int i = 0; i < attributeCount; i++) {
+            String key = strings[readInt()];
+            String value = strings[readInt()];
+            attributes.put(key, value);
+        }
+        int childCount = readInt();
+        List<Element> children = new ArrayList<>(childCount);
+        for (int i = 0; i < childCount; i++) {
+            children.add(readElement(strings));
+        }
+        return new Element(name, attributes, children);
+    }
+
+    private static ClassDescriptor toClassDescriptor(Element clazz) {
+        List<Field> fields = new ArrayList<>();
+        for (Element field : clazz.children()) {
+            if (field.name().equals("field")) {
+                Map<String, String> attributes = field.attributes();
+                fields.add(new Field(
+                        attributes.get("name"),
+                        Long.parseLong(attributes.get("class")),
+                        "true".equals(attributes.get("constantPool")),
+                        "1".equals(attributes.get("dimension"))));
+            }
+        }
+        Map<String, String> attributes = clazz.attributes();
+        return new ClassDescriptor(Long.parseLong(attributes.get("id")), attributes.get("name"), List.copyOf(fields));
+    }
+}
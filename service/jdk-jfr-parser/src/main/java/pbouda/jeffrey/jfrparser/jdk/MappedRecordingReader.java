@@ -0,0 +1,303 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.jfrparser.jdk.EventProcessor.Result;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the hot event types (execution samples, allocations and blocking events) directly from the memory-mapped
+ * chunks of the recording and emits them to {@link PrimitiveEventProcessor} as primitive values. All other events,
+ * including the metadata and checkpoint events, are skipped using their size without decoding them.
+ * <p/>
+ * All the chunks are mapped and their metadata are parsed before the first event is emitted, therefore,
+ * the caller can safely fall back to {@link jdk.jfr.consumer.RecordingFile} if the recording is not supported.
+ */
+final class MappedRecordingReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedRecordingReader.class);
+
+    private enum WeightSource {
+        NONE, FIELD, DURATION
+    }
+
+    private record HotType(Type type, String threadField, WeightSource weightSource, String weightField) {
+    }
+
+    private static final List<HotType> HOT_TYPES = List.of(
+            new HotType(Type.EXECUTION_SAMPLE, "sampledThread", WeightSource.NONE, null),
+            new HotType(Type.OBJECT_ALLOCATION_IN_NEW_TLAB, "eventThread", WeightSource.FIELD, "allocationSize"),
+            new HotType(Type.OBJECT_ALLOCATION_OUTSIDE_TLAB, "eventThread", WeightSource.FIELD, "allocationSize"),
+            new HotType(Type.OBJECT_ALLOCATION_SAMPLE, "eventThread", WeightSource.FIELD, "weight"),
+            new HotType(Type.JAVA_MONITOR_ENTER, "eventThread", WeightSource.DURATION, null),
+            new HotType(Type.JAVA_MONITOR_WAIT, "eventThread", WeightSource.DURATION, null),
+            new HotType(Type.THREAD_PARK, "eventThread", WeightSource.DURATION, null));
+
+    private static final byte SKIP = 0;
+    private static final byte START_TIME = 1;
+    private static final byte DURATION = 2;
+    private static final byte THREAD = 3;
+    private static final byte STACKTRACE = 4;
+    private static final byte WEIGHT = 5;
+
+    /**
+     * Decoding plan of a single event type in a chunk, the fields after the last needed one are not decoded at all.
+     *
+     * @param typeId  ID of the event type in the chunk.
+     * @param hotType known hot type the plan belongs to.
+     * @param fields  fields of the event up to the last needed one.
+     * @param actions action for every field in {@code fields}.
+     */
+    private record EventPlan(long typeId, HotType hotType, MappedChunk.Field[] fields, byte[] actions) {
+    }
+
+    private record PreparedChunk(MappedChunk chunk, EventPlan[] plans) {
+    }
+
+    private final RecordingView view;
+    private final List<HotType> hotTypes;
+
+    private MappedRecordingReader(RecordingView view, List<HotType> hotTypes) {
+        this.view = view;
+        this.hotTypes = hotTypes;
+    }
+
+    /**
+     * Checks whether all processable events of the processor can be read by the memory-mapped reader.
+     *
+     * @param processableEvents events requested by the processor.
+     * @return {@code true} if all the events are supported.
+     */
+    static boolean isSupported(ProcessableEvents processableEvents) {
+        return !processableEvents.isProcessableAll()
+                && !processableEvents.eventNames().isEmpty()
+                && processableEvents.eventNames().stream().allMatch(name -> hotType(name) != null);
+    }
+
+    /**
+     * Reads the recording and emits all processable events to the processor. The processor is not touched
+     * if the recording cannot be read by the memory-mapped reader (e.g. an unsupported version of the format).
+     *
+     * @param view      view of the uncompressed recording to read.
+     * @param processor processor consuming the primitive values of the events.
+     * @return {@code true} if the recording was processed, {@code false} if the caller needs to fall back
+     * to a regular parser.
+     */
+    static boolean read(RecordingView view, PrimitiveEventProcessor<?> processor) {
+        List<HotType> hotTypes = processor.processableEvents().eventNames().stream()
+                .map(MappedRecordingReader::hotType)
+                .toList();
+
+        return new MappedRecordingReader(view, hotTypes).read(processor);
+    }
+
+    private boolean read(PrimitiveEventProcessor<?> processor) {
+        List<PreparedChunk> chunks;
+        try (FileChannel channel = FileChannel.open(view.file(), StandardOpenOption.READ)) {
+            chunks = prepare(channel, view);
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Recording cannot be read using memory-mapped chunks, fallback to RecordingFile: file={} reason={}",
+                    view.file(), e.getMessage());
+            return false;
+        }
+
+        if (chunks == null) {
+            LOG.debug("Recording format is not supported by memory-mapped reader, fallback to RecordingFile: file={}",
+                    view.file());
+            return false;
+        }
+
+        processor.onStart();
+        for (PreparedChunk chunk : chunks) {
+            if (processChunk(chunk, processor) == Result.DONE) {
+                break;
+            }
+        }
+        processor.onComplete();
+        return true;
+    }
+
+    private List<PreparedChunk> prepare(FileChannel channel, RecordingView view) throws IOException {
+        // Only the range of the view is mapped, the file can contain other chunks as well
+        long fileSize = view.offset() + view.length();
+        List<PreparedChunk> chunks = new ArrayList<>();
+
+        long offset = view.offset();
+        while (offset < fileSize) {
+            if (fileSize - offset < MappedChunk.HEADER_SIZE) {
+                return null;
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, offset, MappedChunk.HEADER_SIZE);
+            long chunkSize = MappedChunk.chunkSize(header);
+            if (chunkSize < 0 || chunkSize > Integer.MAX_VALUE || offset + chunkSize > fileSize) {
+                return null;
+            }
+
+            MappedChunk chunk = MappedChunk.parse(channel.map(FileChannel.MapMode.READ_ONLY, offset, chunkSize));
+            chunks.add(new PreparedChunk(chunk, plans(chunk)));
+            offset += chunkSize;
+        }
+        return chunks;
+    }
+
+    private EventPlan[] plans(MappedChunk chunk) {
+        List<EventPlan> plans = new ArrayList<>();
+        for (HotType hotType : hotTypes) {
+            MappedChunk.ClassDescriptor descriptor = chunk.classDescriptor(hotType.type().code());
+            // The event type is not registered in this chunk, nothing to read
+            if (descriptor != null) {
+                plans.add(plan(descriptor, hotType));
+            }
+        }
+        return plans.toArray(EventPlan[]::new);
+    }
+
+    private static EventPlan plan(MappedChunk.ClassDescriptor descriptor, HotType hotType) {
+        List<MappedChunk.Field> fields = descriptor.fields();
+        byte[] actions = new byte[fields.size()];
+        int lastNeeded = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            MappedChunk.Field field = fields.get(i);
+            byte action = action(field, hotType);
+            if (action != SKIP) {
+                if (field.array()) {
+                    throw new IllegalStateException("Unexpected array field: " + field.name());
+                }
+                lastNeeded = i;
+            }
+            actions[i] = action;
+        }
+
+        if (hotType.weightSource() == WeightSource.FIELD && !contains(actions, WEIGHT)) {
+            throw new IllegalStateException("Missing weight field: " + hotType.weightField());
+        }
+        if (hotType.weightSource() == WeightSource.DURATION && !contains(actions, DURATION)) {
+            throw new IllegalStateException("Missing duration field: " + hotType.type().code());
+        }
+
+        return new EventPlan(
+                descriptor.id(),
+                hotType,
+                fields.subList(0, lastNeeded + 1).toArray(MappedChunk.Field[]::new),
+                Arrays.copyOf(actions, lastNeeded + 1));
+    }
+
+    private static byte action(MappedChunk.Field field, HotType hotType) {
+        String name = field.name();
+        if (name.equals("startTime")) {
+            return START_TIME;
+        } else if (name.equals("duration") && hotType.weightSource() == WeightSource.DURATION) {
+            return DURATION;
+        } else if (name.equals(hotType.threadField())) {
+            return THREAD;
+        } else if (name.equals("stackTrace")) {
+            return STACKTRACE;
+        } else if (name.equals(hotType.weightField())) {
+            return WEIGHT;
+        } else {
+            return SKIP;
+        }
+    }
+
+    private static boolean contains(byte[] actions, byte action) {
+        for (byte a : actions) {
+            if (a == action) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Result processChunk(PreparedChunk prepared, PrimitiveEventProcessor<?> processor) {
+        MappedChunk chunk = prepared.chunk();
+        EventPlan[] plans = prepared.plans();
+        if (plans.length == 0) {
+            return Result.CONTINUE;
+        }
+
+        int limit = chunk.limit();
+        int eventStart = MappedChunk.HEADER_SIZE;
+        while (eventStart < limit) {
+            chunk.position(eventStart);
+            int size = chunk.readInt();
+            if (size <= 0) {
+                throw new IllegalStateException("Invalid size of the event: position=" + eventStart);
+            }
+
+            long typeId = chunk.readLong();
+            EventPlan plan = MappedChunk.isEventWithPayload(typeId) ? findPlan(plans, typeId) : null;
+            if (plan != null && processEvent(chunk, plan, processor) == Result.DONE) {
+                return Result.DONE;
+            }
+            eventStart += size;
+        }
+        return Result.CONTINUE;
+    }
+
+    private static EventPlan findPlan(EventPlan[] plans, long typeId) {
+        for (EventPlan plan : plans) {
+            if (plan.typeId() == typeId) {
+                return plan;
+            }
+        }
+        return null;
+    }
+
+    private static Result processEvent(MappedChunk chunk, EventPlan plan, PrimitiveEventProcessor<?> processor) {
+        long startTime = 0;
+        long weight = 1;
+        long stackTraceId = 0;
+        long threadId = 0;
+
+        MappedChunk.Field[] fields = plan.fields();
+        byte[] actions = plan.actions();
+        for (int i = 0; i < fields.length; i++) {
+            switch (actions[i]) {
+                case START_TIME -> startTime = chunk.convertTimestamp(chunk.readLong());
+                case DURATION -> weight = chunk.convertTimespan(chunk.readLong());
+                case THREAD -> threadId = chunk.readLong();
+                case STACKTRACE -> stackTraceId = chunk.readLong();
+                case WEIGHT -> weight = chunk.readLong();
+                default -> chunk.skip(fields[i]);
+            }
+        }
+
+        return processor.onEvent(plan.hotType().type(), startTime, weight, stackTraceId, threadId);
+    }
+
+    private static HotType hotType(String eventName) {
+        for (HotType hotType : HOT_TYPES) {
+            if (hotType.type().code().equals(eventName)) {
+                return hotType;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Enforces the contract of the processor's supplier: every call has to create a new instance of the processor.
+ * Processors are stateful, sharing a single instance among multiple recordings processed in parallel leads to
+ * race conditions and to merging the same partial result multiple times.
+ * <p/>
+ * Created instances are held only weakly, to avoid keeping the processors (and their state) in memory.
+ *
+ * @param <T> type of the provided processor
+ */
+class NewInstanceSupplier<T> implements Supplier<T> {
+
+    private final Supplier<? extends T> delegate;
+    private final List<WeakReference<T>> created = new ArrayList<>();
+
+    NewInstanceSupplier(Supplier<? extends T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized T get() {
+        T instance = delegate.get();
+        for (WeakReference<T> reference : created) {
+            if (reference.get() == instance) {
+                throw new IllegalStateException(
+                        "Processor supplier must create a new instance for every recording: " + instance);
+            }
+        }
+        created.removeIf(reference -> reference.get() == null);
+        created.add(new WeakReference<>(instance));
+        return instance;
+    }
+}
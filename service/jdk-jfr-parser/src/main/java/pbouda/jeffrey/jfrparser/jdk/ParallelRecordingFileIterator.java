@@ -18,79 +18,273 @@
 
 package pbouda.jeffrey.jfrparser.jdk;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import pbouda.jeffrey.common.Collector;
+import pbouda.jeffrey.common.CompressionUtils;
+import pbouda.jeffrey.common.ParallelCollector;
 import pbouda.jeffrey.common.Schedulers;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Supplier;
 
 /**
- * Uses ForkJoinPool.commonPool() intentionally to avoid creating a new thread pool
- * and to leverage the parallelism of the common pool (number of threads == number of processors)
+ * Processes multiple recordings (very likely chunks of the bigger recording) in parallel using
+ * {@link Schedulers#forkJoin()}.
+ * <ul>
+ *     <li>Chunks are scheduled from the largest to the smallest one to avoid having the biggest chunk at the tail</li>
+ *     <li>A limited number of workers pulls the chunks, every worker immediately merges the partial result of
+ *     the chunk into its own partial result, the number of partial results kept in memory is bounded by
+ *     the number of workers</li>
+ *     <li>Partial results of the workers are merged in a tree-like fashion (pairs merged in parallel), or all
+ *     at once if the collector is {@link ParallelCollector}</li>
+ *     <li>Partial results of the recordings fully covered by the time range of the processor are taken
+ *     from the {@link ChunkPartialCache} (if provided), the other recordings are parsed</li>
+ * </ul>
+ * Time spent on every chunk is available in {@link #chunkTimings()} after the iteration, and its summary
+ * is logged at the debug level.
  *
  * @param <PARTIAL> result of the single recording file
  * @param <RESULT>  collected result of all recording files
  */
 public class ParallelRecordingFileIterator<PARTIAL, RESULT> implements RecordingFileIterator<PARTIAL, RESULT> {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelRecordingFileIterator.class);
+
+    private static final int DEFAULT_MAX_IN_FLIGHT_PARTIALS = Runtime.getRuntime().availableProcessors();
+
     private final List<Path> recordings;
-    private final Supplier<? extends EventProcessor<PARTIAL>> processorSupplier;
+    private final Supplier<EventProcessor<PARTIAL>> processorSupplier;
+    private final int maxInFlightPartials;
+    private final ChunkPartialCache<PARTIAL> partialCache;
+    private final DecompressedRecordingCache recordingCache;
+    private final Queue<ChunkTiming> chunkTimings = new ConcurrentLinkedQueue<>();
+
+    public ParallelRecordingFileIterator(
+            List<Path> recordings,
+            Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
+            DecompressedRecordingCache recordingCache) {
+
+        this(recordings, processorSupplier, DEFAULT_MAX_IN_FLIGHT_PARTIALS, null, recordingCache);
+    }
 
     public ParallelRecordingFileIterator(
             List<Path> recordings,
-            Supplier<? extends EventProcessor<PARTIAL>> processorSupplier) {
+            Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
+            ChunkPartialCache<PARTIAL> partialCache,
+            DecompressedRecordingCache recordingCache) {
+
+        this(recordings, processorSupplier, DEFAULT_MAX_IN_FLIGHT_PARTIALS, partialCache, recordingCache);
+    }
+
+    /**
+     * @param recordings          recordings to be processed in parallel.
+     * @param processorSupplier   creates a new processor for every recording, returning the same instance
+     *                            multiple times is not allowed.
+     * @param maxInFlightPartials maximum number of chunks processed concurrently, and at the same time,
+     *                            maximum number of partial results kept in memory before the final merge.
+     * @param partialCache        cache of the partial results of the recordings covered by the time range,
+     *                            {@code null} if the partial results are not cached.
+     * @param recordingCache      local uncompressed copies of the compressed recordings and the views.
+     */
+    public ParallelRecordingFileIterator(
+            List<Path> recordings,
+            Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
+            int maxInFlightPartials,
+            ChunkPartialCache<PARTIAL> partialCache,
+            DecompressedRecordingCache recordingCache) {
+
+        if (maxInFlightPartials < 1) {
+            throw new IllegalArgumentException("Max in-flight partials must be positive: " + maxInFlightPartials);
+        }
 
         this.recordings = recordings;
-        this.processorSupplier = processorSupplier;
+        this.processorSupplier = new NewInstanceSupplier<>(processorSupplier);
+        this.maxInFlightPartials = maxInFlightPartials;
+        this.partialCache = partialCache;
+        this.recordingCache = recordingCache;
     }
 
     @Override
     public RESULT collect(Collector<PARTIAL, RESULT> collector) {
-        List<PARTIAL> partials = _iterate(collector);
-        PARTIAL combined = partialCombination(partials, collector);
-        return collector.finisher(combined);
+        return collector.finisher(_iterate(collector));
     }
 
     @Override
     public PARTIAL partialCollect(Collector<PARTIAL, ?> collector) {
-        List<PARTIAL> partials = _iterate(collector);
-        return partialCombination(partials, collector);
+        return _iterate(collector);
     }
 
-    private List<PARTIAL> _iterate(Collector<PARTIAL, ?> collector) {
-        List<CompletableFuture<PARTIAL>> futures = recordings.stream()
-                .map(future -> asyncExecution(future, collector))
-                .toList();
+    /**
+     * Timings of all chunks processed by the latest iteration, in the order of their completion.
+     *
+     * @return timings of the processed chunks.
+     */
+    public List<ChunkTiming> chunkTimings() {
+        return List.copyOf(chunkTimings);
+    }
+
+    private PARTIAL _iterate(Collector<PARTIAL, ?> collector) {
+        chunkTimings.clear();
+
+        Queue<SizedRecording> queue = new ConcurrentLinkedQueue<>(largestFirst(recordings));
+        int workerCount = Math.min(maxInFlightPartials, queue.size());
+
+        ForkJoinPool pool = Schedulers.forkJoin();
+        List<ForkJoinTask<PARTIAL>> workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(pool.submit(() -> drain(queue, collector)));
+        }
+
+        List<PARTIAL> partials = new ArrayList<>(workerCount);
+        for (ForkJoinTask<PARTIAL> worker : workers) {
+            PARTIAL partial = worker.join();
+            if (partial != null) {
+                partials.add(partial);
+            }
+        }
+
+        long start = System.nanoTime();
+        PARTIAL result;
+        if (partials.isEmpty()) {
+            result = collector.empty().get();
+        } else if (collector instanceof ParallelCollector<PARTIAL, ?> parallelCollector) {
+            result = parallelCollector.combineAll(partials);
+        } else {
+            result = pool.invoke(new MergeTask<>(partials, 0, partials.size(), collector));
+        }
 
-        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
-                .join();
+        if (LOG.isDebugEnabled()) {
+            logTimings(workerCount, Duration.ofNanos(System.nanoTime() - start));
+        }
+        return result;
+    }
+
+    private void logTimings(int workerCount, Duration finalMerge) {
+        Duration parsing = Duration.ZERO;
+        Duration merging = Duration.ZERO;
+        ChunkTiming slowest = null;
+        for (ChunkTiming timing : chunkTimings) {
+            parsing = parsing.plus(timing.parsing());
+            merging = merging.plus(timing.merging());
+            if (slowest == null || timing.parsing().compareTo(slowest.parsing()) > 0) {
+                slowest = timing;
+            }
+        }
+
+        LOG.debug("Recordings processed: chunks={} workers={} parsing={} merging={} final_merge={} slowest_chunk={} slowest_parsing={}",
+                chunkTimings.size(), workerCount, parsing, merging, finalMerge,
+                slowest == null ? null : slowest.recording(), slowest == null ? null : slowest.parsing());
+    }
+
+    /**
+     * Pulls the recordings from the shared queue until it's empty and merges the partial results
+     * immediately after the chunk is processed.
+     */
+    private PARTIAL drain(Queue<SizedRecording> queue, Collector<PARTIAL, ?> collector) {
+        PARTIAL current = null;
+
+        SizedRecording recording;
+        while ((recording = queue.poll()) != null) {
+            long start = System.nanoTime();
+            EventProcessor<PARTIAL> processor = newProcessor();
+            boolean cacheable = partialCache != null
+                    && SingleRecordingFileIterator.isCoveredByTimeRange(
+                    recordingCache.chunkHeaders(recording.path()), processor);
+
+            PARTIAL partial = cacheable ? partialCache.get(recording.path()) : null;
+            if (partial == null) {
+                partial = new SingleRecordingFileIterator<PARTIAL, PARTIAL>(recording.path(), processor, recordingCache)
+                        .partialCollect(collector);
+                if (cacheable) {
+                    partialCache.put(recording.path(), partial);
+                }
+            }
+            long parsed = System.nanoTime();
+
+            current = current == null ? partial : collector.combiner(current, partial);
+            long merged = System.nanoTime();
+
+            chunkTimings.add(new ChunkTiming(
+                    recording.path(),
+                    recording.size(),
+                    Duration.ofNanos(parsed - start),
+                    Duration.ofNanos(merged - parsed),
+                    Thread.currentThread().getName()));
+        }
 
-        return futures.stream()
-                .map(CompletableFuture::join)
+        return current;
+    }
+
+    private EventProcessor<PARTIAL> newProcessor() {
+        return processorSupplier.get();
+    }
+
+    private static List<SizedRecording> largestFirst(List<Path> recordings) {
+        return recordings.stream()
+                .map(path -> new SizedRecording(path, sizeOf(path)))
+                .sorted(Comparator.comparingLong(SizedRecording::size).reversed())
                 .toList();
     }
 
-    private CompletableFuture<PARTIAL> asyncExecution(
-            Path recording,
-            Collector<PARTIAL, ?> collector) {
+    private static long sizeOf(Path recording) {
+        try {
+            // Only the order matters, the compressed recordings are not decompressed before they are processed
+            return CompressionUtils.isCompressed(recording)
+                    ? Files.size(recording)
+                    : RecordingView.of(recording).length();
+        } catch (IOException | RuntimeException e) {
+            // The missing file is reported when the recording is going to be processed
+            return 0;
+        }
+    }
 
-        return CompletableFuture.supplyAsync(() -> {
-            return new SingleRecordingFileIterator<PARTIAL, PARTIAL>(recording, processorSupplier.get())
-                    .partialCollect(collector);
-        }, Schedulers.parallel());
+    private record SizedRecording(Path path, long size) {
     }
 
-    private PARTIAL partialCombination(List<PARTIAL> partials, Collector<PARTIAL, ?> collector) {
-        if (partials.isEmpty()) {
-            return collector.empty().get();
-        } else {
-            PARTIAL combined = partials.getFirst();
-            for (int i = 1; i < partials.size(); i++) {
-                combined = collector.combiner(combined, partials.get(i));
+    /**
+     * Merges the partial results in pairs, the pairs are merged in parallel.
+     */
+    private static class MergeTask<PARTIAL> extends RecursiveTask<PARTIAL> {
+
+        private final List<PARTIAL> partials;
+        private final int from;
+        private final int to;
+        private final Collector<PARTIAL, ?> collector;
+
+        private MergeTask(List<PARTIAL> partials, int from, int to, Collector<PARTIAL, ?> collector) {
+            this.partials = partials;
+            this.from = from;
+            this.to = to;
+            this.collector = collector;
+        }
+
+        @Override
+        protected PARTIAL compute() {
+            int count = to - from;
+            if (count == 1) {
+                return partials.get(from);
+            } else if (count == 2) {
+                return collector.combiner(partials.get(from), partials.get(from + 1));
             }
-            return combined;
+
+            int middle = from + count / 2;
+            MergeTask<PARTIAL> left = new MergeTask<>(partials, from, middle, collector);
+            MergeTask<PARTIAL> right = new MergeTask<>(partials, middle, to, collector);
+            left.fork();
+            PARTIAL rightResult = right.compute();
+            return collector.combiner(left.join(), rightResult);
         }
     }
 }
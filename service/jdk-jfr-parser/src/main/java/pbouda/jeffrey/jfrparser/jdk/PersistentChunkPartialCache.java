@@ -0,0 +1,133 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pbouda.jeffrey.common.SerializableCollector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Persists the partial results of the recordings into files (one file per recording and scope) using
+ * {@link SerializableCollector}. Every file starts with a header containing the size and the last modification
+ * time of the recording, the partial result of the changed recording is not used. The files are written atomically,
+ * the corrupted or outdated files are removed and the recording is parsed again.
+ *
+ * @param <PARTIAL> result of the single recording file
+ */
+public class PersistentChunkPartialCache<PARTIAL> implements ChunkPartialCache<PARTIAL> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentChunkPartialCache.class);
+
+    private static final int MAGIC = 0x4A504152; // JPAR
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".partial";
+
+    private final Path directory;
+    private final String scope;
+    private final SerializableCollector<PARTIAL, ?> collector;
+
+    /**
+     * @param directory directory of the persisted partial results, it's created when the first partial
+     *                  result is persisted.
+     * @param scope     identification of the processor, it's a part of the file name.
+     * @param collector collector writing and reading the partial results.
+     */
+    public PersistentChunkPartialCache(Path directory, String scope, SerializableCollector<PARTIAL, ?> collector) {
+        this.directory = directory;
+        this.scope = scope.replaceAll("[^A-Za-z0-9.-]", "_");
+        this.collector = collector;
+    }
+
+    @Override
+    public PARTIAL get(Path recording) {
+        Path file = partialFile(recording);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            RecordingStamp stamp = RecordingStamp.of(recording);
+            if (input.readInt() != MAGIC
+                    || input.readInt() != VERSION
+                    || input.readLong() != stamp.size()
+                    || input.readLong() != stamp.lastModified()) {
+
+                delete(file);
+                return null;
+            }
+            return collector.readPartial(input);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Cannot read the persisted partial result, the recording is going to be parsed: file={}", file, e);
+            delete(file);
+            return null;
+        }
+    }
+
+    @Override
+    public void put(Path recording, PARTIAL partial) {
+        Path file = partialFile(recording);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            RecordingStamp stamp = RecordingStamp.of(recording);
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(stamp.size());
+                output.writeLong(stamp.lastModified());
+                collector.writePartial(partial, output);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Cannot persist the partial result: file={}", file, e);
+            delete(temporary);
+        }
+    }
+
+    private Path partialFile(Path recording) {
+        return directory.resolve(recording.getFileName() + "." + scope + EXTENSION);
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Cannot delete the persisted partial result: file={}", file, e);
+        }
+    }
+
+    private record RecordingStamp(long size, long lastModified) {
+
+        private static RecordingStamp of(Path recording) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(recording, BasicFileAttributes.class);
+            return new RecordingStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+    }
+}
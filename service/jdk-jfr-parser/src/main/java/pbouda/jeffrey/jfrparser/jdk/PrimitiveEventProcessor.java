@@ -0,0 +1,47 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import pbouda.jeffrey.common.Type;
+
+/**
+ * Processor that is able to consume the events as primitive values without materializing
+ * {@link jdk.jfr.consumer.RecordedEvent}. If all processable events are supported by the memory-mapped reader
+ * (execution samples, allocations and blocking events), the recordings are read directly from the mapped chunks,
+ * otherwise, the processor is fed by {@link #onEvent(jdk.jfr.consumer.RecordedEvent)} as usual.
+ * <p/>
+ * The weight of the event is the same as provided by {@link Type#weightExtractor()} (allocated bytes, duration
+ * of the blocking), or {@code 1} for the types without the weight.
+ *
+ * @param <T> type of the partial result.
+ */
+public interface PrimitiveEventProcessor<T> extends EventProcessor<T> {
+
+    /**
+     * Processes a single event decoded from the memory-mapped chunk.
+     *
+     * @param eventType    type of the event.
+     * @param startTime    start time of the event in epoch nanos.
+     * @param weight       weight of the event.
+     * @param stackTraceId ID of the stacktrace in the constant pool of the chunk, {@code 0} if it's missing.
+     * @param threadId     ID of the thread in the constant pool of the chunk, {@code 0} if it's missing.
+     * @return result of the processing.
+     */
+    Result onEvent(Type eventType, long startTime, long weight, long stackTraceId, long threadId);
+}
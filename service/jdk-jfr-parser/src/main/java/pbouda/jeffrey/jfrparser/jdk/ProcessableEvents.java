@@ -20,6 +20,7 @@ package pbouda.jeffrey.jfrparser.jdk;
 
 import pbouda.jeffrey.common.Type;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ProcessableEvents {
@@ -44,9 +45,43 @@ public class ProcessableEvents {
         return new ProcessableEvents(true);
     }
 
+    /**
+     * Creates a union of all provided processable events. The result is processable for all events
+     * if any of the provided instances is processable for all events.
+     *
+     * @param processableEvents processable events to be merged together.
+     * @return union of all processable events.
+     */
+    public static ProcessableEvents anyOf(List<ProcessableEvents> processableEvents) {
+        List<String> eventNames = new ArrayList<>();
+        for (ProcessableEvents events : processableEvents) {
+            if (events.processableAll) {
+                return all();
+            }
+            for (String eventName : events.eventNames) {
+                if (!eventNames.contains(eventName)) {
+                    eventNames.add(eventName);
+                }
+            }
+        }
+        return new ProcessableEvents(List.copyOf(eventNames), false);
+    }
+
     private ProcessableEvents(boolean processableAll, List<Type> events) {
+        this(events.stream().map(Type::code).toList(), processableAll);
+    }
+
+    private ProcessableEvents(List<String> eventNames, boolean processableAll) {
         this.processableAll = processableAll;
-        this.eventNames = events.stream().map(Type::code).toList();
+        this.eventNames = eventNames;
+    }
+
+    boolean isProcessableAll() {
+        return processableAll;
+    }
+
+    List<String> eventNames() {
+        return eventNames;
     }
 
     public boolean isProcessable(jdk.jfr.EventType eventType) {
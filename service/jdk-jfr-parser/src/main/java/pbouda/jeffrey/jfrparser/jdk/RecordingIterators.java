@@ -18,6 +18,7 @@
 
 package pbouda.jeffrey.jfrparser.jdk;
 
+import pbouda.jeffrey.common.AbsoluteTimeRange;
 import pbouda.jeffrey.common.Collector;
 import pbouda.jeffrey.common.FileUtils;
 
@@ -30,33 +31,37 @@ public abstract class RecordingIterators {
 
     /**
      * Automatically decides the best way to iterate over the recordings. If there is only one recording, it will
-     * pick the {@link #single(Path, EventProcessor)}. If the profile's folder contains multiple JFR files
-     * (very likely after splitting the bigger JFR file into a smaller chunks) it will choose the
-     * {@link #parallel(List, Supplier)} and processes the multiple chunks in parallel.
+     * pick the {@link #single(Path, EventProcessor, DecompressedRecordingCache)}. If the profile's folder contains
+     * multiple JFR files (very likely after splitting the bigger JFR file into a smaller chunks) it will choose the
+     * {@link #parallel(List, Supplier, DecompressedRecordingCache)} and processes the multiple chunks in parallel.
      *
      * @param recordings        path to all recordings in profile's workspace JFR files.
      * @param processorSupplier creates a processor to collect events from JFR file and transform them into an output.
+     * @param recordingCache    local uncompressed copies of the compressed recordings and the views.
      * @param <PARTIAL>         result of the single recording file
      * @param <RESULT>          collected result of all recording files
      * @return output from the iterating over the processor
      */
     public static <PARTIAL, RESULT> RecordingFileIterator<PARTIAL, RESULT> automatic(
-            List<Path> recordings, Supplier<? extends EventProcessor<PARTIAL>> processorSupplier) {
+            List<Path> recordings,
+            Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
+            DecompressedRecordingCache recordingCache) {
 
         if (recordings.size() > 1) {
-            return parallel(recordings, processorSupplier);
+            return parallel(recordings, processorSupplier, recordingCache);
         } else {
-            return single(recordings.getFirst(), processorSupplier.get());
+            return single(recordings.getFirst(), processorSupplier.get(), recordingCache);
         }
     }
 
     /**
-     * Utility method to {@link #automatic(List, Supplier)} that automatically iterates over the recordings
-     * and collect the output from the processor.
+     * Utility method to {@link #automatic(List, Supplier, DecompressedRecordingCache)} that automatically iterates
+     * over the recordings and collect the output from the processor.
      *
      * @param recordings        path to all recordings in profile's workspace JFR files.
      * @param processorSupplier creates a processor to collect events from JFR file and transform them into an output.
      * @param collector         to automatically merge partial results and transform it into a final result.
+     * @param recordingCache    local uncompressed copies of the compressed recordings and the views.
      * @param <PARTIAL>         result of the single recording file
      * @param <RESULT>          collected result of all recording files
      * @return output from the iterating over the processor
@@ -64,9 +69,37 @@ public abstract class RecordingIterators {
     public static <PARTIAL, RESULT> RESULT automaticAndCollect(
             List<Path> recordings,
             Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
-            Collector<PARTIAL, RESULT> collector) {
+            Collector<PARTIAL, RESULT> collector,
+            DecompressedRecordingCache recordingCache) {
 
-        RecordingFileIterator<PARTIAL, RESULT> iterator = automatic(recordings, processorSupplier);
+        RecordingFileIterator<PARTIAL, RESULT> iterator = automatic(recordings, processorSupplier, recordingCache);
+        return iterator.collect(collector);
+    }
+
+    /**
+     * Iterates over all recordings (even the single one) using
+     * {@link #parallel(List, Supplier, ChunkPartialCache, DecompressedRecordingCache)} and collect the output
+     * from the processor. The recordings fully covered by the time range of the processor are not parsed
+     * if their partial results are already cached.
+     *
+     * @param recordings        path to all recordings in profile's workspace JFR files.
+     * @param processorSupplier creates a processor to collect events from JFR file and transform them into an output.
+     * @param collector         to automatically merge partial results and transform it into a final result.
+     * @param partialCache      cache of the partial results of the recordings covered by the time range.
+     * @param recordingCache    local uncompressed copies of the compressed recordings and the views.
+     * @param <PARTIAL>         result of the single recording file
+     * @param <RESULT>          collected result of all recording files
+     * @return output from the iterating over the processor
+     */
+    public static <PARTIAL, RESULT> RESULT cachedAndCollect(
+            List<Path> recordings,
+            Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
+            Collector<PARTIAL, RESULT> collector,
+            ChunkPartialCache<PARTIAL> partialCache,
+            DecompressedRecordingCache recordingCache) {
+
+        RecordingFileIterator<PARTIAL, RESULT> iterator =
+                parallel(recordings, processorSupplier, partialCache, recordingCache);
         return iterator.collect(collector);
     }
 
@@ -78,14 +111,17 @@ public abstract class RecordingIterators {
      * It's able to identify whether the provided path is a directory or a single file. If it's a directory, it will
      * choose the first file alphabetically and process it.
      *
-     * @param recording path to a single recording or directory with JFR files (very likely chunks).
-     * @param processor creates a processor to collect events from JFR file and transform them into an output.
-     * @param <RESULT>  collected result of all recording files
+     * @param recording      path to a single recording or directory with JFR files (very likely chunks).
+     * @param processor      creates a processor to collect events from JFR file and transform them into an output.
+     * @param recordingCache local uncompressed copies of the compressed recordings and the views.
+     * @param <RESULT>       collected result of all recording files
      * @return output from the iterating over the processor
      */
-    public static <RESULT> RESULT fileOrDirAndCollectIdentical(Path recording, EventProcessor<RESULT> processor) {
+    public static <RESULT> RESULT fileOrDirAndCollectIdentical(
+            Path recording, EventProcessor<RESULT> processor, DecompressedRecordingCache recordingCache) {
+
         Path target = Files.isDirectory(recording) ? FileUtils.findFirstJfrFile(recording) : recording;
-        return singleAndCollectIdentical(target, processor);
+        return singleAndCollectIdentical(target, processor, recordingCache);
     }
 
     /**
@@ -93,13 +129,16 @@ public abstract class RecordingIterators {
      * to generate the desired output. All events are processed sequentially. The output is automatically collected
      * and returned without any modification.
      *
-     * @param recordings path to all recordings in profile's workspace JFR files.
-     * @param processor  creates a processor to collect events from JFR file and transform them into an output.
-     * @param <RESULT>   collected result of all recording files
+     * @param recordings     path to all recordings in profile's workspace JFR files.
+     * @param processor      creates a processor to collect events from JFR file and transform them into an output.
+     * @param recordingCache local uncompressed copies of the compressed recordings and the views.
+     * @param <RESULT>       collected result of all recording files
      * @return output from the iterating over the processor
      */
-    public static <RESULT> RESULT firstAndCollectIdentical(List<Path> recordings, EventProcessor<RESULT> processor) {
-        return singleAndCollectIdentical(recordings.getFirst(), processor);
+    public static <RESULT> RESULT firstAndCollectIdentical(
+            List<Path> recordings, EventProcessor<RESULT> processor, DecompressedRecordingCache recordingCache) {
+
+        return singleAndCollectIdentical(recordings.getFirst(), processor, recordingCache);
     }
 
     /**
@@ -107,13 +146,16 @@ public abstract class RecordingIterators {
      * to generate the desired output. All events are processed sequentially. The output is automatically collected
      * and returned without any modification.
      *
-     * @param recording path to a single recording in profile's workspace JFR files.
-     * @param processor creates a processor to collect events from JFR file and transform them into an output.
-     * @param <RESULT>  collected result of all recording files
+     * @param recording      path to a single recording in profile's workspace JFR files.
+     * @param processor      creates a processor to collect events from JFR file and transform them into an output.
+     * @param recordingCache local uncompressed copies of the compressed recordings and the views.
+     * @param <RESULT>       collected result of all recording files
      * @return output from the iterating over the processor
      */
-    public static <RESULT> RESULT singleAndCollectIdentical(Path recording, EventProcessor<RESULT> processor) {
-        RecordingFileIterator<RESULT, RESULT> iterator = single(recording, processor);
+    public static <RESULT> RESULT singleAndCollectIdentical(
+            Path recording, EventProcessor<RESULT> processor, DecompressedRecordingCache recordingCache) {
+
+        RecordingFileIterator<RESULT, RESULT> iterator = single(recording, processor, recordingCache);
         return iterator.partialCollect();
     }
 
@@ -121,16 +163,17 @@ public abstract class RecordingIterators {
      * Iterates over a single recording in the profile's workspace JFR files and applies the processor on each event
      * to generate the desired output. All events are processed sequentially.
      *
-     * @param recording path to a single recording in profile's workspace JFR files.
-     * @param processor a processor to collect events from JFR file and transform them into an output.
-     * @param <PARTIAL> result of the single recording file
-     * @param <RESULT>  collected result of all recording files
+     * @param recording      path to a single recording in profile's workspace JFR files.
+     * @param processor      a processor to collect events from JFR file and transform them into an output.
+     * @param recordingCache local uncompressed copies of the compressed recordings and the views.
+     * @param <PARTIAL>      result of the single recording file
+     * @param <RESULT>       collected result of all recording files
      * @return output from the iterating over the processor
      */
     public static <PARTIAL, RESULT> RecordingFileIterator<PARTIAL, RESULT> single(
-            Path recording, EventProcessor<PARTIAL> processor) {
+            Path recording, EventProcessor<PARTIAL> processor, DecompressedRecordingCache recordingCache) {
 
-        return new SingleRecordingFileIterator<>(recording, processor);
+        return new SingleRecordingFileIterator<>(recording, processor, recordingCache);
     }
 
     /**
@@ -138,15 +181,92 @@ public abstract class RecordingIterators {
      * to generate the desired output. JFR files can be processed in parallel depending on the number of CPUs and
      * the implementation.
      *
+     * <p/>
+     * Processors are stateful and the supplier must create a new instance for every call (every recording),
+     * otherwise {@link IllegalStateException} is thrown. The partial results are merged by the collector.
+     *
      * @param recordings        path to all recordings in profile's workspace JFR files.
-     * @param processorSupplier creates a processor to collect events from JFR file and transform them into an output.
+     * @param processorSupplier creates a new processor for every recording to collect events from JFR file
+     *                          and transform them into an output.
+     * @param recordingCache    local uncompressed copies of the compressed recordings and the views.
+     * @param <PARTIAL>         result of the single recording file
+     * @param <RESULT>          collected result of all recording files
+     * @return output from the iterating over the processor
+     */
+    public static <PARTIAL, RESULT> RecordingFileIterator<PARTIAL, RESULT> parallel(
+            List<Path> recordings,
+            Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
+            DecompressedRecordingCache recordingCache) {
+
+        return new ParallelRecordingFileIterator<>(recordings, processorSupplier, recordingCache);
+    }
+
+    /**
+     * The same as {@link #parallel(List, Supplier, DecompressedRecordingCache)}, the partial results of the recordings
+     * fully covered by the time range of the processor are taken from the cache, or cached after parsing
+     * the recording.
+     *
+     * @param recordings        path to all recordings in profile's workspace JFR files.
+     * @param processorSupplier creates a new processor for every recording to collect events from JFR file
+     *                          and transform them into an output.
+     * @param partialCache      cache of the partial results of the recordings covered by the time range.
+     * @param recordingCache    local uncompressed copies of the compressed recordings and the views.
      * @param <PARTIAL>         result of the single recording file
      * @param <RESULT>          collected result of all recording files
      * @return output from the iterating over the processor
      */
     public static <PARTIAL, RESULT> RecordingFileIterator<PARTIAL, RESULT> parallel(
-            List<Path> recordings, Supplier<? extends EventProcessor<PARTIAL>> processorSupplier) {
+            List<Path> recordings,
+            Supplier<? extends EventProcessor<PARTIAL>> processorSupplier,
+            ChunkPartialCache<PARTIAL> partialCache,
+            DecompressedRecordingCache recordingCache) {
 
-        return new ParallelRecordingFileIterator<>(recordings, processorSupplier);
+        return new ParallelRecordingFileIterator<>(recordings, processorSupplier, partialCache, recordingCache);
+    }
+
+    /**
+     * Creates an iterator that decodes all recordings only once and passes the events to multiple registered
+     * processors. Every processor receives only the events matching its own {@link ProcessableEvents}.
+     * It's useful when multiple independent outputs are generated from the same recordings.
+     *
+     * @param recordings     path to all recordings in profile's workspace JFR files.
+     * @param recordingCache local uncompressed copies of the compressed recordings and the views.
+     * @return iterator to register the processors and to execute the single-pass iteration.
+     */
+    public static FanOutRecordingIterator fanOut(List<Path> recordings, DecompressedRecordingCache recordingCache) {
+        return new FanOutRecordingIterator(recordings, recordingCache);
+    }
+
+    /**
+     * Checks the chunk headers of the recording whether the recording can contain any of the events
+     * in the time range. All iterators skip such recordings without parsing them, the compressed recording
+     * is not decompressed to read the headers.
+     *
+     * @param recording         recording consisting of one or more chunks.
+     * @param timeRange         requested time range.
+     * @param processableEvents requested event types.
+     * @param recordingCache    local uncompressed copies of the compressed recordings and the views.
+     * @return {@code true} if the recording cannot contain any requested event in the time range.
+     */
+    public static boolean isOutsideOfTimeRange(
+            Path recording,
+            AbsoluteTimeRange timeRange,
+            ProcessableEvents processableEvents,
+            DecompressedRecordingCache recordingCache) {
+
+        return !timeRange.equals(AbsoluteTimeRange.UNLIMITED) && SingleRecordingFileIterator.isOutsideOfTimeRange(
+                recordingCache.chunkHeaders(recording), timeRange, processableEvents);
+    }
+
+    /**
+     * The latest start of a chunk that can contain any of the events in the time range, e.g. the chunks appended
+     * to the profile later than that do not change the result of the time range.
+     *
+     * @param timeRange         requested time range.
+     * @param processableEvents requested event types.
+     * @return start of the chunk in epoch nanos, {@link Long#MAX_VALUE} if any later chunk can contain the events.
+     */
+    public static long latestContributingChunkStart(AbsoluteTimeRange timeRange, ProcessableEvents processableEvents) {
+        return SingleRecordingFileIterator.latestContributingChunkStart(timeRange, processableEvents);
     }
 }
@@ -0,0 +1,158 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import pbouda.jeffrey.common.CompressionUtils;
+import pbouda.jeffrey.common.FileUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Logical recording made of a range of the chunks of another recording file. The view is stored as a small
+ * descriptor file ({@code *.jfrview}) next to the regular recordings, therefore, the view can be passed everywhere
+ * the path to a recording is expected. The memory-mapped reader and the reader of chunk headers read the range
+ * directly from the original file, the other parsers read a copy of the range cached in
+ * {@link DecompressedRecordingCache}.
+ * <p/>
+ * The descriptor only refers to the original file, the view cannot be read if the original file is removed.
+ * <p/>
+ * A compressed recording is a view of its decompressed copy, see {@link DecompressedRecordingCache#acquire(Path)}.
+ *
+ * @param file   original recording file containing the chunks of the view.
+ * @param offset position of the first chunk of the view in the original file.
+ * @param length size of all chunks of the view in bytes.
+ */
+public record RecordingView(Path file, long offset, long length) {
+
+    private static final String FILE = "file";
+    private static final String OFFSET = "offset";
+    private static final String LENGTH = "length";
+
+    /**
+     * Resolves the view of the recording, a regular recording file is a view of the whole file.
+     *
+     * @param recording regular recording file, or a descriptor of the view.
+     * @return resolved view of the recording.
+     */
+    public static RecordingView of(Path recording) {
+        try {
+            if (CompressionUtils.isCompressed(recording)) {
+                throw new IllegalArgumentException(
+                        "Compressed recording needs to be resolved using DecompressedRecordingCache");
+            } else if (!isDescriptor(recording)) {
+                return new RecordingView(recording, 0, Files.size(recording));
+            }
+
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(recording)) {
+                properties.load(reader);
+            }
+            return new RecordingView(
+                    Path.of(properties.getProperty(FILE)),
+                    Long.parseLong(properties.getProperty(OFFSET)),
+                    Long.parseLong(properties.getProperty(LENGTH)));
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Cannot resolve the recording: " + recording, e);
+        }
+    }
+
+    /**
+     * Resolves the original recording files of the views, every file is returned only once. The compressed
+     * recordings are returned without any change.
+     *
+     * @param recordings regular recording files, compressed recording files, or descriptors of the views.
+     * @return distinct original recording files.
+     */
+    public static List<Path> sources(Collection<Path> recordings) {
+        return recordings.stream()
+                .map(recording -> CompressionUtils.isCompressed(recording) ? recording : of(recording).file())
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Checks whether the path is a descriptor of the view.
+     *
+     * @param recording path to the recording.
+     * @return {@code true} if the path is a descriptor of the view.
+     */
+    public static boolean isDescriptor(Path recording) {
+        return recording.getFileName().toString().endsWith(FileUtils.JFR_VIEW_EXTENSION);
+    }
+
+    /**
+     * Writes the descriptor of the view into the given file.
+     *
+     * @param descriptor target file of the descriptor, it needs to have the {@code .jfrview} extension.
+     */
+    public void write(Path descriptor) {
+        Properties properties = new Properties();
+        properties.setProperty(FILE, file.toAbsolutePath().toString());
+        properties.setProperty(OFFSET, String.valueOf(offset));
+        properties.setProperty(LENGTH, String.valueOf(length));
+
+        try (Writer writer = Files.newBufferedWriter(descriptor)) {
+            properties.store(writer, null);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write the recording view: " + descriptor, e);
+        }
+    }
+
+    /**
+     * The view covers the whole original file, the file can be read directly by any parser.
+     *
+     * @return {@code true} if the view covers the whole file.
+     */
+    public boolean isWholeFile() throws IOException {
+        return offset == 0 && length == Files.size(file);
+    }
+
+    /**
+     * Copies the range of the view into the target file.
+     *
+     * @param target new file containing only the chunks of the view.
+     * @throws IOException if the range cannot be copied (e.g. the original file is shorter than the view).
+     */
+    void copyTo(Path target) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+
+            long transferred = 0;
+            while (transferred < length) {
+                long count = source.transferTo(offset + transferred, length - transferred, output);
+                if (count <= 0) {
+                    throw new IOException("Unexpected end of the recording: position=" + (offset + transferred));
+                }
+                transferred += count;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+}
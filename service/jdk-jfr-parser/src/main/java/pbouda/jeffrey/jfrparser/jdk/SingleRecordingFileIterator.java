@@ -20,21 +20,45 @@ package pbouda.jeffrey.jfrparser.jdk;
 
 import jdk.jfr.consumer.RecordedEvent;
 import jdk.jfr.consumer.RecordingFile;
+import pbouda.jeffrey.common.AbsoluteTimeRange;
 import pbouda.jeffrey.common.Collector;
+import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.jfrparser.jdk.EventProcessor.Result;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 public class SingleRecordingFileIterator<PARTIAL, RESULT> implements RecordingFileIterator<PARTIAL, RESULT> {
 
+    /**
+     * Events without any duration, they are written into the chunk that was active at their start time.
+     * The events with a duration (e.g. blocking) can be written into a chunk that started after the start time
+     * of the event.
+     */
+    private static final List<Type> INSTANT_EVENT_TYPES = List.of(
+            Type.EXECUTION_SAMPLE,
+            Type.OBJECT_ALLOCATION_IN_NEW_TLAB,
+            Type.OBJECT_ALLOCATION_OUTSIDE_TLAB,
+            Type.OBJECT_ALLOCATION_SAMPLE);
+
     private final Path recording;
     private final EventProcessor<PARTIAL> processor;
+    private final DecompressedRecordingCache recordingCache;
+
+    /**
+     * @param recording      regular recording file, compressed recording file, or a view descriptor.
+     * @param processor      processor to collect events from the recording.
+     * @param recordingCache local uncompressed copies of the compressed recordings and the views.
+     */
+    public SingleRecordingFileIterator(
+            Path recording, EventProcessor<PARTIAL> processor, DecompressedRecordingCache recordingCache) {
 
-    public SingleRecordingFileIterator(Path recording, EventProcessor<PARTIAL> processor) {
         this.recording = recording;
         this.processor = processor;
+        this.recordingCache = recordingCache;
     }
 
     @Override
@@ -54,6 +78,28 @@ public class SingleRecordingFileIterator<PARTIAL, RESULT> implements RecordingFi
             throw new RuntimeException("File does not exists: " + recording);
         }
 
+        // The headers are read without decompressing the recording, the skipped recording is never decompressed
+        AbsoluteTimeRange timeRange = eventProcessor.timeRange();
+        if (!timeRange.equals(AbsoluteTimeRange.UNLIMITED) && isOutsideOfTimeRange(
+                recordingCache.chunkHeaders(recording), timeRange, eventProcessor.processableEvents())) {
+            eventProcessor.onStart();
+            eventProcessor.onComplete();
+            return;
+        }
+
+        try (DecompressedRecordingCache.Lease lease = recordingCache.acquire(recording)) {
+            if (eventProcessor instanceof PrimitiveEventProcessor<PARTIAL> primitive
+                    && MappedRecordingReader.isSupported(primitive.processableEvents())
+                    && MappedRecordingReader.read(lease.view(), primitive)) {
+                return;
+            }
+
+            // RecordingFile reads only whole files, the range of the view is read from its cached copy
+            iterateRecordingFile(lease.wholeFile(), eventProcessor);
+        }
+    }
+
+    private static <PARTIAL> void iterateRecordingFile(Path recording, EventProcessor<PARTIAL> eventProcessor) {
         try (RecordingFile rec = new RecordingFile(recording)) {
             eventProcessor.onStart();
             while (rec.hasMoreEvents()) {
@@ -70,4 +116,85 @@ public class SingleRecordingFileIterator<PARTIAL, RESULT> implements RecordingFi
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Checks the headers of all chunks in the recording whether any of them can contain an event
+     * in the time range.
+     *
+     * @param chunks            headers of all chunks in the recording.
+     * @param timeRange         requested time range.
+     * @param processableEvents requested event types.
+     * @return {@code true} if the whole recording can be skipped.
+     */
+    static boolean isOutsideOfTimeRange(
+            List<ChunkHeader> chunks, AbsoluteTimeRange timeRange, ProcessableEvents processableEvents) {
+
+        if (timeRange.equals(AbsoluteTimeRange.UNLIMITED) || chunks.isEmpty()) {
+            return false;
+        }
+
+        long start = EventIndex.toEpochNanosSaturated(timeRange.start());
+        long latestStart = latestContributingChunkStart(timeRange, processableEvents);
+        for (ChunkHeader chunk : chunks) {
+            // All events in the chunk were committed before the end of the chunk
+            boolean endsBeforeRange = chunk.endNanos() < start;
+            boolean startsAfterRange = chunk.startNanos() > latestStart;
+            if (!endsBeforeRange && !startsAfterRange) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Only the instant events cannot start before the chunk, the chunks starting after the end of the time range
+     * cannot contain the instant events in the time range. The events with a duration can be written into any
+     * later chunk.
+     *
+     * @param timeRange         requested time range.
+     * @param processableEvents requested event types.
+     * @return latest start of the chunk in epoch nanos that can contain an event in the time range.
+     */
+    static long latestContributingChunkStart(AbsoluteTimeRange timeRange, ProcessableEvents processableEvents) {
+        if (onlyInstantEvents(processableEvents)) {
+            return EventIndex.toEpochNanosSaturated(timeRange.end());
+        } else {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Checks the headers of all chunks in the recording whether all events of the recording are in the time range
+     * of the processor, then the result of the recording is the same for all time ranges covering the recording.
+     * Unfinished chunks are never covered, they can still receive new events.
+     *
+     * @param chunks         headers of all chunks in the recording.
+     * @param eventProcessor processor with the requested time range.
+     * @return {@code true} if all events of the recording are in the time range.
+     */
+    static boolean isCoveredByTimeRange(List<ChunkHeader> chunks, EventProcessor<?> eventProcessor) {
+        AbsoluteTimeRange timeRange = eventProcessor.timeRange();
+        if (chunks.isEmpty()) {
+            return false;
+        }
+
+        long start = EventIndex.toEpochNanosSaturated(timeRange.start());
+        long end = EventIndex.toEpochNanosSaturated(timeRange.end());
+        boolean unlimitedStart = timeRange.start().equals(AbsoluteTimeRange.UNLIMITED.start());
+        boolean onlyInstantEvents = onlyInstantEvents(eventProcessor.processableEvents());
+        for (ChunkHeader chunk : chunks) {
+            // The events with a duration can start before the chunk, the start of the range must be unlimited
+            boolean startCovered = unlimitedStart || (onlyInstantEvents && chunk.startNanos() >= start);
+            if (chunk.durationNanos() <= 0 || !startCovered || chunk.endNanos() > end) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean onlyInstantEvents(ProcessableEvents processableEvents) {
+        return !processableEvents.isProcessableAll()
+                && processableEvents.eventNames().stream()
+                .allMatch(name -> INSTANT_EVENT_TYPES.stream().anyMatch(type -> type.code().equals(name)));
+    }
 }
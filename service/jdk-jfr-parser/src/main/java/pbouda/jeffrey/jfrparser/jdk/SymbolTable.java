@@ -0,0 +1,119 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe interner of symbols (method names, class names, thread names, ...). Every distinct symbol gets
+ * a stable integer ID, the same symbol coming from different chunks processed in parallel ends up with the same ID.
+ * Therefore, the structures built on top of the same table can compare symbols using their IDs instead of strings.
+ * <p/>
+ * The table is intended to be shared by all processors taking part in a single generation (e.g. one flamegraph),
+ * it's not a JVM-wide cache, the symbols are released together with the table.
+ * Per-chunk caches keyed by the identity of JFR objects are provided by {@link ChunkSymbols}.
+ */
+public final class SymbolTable {
+
+    public static final int NO_SYMBOL = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[INITIAL_CAPACITY];
+    private volatile int size;
+
+    private int[] ranks = new int[0];
+
+    /**
+     * Returns the ID of the symbol, the symbol is added to the table if it's not already there.
+     *
+     * @param symbol symbol to intern.
+     * @return ID of the symbol.
+     */
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = ids.get(symbol);
+            if (id == null) {
+                int newId = size;
+                if (newId == symbols.length) {
+                    symbols = Arrays.copyOf(symbols, newId * 2);
+                }
+                symbols[newId] = symbol;
+                size = newId + 1;
+                // Publishing the ID after storing the symbol makes the symbol visible to all readers of the ID
+                ids.put(symbol, newId);
+                id = newId;
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Returns the ID of already interned symbol.
+     *
+     * @param symbol symbol to find.
+     * @return ID of the symbol, or {@link #NO_SYMBOL} if the symbol has not been interned yet.
+     */
+    public int lookup(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? NO_SYMBOL : id;
+    }
+
+    public String symbol(int id) {
+        return symbols[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Ranks of all interned symbols in the alphabetical order, {@code ranks[id]} is the position of the symbol
+     * among all sorted symbols. It's recomputed only if there is a new symbol since the last computation.
+     *
+     * @return ranks of the symbols indexed by the symbol's ID.
+     */
+    public synchronized int[] ranks() {
+        int currentSize = size;
+        if (ranks.length != currentSize) {
+            String[] current = symbols;
+            Integer[] sorted = new Integer[currentSize];
+            for (int i = 0; i < currentSize; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, Comparator.comparing(id -> current[id]));
+
+            int[] newRanks = new int[currentSize];
+            for (int rank = 0; rank < currentSize; rank++) {
+                newRanks[sorted[rank]] = rank;
+            }
+            this.ranks = newRanks;
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.index;
+
+import java.util.Arrays;
+
+/**
+ * Growable columns of the events of a single event type. Every row is one event described by its start time
+ * (epoch nanos), its weight, and the IDs of its stack and thread from {@link IndexDictionaries}.
+ */
+final class EventColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final IndexedEvents.ThreadField threadField;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] weights = new long[INITIAL_CAPACITY];
+    private int[] stacks = new int[INITIAL_CAPACITY];
+    private int[] threads = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param threadField field of the events which the threads of the rows come from.
+     */
+    EventColumns(IndexedEvents.ThreadField threadField) {
+        this.threadField = threadField;
+    }
+
+    void add(long timestamp, long weight, int stack, int thread) {
+        ensureCapacity(size + 1);
+        timestamps[size] = timestamp;
+        weights[size] = weight;
+        stacks[size] = stack;
+        threads[size] = thread;
+        size++;
+    }
+
+    /**
+     * Adds all rows of the other columns, their stacks and threads are translated to the IDs
+     * of the merged dictionaries.
+     *
+     * @param other   columns to add.
+     * @param mapping new IDs of the stacks and threads of the other columns.
+     */
+    void addAll(EventColumns other, IndexDictionaries.Mapping mapping) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.timestamps, 0, timestamps, size, other.size);
+        System.arraycopy(other.weights, 0, weights, size, other.size);
+        for (int row = 0; row < other.size; row++) {
+            stacks[size + row] = remap(mapping.stacks(), other.stacks[row]);
+            threads[size + row] = remap(mapping.threads(), other.threads[row]);
+        }
+        size += other.size;
+    }
+
+    private static int remap(int[] mapping, int id) {
+        return id == IndexDictionaries.NONE ? IndexDictionaries.NONE : mapping[id];
+    }
+
+    /**
+     * Sorts all rows by their timestamps, the rows of the different chunks are interleaved and the events
+     * are not strictly ordered even inside a single chunk. Sorted rows allow to find the time ranges
+     * using binary search.
+     */
+    void sortByTimestamp() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[size], 0, size);
+
+        long[] sortedTimestamps = new long[size];
+        long[] sortedWeights = new long[size];
+        int[] sortedStacks = new int[size];
+        int[] sortedThreads = new int[size];
+        for (int i = 0; i < size; i++) {
+            int row = order[i];
+            sortedTimestamps[i] = timestamps[row];
+            sortedWeights[i] = weights[row];
+            sortedStacks[i] = stacks[row];
+            sortedThreads[i] = threads[row];
+        }
+        this.timestamps = sortedTimestamps;
+        this.weights = sortedWeights;
+        this.stacks = sortedStacks;
+        this.threads = sortedThreads;
+    }
+
+    private void mergeSort(int[] order, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, buffer, from, middle);
+        mergeSort(order, buffer, middle, to);
+        if (timestamps[order[middle - 1]] <= timestamps[order[middle]]) {
+            // Already ordered, very common for the rows of a single chunk
+            return;
+        }
+
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && timestamps[buffer[left]] <= timestamps[buffer[right]])) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > timestamps.length) {
+            int newCapacity = Math.max(capacity, timestamps.length * 2);
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            weights = Arrays.copyOf(weights, newCapacity);
+            stacks = Arrays.copyOf(stacks, newCapacity);
+            threads = Arrays.copyOf(threads, newCapacity);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long timestamp(int row) {
+        return timestamps[row];
+    }
+
+    long weight(int row) {
+        return weights[row];
+    }
+
+    int stack(int row) {
+        return stacks[row];
+    }
+
+    int thread(int row) {
+        return threads[row];
+    }
+
+    IndexedEvents.ThreadField threadField() {
+        return threadField;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.index;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Persistent columnar index of all events with a stacktrace, created once per profile by {@link EventIndexWriter}
+ * and extended by the segments of the appended chunks. The columns of the events are memory-mapped and they are
+ * read directly from the page cache without parsing the JFR recordings. The stacktraces and threads of the events
+ * are resolved using the dictionaries of the segment, see {@link IndexedStacks}.
+ * <p/>
+ * The events of every event type are sorted by their start time inside a single segment,
+ * see {@link IndexedEvents#lowerBound(long)}. The opened index is supposed to be shared, see {@link EventIndexCache}.
+ */
+public final class EventIndex {
+
+    static final int MAGIC = 0x4A455649;
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 8;
+
+    private final Map<String, List<IndexedEvents>> events = new HashMap<>();
+
+    private EventIndex(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.read(header, 0) < HEADER_SIZE || header.flip().getInt() != MAGIC) {
+                throw new IOException("Not an event index: " + indexFile);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version of the event index: version=" + version);
+            }
+
+            long fileSize = channel.size();
+            long position = HEADER_SIZE;
+            while (position < fileSize) {
+                long segmentSize = readSegment(channel, position, fileSize);
+                if (segmentSize == 0) {
+                    // The latest segment is still being appended
+                    break;
+                }
+                position += segmentSize;
+            }
+        }
+    }
+
+    /**
+     * Reads the table of event types of the segment and maps the columns of the events.
+     *
+     * @return size of the segment, or {@code 0} if the segment is not complete.
+     */
+    private long readSegment(FileChannel channel, long position, long fileSize) throws IOException {
+        channel.position(position);
+        // The stream is not closed, it would close the channel
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+        long segmentSize = input.readLong();
+        if (segmentSize <= 0 || position + segmentSize > fileSize) {
+            return 0;
+        }
+
+        long dictionariesOffset = input.readLong();
+        int eventTypeCount = input.readInt();
+        List<String> names = new ArrayList<>(eventTypeCount);
+        List<long[]> columns = new ArrayList<>(eventTypeCount);
+        for (int i = 0; i < eventTypeCount; i++) {
+            names.add(new String(input.readNBytes(input.readInt()), StandardCharsets.UTF_8));
+            int threadField = input.readByte();
+            int rows = input.readInt();
+            long offset = input.readLong();
+            columns.add(new long[]{threadField, rows, offset});
+        }
+
+        Dictionaries dictionaries = new Dictionaries(
+                map(channel, position + dictionariesOffset, segmentSize - dictionariesOffset));
+        for (int i = 0; i < eventTypeCount; i++) {
+            IndexedEvents.ThreadField threadField = IndexedEvents.ThreadField.fromOrdinal((int) columns.get(i)[0]);
+            int rows = (int) columns.get(i)[1];
+            long offset = position + columns.get(i)[2];
+            ByteBuffer eventColumns = map(channel, offset, rows * (long) IndexedEvents.ROW_SIZE);
+            events.computeIfAbsent(names.get(i), __ -> new ArrayList<>())
+                    .add(new IndexedEvents(rows, threadField, eventColumns, dictionaries));
+        }
+        return segmentSize;
+    }
+
+    /**
+     * Dictionaries of the segment are parsed only when the stacks are needed (e.g. flamegraphs),
+     * the timeseries read only the columns of timestamps and weights.
+     */
+    private static final class Dictionaries implements Supplier<IndexedStacks> {
+
+        private final ByteBuffer buffer;
+        private volatile IndexedStacks stacks;
+
+        private Dictionaries(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public IndexedStacks get() {
+            IndexedStacks result = stacks;
+            if (result == null) {
+                synchronized (this) {
+                    result = stacks;
+                    if (result == null) {
+                        result = new IndexedStacks(buffer.duplicate());
+                        stacks = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Opens the index and memory-maps the columns of the events.
+     *
+     * @param indexFile file of the index created by {@link EventIndexWriter}.
+     * @return opened index.
+     */
+    public static EventIndex open(Path indexFile) {
+        try {
+            return new EventIndex(indexFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot open the event index: " + indexFile, e);
+        }
+    }
+
+    /**
+     * Opens the index only if the file exists, the callers are supposed to fall back to parsing the recordings.
+     *
+     * @param indexFile file of the index, can be {@code null}.
+     * @return opened index, or empty if the index has not been created or it has been created by an older
+     * version, see {@link #isCurrent(Path)}.
+     */
+    public static Optional<EventIndex> openIfExists(Path indexFile) {
+        if (indexFile == null || !isCurrent(indexFile)) {
+            return Optional.empty();
+        }
+        return Optional.of(open(indexFile));
+    }
+
+    /**
+     * Checks whether the index exists and whether it has been written in the current format. The outdated
+     * index is supposed to be created again, the new segments cannot be appended to it.
+     *
+     * @param indexFile file of the index.
+     * @return {@code true} if the index can be opened and extended.
+     */
+    public static boolean isCurrent(Path indexFile) {
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            return channel.read(header, 0) == HEADER_SIZE
+                    && header.flip().getInt() == MAGIC
+                    && header.getInt() == VERSION;
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read the header of the event index: " + indexFile, e);
+        }
+    }
+
+    public static long toEpochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Converts the instant to epoch nanos and saturates the values that cannot be represented
+     * (e.g. {@link Instant#MIN} and {@link Instant#MAX} of the unlimited time ranges).
+     */
+    public static long toEpochNanosSaturated(Instant instant) {
+        try {
+            return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+        } catch (ArithmeticException e) {
+            return instant.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Columns of all indexed events of the given type, one per segment of the index. The events are sorted
+     * only inside the segment, the segments of the appended chunks can overlap in time.
+     *
+     * @param eventType name of the event type.
+     * @return segments of the events of the given type, or an empty list if the profile does not contain
+     * such events.
+     */
+    public List<IndexedEvents> events(String eventType) {
+        return events.getOrDefault(eventType, List.of());
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Too large part of the event index to be memory-mapped: size=" + size);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.index;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opened indexes of the profiles shared by all generators, every index is opened only once and kept
+ * until it's invalidated (e.g. a new segment has been appended) or the cache is closed. The memory-mapped
+ * columns of the dropped index are released when the index is no longer referenced by the running generators.
+ */
+public class EventIndexCache implements AutoCloseable {
+
+    private final Map<Path, EventIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * @param indexFile file of the index, can be {@code null}.
+     * @return opened index, or empty if the index has not been created or it's outdated, the callers are
+     * supposed to fall back to parsing the recordings.
+     */
+    public Optional<EventIndex> get(Path indexFile) {
+        if (indexFile == null) {
+            return Optional.empty();
+        }
+
+        EventIndex index = indexes.get(indexFile);
+        if (index == null && EventIndex.isCurrent(indexFile)) {
+            index = indexes.computeIfAbsent(indexFile, EventIndex::open);
+        }
+        return Optional.ofNullable(index);
+    }
+
+    /**
+     * Drops the opened index, the next {@link #get(Path)} opens the current content of the file.
+     *
+     * @param indexFile file of the index.
+     */
+    public void invalidate(Path indexFile) {
+        indexes.remove(indexFile);
+    }
+
+    @Override
+    public void close() {
+        indexes.clear();
+    }
+}
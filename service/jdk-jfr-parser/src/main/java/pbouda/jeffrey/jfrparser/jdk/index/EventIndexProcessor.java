@@ -0,0 +1,147 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.index;
+
+import jdk.jfr.EventType;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.jfrparser.jdk.EventProcessor;
+import pbouda.jeffrey.jfrparser.jdk.ProcessableEvents;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedEvents.ThreadField;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Collects the columns of all events with a stacktrace from a single chunk. JFR parser resolves every stacktrace,
+ * method and thread only once per chunk, therefore, they are added to the dictionaries only once per instance.
+ */
+class EventIndexProcessor implements EventProcessor<IndexSegment> {
+
+    private static final String STACKTRACE_FIELD = "stackTrace";
+
+    private record IndexedType(EventColumns columns, ToLongFunction<RecordedEvent> weight) {
+    }
+
+    // Events without a stacktrace are not indexed
+    private static final IndexedType NOT_INDEXED = new IndexedType(null, null);
+
+    private final IndexSegment segment = new IndexSegment();
+    private final IndexDictionaries dictionaries = segment.dictionaries();
+    private final Map<EventType, IndexedType> types = new IdentityHashMap<>();
+    private final Map<RecordedStackTrace, Integer> stacks = new IdentityHashMap<>();
+    private final Map<RecordedMethod, int[]> methods = new IdentityHashMap<>();
+    private final Map<RecordedThread, Integer> threads = new IdentityHashMap<>();
+
+    @Override
+    public ProcessableEvents processableEvents() {
+        return ProcessableEvents.all();
+    }
+
+    @Override
+    public Result onEvent(RecordedEvent event) {
+        IndexedType type = types.computeIfAbsent(event.getEventType(), this::resolveType);
+        if (type == NOT_INDEXED) {
+            return Result.CONTINUE;
+        }
+
+        long weight = type.weight == null ? 1 : type.weight.applyAsLong(event);
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        int stack = stackTrace == null
+                ? IndexDictionaries.NONE
+                : stacks.computeIfAbsent(stackTrace, this::resolveStack);
+
+        ThreadField threadField = type.columns.threadField();
+        RecordedThread recordedThread = threadField == ThreadField.NONE
+                ? null
+                : event.getThread(threadField.fieldName());
+        int thread = recordedThread == null
+                ? IndexDictionaries.NONE
+                : threads.computeIfAbsent(recordedThread, this::resolveThread);
+
+        type.columns.add(EventIndex.toEpochNanos(event.getStartTime()), weight, stack, thread);
+        return Result.CONTINUE;
+    }
+
+    private IndexedType resolveType(EventType eventType) {
+        if (eventType.getField(STACKTRACE_FIELD) == null) {
+            return NOT_INDEXED;
+        }
+
+        ThreadField threadField = ThreadField.NONE;
+        for (ThreadField field : List.of(ThreadField.SAMPLED_THREAD, ThreadField.EVENT_THREAD)) {
+            if (eventType.getField(field.fieldName()) != null) {
+                threadField = field;
+                break;
+            }
+        }
+
+        ThreadField resolvedField = threadField;
+        EventColumns eventColumns = segment.columns()
+                .computeIfAbsent(eventType.getName(), __ -> new EventColumns(resolvedField));
+        ToLongFunction<RecordedEvent> weight = Type.getKnownType(eventType.getName())
+                .map(Type::weightExtractor)
+                .orElse(null);
+
+        return new IndexedType(eventColumns, weight);
+    }
+
+    private int resolveStack(RecordedStackTrace stackTrace) {
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        int[] frameIds = new int[frames.size()];
+        // From the bottom of the stack to the top frame, the same order as the frames of the flamegraph
+        for (int i = 0; i < frameIds.length; i++) {
+            RecordedFrame frame = frames.get(frames.size() - 1 - i);
+            int[] method = methods.computeIfAbsent(frame.getMethod(), this::resolveMethod);
+            frameIds[i] = dictionaries.frame(new IndexDictionaries.Frame(
+                    method[0],
+                    method[1],
+                    frame.getLineNumber(),
+                    frame.getBytecodeIndex(),
+                    dictionaries.symbol(frame.getType())));
+        }
+        return dictionaries.stack(frameIds);
+    }
+
+    private int[] resolveMethod(RecordedMethod method) {
+        RecordedClass type = method.getType();
+        String name = type != null ? type.getName() + "#" + method.getName() : method.getName();
+        return new int[]{dictionaries.symbol(name), dictionaries.symbol(method.getName())};
+    }
+
+    private int resolveThread(RecordedThread thread) {
+        return dictionaries.thread(new IndexDictionaries.Thread(
+                thread.getJavaThreadId(),
+                thread.getId(),
+                dictionaries.symbol(thread.getJavaName()),
+                dictionaries.symbol(thread.getOSName())));
+    }
+
+    @Override
+    public IndexSegment get() {
+        return segment;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.index;
+
+import pbouda.jeffrey.common.Collector;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
+import pbouda.jeffrey.jfrparser.jdk.FanOutRecordingIterator;
+import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Builds {@link EventIndex} from the recordings. The events with a stacktrace are stored in the columns
+ * sorted by their start time. The index is created as a single segment, the chunks appended to the profile
+ * later are added as new segments at the end of the file, the existing segments are never rewritten.
+ * <p/>
+ * Format of the file (all values are big-endian):
+ * <pre>
+ * int magic, int version
+ * segments:
+ *   long segmentSize
+ *   long dictionariesOffset
+ *   eventTypes: int count, [int nameLength, UTF-8 name, byte threadField, int rows, long offset] * count
+ *   padding to 8 bytes
+ *   columns of every event type starting at its offset (from the start of the segment):
+ *   long[] timestamps, long[] weights, int[] stacks, int[] threads
+ *   dictionaries of the stacks and threads starting at dictionariesOffset, see {@link IndexDictionaries}
+ * </pre>
+ */
+public final class EventIndexWriter {
+
+    private final Path indexFile;
+    private Supplier<IndexSegment> segment;
+
+    /**
+     * @param indexFile target file of the index.
+     */
+    public EventIndexWriter(Path indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Registers the processor of the index into the single pass over the recordings, the index is written
+     * by {@link #write()} after the iteration.
+     *
+     * @param iterator single-pass iterator over all recordings of the profile.
+     */
+    public void register(FanOutRecordingIterator iterator) {
+        this.segment = iterator.register(EventIndexProcessor::new, new SegmentCollector());
+    }
+
+    /**
+     * Writes the index collected by the registered processor, the index is written into a temporary file
+     * first, the target file is replaced only by the complete index.
+     */
+    public void write() {
+        if (segment == null) {
+            throw new IllegalStateException("Event index has not been registered to any iteration: " + indexFile);
+        }
+        write(indexFile, segment.get());
+    }
+
+    /**
+     * Parses the recordings and writes the index into the given file.
+     *
+     * @param recordings     recordings (chunks) of the profile.
+     * @param indexFile      target file of the index.
+     * @param recordingCache local uncompressed copies of the compressed recordings and the views.
+     */
+    public static void write(List<Path> recordings, Path indexFile, DecompressedRecordingCache recordingCache) {
+        write(indexFile, collect(recordings, recordingCache));
+    }
+
+    /**
+     * Parses only the given recordings and appends their events as a new segment of the existing index.
+     * The readers that already opened the index are not affected, the appended segment is visible
+     * only after the index is opened again.
+     *
+     * @param recordings     recordings (chunks) newly added to the profile.
+     * @param indexFile      existing file of the index.
+     * @param recordingCache local uncompressed copies of the compressed recordings and the views.
+     */
+    public static void append(List<Path> recordings, Path indexFile, DecompressedRecordingCache recordingCache) {
+        if (recordings.isEmpty()) {
+            return;
+        }
+
+        IndexSegment segment = collect(recordings, recordingCache);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(indexFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND), 64 * 1024))) {
+
+            writeSegment(output, segment);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot append to the event index: " + indexFile, e);
+        }
+    }
+
+    private static IndexSegment collect(List<Path> recordings, DecompressedRecordingCache recordingCache) {
+        return RecordingIterators.automaticAndCollect(
+                recordings, EventIndexProcessor::new, new SegmentCollector(), recordingCache);
+    }
+
+    private static void write(Path indexFile, IndexSegment segment) {
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024))) {
+
+            output.writeInt(EventIndex.MAGIC);
+            output.writeInt(EventIndex.VERSION);
+            writeSegment(output, segment);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write the event index: " + indexFile, e);
+        }
+
+        try {
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot move the event index: " + indexFile, e);
+        }
+    }
+
+    /**
+     * Size of the segment is written first, the readers skip the segment which is not completely written yet.
+     */
+    private static void writeSegment(OutputStream stream, IndexSegment segment) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        Map<String, EventColumns> columns = segment.columns();
+
+        // The size of the dictionaries is known only after they are serialized
+        ByteArrayOutputStream dictionaries = new ByteArrayOutputStream();
+        segment.dictionaries().writeTo(new DataOutputStream(dictionaries));
+
+        List<String> eventTypes = new ArrayList<>(columns.keySet());
+        eventTypes.sort(null);
+        List<byte[]> names = new ArrayList<>(eventTypes.size());
+        long headerSize = 8 + 8 + 4;
+        for (String eventType : eventTypes) {
+            byte[] name = eventType.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            headerSize += 4 + name.length + 1 + 4 + 8;
+        }
+        headerSize = align(headerSize);
+
+        long columnsOffset = headerSize;
+        long dictionariesOffset = headerSize;
+        for (String eventType : eventTypes) {
+            dictionariesOffset += columns.get(eventType).size() * (long) IndexedEvents.ROW_SIZE;
+        }
+
+        output.writeLong(dictionariesOffset + dictionaries.size());
+        output.writeLong(dictionariesOffset);
+        output.writeInt(eventTypes.size());
+        for (int i = 0; i < eventTypes.size(); i++) {
+            EventColumns eventColumns = columns.get(eventTypes.get(i));
+            output.writeInt(names.get(i).length);
+            output.write(names.get(i));
+            output.writeByte(eventColumns.threadField().ordinal());
+            output.writeInt(eventColumns.size());
+            output.writeLong(columnsOffset);
+            columnsOffset += eventColumns.size() * (long) IndexedEvents.ROW_SIZE;
+        }
+        while (output.size() < headerSize) {
+            output.writeByte(0);
+        }
+
+        for (String eventType : eventTypes) {
+            EventColumns eventColumns = columns.get(eventType);
+            eventColumns.sortByTimestamp();
+            for (int row = 0; row < eventColumns.size(); row++) {
+                output.writeLong(eventColumns.timestamp(row));
+            }
+            for (int row = 0; row < eventColumns.size(); row++) {
+                output.writeLong(eventColumns.weight(row));
+            }
+            for (int row = 0; row < eventColumns.size(); row++) {
+                output.writeInt(eventColumns.stack(row));
+            }
+            for (int row = 0; row < eventColumns.size(); row++) {
+                output.writeInt(eventColumns.thread(row));
+            }
+        }
+        dictionaries.writeTo(output);
+        output.flush();
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static class SegmentCollector implements Collector<IndexSegment, IndexSegment> {
+
+        @Override
+        public Supplier<IndexSegment> empty() {
+            return IndexSegment::new;
+        }
+
+        @Override
+        public IndexSegment combiner(IndexSegment partial1, IndexSegment partial2) {
+            partial1.addAll(partial2);
+            return partial1;
+        }
+
+        @Override
+        public IndexSegment finisher(IndexSegment combined) {
+            return combined;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.index;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionaries of the stacktraces and threads of a single segment of the index. The events refer to the stacks
+ * and threads by their IDs, every distinct stack, frame, thread and string is stored only once per segment.
+ * The dictionaries of the chunks are merged into a single one, the IDs of the merged dictionary are provided
+ * by {@link Mapping}.
+ * <p/>
+ * It's not thread-safe, it's supposed to be used by a single processor, see {@link EventIndexProcessor}.
+ */
+final class IndexDictionaries {
+
+    static final int NONE = -1;
+
+    /**
+     * @param name       fully-qualified name of the method {@code type#method}, or only the name of the method
+     *                   if it does not belong to any type.
+     * @param methodName only the name of the method.
+     * @param type       JFR type of the frame (e.g. {@code JIT compiled}).
+     */
+    record Frame(int name, int methodName, int lineNumber, int bytecodeIndex, int type) {
+    }
+
+    record Thread(long javaThreadId, long id, int javaName, int osName) {
+    }
+
+    record Mapping(int[] stacks, int[] threads) {
+    }
+
+    private record Stack(int[] frames) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Stack stack && Arrays.equals(frames, stack.frames);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(frames);
+        }
+    }
+
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+    private final Map<Frame, Integer> frameIds = new HashMap<>();
+    private final List<Frame> frames = new ArrayList<>();
+    private final Map<Stack, Integer> stackIds = new HashMap<>();
+    private final List<Stack> stacks = new ArrayList<>();
+    private final Map<Thread, Integer> threadIds = new HashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    /**
+     * @return ID of the string, or {@link #NONE} for {@code null}.
+     */
+    int symbol(String symbol) {
+        if (symbol == null) {
+            return NONE;
+        }
+        return symbolIds.computeIfAbsent(symbol, s -> add(symbols, s));
+    }
+
+    int frame(Frame frame) {
+        return frameIds.computeIfAbsent(frame, f -> add(frames, f));
+    }
+
+    /**
+     * @param frameIds IDs of the frames from the bottom of the stack to the top frame.
+     */
+    int stack(int[] frameIds) {
+        return stackIds.computeIfAbsent(new Stack(frameIds), s -> add(stacks, s));
+    }
+
+    int thread(Thread thread) {
+        return threadIds.computeIfAbsent(thread, t -> add(threads, t));
+    }
+
+    private static <T> int add(List<T> values, T value) {
+        values.add(value);
+        return values.size() - 1;
+    }
+
+    /**
+     * Adds all entries of the other dictionaries, the existing entries keep their IDs.
+     *
+     * @param other dictionaries to add.
+     * @return new IDs of the stacks and threads of the other dictionaries.
+     */
+    Mapping merge(IndexDictionaries other) {
+        int[] symbolMapping = new int[other.symbols.size()];
+        for (int i = 0; i < symbolMapping.length; i++) {
+            symbolMapping[i] = symbol(other.symbols.get(i));
+        }
+
+        int[] frameMapping = new int[other.frames.size()];
+        for (int i = 0; i < frameMapping.length; i++) {
+            Frame frame = other.frames.get(i);
+            frameMapping[i] = frame(new Frame(
+                    remap(symbolMapping, frame.name),
+                    remap(symbolMapping, frame.methodName),
+                    frame.lineNumber,
+                    frame.bytecodeIndex,
+                    remap(symbolMapping, frame.type)));
+        }
+
+        int[] stackMapping = new int[other.stacks.size()];
+        for (int i = 0; i < stackMapping.length; i++) {
+            int[] stackFrames = other.stacks.get(i).frames.clone();
+            for (int j = 0; j < stackFrames.length; j++) {
+                stackFrames[j] = frameMapping[stackFrames[j]];
+            }
+            stackMapping[i] = stack(stackFrames);
+        }
+
+        int[] threadMapping = new int[other.threads.size()];
+        for (int i = 0; i < threadMapping.length; i++) {
+            Thread thread = other.threads.get(i);
+            threadMapping[i] = thread(new Thread(
+                    thread.javaThreadId,
+                    thread.id,
+                    remap(symbolMapping, thread.javaName),
+                    remap(symbolMapping, thread.osName)));
+        }
+        return new Mapping(stackMapping, threadMapping);
+    }
+
+    private static int remap(int[] mapping, int id) {
+        return id == NONE ? NONE : mapping[id];
+    }
+
+    /**
+     * Format of the dictionaries, see {@link IndexedStacks} for reading:
+     * <pre>
+     * symbols: int count, [int length, UTF-8 string] * count
+     * frames: int count, [int name, int methodName, int lineNumber, int bytecodeIndex, int type] * count
+     * stacks: int count, [int length, int frame * length] * count
+     * threads: int count, [long javaThreadId, long id, int javaName, int osName] * count
+     * </pre>
+     */
+    void writeTo(DataOutput output) throws IOException {
+        output.writeInt(symbols.size());
+        for (String symbol : symbols) {
+            byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+
+        output.writeInt(frames.size());
+        for (Frame frame : frames) {
+            output.writeInt(frame.name);
+            output.writeInt(frame.methodName);
+            output.writeInt(frame.lineNumber);
+            output.writeInt(frame.bytecodeIndex);
+            output.writeInt(frame.type);
+        }
+
+        output.writeInt(stacks.size());
+        for (Stack stack : stacks) {
+            output.writeInt(stack.frames.length);
+            for (int frame : stack.frames) {
+                output.writeInt(frame);
+            }
+        }
+
+        output.writeInt(threads.size());
+        for (Thread thread : threads) {
+            output.writeLong(thread.javaThreadId);
+            output.writeLong(thread.id);
+            output.writeInt(thread.javaName);
+            output.writeInt(thread.osName);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.index;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Content of a single segment of the index, the columns of the events of all types and the dictionaries
+ * of the stacktraces and threads the rows refer to.
+ */
+final class IndexSegment {
+
+    private final Map<String, EventColumns> columns = new HashMap<>();
+    private final IndexDictionaries dictionaries = new IndexDictionaries();
+
+    Map<String, EventColumns> columns() {
+        return columns;
+    }
+
+    IndexDictionaries dictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * Moves all events of the other segment into this one.
+     *
+     * @param other segment created from other chunks.
+     */
+    void addAll(IndexSegment other) {
+        IndexDictionaries.Mapping mapping = dictionaries.merge(other.dictionaries);
+        other.columns.forEach((eventType, otherColumns) -> columns
+                .computeIfAbsent(eventType, __ -> new EventColumns(otherColumns.threadField()))
+                .addAll(otherColumns, mapping));
+    }
+}
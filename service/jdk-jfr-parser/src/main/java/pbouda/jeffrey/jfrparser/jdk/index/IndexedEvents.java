@@ -0,0 +1,168 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.index;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.function.Supplier;
+
+/**
+ * Memory-mapped columns of the events of a single event type in a single segment of the index,
+ * the rows are sorted by the start time.
+ */
+public final class IndexedEvents {
+
+    /**
+     * Field of the events which the indexed threads come from.
+     */
+    public enum ThreadField {
+        NONE(null),
+        SAMPLED_THREAD("sampledThread"),
+        EVENT_THREAD("eventThread");
+
+        private static final ThreadField[] VALUES = values();
+
+        private final String fieldName;
+
+        ThreadField(String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        public String fieldName() {
+            return fieldName;
+        }
+
+        static ThreadField fromOrdinal(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    /**
+     * Size of a single row of all columns in bytes.
+     */
+    static final int ROW_SIZE = 8 + 8 + 4 + 4;
+
+    private final int size;
+    private final ThreadField threadField;
+    private final LongBuffer timestamps;
+    private final LongBuffer weights;
+    private final IntBuffer stacks;
+    private final IntBuffer threads;
+    private final Supplier<IndexedStacks> dictionaries;
+
+    IndexedEvents(int size, ThreadField threadField, ByteBuffer columns, Supplier<IndexedStacks> dictionaries) {
+        this.size = size;
+        this.threadField = threadField;
+        this.timestamps = columns.slice(0, size * 8).asLongBuffer();
+        this.weights = columns.slice(size * 8, size * 8).asLongBuffer();
+        this.stacks = columns.slice(size * 16, size * 4).asIntBuffer();
+        this.threads = columns.slice(size * 20, size * 4).asIntBuffer();
+        this.dictionaries = dictionaries;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Start time of the event in epoch nanos.
+     */
+    public long timestamp(int row) {
+        return timestamps.get(row);
+    }
+
+    /**
+     * Weight of the event according to the type (e.g. allocated bytes, blocking duration), or {@code 1}
+     * if the type does not support weight.
+     */
+    public long weight(int row) {
+        return weights.get(row);
+    }
+
+    /**
+     * ID of the stacktrace of the event in {@link #stacks()}, or {@code -1} if the event does not contain
+     * the stacktrace.
+     */
+    public int stack(int row) {
+        return stacks.get(row);
+    }
+
+    /**
+     * ID of the thread of the event in {@link #stacks()}, or {@code -1} if the event does not contain
+     * the thread, see {@link #threadField()}.
+     */
+    public int thread(int row) {
+        return threads.get(row);
+    }
+
+    /**
+     * Field of the events which the threads come from, e.g. the sampled thread of the execution samples.
+     */
+    public ThreadField threadField() {
+        return threadField;
+    }
+
+    /**
+     * Dictionaries of the stacktraces and threads shared by all event types of the segment.
+     */
+    public IndexedStacks stacks() {
+        return dictionaries.get();
+    }
+
+    /**
+     * Finds the first row with the start time higher or equal to the given time.
+     *
+     * @param epochNanos time in epoch nanos.
+     * @return index of the first row, or {@link #size()} if all events started before the given time.
+     */
+    public int lowerBound(long epochNanos) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps.get(middle) < epochNanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first row with the start time strictly higher than the given time.
+     *
+     * @param epochNanos time in epoch nanos.
+     * @return index of the first row after the given time, or {@link #size()}.
+     */
+    public int upperBound(long epochNanos) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps.get(middle) <= epochNanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.index;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dictionaries of the stacktraces and threads of a single segment of the index, the events refer to them
+ * by the IDs from {@link IndexedEvents#stack(int)} and {@link IndexedEvents#thread(int)}. The dictionaries
+ * are parsed only when the stacks of the segment are requested for the first time.
+ */
+public final class IndexedStacks {
+
+    private static final int FRAME_FIELDS = 5;
+
+    private final String[] symbols;
+    private final int[] frames;
+    private final int[] stackOffsets;
+    private final int[] stackFrames;
+    private final long[] threadJavaIds;
+    private final long[] threadIds;
+    private final int[] threadNames;
+
+    /**
+     * @param buffer dictionaries written by {@link IndexDictionaries#writeTo(java.io.DataOutput)}.
+     */
+    IndexedStacks(ByteBuffer buffer) {
+        this.symbols = new String[buffer.getInt()];
+        for (int i = 0; i < symbols.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            symbols[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        this.frames = new int[buffer.getInt() * FRAME_FIELDS];
+        buffer.asIntBuffer().get(frames);
+        buffer.position(buffer.position() + frames.length * 4);
+
+        int stackCount = buffer.getInt();
+        this.stackOffsets = new int[stackCount + 1];
+        int[] allFrames = new int[Math.max(16, stackCount * 8)];
+        int size = 0;
+        for (int i = 0; i < stackCount; i++) {
+            int length = buffer.getInt();
+            if (size + length > allFrames.length) {
+                allFrames = Arrays.copyOf(allFrames, Math.max(size + length, allFrames.length * 2));
+            }
+            buffer.asIntBuffer().get(allFrames, size, length);
+            buffer.position(buffer.position() + length * 4);
+            size += length;
+            stackOffsets[i + 1] = size;
+        }
+        this.stackFrames = allFrames;
+
+        int threadCount = buffer.getInt();
+        this.threadJavaIds = new long[threadCount];
+        this.threadIds = new long[threadCount];
+        this.threadNames = new int[threadCount * 2];
+        for (int i = 0; i < threadCount; i++) {
+            threadJavaIds[i] = buffer.getLong();
+            threadIds[i] = buffer.getLong();
+            threadNames[i * 2] = buffer.getInt();
+            threadNames[i * 2 + 1] = buffer.getInt();
+        }
+    }
+
+    /**
+     * @param stack ID of the stack.
+     * @return IDs of the frames from the bottom of the stack (e.g. {@code Thread#run}) to the top frame.
+     */
+    public int[] frames(int stack) {
+        return Arrays.copyOfRange(stackFrames, stackOffsets[stack], stackOffsets[stack + 1]);
+    }
+
+    /**
+     * Fully-qualified name of the method {@code type#method}, or only the name of the method if it does not
+     * belong to any type.
+     */
+    public String frameName(int frame) {
+        return symbol(frames[frame * FRAME_FIELDS]);
+    }
+
+    /**
+     * Only the name of the method without the type (e.g. native and kernel frames).
+     */
+    public String frameMethodName(int frame) {
+        return symbol(frames[frame * FRAME_FIELDS + 1]);
+    }
+
+    public int frameLineNumber(int frame) {
+        return frames[frame * FRAME_FIELDS + 2];
+    }
+
+    public int frameBytecodeIndex(int frame) {
+        return frames[frame * FRAME_FIELDS + 3];
+    }
+
+    /**
+     * JFR type of the frame, e.g. {@code JIT compiled} or {@code Native}.
+     */
+    public String frameType(int frame) {
+        return symbol(frames[frame * FRAME_FIELDS + 4]);
+    }
+
+    public long threadJavaId(int thread) {
+        return threadJavaIds[thread];
+    }
+
+    public long threadId(int thread) {
+        return threadIds[thread];
+    }
+
+    public String threadJavaName(int thread) {
+        return symbol(threadNames[thread * 2]);
+    }
+
+    public String threadOsName(int thread) {
+        return symbol(threadNames[thread * 2 + 1]);
+    }
+
+    private String symbol(int id) {
+        return id == IndexDictionaries.NONE ? null : symbols[id];
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Matches a text against multiple search patterns at once, the result is a bitmask of the matched patterns
+ * (bit {@code i} belongs to the pattern {@code i}). A pattern matches the text if the text contains it,
+ * the same as the regular expression {@code .*pattern.*}.
+ * <ul>
+ *     <li>Literal patterns (without any regex metacharacter) are compiled into a single Aho-Corasick automaton,
+ *     the text is scanned only once for all of them</li>
+ *     <li>Patterns containing regex metacharacters fall back to {@link Pattern}, every of them is evaluated
+ *     separately</li>
+ * </ul>
+ * It's immutable and thread-safe, a single matcher is shared by all processors of the same generation.
+ */
+public final class MultiPatternMatcher {
+
+    public static final int MAX_PATTERNS = Long.SIZE;
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private record RegexPattern(int index, Predicate<String> predicate) {
+    }
+
+    private final List<String> patterns;
+    private final long allPatterns;
+    private final long literalPatterns;
+    private final List<RegexPattern> regexPatterns;
+
+    // Aho-Corasick automaton, the transitions of the state are sorted by their characters
+    private final char[][] transitionChars;
+    private final int[][] transitionTargets;
+    private final int[] failures;
+    // Patterns ending in the state including the patterns of its failure states
+    private final long[] outputs;
+
+    private MultiPatternMatcher(List<String> patterns) {
+        this.patterns = List.copyOf(patterns);
+        this.allPatterns = patterns.size() == MAX_PATTERNS ? -1L : (1L << patterns.size()) - 1;
+
+        List<RegexPattern> regexes = new ArrayList<>();
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Long> trieOutputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        trieOutputs.add(0L);
+
+        long literals = 0;
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+            if (isLiteral(pattern)) {
+                int state = 0;
+                for (int c = 0; c < pattern.length(); c++) {
+                    Integer next = trie.get(state).get(pattern.charAt(c));
+                    if (next == null) {
+                        next = trie.size();
+                        trie.add(new TreeMap<>());
+                        trieOutputs.add(0L);
+                        trie.get(state).put(pattern.charAt(c), next);
+                    }
+                    state = next;
+                }
+                trieOutputs.set(state, trieOutputs.get(state) | (1L << i));
+                literals |= 1L << i;
+            } else {
+                regexes.add(new RegexPattern(i, Pattern.compile(".*" + pattern + ".*").asMatchPredicate()));
+            }
+        }
+        this.literalPatterns = literals;
+        this.regexPatterns = List.copyOf(regexes);
+
+        int states = trie.size();
+        this.transitionChars = new char[states][];
+        this.transitionTargets = new int[states][];
+        this.failures = new int[states];
+        this.outputs = new long[states];
+        for (int state = 0; state < states; state++) {
+            Map<Character, Integer> transitions = trie.get(state);
+            char[] chars = new char[transitions.size()];
+            int[] targets = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                chars[i] = transition.getKey();
+                targets[i] = transition.getValue();
+                i++;
+            }
+            transitionChars[state] = chars;
+            transitionTargets[state] = targets;
+            outputs[state] = trieOutputs.get(state);
+        }
+
+        // Failure links in the breadth-first order, the failure state is always closer to the root
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int target : transitionTargets[0]) {
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < transitionChars[state].length; i++) {
+                char c = transitionChars[state][i];
+                int target = transitionTargets[state][i];
+
+                int failure = failures[state];
+                int next;
+                while ((next = transition(failure, c)) < 0 && failure != 0) {
+                    failure = failures[failure];
+                }
+                failures[target] = next < 0 ? 0 : next;
+                outputs[target] |= outputs[failures[target]];
+                queue.add(target);
+            }
+        }
+    }
+
+    /**
+     * Compiles the patterns into a single matcher.
+     *
+     * @param patterns at most {@link #MAX_PATTERNS} patterns, the index of the pattern in the list is
+     *                 the index of its bit in the matched bitmask.
+     * @return matcher of all patterns.
+     */
+    public static MultiPatternMatcher compile(List<String> patterns) {
+        if (patterns.isEmpty() || patterns.size() > MAX_PATTERNS) {
+            throw new IllegalArgumentException(
+                    "Number of the search patterns must be from 1 to " + MAX_PATTERNS + ": " + patterns.size());
+        }
+        return new MultiPatternMatcher(patterns);
+    }
+
+    /**
+     * @param text text to be matched.
+     * @return bitmask of the patterns contained in the text.
+     */
+    public long match(String text) {
+        long matched = literalPatterns != 0 ? matchLiterals(text) : 0;
+        for (RegexPattern regex : regexPatterns) {
+            if (regex.predicate().test(text)) {
+                matched |= 1L << regex.index();
+            }
+        }
+        return matched;
+    }
+
+    private long matchLiterals(String text) {
+        // An empty pattern is the output of the root
+        long matched = outputs[0];
+        int state = 0;
+        for (int i = 0; i < text.length() && matched != literalPatterns; i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = failures[state];
+            }
+            state = next < 0 ? 0 : next;
+            matched |= outputs[state];
+        }
+        return matched;
+    }
+
+    private int transition(int state, char c) {
+        char[] chars = transitionChars[state];
+        int low = 0;
+        int high = chars.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (chars[middle] < c) {
+                low = middle + 1;
+            } else if (chars[middle] > c) {
+                high = middle - 1;
+            } else {
+                return transitionTargets[state][middle];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLiteral(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (REGEX_METACHARACTERS.indexOf(pattern.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return bitmask having the bits of all patterns.
+     */
+    public long allPatterns() {
+        return allPatterns;
+    }
+
+    public int size() {
+        return patterns.size();
+    }
+
+    public String pattern(int index) {
+        return patterns.get(index);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.search;
+
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Matched search patterns of the stacktraces of a single chunk, a stacktrace matches the pattern if any of its
+ * frames (a fully-qualified name of the method {@code type#method}) matches the pattern.
+ * <ul>
+ *     <li>Every method is matched only once, the bitmask of the method is kept by its ID in the interned symbols</li>
+ *     <li>Every stacktrace is resolved only once, JFR parser creates a single instance of the stacktrace per chunk,
+ *     the bitmasks of the stacktraces are kept by the identity of the stacktraces</li>
+ * </ul>
+ * It's not thread-safe, it's supposed to be used by a single processor that belongs to a single chunk,
+ * the same as {@link ChunkSymbols}.
+ */
+public final class StackSearchIndex {
+
+    private static final int INITIAL_SYMBOLS = 1024;
+
+    private final MultiPatternMatcher matcher;
+    private final ChunkSymbols symbols;
+    private final Map<RecordedStackTrace, Long> stacktraces = new IdentityHashMap<>();
+    // Bitmasks of the methods indexed by the symbol ID
+    private final BitSet matchedSymbols = new BitSet();
+    private long[] symbolMasks = new long[INITIAL_SYMBOLS];
+
+    public StackSearchIndex(MultiPatternMatcher matcher, ChunkSymbols symbols) {
+        this.matcher = matcher;
+        this.symbols = symbols;
+    }
+
+    /**
+     * @param stacktrace stacktrace of the event, or {@code null}.
+     * @return bitmask of the patterns matched by any frame of the stacktrace, {@code 0} if nothing matched.
+     */
+    public long match(RecordedStackTrace stacktrace) {
+        if (stacktrace == null) {
+            return 0;
+        }
+
+        Long cached = stacktraces.get(stacktrace);
+        if (cached != null) {
+            return cached;
+        }
+
+        long matched = 0;
+        for (RecordedFrame frame : stacktrace.getFrames()) {
+            matched |= matchSymbol(symbols.method(frame.getMethod()));
+            if (matched == matcher.allPatterns()) {
+                break;
+            }
+        }
+        stacktraces.put(stacktrace, matched);
+        return matched;
+    }
+
+    private long matchSymbol(int symbolId) {
+        if (!matchedSymbols.get(symbolId)) {
+            if (symbolId >= symbolMasks.length) {
+                symbolMasks = Arrays.copyOf(symbolMasks, Math.max(symbolId + 1, symbolMasks.length * 2));
+            }
+            symbolMasks[symbolId] = matcher.match(symbols.symbol(symbolId));
+            matchedSymbols.set(symbolId);
+        }
+        return symbolMasks[symbolId];
+    }
+
+    public MultiPatternMatcher matcher() {
+        return matcher;
+    }
+}
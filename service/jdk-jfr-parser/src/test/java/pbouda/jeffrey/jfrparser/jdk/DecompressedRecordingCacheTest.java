@@ -0,0 +1,147 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import org.junit.jupiter.api.Test;
+import pbouda.jeffrey.common.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecompressedRecordingCacheTest {
+
+    @Test
+    public void compressedRecordingIsDecompressedOnlyOnce() throws IOException {
+        Path recording = TestRecordings.recordings().getFirst();
+        Path compressed = TestRecordings.compressed(recording);
+        DecompressedRecordingCache cache = new DecompressedRecordingCache(newDirectory(), Long.MAX_VALUE);
+
+        Path decompressed;
+        long modified;
+        try (DecompressedRecordingCache.Lease lease = cache.acquire(compressed)) {
+            decompressed = lease.view().file();
+            modified = Files.getLastModifiedTime(decompressed).toMillis();
+            assertEquals(decompressed, lease.wholeFile());
+            assertArrayEquals(Files.readAllBytes(recording), Files.readAllBytes(decompressed));
+        }
+
+        try (DecompressedRecordingCache.Lease lease = cache.acquire(compressed)) {
+            assertEquals(decompressed, lease.view().file());
+            assertEquals(modified, Files.getLastModifiedTime(decompressed).toMillis());
+        }
+    }
+
+    @Test
+    public void chunkHeadersOfCompressedRecordingAreReadWithoutDecompressingToDisk() throws IOException {
+        Path recording = TestRecordings.multiChunkRecording();
+        Path compressed = TestRecordings.compressed(recording);
+        Path directory = newDirectory();
+        DecompressedRecordingCache cache = new DecompressedRecordingCache(directory, Long.MAX_VALUE);
+
+        List<ChunkHeader> expected = ChunkHeader.read(recording);
+        assertTrue(expected.size() >= TestRecordings.recordings().size());
+        assertEquals(expected, cache.chunkHeaders(compressed));
+        assertEquals(0, fileCount(directory));
+
+        // the already decompressed copy is used when it's available
+        try (DecompressedRecordingCache.Lease lease = cache.acquire(compressed)) {
+            assertEquals(1, fileCount(directory));
+        }
+        assertEquals(expected, cache.chunkHeaders(compressed));
+    }
+
+    @Test
+    public void truncatedCompressedRecordingHasNoChunkHeaders() throws IOException {
+        byte[] content = Files.readAllBytes(TestRecordings.compressed(TestRecordings.recordings().getFirst()));
+        Path truncated = newDirectory().resolve("truncated" + FileUtils.JFR_EXTENSION + ".gz");
+        Files.write(truncated, Arrays.copyOf(content, content.length / 2));
+
+        assertEquals(List.of(), ChunkHeader.read(truncated));
+    }
+
+    @Test
+    public void fileInUseIsNotEvicted() throws IOException {
+        Path directory = newDirectory();
+        // every file exceeds the maximum size, only the files in use are kept
+        DecompressedRecordingCache cache = new DecompressedRecordingCache(directory, 1);
+
+        Path first = TestRecordings.compressed(TestRecordings.recordings().get(0));
+        Path second = TestRecordings.compressed(TestRecordings.recordings().get(1));
+
+        DecompressedRecordingCache.Lease firstLease = cache.acquire(first);
+        Path firstFile = firstLease.view().file();
+        try (DecompressedRecordingCache.Lease secondLease = cache.acquire(second)) {
+            Path secondFile = secondLease.view().file();
+            assertTrue(Files.exists(firstFile));
+            assertTrue(Files.exists(secondFile));
+
+            firstLease.close();
+            assertFalse(Files.exists(firstFile));
+            assertTrue(Files.exists(secondFile));
+        }
+        assertEquals(0, fileCount(directory));
+    }
+
+    @Test
+    public void iteratesCompressedRecording() throws IOException {
+        Path recording = TestRecordings.recordings().get(2);
+        DecompressedRecordingCache cache = new DecompressedRecordingCache(newDirectory(), 1);
+
+        List<String> expected = RecordingViewTest.readAllEvents(recording, cache);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, RecordingViewTest.readAllEvents(TestRecordings.compressed(recording), cache));
+    }
+
+    @Test
+    public void filesDecompressedBeforeRestartAreReused() throws IOException {
+        Path directory = newDirectory();
+        Path compressed = TestRecordings.compressed(TestRecordings.recordings().getFirst());
+
+        Path decompressed;
+        try (DecompressedRecordingCache.Lease lease =
+                     new DecompressedRecordingCache(directory, Long.MAX_VALUE).acquire(compressed)) {
+            decompressed = lease.view().file();
+        }
+        long modified = Files.getLastModifiedTime(decompressed).toMillis();
+
+        try (DecompressedRecordingCache.Lease lease =
+                     new DecompressedRecordingCache(directory, Long.MAX_VALUE).acquire(compressed)) {
+            assertEquals(decompressed, lease.view().file());
+            assertEquals(modified, Files.getLastModifiedTime(decompressed).toMillis());
+        }
+    }
+
+    private static Path newDirectory() throws IOException {
+        return Files.createTempDirectory("jeffrey-test-cache");
+    }
+
+    private static long fileCount(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexCache;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexWriter;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedEvents;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedStacks;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The stacktraces and threads read from the index must be the same as the ones parsed from the recordings.
+ */
+class EventIndexTest {
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String THREAD_PARK = "jdk.ThreadPark";
+
+    @Test
+    public void stacksAndThreadsOfExecutionSamples() throws IOException {
+        List<Path> recordings = TestRecordings.recordings();
+        EventIndex index = EventIndex.open(writeIndex(recordings));
+
+        List<IndexedEvents> segments = index.events(EXECUTION_SAMPLE);
+        assertEquals(1, segments.size());
+        assertEquals(IndexedEvents.ThreadField.SAMPLED_THREAD, segments.getFirst().threadField());
+        assertEquals(parse(recordings, EXECUTION_SAMPLE, "sampledThread"), read(segments));
+    }
+
+    @Test
+    public void eventThreadOfEventsWithoutSampledThread() throws IOException {
+        List<Path> recordings = TestRecordings.recordings();
+        EventIndex index = EventIndex.open(writeIndex(recordings));
+
+        List<IndexedEvents> segments = index.events(THREAD_PARK);
+        assertEquals(IndexedEvents.ThreadField.EVENT_THREAD, segments.getFirst().threadField());
+        assertEquals(parse(recordings, THREAD_PARK, "eventThread"), read(segments));
+    }
+
+    @Test
+    public void appendedSegmentHasItsOwnDictionaries() throws IOException {
+        List<Path> recordings = TestRecordings.recordings();
+        Path indexFile = writeIndex(recordings.subList(0, 1));
+        EventIndexWriter.append(recordings.subList(1, 3), indexFile, DecompressedRecordingCache.inTempDirectory());
+
+        List<IndexedEvents> segments = EventIndex.open(indexFile).events(EXECUTION_SAMPLE);
+        assertEquals(2, segments.size());
+        assertEquals(parse(recordings.subList(0, 1), EXECUTION_SAMPLE, "sampledThread"), read(segments.subList(0, 1)));
+        assertEquals(parse(recordings.subList(1, 3), EXECUTION_SAMPLE, "sampledThread"), read(segments.subList(1, 2)));
+    }
+
+    @Test
+    public void outdatedIndexIsNotOpened() throws IOException {
+        Path indexFile = Files.createTempFile("jeffrey-test-index", ".idx");
+        indexFile.toFile().deleteOnExit();
+        try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(indexFile))) {
+            output.writeInt(0x4A455649);
+            output.writeInt(2);
+            output.writeLong(0);
+        }
+
+        assertFalse(EventIndex.isCurrent(indexFile));
+        assertTrue(EventIndex.openIfExists(indexFile).isEmpty());
+        try (EventIndexCache cache = new EventIndexCache()) {
+            assertTrue(cache.get(indexFile).isEmpty());
+        }
+
+        EventIndexWriter.write(TestRecordings.recordings(), indexFile, DecompressedRecordingCache.inTempDirectory());
+        assertTrue(EventIndex.isCurrent(indexFile));
+    }
+
+    private static Path writeIndex(List<Path> recordings) throws IOException {
+        Path indexFile = Files.createTempFile("jeffrey-test-index", ".idx");
+        indexFile.toFile().deleteOnExit();
+        EventIndexWriter.write(recordings, indexFile, DecompressedRecordingCache.inTempDirectory());
+        return indexFile;
+    }
+
+    /**
+     * @return number of events for every combination of the start time, stacktrace and thread.
+     */
+    private static Map<String, Integer> parse(List<Path> recordings, String eventType, String threadField)
+            throws IOException {
+
+        Map<String, Integer> result = new HashMap<>();
+        for (Path recording : recordings) {
+            for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+                if (!event.getEventType().getName().equals(eventType)) {
+                    continue;
+                }
+
+                List<String> frames = new ArrayList<>();
+                for (RecordedFrame frame : event.getStackTrace().getFrames().reversed()) {
+                    frames.add(frame.getMethod().getType().getName() + "#" + frame.getMethod().getName()
+                            + ":" + frame.getLineNumber() + ":" + frame.getBytecodeIndex() + ":" + frame.getType());
+                }
+                RecordedThread thread = event.getThread(threadField);
+                String key = EventIndex.toEpochNanos(event.getStartTime()) + " " + frames
+                        + " " + thread.getJavaName() + "/" + thread.getJavaThreadId() + "/" + thread.getId();
+                result.merge(key, 1, Integer::sum);
+            }
+        }
+        return result;
+    }
+
+    private static Map<String, Integer> read(List<IndexedEvents> segments) {
+        Map<String, Integer> result = new HashMap<>();
+        for (IndexedEvents events : segments) {
+            IndexedStacks stacks = events.stacks();
+            for (int row = 0; row < events.size(); row++) {
+                List<String> frames = new ArrayList<>();
+                for (int frame : stacks.frames(events.stack(row))) {
+                    frames.add(stacks.frameName(frame) + ":" + stacks.frameLineNumber(frame)
+                            + ":" + stacks.frameBytecodeIndex(frame) + ":" + stacks.frameType(frame));
+                }
+                int thread = events.thread(row);
+                String key = events.timestamp(row) + " " + frames + " " + stacks.threadJavaName(thread)
+                        + "/" + stacks.threadJavaId(thread) + "/" + stacks.threadId(thread);
+                result.merge(key, 1, Integer::sum);
+            }
+        }
+        return result;
+    }
+}
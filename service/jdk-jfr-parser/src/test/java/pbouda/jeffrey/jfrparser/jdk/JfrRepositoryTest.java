@@ -0,0 +1,136 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JfrRepositoryTest {
+
+    /**
+     * Application running with the continuous recording, the repository is preserved after the exit.
+     */
+    public static class Application {
+        public static void main(String[] args) throws InterruptedException {
+            Thread.sleep(200);
+        }
+    }
+
+    @Test
+    public void chunksOfRestartedJvm() throws Exception {
+        Path repository = Files.createTempDirectory("jeffrey-jfr-repository");
+        // The same repository used by two runs of the application (a restart of the JVM)
+        runApplication(repository);
+        runApplication(repository);
+
+        List<Path> jvmDirectories;
+        try (var stream = Files.list(repository)) {
+            jvmDirectories = stream.toList();
+        }
+        assertEquals(2, jvmDirectories.size());
+        for (Path directory : jvmDirectories) {
+            assertTrue(Files.isDirectory(directory), directory.toString());
+        }
+
+        List<JfrRepository.Chunk> chunks = JfrRepository.chunks(repository);
+
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).startNanos() < chunks.get(1).startNanos());
+        for (JfrRepository.Chunk chunk : chunks) {
+            assertTrue(chunk.isComplete(), chunk.file().toString());
+            assertEquals(repository, chunk.file().getParent().getParent());
+        }
+    }
+
+    @Test
+    public void chunksAreOrderedByStartTime() throws IOException {
+        List<Path> recordings = TestRecordings.recordings();
+        Path repository = Files.createTempDirectory("jeffrey-jfr-repository");
+        // The names of the directories and the chunks are in the opposite order than the start times
+        copy(recordings.get(0), repository.resolve("2024_05_01_12_00_00_300/2024_05_01_12_00_00.jfr"));
+        copy(recordings.get(1), repository.resolve("2024_05_01_11_00_00_200/2024_05_01_11_30_00.jfr"));
+        copy(recordings.get(2), repository.resolve("2024_05_01_11_00_00_200/2024_05_01_11_00_00.jfr"));
+
+        List<JfrRepository.Chunk> chunks = JfrRepository.chunks(repository);
+
+        assertEquals(3, chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals(ChunkHeader.read(recordings.get(i)), chunks.get(i).headers());
+        }
+    }
+
+    @Test
+    public void directoryOfSingleJvm() throws IOException {
+        Path jvmDirectory = Files.createTempDirectory("jeffrey-jfr-repository").resolve("2024_05_01_11_00_00_200");
+        copy(TestRecordings.recordings().get(1), jvmDirectory.resolve("2024_05_01_11_00_00.jfr"));
+        copy(TestRecordings.recordings().get(0), jvmDirectory.resolve("2024_05_01_11_30_00.jfr"));
+
+        List<JfrRepository.Chunk> chunks = JfrRepository.chunks(jvmDirectory);
+
+        assertEquals(List.of(
+                        jvmDirectory.resolve("2024_05_01_11_30_00.jfr"),
+                        jvmDirectory.resolve("2024_05_01_11_00_00.jfr")),
+                chunks.stream().map(JfrRepository.Chunk::file).toList());
+    }
+
+    @Test
+    public void chunkWithoutHeaderIsTheNewest() throws IOException {
+        Path repository = Files.createTempDirectory("jeffrey-jfr-repository");
+        Path jvmDirectory = repository.resolve("2024_05_01_11_00_00_200");
+        copy(TestRecordings.recordings().get(0), jvmDirectory.resolve("2024_05_01_11_00_00.jfr"));
+        // The JVM has just created the file of the next chunk
+        Files.write(jvmDirectory.resolve("2024_05_01_11_30_00.jfr"), new byte[0]);
+
+        List<JfrRepository.Chunk> chunks = JfrRepository.chunks(repository);
+
+        assertEquals(2, chunks.size());
+        assertTrue(chunks.get(0).isComplete());
+        assertFalse(chunks.get(1).isComplete());
+        assertEquals(Long.MAX_VALUE, chunks.get(1).startNanos());
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.copy(source, target);
+    }
+
+    private static void runApplication(Path repository) throws Exception {
+        Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-XX:StartFlightRecording",
+                "-XX:FlightRecorderOptions:repository=" + repository + ",preserve-repository=true",
+                "-cp", System.getProperty("java.class.path"),
+                Application.class.getName())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        assertTrue(process.waitFor(1, TimeUnit.MINUTES), "Application has not finished");
+        assertEquals(0, process.exitValue());
+    }
+}
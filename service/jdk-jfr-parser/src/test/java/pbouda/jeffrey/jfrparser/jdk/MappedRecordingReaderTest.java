@@ -0,0 +1,193 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import pbouda.jeffrey.common.FileUtils;
+import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The values decoded from the memory-mapped chunks must be the same as the values provided by {@link RecordingFile}.
+ * <p/>
+ * The expected values are read by {@link RecordingFile} from every chunk separately, the same as the chunks
+ * are read after splitting the recording. {@link RecordingFile} converts the timestamps of the subsequent chunks
+ * of a multi-chunk file slightly differently (tens of nanoseconds) than the same chunk in its own file.
+ */
+class MappedRecordingReaderTest {
+
+    private static final List<Type> HOT_TYPES = List.of(
+            Type.EXECUTION_SAMPLE,
+            Type.OBJECT_ALLOCATION_IN_NEW_TLAB,
+            Type.OBJECT_ALLOCATION_OUTSIDE_TLAB,
+            Type.OBJECT_ALLOCATION_SAMPLE,
+            Type.JAVA_MONITOR_ENTER,
+            Type.JAVA_MONITOR_WAIT,
+            Type.THREAD_PARK);
+
+    @Test
+    public void singleRecording() {
+        Path recording = TestRecordings.recordings().getFirst();
+        assertSameEvents(recording, recording);
+    }
+
+    @Test
+    public void multiChunkRecording() {
+        Path recording = TestRecordings.multiChunkRecording();
+        assertTrue(ChunkHeader.read(recording).size() >= TestRecordings.recordings().size());
+        assertSameEvents(recording, recording);
+    }
+
+    @Test
+    public void viewWithOffset() throws IOException {
+        List<Path> recordings = TestRecordings.recordings();
+        Path multiChunk = TestRecordings.multiChunkRecording();
+
+        // The view skips the chunks of the first recording and ends before the end of the file
+        long offset = Files.size(recordings.get(0));
+        long length = Files.size(recordings.get(1));
+        Path view = TestRecordings.directory().resolve("view" + FileUtils.JFR_VIEW_EXTENSION);
+        new RecordingView(multiChunk, offset, length).write(view);
+        view.toFile().deleteOnExit();
+
+        assertSameEvents(view, recordings.get(1));
+    }
+
+    @Test
+    public void singleEventType() {
+        Path recording = TestRecordings.multiChunkRecording();
+        for (Type type : HOT_TYPES) {
+            assertEquals(readChunksSeparately(recording, List.of(type)), readMapped(recording, List.of(type)));
+        }
+    }
+
+    private static void assertSameEvents(Path mapped, Path expected) {
+        List<String> expectedEvents = readChunksSeparately(expected, HOT_TYPES);
+        List<String> actualEvents = readMapped(mapped, HOT_TYPES);
+
+        // Every hot type is present, otherwise the comparison would not test its decoding
+        for (Type type : List.of(Type.EXECUTION_SAMPLE, Type.OBJECT_ALLOCATION_SAMPLE, Type.THREAD_PARK)) {
+            assertTrue(expectedEvents.stream().anyMatch(event -> event.startsWith(type.code() + "|")));
+        }
+        assertEquals(expectedEvents, actualEvents);
+    }
+
+    private static List<String> readMapped(Path recording, List<Type> types) {
+        CollectingProcessor processor = new CollectingProcessor(types);
+        assertTrue(MappedRecordingReader.isSupported(processor.processableEvents()));
+        assertTrue(MappedRecordingReader.read(RecordingView.of(recording), processor));
+        return processor.get();
+    }
+
+    private static List<String> readChunksSeparately(Path recording, List<Type> types) {
+        List<String> events = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(recording, StandardOpenOption.READ)) {
+            for (ChunkHeader chunk : ChunkHeader.read(recording)) {
+                Path chunkFile = Files.createTempFile(TestRecordings.directory(), "chunk", FileUtils.JFR_EXTENSION);
+                try (FileChannel target = FileChannel.open(chunkFile, StandardOpenOption.WRITE)) {
+                    channel.transferTo(chunk.offset(), chunk.size(), target);
+                }
+                events.addAll(readRecordingFile(chunkFile, types));
+                Files.delete(chunkFile);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return events;
+    }
+
+    private static List<String> readRecordingFile(Path recording, List<Type> types) {
+        List<String> events = new ArrayList<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                Type type = types.stream()
+                        .filter(t -> t.code().equals(event.getEventType().getName()))
+                        .findFirst()
+                        .orElse(null);
+
+                if (type != null) {
+                    ToLongFunction<RecordedEvent> weightExtractor = type.weightExtractor();
+                    events.add(event(
+                            type,
+                            EventIndex.toEpochNanos(event.getStartTime()),
+                            weightExtractor == null ? 1 : weightExtractor.applyAsLong(event),
+                            event.getStackTrace() != null,
+                            threadOf(event) != null));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return events;
+    }
+
+    private static Object threadOf(RecordedEvent event) {
+        return event.hasField("sampledThread") ? event.getThread("sampledThread") : event.getThread();
+    }
+
+    private static String event(Type type, long startTime, long weight, boolean stackTrace, boolean thread) {
+        return type.code() + "|" + startTime + "|" + weight + "|" + stackTrace + "|" + thread;
+    }
+
+    private static class CollectingProcessor implements PrimitiveEventProcessor<List<String>> {
+
+        private final List<Type> types;
+        private final List<String> events = new ArrayList<>();
+
+        private CollectingProcessor(List<Type> types) {
+            this.types = types;
+        }
+
+        @Override
+        public ProcessableEvents processableEvents() {
+            return new ProcessableEvents(types);
+        }
+
+        @Override
+        public Result onEvent(Type eventType, long startTime, long weight, long stackTraceId, long threadId) {
+            events.add(event(eventType, startTime, weight, stackTraceId != 0, threadId != 0));
+            return Result.CONTINUE;
+        }
+
+        @Override
+        public Result onEvent(RecordedEvent event) {
+            throw new UnsupportedOperationException("Events are supposed to be read from the mapped chunks");
+        }
+
+        @Override
+        public List<String> get() {
+            return events;
+        }
+    }
+}
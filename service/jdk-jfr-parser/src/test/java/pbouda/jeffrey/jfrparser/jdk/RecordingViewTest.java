@@ -0,0 +1,146 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.jupiter.api.Test;
+import pbouda.jeffrey.common.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecordingViewTest {
+
+    @Test
+    public void wholeFileOfRegularRecordingIsTheRecording() throws IOException {
+        Path recording = TestRecordings.recordings().getFirst();
+        try (DecompressedRecordingCache.Lease lease = newCache().acquire(recording)) {
+            assertEquals(recording, lease.wholeFile());
+        }
+    }
+
+    @Test
+    public void rangeOfViewIsCopiedOnlyOnce() throws IOException {
+        DecompressedRecordingCache cache = newCache();
+        Path descriptor = secondRecordingDescriptor("copied");
+
+        Path copy;
+        long modified;
+        try (DecompressedRecordingCache.Lease lease = cache.acquire(descriptor)) {
+            copy = lease.wholeFile();
+            modified = Files.getLastModifiedTime(copy).toMillis();
+            assertNotEquals(lease.view().file(), copy);
+            assertArrayEquals(Files.readAllBytes(TestRecordings.recordings().get(1)), Files.readAllBytes(copy));
+        }
+
+        try (DecompressedRecordingCache.Lease lease = cache.acquire(descriptor)) {
+            assertEquals(copy, lease.wholeFile());
+            assertEquals(modified, Files.getLastModifiedTime(copy).toMillis());
+        }
+    }
+
+    @Test
+    public void viewLongerThanRecordingIsNotCopied() throws IOException {
+        Path directory = Files.createTempDirectory("jeffrey-test-cache");
+        DecompressedRecordingCache cache = new DecompressedRecordingCache(directory, Long.MAX_VALUE);
+
+        Path recording = TestRecordings.recordings().getFirst();
+        Path descriptor = TestRecordings.directory().resolve("longer" + FileUtils.JFR_VIEW_EXTENSION);
+        new RecordingView(recording, 0, Files.size(recording) + 1).write(descriptor);
+        descriptor.toFile().deleteOnExit();
+
+        try (DecompressedRecordingCache.Lease lease = cache.acquire(descriptor)) {
+            assertThrows(RuntimeException.class, lease::wholeFile);
+        }
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void iteratesViewUsingRecordingFile() throws IOException {
+        DecompressedRecordingCache cache = newCache();
+        Path descriptor = secondRecordingDescriptor("iterated");
+
+        List<String> expected = readAllEvents(TestRecordings.recordings().get(1), cache);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, readAllEvents(descriptor, cache));
+        // the second read uses the cached copy of the range
+        assertEquals(expected, readAllEvents(descriptor, cache));
+    }
+
+    @Test
+    public void compressedRecordingIsNotResolvedWithoutCache() throws IOException {
+        Path compressed = TestRecordings.compressed(TestRecordings.recordings().getFirst());
+        assertThrows(RuntimeException.class, () -> RecordingView.of(compressed));
+    }
+
+    private static DecompressedRecordingCache newCache() throws IOException {
+        return new DecompressedRecordingCache(Files.createTempDirectory("jeffrey-test-cache"), Long.MAX_VALUE);
+    }
+
+    private static Path secondRecordingDescriptor(String name) throws IOException {
+        Path descriptor = TestRecordings.directory().resolve(name + FileUtils.JFR_VIEW_EXTENSION);
+        secondRecordingView().write(descriptor);
+        descriptor.toFile().deleteOnExit();
+        return descriptor;
+    }
+
+    private static RecordingView secondRecordingView() throws IOException {
+        List<Path> recordings = TestRecordings.recordings();
+        return new RecordingView(
+                TestRecordings.multiChunkRecording(),
+                Files.size(recordings.get(0)),
+                Files.size(recordings.get(1)));
+    }
+
+    static List<String> readAllEvents(Path recording, DecompressedRecordingCache cache) {
+        return RecordingIterators.singleAndCollectIdentical(recording, new AllEventsProcessor(), cache);
+    }
+
+    private static class AllEventsProcessor implements EventProcessor<List<String>> {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public ProcessableEvents processableEvents() {
+            return ProcessableEvents.all();
+        }
+
+        @Override
+        public Result onEvent(RecordedEvent event) {
+            events.add(event.getEventType().getName() + "|" + event.getStartTime());
+            return Result.CONTINUE;
+        }
+
+        @Override
+        public List<String> get() {
+            return events;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk;
+
+import jdk.jfr.Recording;
+import pbouda.jeffrey.common.CompressionUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Real recordings of the current JVM containing the hot event types (execution samples, allocations,
+ * parking and monitor events), the recordings are created only once for all tests.
+ */
+abstract class TestRecordings {
+
+    private static final int RECORDINGS = 3;
+
+    private static Path directory;
+    private static List<Path> recordings;
+
+    /**
+     * @return separate recordings, every one of them contains at least one chunk.
+     */
+    static synchronized List<Path> recordings() {
+        if (recordings == null) {
+            try {
+                directory = Files.createTempDirectory("jeffrey-test-recordings");
+                directory.toFile().deleteOnExit();
+                List<Path> created = new ArrayList<>();
+                for (int i = 0; i < RECORDINGS; i++) {
+                    created.add(record(directory.resolve("recording-" + i + ".jfr")));
+                }
+                recordings = created;
+            } catch (Exception e) {
+                throw new RuntimeException("Cannot create the test recordings", e);
+            }
+        }
+        return recordings;
+    }
+
+    /**
+     * @return a single file with the chunks of all recordings one after another.
+     */
+    static synchronized Path multiChunkRecording() {
+        Path target = directory().resolve("multi-chunk.jfr");
+        if (!Files.exists(target)) {
+            concat(recordings(), target);
+        }
+        return target;
+    }
+
+    static Path directory() {
+        recordings();
+        return directory;
+    }
+
+    static void concat(List<Path> sources, Path target) {
+        try (OutputStream output = Files.newOutputStream(target)) {
+            for (Path source : sources) {
+                Files.copy(source, output);
+            }
+            target.toFile().deleteOnExit();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot concatenate the recordings: " + target, e);
+        }
+    }
+
+    /**
+     * @return gzip-compressed copy of the recording next to the recording.
+     */
+    static synchronized Path compressed(Path recording) {
+        Path target = recording.resolveSibling(recording.getFileName() + ".gz");
+        if (!Files.exists(target)) {
+            try (OutputStream output = CompressionUtils.compressingGzip(Files.newOutputStream(target))) {
+                Files.copy(recording, output);
+                target.toFile().deleteOnExit();
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot compress the recording: " + target, e);
+            }
+        }
+        return target;
+    }
+
+    private static Path record(Path target) throws Exception {
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(1));
+            recording.enable("jdk.ObjectAllocationSample").with("throttle", "1000/ms");
+            recording.enable("jdk.ObjectAllocationInNewTLAB");
+            recording.enable("jdk.ObjectAllocationOutsideTLAB");
+            recording.enable("jdk.ThreadPark").withThreshold(Duration.ZERO);
+            recording.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ZERO);
+            recording.enable("jdk.JavaMonitorWait").withThreshold(Duration.ZERO);
+            recording.start();
+            workload();
+            recording.stop();
+            recording.dump(target);
+        }
+        target.toFile().deleteOnExit();
+        return target;
+    }
+
+    private static volatile Object sink;
+
+    private static void workload() throws InterruptedException {
+        Object lock = new Object();
+        Thread contender = new Thread(() -> {
+            for (int i = 0; i < 20; i++) {
+                synchronized (lock) {
+                    LockSupport.parkNanos(500_000);
+                }
+            }
+        }, "test-contender");
+        contender.start();
+
+        long end = System.nanoTime() + Duration.ofMillis(300).toNanos();
+        int iteration = 0;
+        while (System.nanoTime() < end) {
+            sink = new long[64 + (iteration % 512)];
+            if (iteration % 1000 == 0) {
+                sink = new byte[4 * 1024 * 1024];
+                LockSupport.parkNanos(100_000);
+                synchronized (lock) {
+                    lock.wait(1);
+                }
+            }
+            iteration++;
+        }
+        contender.join();
+    }
+}
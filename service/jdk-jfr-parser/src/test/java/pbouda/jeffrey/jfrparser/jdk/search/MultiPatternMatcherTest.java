@@ -0,0 +1,161 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.jfrparser.jdk.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MultiPatternMatcherTest {
+
+    @Test
+    public void overlappingLiterals() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("he", "she", "his", "hers"));
+
+        assertEquals(0b1011, matcher.match("ushers"));
+        assertEquals(0b0011, matcher.match("she"));
+        assertEquals(0b0001, matcher.match("ahead"));
+        assertEquals(0b0100, matcher.match("this"));
+        assertEquals(0b1111, matcher.match("his ushers"));
+        assertEquals(0, matcher.match("hs"));
+        assertEquals(0, matcher.match(""));
+    }
+
+    @Test
+    public void patternIsSuffixOfAnother() {
+        // "abc" fails over to the "bc" state, the output of "c" comes from the failure links
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("abcd", "bc", "c"));
+
+        assertEquals(0b110, matcher.match("abce"));
+        assertEquals(0b111, matcher.match("xabcd"));
+        assertEquals(0b100, matcher.match("ac"));
+    }
+
+    @Test
+    public void emptyPatternMatchesEverything() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("", "Thread.run"));
+
+        assertEquals(0b01, matcher.match(""));
+        assertEquals(0b01, matcher.match("java.lang.Object.wait"));
+        assertEquals(0b11, matcher.match("java.lang.Thread.run"));
+    }
+
+    @Test
+    public void onlyEmptyPattern() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of(""));
+
+        assertEquals(1, matcher.match(""));
+        assertEquals(1, matcher.match("anything"));
+        assertEquals(1, matcher.allPatterns());
+    }
+
+    @Test
+    public void maximumNumberOfPatterns() {
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < MultiPatternMatcher.MAX_PATTERNS; i++) {
+            patterns.add("frame" + i + ";");
+        }
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(patterns);
+
+        assertEquals(-1L, matcher.allPatterns());
+        assertEquals(MultiPatternMatcher.MAX_PATTERNS, matcher.size());
+        assertEquals(1L << 63, matcher.match("frame63;"));
+        assertEquals(1L | (1L << 10), matcher.match("frame0;frame10;"));
+        assertEquals(-1L, matcher.match(String.join("", patterns)));
+    }
+
+    @Test
+    public void allPatternsOfSmallerMatcher() {
+        assertEquals(0b111, MultiPatternMatcher.compile(List.of("a", "b", "c")).allPatterns());
+        assertEquals(Long.MAX_VALUE, MultiPatternMatcher.compile(Collections.nCopies(63, "a")).allPatterns());
+    }
+
+    @Test
+    public void invalidNumberOfPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> MultiPatternMatcher.compile(List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> MultiPatternMatcher.compile(Collections.nCopies(MultiPatternMatcher.MAX_PATTERNS + 1, "a")));
+    }
+
+    @Test
+    public void literalsAndRegexes() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(
+                List.of("HashMap", "Hash(Map|Set)\\.get", "Set", "^java\\.util", "get"));
+
+        assertEquals(0b11110, matcher.match("java.util.HashSet.get"));
+        assertEquals(0b11111, matcher.match("java.util.HashMap.getSet"));
+        assertEquals(0b10011, matcher.match("com.example.HashMap.get"));
+        assertEquals(0b01000, matcher.match("java.util.ArrayList.add"));
+        assertEquals(0b00100, matcher.match("SetFromMap"));
+        assertEquals(0, matcher.match("java.lang.String.length"));
+        assertEquals("Hash(Map|Set)\\.get", matcher.pattern(1));
+    }
+
+    @Test
+    public void dotIsRegex() {
+        // "a.b" is a regex, the dot matches any character
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("a.b", "a_b"));
+
+        assertEquals(0b11, matcher.match("xa_bx"));
+        assertEquals(0b01, matcher.match("a.b"));
+    }
+
+    @Test
+    public void sameResultAsRegexes() {
+        Random random = new Random(7);
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            patterns.add(randomText(random, 1 + random.nextInt(4)));
+        }
+        patterns.add("a+b");
+        patterns.add("[cd]{2}");
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(patterns);
+
+        List<Pattern> regexes = new ArrayList<>();
+        for (String pattern : patterns) {
+            regexes.add(Pattern.compile(".*" + pattern + ".*"));
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            String text = randomText(random, random.nextInt(30));
+            long expected = 0;
+            for (int p = 0; p < regexes.size(); p++) {
+                if (regexes.get(p).matcher(text).matches()) {
+                    expected |= 1L << p;
+                }
+            }
+            assertEquals(expected, matcher.match(text), text);
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(4)));
+        }
+        return text.toString();
+    }
+}
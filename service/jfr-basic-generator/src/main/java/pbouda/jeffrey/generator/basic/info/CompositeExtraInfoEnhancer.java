@@ -21,6 +21,7 @@ package pbouda.jeffrey.generator.basic.info;
 import jdk.jfr.EventType;
 import pbouda.jeffrey.generator.basic.ProfileSettingsProcessor;
 import pbouda.jeffrey.generator.basic.event.EventSummary;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
 
 import java.nio.file.Path;
@@ -30,19 +31,23 @@ public class CompositeExtraInfoEnhancer implements ExtraInfoEnhancer {
 
     private List<ExtraInfoEnhancer> enhancers;
 
-    public void initialize(List<Path> recordings) {
+    public void initialize(List<Path> recordings, DecompressedRecordingCache recordingCache) {
         if (!recordings.isEmpty()) {
             ExtraInfo settings = RecordingIterators.automaticAndCollect(
-                    recordings, ProfileSettingsProcessor::new, new ExtraInfoCollector());
+                    recordings, ProfileSettingsProcessor::new, new ExtraInfoCollector(), recordingCache);
 
-            this.enhancers = List.of(
-                    new ExecutionSamplesExtraInfo(settings),
-                    new AllocationSamplesExtraInfo(settings),
-                    new BlockingExtraInfo(settings)
-            );
+            initialize(settings);
         }
     }
 
+    public void initialize(ExtraInfo settings) {
+        this.enhancers = List.of(
+                new ExecutionSamplesExtraInfo(settings),
+                new AllocationSamplesExtraInfo(settings),
+                new BlockingExtraInfo(settings)
+        );
+    }
+
     @Override
     public boolean isApplicable(EventType eventType) {
         return true;
@@ -19,11 +19,15 @@
 package pbouda.jeffrey.generator.basic.info;
 
 import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.generator.basic.ProfileSettingsProcessor;
 import pbouda.jeffrey.generator.basic.event.AllEventsCollector;
 import pbouda.jeffrey.generator.basic.event.AllEventsProcessor;
 import pbouda.jeffrey.generator.basic.event.EventSummary;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
+import pbouda.jeffrey.jfrparser.jdk.FanOutRecordingIterator;
 import pbouda.jeffrey.jfrparser.jdk.ProcessableEvents;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexWriter;
 
 import java.nio.file.Path;
 import java.util.List;
@@ -32,39 +36,89 @@ import java.util.function.Supplier;
 public class EventInformationProvider implements Supplier<List<EventSummary>> {
 
     private final List<Path> recordings;
+    private final DecompressedRecordingCache recordingCache;
     private final CompositeExtraInfoEnhancer extraInfoEnhancer = new CompositeExtraInfoEnhancer();
     private final ProcessableEvents processableEvents;
     private final boolean enhanceEventTypeInfo;
+    private final EventIndexWriter eventIndexWriter;
 
-    public EventInformationProvider(List<Path> recordings) {
-        this(recordings, ProcessableEvents.all(), true);
+    public EventInformationProvider(List<Path> recordings, DecompressedRecordingCache recordingCache) {
+        this(recordings, recordingCache, ProcessableEvents.all(), true);
     }
 
-    public EventInformationProvider(List<Path> recordings, boolean enhanceEventTypeInfo) {
-        this(recordings, ProcessableEvents.all(), enhanceEventTypeInfo);
+    /**
+     * @param recordings       recordings of the profile.
+     * @param recordingCache   local uncompressed copies of the compressed recordings and the views.
+     * @param eventIndexWriter writer of the index of events, the index is collected in the same pass over
+     *                         the recordings and written after the event summaries are collected.
+     */
+    public EventInformationProvider(
+            List<Path> recordings, DecompressedRecordingCache recordingCache, EventIndexWriter eventIndexWriter) {
+
+        this(recordings, recordingCache, ProcessableEvents.all(), true, eventIndexWriter);
     }
 
-    public EventInformationProvider(List<Path> recordings, List<Type> supportedEvents) {
-        this(recordings, new ProcessableEvents(supportedEvents), true);
+    public EventInformationProvider(
+            List<Path> recordings, DecompressedRecordingCache recordingCache, boolean enhanceEventTypeInfo) {
+
+        this(recordings, recordingCache, ProcessableEvents.all(), enhanceEventTypeInfo);
     }
 
     public EventInformationProvider(
-            List<Path> recordings, ProcessableEvents processableEvents, boolean enhanceEventTypeInfo) {
+            List<Path> recordings, DecompressedRecordingCache recordingCache, List<Type> supportedEvents) {
+
+        this(recordings, recordingCache, new ProcessableEvents(supportedEvents), true);
+    }
+
+    public EventInformationProvider(
+            List<Path> recordings,
+            DecompressedRecordingCache recordingCache,
+            ProcessableEvents processableEvents,
+            boolean enhanceEventTypeInfo) {
+
+        this(recordings, recordingCache, processableEvents, enhanceEventTypeInfo, null);
+    }
+
+    private EventInformationProvider(
+            List<Path> recordings,
+            DecompressedRecordingCache recordingCache,
+            ProcessableEvents processableEvents,
+            boolean enhanceEventTypeInfo,
+            EventIndexWriter eventIndexWriter) {
 
         this.recordings = recordings;
+        this.recordingCache = recordingCache;
         this.processableEvents = processableEvents;
         this.enhanceEventTypeInfo = enhanceEventTypeInfo;
+        this.eventIndexWriter = eventIndexWriter;
     }
 
     @Override
     public List<EventSummary> get() {
-        List<EventSummary> eventSummaries = RecordingIterators.automaticAndCollect(
-                recordings,
+        // Event summaries, profile's settings and the index of events are collected in a single pass over the recordings
+        FanOutRecordingIterator iterator = RecordingIterators.fanOut(recordings, recordingCache);
+
+        Supplier<List<EventSummary>> eventSummariesResult = iterator.register(
                 () -> new AllEventsProcessor(processableEvents),
                 new AllEventsCollector());
 
+        Supplier<ExtraInfo> settingsResult = enhanceEventTypeInfo
+                ? iterator.register(ProfileSettingsProcessor::new, new ExtraInfoCollector())
+                : null;
+
+        if (eventIndexWriter != null) {
+            eventIndexWriter.register(iterator);
+        }
+
+        iterator.iterate();
+
+        if (eventIndexWriter != null) {
+            eventIndexWriter.write();
+        }
+
+        List<EventSummary> eventSummaries = eventSummariesResult.get();
         if (enhanceEventTypeInfo) {
-            this.extraInfoEnhancer.initialize(recordings);
+            this.extraInfoEnhancer.initialize(settingsResult.get());
             return eventSummaries.stream()
                     .map(extraInfoEnhancer)
                     .toList();
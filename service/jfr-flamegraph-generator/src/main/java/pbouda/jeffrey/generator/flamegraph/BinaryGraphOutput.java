@@ -0,0 +1,80 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.flamegraph;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Graph that can be written in the compact binary format in addition to JSON. The binary format is
+ * described in {@link FlameGraphBinaryWriter}.
+ */
+public interface BinaryGraphOutput extends GraphOutput {
+
+    /**
+     * Media type of the binary format, the version of the format is part of the payload.
+     */
+    String MEDIA_TYPE = "application/x-jeffrey-flamegraph";
+
+    /**
+     * Writes the graph in the binary format. The output is not closed after writing the graph.
+     *
+     * @param output target output.
+     */
+    void writeBinaryTo(OutputStream output);
+
+    default byte[] toBinaryByteArray() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeBinaryTo(output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Wraps the graph already written in the binary format (e.g. the cached graph), the JSON format is
+     * transcoded from the binary format on demand.
+     *
+     * @param content graph in the binary format.
+     * @return output writing the provided graph in both formats.
+     */
+    static BinaryGraphOutput of(byte[] content) {
+        return new BinaryGraphOutput() {
+            @Override
+            public void write(JsonGenerator generator) throws IOException {
+                new FlameGraphBinaryReader(content).transcode(generator);
+            }
+
+            @Override
+            public void writeBinaryTo(OutputStream output) {
+                try {
+                    output.write(content);
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot write the graph in the binary format", e);
+                }
+            }
+
+            @Override
+            public byte[] toBinaryByteArray() {
+                return content;
+            }
+        };
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.flamegraph;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the flamegraph written by {@link FlameGraphBinaryWriter} and writes the same JSON as
+ * {@link FlameGraphBuilder} (e.g. the cached graph is requested in the JSON format). The levels are
+ * transcoded one by one, the whole graph is never decoded into objects.
+ */
+class FlameGraphBinaryReader {
+
+    private static final byte[] MAGIC = {'J', 'F', 'G', 'B'};
+    private static final int VERSION = 2;
+
+    private final ByteBuffer input;
+    private final List<String> strings = new ArrayList<>();
+    private final List<String[]> frameTypes = new ArrayList<>();
+
+    FlameGraphBinaryReader(byte[] content) {
+        this.input = ByteBuffer.wrap(content);
+    }
+
+    void transcode(JsonGenerator generator) throws IOException {
+        for (byte expected : MAGIC) {
+            if (input.get() != expected) {
+                throw new IllegalArgumentException("Invalid magic of the binary flamegraph");
+            }
+        }
+        int version = input.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported version of the binary flamegraph: " + version);
+        }
+
+        int depth = (int) readVarLong();
+        generator.writeStartObject();
+        generator.writeNumberField("depth", depth);
+        generator.writeArrayFieldStart("levels");
+        for (int level = 0; level < depth; level++) {
+            transcodeLevel(generator);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void transcodeLevel(JsonGenerator generator) throws IOException {
+        int size = (int) readVarLong();
+        long[] ids = readColumn(size);
+        long[] leftSamples = readDeltaColumn(size);
+        long[] leftWeights = readDeltaColumn(size);
+        long[] totalSamples = readColumn(size);
+        long[] totalWeights = readColumn(size);
+        long[] selfSamples = readColumn(size);
+        long[] selfWeights = readColumn(size);
+        String[][] types = new String[size][];
+        for (int i = 0; i < size; i++) {
+            types[i] = readFrameType();
+        }
+        String[] titles = readStringColumn(size);
+        String[] colors = readStringColumn(size);
+        long[] bcis = readZigZagColumn(size);
+        long[] lines = readZigZagColumn(size);
+        long[] inlined = readColumn(size);
+        long[] c1 = readColumn(size);
+        long[] interpreted = readColumn(size);
+        long[] jit = readColumn(size);
+
+        generator.writeStartArray();
+        for (int i = 0; i < size; i++) {
+            generator.writeStartObject();
+            generator.writeNumberField("id", ids[i]);
+            generator.writeNumberField("leftSamples", leftSamples[i]);
+            generator.writeNumberField("leftWeight", leftWeights[i]);
+            generator.writeNumberField("totalWeight", totalWeights[i]);
+            generator.writeNumberField("totalSamples", totalSamples[i]);
+            generator.writeNumberField("selfWeight", selfWeights[i]);
+            generator.writeNumberField("selfSamples", selfSamples[i]);
+            generator.writeStringField("type", types[i][0]);
+            generator.writeStringField("typeTitle", types[i][1]);
+            generator.writeStringField("colorSamples", colors[i]);
+            generator.writeStringField("colorWeight", colors[i]);
+            generator.writeStringField("title", titles[i]);
+
+            generator.writeFieldName("sampleTypes");
+            writeSampleTypes(generator, inlined[i], c1[i], interpreted[i], jit[i]);
+            generator.writeFieldName("position");
+            writePosition(generator, bcis[i], lines[i]);
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writePosition(JsonGenerator generator, long bci, long line) throws IOException {
+        if (bci == 0) {
+            generator.writeNull();
+            return;
+        }
+
+        generator.writeStartObject();
+        if (bci > 0) {
+            generator.writeNumberField("bci", (int) bci);
+        }
+        if (line > 0) {
+            generator.writeNumberField("line", (int) line);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeSampleTypes(
+            JsonGenerator generator, long inlined, long c1, long interpreted, long jit) throws IOException {
+
+        if (inlined == 0 && c1 == 0 && jit == 0 && interpreted == 0) {
+            generator.writeNull();
+            return;
+        }
+
+        generator.writeStartObject();
+        if (inlined > 0) {
+            generator.writeNumberField("inlined", inlined);
+        }
+        if (c1 > 0) {
+            generator.writeNumberField("c1", c1);
+        }
+        if (interpreted > 0) {
+            generator.writeNumberField("interpret", interpreted);
+        }
+        if (jit > 0) {
+            generator.writeNumberField("jit", jit);
+        }
+        generator.writeEndObject();
+    }
+
+    private long[] readColumn(int size) {
+        long[] column = new long[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = readVarLong();
+        }
+        return column;
+    }
+
+    private long[] readDeltaColumn(int size) {
+        long[] column = new long[size];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += readVarLong();
+            column[i] = previous;
+        }
+        return column;
+    }
+
+    private long[] readZigZagColumn(int size) {
+        long[] column = new long[size];
+        for (int i = 0; i < size; i++) {
+            long value = readVarLong();
+            column[i] = (value >>> 1) ^ -(value & 1);
+        }
+        return column;
+    }
+
+    private String[] readStringColumn(int size) {
+        String[] column = new String[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = readString();
+        }
+        return column;
+    }
+
+    private String[] readFrameType() {
+        int reference = (int) readVarLong();
+        if (reference == frameTypes.size()) {
+            frameTypes.add(new String[]{readString(), readString()});
+        }
+        return frameTypes.get(reference);
+    }
+
+    private String readString() {
+        int reference = (int) readVarLong();
+        if (reference == strings.size()) {
+            byte[] bytes = new byte[(int) readVarLong()];
+            input.get(bytes);
+            strings.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return strings.get(reference);
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = input.get();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+}
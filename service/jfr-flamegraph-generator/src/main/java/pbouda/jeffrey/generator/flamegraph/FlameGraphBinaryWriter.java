@@ -0,0 +1,181 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.flamegraph;
+
+import pbouda.jeffrey.frameir.FrameTree;
+import pbouda.jeffrey.frameir.FrameType;
+import pbouda.jeffrey.generator.flamegraph.diff.StringUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the flamegraph in the compact binary format (version 2). All numbers are unsigned LEB128 varints,
+ * numbers that can be negative are zigzag-encoded first. Strings and frame types are written as references into
+ * tables that are built on the fly: a reference equal to the current size of the table is followed by the new
+ * entry that is appended to the table (string: varint length + UTF-8 bytes, frame type: name and title strings).
+ *
+ * <pre>
+ * header: 'J' 'F' 'G' 'B', version (1 byte), depth (number of levels)
+ * level:  count of frames, followed by the columns (one value per frame of the level):
+ *         id (stable ID of the frame), leftSamples and leftWeight (delta to the previous frame of the level),
+ *         totalSamples, totalWeight, selfSamples, selfWeight,
+ *         type (frame type), title (string), color (string),
+ *         bci (zigzag), line (zigzag), inlined, c1, interpreted, jit (samples by the compilation type)
+ * </pre>
+ * <p>
+ * The decoder ({@code FlamegraphDecoder.js}) produces the same frames as the JSON format, including the {@code null}
+ * values for missing positions and sample types.
+ */
+class FlameGraphBinaryWriter {
+
+    private static final byte[] MAGIC = {'J', 'F', 'G', 'B'};
+    private static final int VERSION = 2;
+
+    private final OutputStream output;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final int[] frameTypes = new int[FrameType.values().length];
+    private int frameTypeCount;
+
+    FlameGraphBinaryWriter(OutputStream output) {
+        this.output = new BufferedOutputStream(output, 64 * 1024);
+        Arrays.fill(frameTypes, -1);
+    }
+
+    void writeHeader(int depth) throws IOException {
+        output.write(MAGIC);
+        output.write(VERSION);
+        writeVarLong(depth);
+    }
+
+    /**
+     * Writes all the frames of the level column by column.
+     *
+     * @param tree      tree containing the frames.
+     * @param frames    frames of the level ordered from left to right.
+     * @param rootTitle title of the root frame, {@code null} for all levels except the first one.
+     */
+    void writeLevel(FrameTree tree, FlameGraphLevel frames, String rootTitle) throws IOException {
+        int size = frames.size();
+        writeVarLong(size);
+
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.id(i));
+        }
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.leftSamples(i) - previous);
+            previous = frames.leftSamples(i);
+        }
+        previous = 0;
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.leftWeight(i) - previous);
+            previous = frames.leftWeight(i);
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.totalSamples(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.totalWeight(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.selfSamples(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.selfWeight(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeFrameType(frames.frameType(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            String title = rootTitle != null ? rootTitle : frames.title(tree, i);
+            writeString(StringUtils.escape(title));
+        }
+        for (int i = 0; i < size; i++) {
+            writeString(frames.color(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeZigZag(frames.bci(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeZigZag(frames.lineNumber(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.inlinedSamples(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.c1Samples(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.interpretedSamples(tree, i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarLong(frames.jitCompiledSamples(tree, i));
+        }
+    }
+
+    void flush() throws IOException {
+        output.flush();
+    }
+
+    private void writeFrameType(FrameType frameType) throws IOException {
+        int reference = frameTypes[frameType.ordinal()];
+        if (reference >= 0) {
+            writeVarLong(reference);
+        } else {
+            int newReference = frameTypeCount++;
+            frameTypes[frameType.ordinal()] = newReference;
+            writeVarLong(newReference);
+            writeString(frameType.toString());
+            writeString(frameType.title());
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        Integer reference = strings.get(value);
+        if (reference != null) {
+            writeVarLong(reference);
+        } else {
+            int newReference = strings.size();
+            strings.put(value, newReference);
+            writeVarLong(newReference);
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private void writeZigZag(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+}
@@ -18,22 +18,40 @@
 
 package pbouda.jeffrey.generator.flamegraph;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import pbouda.jeffrey.common.Json;
+import com.fasterxml.jackson.core.JsonGenerator;
 import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.FrameTree;
+import pbouda.jeffrey.frameir.FrameType;
 import pbouda.jeffrey.generator.flamegraph.diff.StringUtils;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.function.Function;
 
-public class FlameGraphBuilder implements GraphBuilder<Frame, ObjectNode> {
+/**
+ * Streams the flamegraph level by level directly into {@link JsonGenerator} or into the binary format
+ * ({@link FlameGraphBinaryWriter}). Only the frames of two adjacent levels are kept in memory (as primitive arrays),
+ * the frames are never materialized as JSON objects.
+ * <p>
+ * The builder can emit only a level of detail of the tree: the siblings having a lower fraction of samples than
+ * {@code minFrameRatio} (of the emitted root) are collapsed into a single synthetic frame, and only the subtree of
+ * the frame with the given ID can be emitted. Every frame has an ID derived from the IDs of its parents and its
+ * method name, the frame keeps the same ID in the whole graph and in all its subtrees.
+ */
+public class FlameGraphBuilder implements GraphBuilder<Frame, GraphOutput> {
 
     private static final double MAX_LEVEL = 1000;
 
+    private static final long ROOT_ID = 0;
+    private static final String COLLAPSED_ID_KEY = "<collapsed>";
+    // IDs are sent to the browser as JSON numbers, keep them exact in JavaScript
+    private static final long MAX_SAFE_ID = (1L << 53) - 1;
+
     private final boolean withWeight;
     private final Function<Long, String> weightFormatter;
+    private final double minFrameRatio;
+    private final Long subtreeId;
 
     public FlameGraphBuilder() {
         this(null);
@@ -44,95 +62,313 @@ public class FlameGraphBuilder implements GraphBuilder<Frame, ObjectNode> {
     }
 
     public FlameGraphBuilder(boolean withWeight, Function<Long, String> weightFormatter) {
+        this(withWeight, weightFormatter, 0, null);
+    }
+
+    public FlameGraphBuilder(Function<Long, String> weightFormatter, double minFrameRatio, Long subtreeId) {
+        this(weightFormatter != null, weightFormatter, minFrameRatio, subtreeId);
+    }
+
+    /**
+     * @param withWeight      whether the root title contains the formatted weight.
+     * @param weightFormatter formatter of the weight in the root title.
+     * @param minFrameRatio   minimum fraction of the samples of the emitted root, zero emits all the frames.
+     * @param subtreeId       ID of the frame to emit as a root, {@code null} emits the whole tree.
+     */
+    public FlameGraphBuilder(
+            boolean withWeight,
+            Function<Long, String> weightFormatter,
+            double minFrameRatio,
+            Long subtreeId) {
+
         this.withWeight = withWeight;
         this.weightFormatter = weightFormatter;
+        this.minFrameRatio = minFrameRatio;
+        this.subtreeId = subtreeId;
+    }
+
+    public BinaryGraphOutput build(Frame root) {
+        FrameTree tree = root.tree();
+        FlameGraphLevel start = resolveStart(tree, root.index());
+        return new BinaryGraphOutput() {
+            @Override
+            public void write(JsonGenerator generator) throws IOException {
+                writeJson(generator, tree, start);
+            }
+
+            @Override
+            public void writeBinaryTo(OutputStream output) {
+                try {
+                    writeBinary(output, tree, start);
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot write the graph in the binary format", e);
+                }
+            }
+        };
+    }
+
+    private void writeJson(JsonGenerator generator, FrameTree tree, FlameGraphLevel start) throws IOException {
+        String rootTitle = rootTitle(tree, start.node(0));
+        long minSamples = minSamples(tree, start.node(0));
+        int depth = depth(tree, start.node(0), minSamples);
+        generator.writeStartObject();
+        generator.writeNumberField("depth", depth);
+        generator.writeArrayFieldStart("levels");
+
+        forEachLevel(tree, start, depth, minSamples, (level, frames) -> {
+            generator.writeStartArray();
+            for (int i = 0; i < frames.size(); i++) {
+                String title = level == 0 ? rootTitle : frames.title(tree, i);
+                writeFrame(generator, title, tree, frames, i);
+            }
+            generator.writeEndArray();
+        });
+
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void writeBinary(OutputStream output, FrameTree tree, FlameGraphLevel start) throws IOException {
+        String rootTitle = rootTitle(tree, start.node(0));
+        long minSamples = minSamples(tree, start.node(0));
+        int depth = depth(tree, start.node(0), minSamples);
+
+        FlameGraphBinaryWriter writer = new FlameGraphBinaryWriter(output);
+        writer.writeHeader(depth);
+        forEachLevel(tree, start, depth, minSamples,
+                (level, frames) -> writer.writeLevel(tree, frames, level == 0 ? rootTitle : null));
+        writer.flush();
+    }
+
+    /**
+     * Finds the frame that is emitted as the root of the flamegraph, it's either the root of the tree,
+     * or the frame with the given {@link #subtreeId}.
+     */
+    private FlameGraphLevel resolveStart(FrameTree tree, int root) {
+        FlameGraphLevel start = new FlameGraphLevel();
+        if (subtreeId == null || subtreeId == ROOT_ID) {
+            start.add(root, ROOT_ID, 0, 0);
+            return start;
+        }
+
+        int[] nodes = new int[64];
+        long[] ids = new long[64];
+        int top = 0;
+        nodes[top] = root;
+        ids[top++] = ROOT_ID;
+        while (top > 0) {
+            int node = nodes[--top];
+            long id = ids[top];
+            for (int child = tree.firstChild(node); child != FrameTree.NO_NODE; child = tree.nextSibling(child)) {
+                long childId = frameId(id, tree.methodName(child));
+                if (childId == subtreeId) {
+                    start.add(child, childId, 0, 0);
+                    return start;
+                }
+                if (top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, top * 2);
+                    ids = Arrays.copyOf(ids, top * 2);
+                }
+                nodes[top] = child;
+                ids[top++] = childId;
+            }
+        }
+        throw new IllegalArgumentException("Cannot find the frame in the flamegraph: id=" + subtreeId);
     }
 
-    public ObjectNode build(Frame root) {
-        int depth = root.depth(0);
-        ArrayNode layers = Json.createArray();
-        for (int i = 0; i < depth; i++) {
-            layers.add(Json.createArray());
+    private String rootTitle(FrameTree tree, int root) {
+        if (subtreeId != null && subtreeId != ROOT_ID) {
+            return tree.methodName(root);
         }
 
+        String rootTitle = tree.totalSamples(root) + " Event(s)";
         if (withWeight) {
-            printFrameJson(layers, root.totalSamples() + " Event(s), " + weightFormatter.apply(root.totalWeight()), root, 0, 0, 0);
-        } else {
-            printFrameJson(layers, root.totalSamples() + " Event(s)", root, 0, 0, 0);
-        }
-
-        ObjectNode result = Json.createObject()
-                .put("depth", depth);
-        result.set("levels", layers);
-        return result;
-    }
-
-    private void printFrameJson(ArrayNode layers, String title, Frame frame, int level, long leftSamples, long leftWeight) {
-        ObjectNode jsonFrame = Json.createObject()
-                .put("leftSamples", leftSamples)
-                .put("leftWeight", leftWeight)
-                .put("totalWeight", frame.totalWeight())
-                .put("totalSamples", frame.totalSamples())
-                .put("selfWeight", frame.selfWeight())
-                .put("selfSamples", frame.selfSamples())
-                .put("type", frame.frameType().toString())
-                .put("typeTitle", frame.frameType().title())
-                .put("colorSamples", frame.resolveColor())
-                .put("colorWeight", frame.resolveColor())
-                .put("title", StringUtils.escape(title));
-
-        jsonFrame.set("sampleTypes", frameTypes(frame));
-        jsonFrame.set("position", position(frame));
-
-        ArrayNode nodesInLayer = (ArrayNode) layers.get(level);
-        nodesInLayer.add(jsonFrame);
-
-        for (Map.Entry<String, Frame> e : frame.entrySet()) {
-            Frame child = e.getValue();
-            if (level < MAX_LEVEL) {
-                printFrameJson(layers, e.getKey(), child, level + 1, leftSamples, leftWeight);
+            rootTitle = rootTitle + ", " + weightFormatter.apply(tree.totalWeight(root));
+        }
+        return rootTitle;
+    }
+
+    private long minSamples(FrameTree tree, int root) {
+        return minFrameRatio > 0 ? (long) Math.ceil(tree.totalSamples(root) * minFrameRatio) : 0;
+    }
+
+    /**
+     * Depth of the emitted tree, the collapsed frames are emitted one level below their parent.
+     */
+    private static int depth(FrameTree tree, int root, long minSamples) {
+        if (minSamples == 0) {
+            return tree.depth(root, 0);
+        }
+
+        int maxDepth = 0;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = root;
+        stack[top++] = 1;
+        while (top > 0) {
+            int depth = stack[--top];
+            int current = stack[--top];
+            maxDepth = Math.max(maxDepth, depth);
+
+            for (int child = tree.firstChild(current); child != FrameTree.NO_NODE; child = tree.nextSibling(child)) {
+                if (tree.totalSamples(child) >= minSamples) {
+                    if (top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = child;
+                    stack[top++] = depth + 1;
+                } else {
+                    maxDepth = Math.max(maxDepth, depth + 1);
+                }
+            }
+        }
+        return maxDepth;
+    }
+
+    private static void forEachLevel(
+            FrameTree tree,
+            FlameGraphLevel start,
+            int depth,
+            long minSamples,
+            LevelVisitor visitor) throws IOException {
+
+        FlameGraphLevel current = start;
+        for (int level = 0; level < depth; level++) {
+            FlameGraphLevel next = new FlameGraphLevel();
+            for (int i = 0; i < current.size(); i++) {
+                if (current.isCollapsed(i)) {
+                    continue;
+                }
+
+                long id = current.id(i);
+                long leftSamples = current.leftSamples(i);
+                long leftWeight = current.leftWeight(i);
+                int collapsed = 0;
+                long collapsedSamples = 0;
+                long collapsedWeight = 0;
+                for (int child : tree.children(current.node(i))) {
+                    long childSamples = tree.totalSamples(child);
+                    long childWeight = tree.totalWeight(child);
+                    if (childSamples < minSamples) {
+                        collapsed++;
+                        collapsedSamples += childSamples;
+                        collapsedWeight += childWeight;
+                        continue;
+                    }
+
+                    if (level < MAX_LEVEL) {
+                        next.add(child, frameId(id, tree.methodName(child)), leftSamples, leftWeight);
+                    }
+                    leftSamples += childSamples;
+                    leftWeight += childWeight;
+                }
+
+                if (collapsed > 0 && level < MAX_LEVEL) {
+                    next.addCollapsed(frameId(id, COLLAPSED_ID_KEY),
+                            leftSamples, leftWeight, collapsed, collapsedSamples, collapsedWeight);
+                }
             }
-            leftSamples += child.totalSamples();
-            leftWeight += child.totalWeight();
+
+            visitor.visit(level, current);
+            current = next;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the method name seeded with the ID of the parent, the ID does not depend
+     * on the position of the frame in the tree (node index), therefore, it's the same in all generated graphs.
+     */
+    static long frameId(long parentId, String methodName) {
+        long hash = 0xcbf29ce484222325L ^ parentId;
+        for (int i = 0; i < methodName.length(); i++) {
+            hash ^= methodName.charAt(i);
+            hash *= 0x100000001b3L;
         }
+        return hash & MAX_SAFE_ID;
+    }
+
+    private static void writeFrame(
+            JsonGenerator generator,
+            String title,
+            FrameTree tree,
+            FlameGraphLevel frames,
+            int i) throws IOException {
+
+        FrameType frameType = frames.frameType(tree, i);
+        String color = frames.color(tree, i);
+
+        generator.writeStartObject();
+        generator.writeNumberField("id", frames.id(i));
+        generator.writeNumberField("leftSamples", frames.leftSamples(i));
+        generator.writeNumberField("leftWeight", frames.leftWeight(i));
+        generator.writeNumberField("totalWeight", frames.totalWeight(tree, i));
+        generator.writeNumberField("totalSamples", frames.totalSamples(tree, i));
+        generator.writeNumberField("selfWeight", frames.selfWeight(tree, i));
+        generator.writeNumberField("selfSamples", frames.selfSamples(tree, i));
+        generator.writeStringField("type", frameType.toString());
+        generator.writeStringField("typeTitle", frameType.title());
+        generator.writeStringField("colorSamples", color);
+        generator.writeStringField("colorWeight", color);
+        generator.writeStringField("title", StringUtils.escape(title));
+
+        generator.writeFieldName("sampleTypes");
+        writeFrameTypes(generator, tree, frames, i);
+        generator.writeFieldName("position");
+        writePosition(generator, tree, frames, i);
+        generator.writeEndObject();
     }
 
-    private static JsonNode position(Frame frame) {
-        if (frame.bci() == 0) {
-            return Json.mapper().nullNode();
+    private static void writePosition(JsonGenerator generator, FrameTree tree, FlameGraphLevel frames, int i)
+            throws IOException {
+
+        int bci = frames.bci(tree, i);
+        if (bci == 0) {
+            generator.writeNull();
+            return;
         }
 
-        ObjectNode detail = Json.createObject();
-        if (frame.bci() > 0) {
-            detail.put("bci", frame.bci());
+        generator.writeStartObject();
+        if (bci > 0) {
+            generator.writeNumberField("bci", bci);
         }
-        if (frame.lineNumber() > 0) {
-            detail.put("line", frame.lineNumber());
+        int lineNumber = frames.lineNumber(tree, i);
+        if (lineNumber > 0) {
+            generator.writeNumberField("line", lineNumber);
         }
-        return detail;
+        generator.writeEndObject();
     }
 
-    private static JsonNode frameTypes(Frame frame) {
-        if (frame.inlinedSamples() == 0
-                && frame.c1Samples() == 0
-                && frame.jitCompiledSamples() == 0
-                && frame.interpretedSamples() == 0) {
-            return Json.mapper().nullNode();
+    private static void writeFrameTypes(JsonGenerator generator, FrameTree tree, FlameGraphLevel frames, int i)
+            throws IOException {
+
+        long inlined = frames.inlinedSamples(tree, i);
+        long c1 = frames.c1Samples(tree, i);
+        long jit = frames.jitCompiledSamples(tree, i);
+        long interpreted = frames.interpretedSamples(tree, i);
+
+        if (inlined == 0 && c1 == 0 && jit == 0 && interpreted == 0) {
+            generator.writeNull();
+            return;
         }
 
-        ObjectNode detail = Json.createObject();
-        if (frame.inlinedSamples() > 0) {
-            detail.put("inlined", frame.inlinedSamples());
+        generator.writeStartObject();
+        if (inlined > 0) {
+            generator.writeNumberField("inlined", inlined);
         }
-        if (frame.c1Samples() > 0) {
-            detail.put("c1", frame.c1Samples());
+        if (c1 > 0) {
+            generator.writeNumberField("c1", c1);
         }
-        if (frame.interpretedSamples() > 0) {
-            detail.put("interpret", frame.interpretedSamples());
+        if (interpreted > 0) {
+            generator.writeNumberField("interpret", interpreted);
         }
-        if (frame.jitCompiledSamples() > 0) {
-            detail.put("jit", frame.jitCompiledSamples());
+        if (jit > 0) {
+            generator.writeNumberField("jit", jit);
         }
-        return detail;
+        generator.writeEndObject();
+    }
+
+    @FunctionalInterface
+    private interface LevelVisitor {
+        void visit(int level, FlameGraphLevel frames) throws IOException;
     }
 }
@@ -0,0 +1,155 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.flamegraph;
+
+import pbouda.jeffrey.frameir.FrameTree;
+import pbouda.jeffrey.frameir.FrameType;
+
+import java.util.Arrays;
+
+/**
+ * Frames of a single level of the flamegraph, ordered from left to right. The frame is either a node of
+ * the {@link FrameTree} or a synthetic frame aggregating the collapsed siblings that are below the threshold.
+ */
+class FlameGraphLevel {
+
+    private int[] nodes = new int[16];
+    private long[] ids = new long[16];
+    private long[] leftSamples = new long[16];
+    private long[] leftWeights = new long[16];
+    // only for the collapsed frames
+    private int[] collapsedCounts = new int[16];
+    private long[] collapsedSamples = new long[16];
+    private long[] collapsedWeights = new long[16];
+    private int size;
+
+    void add(int node, long id, long leftSamples, long leftWeight) {
+        ensureCapacity();
+        this.nodes[size] = node;
+        this.ids[size] = id;
+        this.leftSamples[size] = leftSamples;
+        this.leftWeights[size] = leftWeight;
+        this.collapsedCounts[size] = 0;
+        size++;
+    }
+
+    void addCollapsed(long id, long leftSamples, long leftWeight, int count, long samples, long weight) {
+        ensureCapacity();
+        this.nodes[size] = FrameTree.NO_NODE;
+        this.ids[size] = id;
+        this.leftSamples[size] = leftSamples;
+        this.leftWeights[size] = leftWeight;
+        this.collapsedCounts[size] = count;
+        this.collapsedSamples[size] = samples;
+        this.collapsedWeights[size] = weight;
+        size++;
+    }
+
+    private void ensureCapacity() {
+        if (size == nodes.length) {
+            int newCapacity = size * 2;
+            this.nodes = Arrays.copyOf(nodes, newCapacity);
+            this.ids = Arrays.copyOf(ids, newCapacity);
+            this.leftSamples = Arrays.copyOf(leftSamples, newCapacity);
+            this.leftWeights = Arrays.copyOf(leftWeights, newCapacity);
+            this.collapsedCounts = Arrays.copyOf(collapsedCounts, newCapacity);
+            this.collapsedSamples = Arrays.copyOf(collapsedSamples, newCapacity);
+            this.collapsedWeights = Arrays.copyOf(collapsedWeights, newCapacity);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int node(int i) {
+        return nodes[i];
+    }
+
+    long id(int i) {
+        return ids[i];
+    }
+
+    long leftSamples(int i) {
+        return leftSamples[i];
+    }
+
+    long leftWeight(int i) {
+        return leftWeights[i];
+    }
+
+    boolean isCollapsed(int i) {
+        return collapsedCounts[i] > 0;
+    }
+
+    String title(FrameTree tree, int i) {
+        return isCollapsed(i) ? collapsedCounts[i] + " collapsed frame(s)" : tree.methodName(nodes[i]);
+    }
+
+    long totalSamples(FrameTree tree, int i) {
+        return isCollapsed(i) ? collapsedSamples[i] : tree.totalSamples(nodes[i]);
+    }
+
+    long totalWeight(FrameTree tree, int i) {
+        return isCollapsed(i) ? collapsedWeights[i] : tree.totalWeight(nodes[i]);
+    }
+
+    /**
+     * The children of the collapsed frame are not emitted, all its samples are self samples.
+     */
+    long selfSamples(FrameTree tree, int i) {
+        return isCollapsed(i) ? collapsedSamples[i] : tree.selfSamples(nodes[i]);
+    }
+
+    long selfWeight(FrameTree tree, int i) {
+        return isCollapsed(i) ? collapsedWeights[i] : tree.selfWeight(nodes[i]);
+    }
+
+    FrameType frameType(FrameTree tree, int i) {
+        return isCollapsed(i) ? FrameType.COLLAPSED_SYNTHETIC : tree.frameType(nodes[i]);
+    }
+
+    String color(FrameTree tree, int i) {
+        return isCollapsed(i) ? FrameType.COLLAPSED_SYNTHETIC.color() : tree.resolveColor(nodes[i]);
+    }
+
+    int bci(FrameTree tree, int i) {
+        return isCollapsed(i) ? 0 : tree.bci(nodes[i]);
+    }
+
+    int lineNumber(FrameTree tree, int i) {
+        return isCollapsed(i) ? 0 : tree.lineNumber(nodes[i]);
+    }
+
+    long inlinedSamples(FrameTree tree, int i) {
+        return isCollapsed(i) ? 0 : tree.inlinedSamples(nodes[i]);
+    }
+
+    long c1Samples(FrameTree tree, int i) {
+        return isCollapsed(i) ? 0 : tree.c1Samples(nodes[i]);
+    }
+
+    long interpretedSamples(FrameTree tree, int i) {
+        return isCollapsed(i) ? 0 : tree.interpretedSamples(nodes[i]);
+    }
+
+    long jitCompiledSamples(FrameTree tree, int i) {
+        return isCollapsed(i) ? 0 : tree.jitCompiledSamples(nodes[i]);
+    }
+}
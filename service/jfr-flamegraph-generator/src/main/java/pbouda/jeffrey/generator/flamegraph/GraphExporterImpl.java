@@ -18,32 +18,71 @@
 
 package pbouda.jeffrey.generator.flamegraph;
 
-import com.fasterxml.jackson.databind.JsonNode;
-
 import java.io.ByteArrayOutputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class GraphExporterImpl implements GraphExporter {
 
+    private static final String DATA_TOKEN = "$$data$$";
+
     @Override
-    public void export(Path targetPath, JsonNode content) {
-        try {
-            String flamegraph = getResource("/flamegraph.html");
-            String result = flamegraph.replace("$$data$$", escape(content.toString()));
-            Files.writeString(targetPath, result);
+    public void export(Path targetPath, GraphOutput content) {
+        String flamegraph = getResource("/flamegraph.html");
+        int tokenIndex = flamegraph.indexOf(DATA_TOKEN);
+
+        try (Writer writer = Files.newBufferedWriter(targetPath)) {
+            writer.write(flamegraph, 0, tokenIndex);
+            // The data are placed into a single-quoted JS string, the graph is streamed directly into the file
+            content.writeTo(new EscapingWriter(writer));
+            writer.write(flamegraph, tokenIndex + DATA_TOKEN.length(),
+                    flamegraph.length() - tokenIndex - DATA_TOKEN.length());
         } catch (IOException e) {
             throw new RuntimeException("Cannot export flamegraph to a file: " + targetPath, e);
         }
     }
 
-    private static String escape(String s) {
-        if (s.indexOf('\\') >= 0) s = s.replace("\\", "\\\\");
-        if (s.indexOf('\'') >= 0) s = s.replace("'", "\\'");
-        return s;
+    /**
+     * Escapes backslashes and single quotes of the written content.
+     */
+    private static class EscapingWriter extends FilterWriter {
+
+        private EscapingWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (c == '\\' || c == '\'') {
+                out.write('\\');
+            }
+            out.write(c);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            int start = offset;
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                char c = buffer[i];
+                if (c == '\\' || c == '\'') {
+                    out.write(buffer, start, i - start);
+                    out.write('\\');
+                    start = i;
+                }
+            }
+            out.write(buffer, start, end - start);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) throws IOException {
+            write(str.toCharArray(), offset, length);
+        }
     }
 
     private static String getResource(String name) {
@@ -18,7 +18,6 @@
 
 package pbouda.jeffrey.generator.flamegraph;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.common.Config;
 import pbouda.jeffrey.frameir.marker.Marker;
 
@@ -26,8 +25,8 @@ import java.util.List;
 
 public interface GraphGenerator {
 
-    ObjectNode generate(Config config);
+    GraphOutput generate(Config config);
 
-    ObjectNode generate(Config config, List<Marker> markers);
+    GraphOutput generate(Config config, List<Marker> markers);
 
 }
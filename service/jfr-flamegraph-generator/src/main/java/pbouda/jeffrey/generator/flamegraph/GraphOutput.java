@@ -0,0 +1,79 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.flamegraph;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import pbouda.jeffrey.common.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Generated graph that is serialized straight into the output (HTTP response, database BLOB, exported file)
+ * using {@link JsonGenerator}, without building an intermediate tree of {@link JsonNode}s. The output is not
+ * closed after writing the graph.
+ */
+@FunctionalInterface
+public interface GraphOutput {
+
+    /**
+     * Writes the graph as a single JSON value using the provided generator.
+     *
+     * @param generator generator writing into the target output.
+     * @throws IOException if the graph cannot be written into the output.
+     */
+    void write(JsonGenerator generator) throws IOException;
+
+    default void writeTo(OutputStream output) {
+        try (JsonGenerator generator = Json.mapper().getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            write(generator);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write the graph to the output stream", e);
+        }
+    }
+
+    default void writeTo(Writer writer) {
+        try (JsonGenerator generator = Json.mapper().getFactory().createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            write(generator);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write the graph to the writer", e);
+        }
+    }
+
+    default byte[] toByteArray() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeTo(output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Wraps the already built JSON (e.g. the graph loaded from the database).
+     *
+     * @param content graph in the JSON format.
+     * @return output writing the provided JSON.
+     */
+    static GraphOutput of(JsonNode content) {
+        return generator -> generator.writeTree(content);
+    }
+}
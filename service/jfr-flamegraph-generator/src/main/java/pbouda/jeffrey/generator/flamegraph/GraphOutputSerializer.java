@@ -0,0 +1,41 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.flamegraph;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes the {@link GraphOutput} nested in another serialized object (e.g. the saved graph together with its
+ * metadata) straight into the generator of the enclosing object.
+ */
+public class GraphOutputSerializer extends StdSerializer<GraphOutput> {
+
+    public GraphOutputSerializer() {
+        super(GraphOutput.class);
+    }
+
+    @Override
+    public void serialize(GraphOutput value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        value.write(generator);
+    }
+}
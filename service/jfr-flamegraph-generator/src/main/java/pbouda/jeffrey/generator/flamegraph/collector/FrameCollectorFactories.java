@@ -18,49 +18,68 @@
 
 package pbouda.jeffrey.generator.flamegraph.collector;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.common.BytesFormatter;
+import pbouda.jeffrey.common.Config;
 import pbouda.jeffrey.common.DurationFormatter;
 import pbouda.jeffrey.frameir.Frame;
 import pbouda.jeffrey.frameir.collector.FrameCollector;
 import pbouda.jeffrey.frameir.marker.Marker;
 import pbouda.jeffrey.generator.flamegraph.FlameGraphBuilder;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 
 import java.util.List;
 import java.util.function.Function;
 
 public abstract class FrameCollectorFactories {
 
-    public static FrameCollector<ObjectNode> simpleJson() {
+    public static FrameCollector<GraphOutput> simpleJson() {
         return new FrameCollector<>(new FlameGraphBuilder());
     }
 
-    public static FrameCollector<ObjectNode> simpleJson(List<Marker> markers) {
+    public static FrameCollector<GraphOutput> simpleJson(List<Marker> markers) {
         return new FrameCollector<>(new FlameGraphBuilder(), markers);
     }
 
-    public static FrameCollector<ObjectNode> allocJson() {
+    public static FrameCollector<GraphOutput> simpleJson(Config config, List<Marker> markers) {
+        return new FrameCollector<>(graphBuilder(config, null), markers);
+    }
+
+    public static FrameCollector<GraphOutput> allocJson() {
         return new FrameCollector<>(
                 new FlameGraphBuilder(weight -> BytesFormatter.format(weight) + " Allocated"));
     }
 
-    public static FrameCollector<ObjectNode> allocJson(List<Marker> markers) {
+    public static FrameCollector<GraphOutput> allocJson(List<Marker> markers) {
         return new FrameCollector<>(
                 new FlameGraphBuilder(weight -> BytesFormatter.format(weight) + " Allocated"),
                 markers);
     }
 
-    public static FrameCollector<ObjectNode> blockingJson() {
+    public static FrameCollector<GraphOutput> allocJson(Config config, List<Marker> markers) {
+        return new FrameCollector<>(
+                graphBuilder(config, weight -> BytesFormatter.format(weight) + " Allocated"), markers);
+    }
+
+    public static FrameCollector<GraphOutput> blockingJson() {
         return new FrameCollector<>(
                 new FlameGraphBuilder(weight -> DurationFormatter.format(weight) + " Blocked"));
     }
 
-    public static FrameCollector<ObjectNode> blockingJson(List<Marker> markers) {
+    public static FrameCollector<GraphOutput> blockingJson(List<Marker> markers) {
         return new FrameCollector<>(
                 new FlameGraphBuilder(weight -> DurationFormatter.format(weight) + " Blocked"),
                 markers);
     }
 
+    public static FrameCollector<GraphOutput> blockingJson(Config config, List<Marker> markers) {
+        return new FrameCollector<>(
+                graphBuilder(config, weight -> DurationFormatter.format(weight) + " Blocked"), markers);
+    }
+
+    private static FlameGraphBuilder graphBuilder(Config config, Function<Long, String> weightFormatter) {
+        return new FlameGraphBuilder(weightFormatter, config.minFrameRatio(), config.subtreeId());
+    }
+
     public static FrameCollector<Frame> frame() {
         return new FrameCollector<>(Function.identity());
     }
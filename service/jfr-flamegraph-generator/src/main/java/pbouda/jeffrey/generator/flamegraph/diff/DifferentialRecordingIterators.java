@@ -29,8 +29,10 @@ import pbouda.jeffrey.frameir.processor.SimpleEventProcessor;
 import pbouda.jeffrey.frameir.tree.AllocationTreeBuilder;
 import pbouda.jeffrey.frameir.tree.SimpleTreeBuilder;
 import pbouda.jeffrey.generator.flamegraph.collector.FrameCollectorFactories;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.jfrparser.jdk.EventProcessor;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -43,35 +45,40 @@ public abstract class DifferentialRecordingIterators {
 
     private static final List<Type> ALLOC_SAMPLE_TYPES = List.of(Type.OBJECT_ALLOCATION_SAMPLE);
 
-    public static DiffFrame allocation(Config config) {
+    public static DiffFrame allocation(Config config, DecompressedRecordingCache recordingCache) {
         List<Type> allocationType = resolveAllocationType(config);
-        return generate(config,
-                () -> new AllocationEventProcessor(allocationType, config.primaryTimeRange(), allocTreeBuilder()),
-                () -> new AllocationEventProcessor(allocationType, config.secondaryTimeRange(), allocTreeBuilder())
+        SymbolTable symbols = new SymbolTable();
+        return generate(config, recordingCache,
+                () -> new AllocationEventProcessor(
+                        allocationType, config.primaryTimeRange(), allocTreeBuilder(symbols)),
+                () -> new AllocationEventProcessor(
+                        allocationType, config.secondaryTimeRange(), allocTreeBuilder(symbols))
         );
     }
 
-    public static DiffFrame simple(Config config) {
+    public static DiffFrame simple(Config config, DecompressedRecordingCache recordingCache) {
         List<Type> types = List.of(config.eventType());
-        return generate(config,
-                () -> new SimpleEventProcessor(types, config.primaryTimeRange(), simpleTreeBuilder()),
-                () -> new SimpleEventProcessor(types, config.secondaryTimeRange(), simpleTreeBuilder())
+        SymbolTable symbols = new SymbolTable();
+        return generate(config, recordingCache,
+                () -> new SimpleEventProcessor(types, config.primaryTimeRange(), simpleTreeBuilder(symbols)),
+                () -> new SimpleEventProcessor(types, config.secondaryTimeRange(), simpleTreeBuilder(symbols))
         );
     }
 
     private static DiffFrame generate(
             Config config,
+            DecompressedRecordingCache recordingCache,
             Supplier<? extends EventProcessor<Frame>> primarySupplier,
             Supplier<? extends EventProcessor<Frame>> secondarySupplier) {
 
         CompletableFuture<Frame> primaryFuture = CompletableFuture.supplyAsync(() -> {
             return RecordingIterators.automaticAndCollect(
-                    config.primaryRecordings(), primarySupplier, FrameCollectorFactories.frame());
+                    config.primaryRecordings(), primarySupplier, FrameCollectorFactories.frame(), recordingCache);
         }, Schedulers.parallel());
 
         CompletableFuture<Frame> secondaryFuture = CompletableFuture.supplyAsync(() -> {
             return RecordingIterators.automaticAndCollect(
-                    config.secondaryRecordings(), secondarySupplier, FrameCollectorFactories.frame());
+                    config.secondaryRecordings(), secondarySupplier, FrameCollectorFactories.frame(), recordingCache);
         }, Schedulers.parallel());
 
         CompletableFuture.allOf(primaryFuture, secondaryFuture).join();
@@ -90,11 +97,11 @@ public abstract class DifferentialRecordingIterators {
         }
     }
 
-    private static AllocationTreeBuilder allocTreeBuilder() {
-        return new AllocationTreeBuilder(true, false, null);
+    private static AllocationTreeBuilder allocTreeBuilder(SymbolTable symbols) {
+        return new AllocationTreeBuilder(true, false, symbols, null);
     }
 
-    private static SimpleTreeBuilder simpleTreeBuilder() {
-        return new SimpleTreeBuilder(true, false);
+    private static SimpleTreeBuilder simpleTreeBuilder(SymbolTable symbols) {
+        return new SimpleTreeBuilder(true, false, symbols);
     }
 }
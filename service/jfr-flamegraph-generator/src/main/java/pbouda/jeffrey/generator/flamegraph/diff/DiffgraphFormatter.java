@@ -23,6 +23,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.common.Json;
 import pbouda.jeffrey.frameir.DiffFrame;
 import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.FrameTree;
 import pbouda.jeffrey.frameir.FrameType;
 
 import java.util.ArrayList;
@@ -215,14 +216,15 @@ public class DiffgraphFormatter {
         List<ObjectNode> layerNodes = out.get(layer);
         layerNodes.add(jsonFrame);
 
-        for (Map.Entry<String, Frame> e : frame.entrySet()) {
-            Frame child = e.getValue();
-            String method = e.getKey();
-            if (child.totalSamples() > minSamples && MAX_LEVEL > layer) {
-                oneColorSubtree(out, child, method, layer + 1, leftSamples, leftWeight, color, added);
+        FrameTree tree = frame.tree();
+        for (int child : tree.children(frame.index())) {
+            long childSamples = tree.totalSamples(child);
+            if (childSamples > minSamples && MAX_LEVEL > layer) {
+                oneColorSubtree(
+                        out, tree.frame(child), tree.methodName(child), layer + 1, leftSamples, leftWeight, color, added);
             }
-            leftSamples += child.totalSamples();
-            leftWeight += child.totalWeight();
+            leftSamples += childSamples;
+            leftWeight += tree.totalWeight(child);
         }
     }
 }
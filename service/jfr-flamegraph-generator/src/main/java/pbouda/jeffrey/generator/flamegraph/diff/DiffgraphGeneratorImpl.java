@@ -18,27 +18,34 @@
 
 package pbouda.jeffrey.generator.flamegraph.diff;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.common.Config;
 import pbouda.jeffrey.frameir.DiffFrame;
 import pbouda.jeffrey.frameir.marker.Marker;
 import pbouda.jeffrey.generator.flamegraph.GraphGenerator;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 
 import java.util.List;
 
 public class DiffgraphGeneratorImpl implements GraphGenerator {
 
+    private final DecompressedRecordingCache recordingCache;
+
+    public DiffgraphGeneratorImpl(DecompressedRecordingCache recordingCache) {
+        this.recordingCache = recordingCache;
+    }
+
     @Override
-    public ObjectNode generate(Config config) {
+    public GraphOutput generate(Config config) {
         DiffFrame diffFrame = config.eventType().isAllocationEvent()
-                ? DifferentialRecordingIterators.allocation(config)
-                : DifferentialRecordingIterators.simple(config);
+                ? DifferentialRecordingIterators.allocation(config, recordingCache)
+                : DifferentialRecordingIterators.simple(config, recordingCache);
 
-        return new DiffgraphFormatter(diffFrame).format();
+        return GraphOutput.of(new DiffgraphFormatter(diffFrame).format());
     }
 
     @Override
-    public ObjectNode generate(Config config, List<Marker> marker) {
+    public GraphOutput generate(Config config, List<Marker> marker) {
         throw new UnsupportedOperationException("Not implemented yet");
     }
 }
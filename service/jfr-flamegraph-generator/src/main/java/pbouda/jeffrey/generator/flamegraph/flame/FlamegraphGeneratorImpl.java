@@ -18,37 +18,83 @@
 
 package pbouda.jeffrey.generator.flamegraph.flame;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import pbouda.jeffrey.common.Config;
 import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.frameir.Frame;
+import pbouda.jeffrey.frameir.collector.ChunkFrameCache;
+import pbouda.jeffrey.frameir.collector.FrameCollector;
 import pbouda.jeffrey.frameir.marker.Marker;
 import pbouda.jeffrey.frameir.processor.EventProcessors;
+import pbouda.jeffrey.frameir.tree.IndexedTreeBuilder;
 import pbouda.jeffrey.generator.flamegraph.GraphGenerator;
+import pbouda.jeffrey.generator.flamegraph.GraphOutput;
 import pbouda.jeffrey.generator.flamegraph.collector.FrameCollectorFactories;
+import pbouda.jeffrey.jfrparser.jdk.ChunkPartialCache;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
+import pbouda.jeffrey.jfrparser.jdk.EventProcessor;
+import pbouda.jeffrey.jfrparser.jdk.PersistentChunkPartialCache;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexCache;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedEvents;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 public class FlamegraphGeneratorImpl implements GraphGenerator {
 
+    private final DecompressedRecordingCache recordingCache;
+    private final ChunkFrameCache chunkFrameCache;
+    private final Path partialsDir;
+    private final EventIndexCache eventIndexCache;
+
+    public FlamegraphGeneratorImpl(DecompressedRecordingCache recordingCache) {
+        this(recordingCache, null, null, null);
+    }
+
+    /**
+     * @param recordingCache  local uncompressed copies of the compressed recordings and the views.
+     * @param chunkFrameCache partial frames of the chunks fully covered by the time range of the generated graph
+     *                        are taken from the cache instead of parsing the chunks again, {@code null} if the
+     *                        partial frames are not cached.
+     * @param partialsDir     directory where the partial frames of the covered chunks are persisted to survive
+     *                        the restart of the application, {@code null} if they are kept only in memory.
+     * @param eventIndexCache opened indexes of the profiles, the simple flamegraphs are built from the stacktraces
+     *                        of the index if the config provides it, {@code null} if the index is opened for every
+     *                        generated graph.
+     */
+    public FlamegraphGeneratorImpl(
+            DecompressedRecordingCache recordingCache,
+            ChunkFrameCache chunkFrameCache,
+            Path partialsDir,
+            EventIndexCache eventIndexCache) {
+
+        this.recordingCache = recordingCache;
+        this.chunkFrameCache = chunkFrameCache;
+        this.partialsDir = partialsDir;
+        this.eventIndexCache = eventIndexCache;
+    }
+
     @Override
-    public ObjectNode generate(Config config) {
+    public GraphOutput generate(Config config) {
         return generate(config, List.of());
     }
 
     @Override
-    public ObjectNode generate(Config config, List<Marker> markers) {
+    public GraphOutput generate(Config config, List<Marker> markers) {
         if (config.eventType().isAllocationTlab()) {
-            return RecordingIterators.automaticAndCollect(
-                    config.primaryRecordings(),
+            return collect(
+                    config,
                     EventProcessors.allocationTlab(config.primaryTimeRange(), config.threadMode()),
-                    FrameCollectorFactories.allocJson(markers));
+                    FrameCollectorFactories.allocJson(config, markers));
 
         } else if (config.eventType().isAllocationSamples()) {
-            return RecordingIterators.automaticAndCollect(
-                    config.primaryRecordings(),
+            return collect(
+                    config,
                     EventProcessors.allocationSamples(config.primaryTimeRange(), config.threadMode()),
-                    FrameCollectorFactories.allocJson(markers));
+                    FrameCollectorFactories.allocJson(config, markers));
 
         } else if (Type.JAVA_MONITOR_ENTER.equals(config.eventType())) {
             return generateMonitorTree(config, markers, Type.JAVA_MONITOR_ENTER);
@@ -57,17 +103,54 @@ public class FlamegraphGeneratorImpl implements GraphGenerator {
         } else if (Type.THREAD_PARK.equals(config.eventType())) {
             return generateMonitorTree(config, markers, Type.THREAD_PARK);
         } else {
-            return RecordingIterators.automaticAndCollect(
-                    config.primaryRecordings(),
-                    EventProcessors.simple(config),
-                    FrameCollectorFactories.simpleJson(markers));
+            FrameCollector<GraphOutput> collector = FrameCollectorFactories.simpleJson(config, markers);
+            Optional<EventIndex> eventIndex = eventIndexCache != null
+                    ? eventIndexCache.get(config.primaryEventIndex())
+                    : EventIndex.openIfExists(config.primaryEventIndex());
+
+            if (eventIndex.isPresent()) {
+                return collector.finisher(buildFromIndex(config, eventIndex.get()));
+            }
+            return collect(config, EventProcessors.simple(config), collector);
         }
     }
 
-    private static ObjectNode generateMonitorTree(Config config, List<Marker> markers, Type eventType) {
-        return RecordingIterators.automaticAndCollect(
-                config.primaryRecordings(),
+    private static Frame buildFromIndex(Config config, EventIndex eventIndex) {
+        long start = EventIndex.toEpochNanosSaturated(config.primaryTimeRange().start());
+        long end = EventIndex.toEpochNanosSaturated(config.primaryTimeRange().end());
+
+        IndexedTreeBuilder treeBuilder = new IndexedTreeBuilder(config.threadMode());
+        for (IndexedEvents segment : eventIndex.events(config.eventType().code())) {
+            treeBuilder.addEvents(segment, start, end);
+        }
+        return treeBuilder.build();
+    }
+
+    private GraphOutput generateMonitorTree(Config config, List<Marker> markers, Type eventType) {
+        return collect(
+                config,
                 EventProcessors.blocking(config, eventType),
-                FrameCollectorFactories.blockingJson(markers));
+                FrameCollectorFactories.blockingJson(config, markers));
+    }
+
+    private GraphOutput collect(
+            Config config,
+            Supplier<EventProcessor<Frame>> processors,
+            FrameCollector<GraphOutput> collector) {
+
+        if (chunkFrameCache == null) {
+            return RecordingIterators.automaticAndCollect(
+                    config.primaryRecordings(), processors, collector, recordingCache);
+        }
+
+        // Only the event type and the thread mode change the partial frames of the chunks
+        String scope = config.eventType().code() + ":" + config.threadMode();
+        ChunkPartialCache<Frame> partialCache = chunkFrameCache.scope(scope);
+        if (partialsDir != null) {
+            partialCache = ChunkPartialCache.tiered(
+                    partialCache, new PersistentChunkPartialCache<>(partialsDir, scope, collector));
+        }
+        return RecordingIterators.cachedAndCollect(
+                config.primaryRecordings(), processors, collector, partialCache, recordingCache);
     }
 }
@@ -0,0 +1,156 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.flamegraph;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.junit.jupiter.api.Test;
+import pbouda.jeffrey.frameir.FrameTree;
+import pbouda.jeffrey.frameir.FrameType;
+import pbouda.jeffrey.frameir.marker.MarkerType;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The graph transcoded from the binary format must be exactly the same JSON as the graph written directly
+ * by {@link FlameGraphBuilder}.
+ */
+class FlameGraphBinaryFormatTest {
+
+    @Test
+    public void singleFrame() throws IOException {
+        FrameTree tree = new FrameTree("-", 0, 0);
+        tree.increment(FrameTree.ROOT, FrameType.JIT_COMPILED, 1, 1, true);
+
+        assertRoundTrip(new FlameGraphBuilder(), tree);
+    }
+
+    @Test
+    public void wholeTree() throws IOException {
+        assertRoundTrip(new FlameGraphBuilder(), sampleTree());
+    }
+
+    @Test
+    public void wholeTreeWithWeight() throws IOException {
+        assertRoundTrip(new FlameGraphBuilder(weight -> weight + " bytes"), sampleTree());
+    }
+
+    @Test
+    public void collapsedFrames() throws IOException {
+        assertRoundTrip(new FlameGraphBuilder(null, 0.2, null), sampleTree());
+    }
+
+    @Test
+    public void subtree() throws IOException {
+        FrameTree tree = sampleTree();
+        long runId = FlameGraphBuilder.frameId(0, "run");
+
+        assertRoundTrip(new FlameGraphBuilder(null, 0, runId), tree);
+    }
+
+    @Test
+    public void largeValuesAndEscapedTitles() throws IOException {
+        FrameTree tree = new FrameTree("-", 0, 0);
+        int generic = tree.addChild(FrameTree.ROOT, "Map<String, List<\"x\">>::get žluťoučký", 70_000, 65_535);
+        tree.increment(generic, FrameType.INTERPRETED, Long.MAX_VALUE / 2, 1L << 40, true);
+        tree.increment(FrameTree.ROOT, FrameType.JIT_COMPILED, Long.MAX_VALUE / 2, 1L << 40, false);
+        // negative positions are written using zigzag encoding
+        int unknown = tree.addChild(FrameTree.ROOT, "unknown", -1, -1);
+        tree.increment(unknown, FrameType.NATIVE, 1, 1, true);
+        tree.increment(FrameTree.ROOT, FrameType.JIT_COMPILED, 1, 1, false);
+
+        assertRoundTrip(new FlameGraphBuilder(), tree);
+    }
+
+    @Test
+    public void wideLevelReusesStringsAndTypes() throws IOException {
+        FrameTree tree = new FrameTree("-", 0, 0);
+        for (int i = 0; i < 300; i++) {
+            int thread = tree.addChild(FrameTree.ROOT, "thread-" + (i % 150), 0, 0);
+            tree.increment(thread, FrameType.THREAD_NAME_SYNTHETIC, i, 1, false);
+            int method = tree.addChild(thread, "work", i, i);
+            tree.increment(method, i % 2 == 0 ? FrameType.C1_COMPILED : FrameType.KERNEL, i, 1, true);
+            tree.increment(FrameTree.ROOT, FrameType.JIT_COMPILED, i, 1, false);
+        }
+
+        assertRoundTrip(new FlameGraphBuilder(true, weight -> weight + " ns"), tree);
+    }
+
+    @Test
+    public void rejectsInvalidMagic() {
+        byte[] binary = new FlameGraphBuilder().build(sampleTree().root()).toBinaryByteArray();
+        binary[0] = 'X';
+
+        assertThrows(IllegalArgumentException.class, () -> toJson(BinaryGraphOutput.of(binary)));
+    }
+
+    @Test
+    public void rejectsUnsupportedVersion() {
+        byte[] binary = new FlameGraphBuilder().build(sampleTree().root()).toBinaryByteArray();
+        binary[4] = 1;
+
+        assertThrows(IllegalArgumentException.class, () -> toJson(BinaryGraphOutput.of(binary)));
+    }
+
+    private static void assertRoundTrip(FlameGraphBuilder builder, FrameTree tree) throws IOException {
+        BinaryGraphOutput output = builder.build(tree.root());
+        byte[] binary = output.toBinaryByteArray();
+
+        assertEquals(toJson(output), toJson(BinaryGraphOutput.of(binary)));
+        // the binary output of the cached graph is passed as it is
+        assertArrayEquals(binary, BinaryGraphOutput.of(binary).toBinaryByteArray());
+    }
+
+    private static String toJson(GraphOutput output) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(writer)) {
+            output.write(generator);
+        }
+        return writer.toString();
+    }
+
+    private static FrameTree sampleTree() {
+        FrameTree tree = new FrameTree("-", 0, 0);
+
+        int thread = tree.addChild(FrameTree.ROOT, "main", 0, 0);
+        tree.increment(thread, FrameType.THREAD_NAME_SYNTHETIC, 30, 3, false);
+        tree.increment(FrameTree.ROOT, FrameType.JIT_COMPILED, 30, 3, false);
+        int sleep = tree.addChild(thread, "sleep", 12, 3);
+        tree.increment(sleep, FrameType.NATIVE, 30, 3, true);
+
+        int run = tree.addChild(FrameTree.ROOT, "run", 1, 1);
+        tree.increment(run, FrameType.INTERPRETED, 100, 10, false);
+        tree.increment(FrameTree.ROOT, FrameType.JIT_COMPILED, 100, 10, false);
+        int compute = tree.addChild(run, "compute", 42, 7);
+        tree.increment(compute, FrameType.C1_COMPILED, 80, 8, true);
+        tree.setMarker(compute, MarkerType.WARNING);
+        int hash = tree.addChild(run, "hash", 100, 300);
+        tree.increment(hash, FrameType.INLINED, 10, 1, false);
+        int nested = tree.addChild(hash, "compute", 43, 8);
+        tree.increment(nested, FrameType.KERNEL, 10, 1, true);
+        int tiny = tree.addChild(run, "tiny", 5, 5);
+        tree.increment(tiny, FrameType.CPP, 10, 1, true);
+        return tree;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.flamegraph.flame;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import pbouda.jeffrey.common.Config;
+import pbouda.jeffrey.common.Json;
+import pbouda.jeffrey.common.TimeRange;
+import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexCache;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexWriter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * The flamegraph built from the stacktraces of the event index must be the same as the flamegraph built
+ * by parsing the recordings.
+ */
+class IndexedFlamegraphTest {
+
+    private static Path recording;
+    private static Path eventIndex;
+    private static Instant recordingStart;
+    private static Instant recordingEnd;
+
+    private static volatile Object sink;
+
+    @Test
+    public void sameGraphAsFromRecordings() {
+        assertSameGraph(false, null);
+    }
+
+    @Test
+    public void sameGraphAsFromRecordingsInThreadMode() {
+        assertSameGraph(true, null);
+    }
+
+    @Test
+    public void sameGraphAsFromRecordingsInTimeRange() {
+        prepare();
+        long third = Duration.between(recordingStart, recordingEnd).toMillis() / 3;
+        TimeRange timeRange = TimeRange.create(
+                recordingStart.toEpochMilli() + third, recordingEnd.toEpochMilli() - third, true);
+
+        assertSameGraph(false, timeRange);
+        assertSameGraph(true, timeRange);
+    }
+
+    @Test
+    public void threadFrameDoesNotReplaceAnyFrameOfStacktrace() {
+        prepare();
+        DecompressedRecordingCache recordingCache = DecompressedRecordingCache.inTempDirectory();
+        JsonNode graph = generate(new FlamegraphGeneratorImpl(recordingCache), false, null, null);
+        JsonNode threadGraph = generate(new FlamegraphGeneratorImpl(recordingCache), true, null, null);
+
+        assertEquals(graph.get("depth").asInt() + 1, threadGraph.get("depth").asInt());
+        assertEquals(totalSamples(graph), totalSamples(threadGraph));
+    }
+
+    private static void assertSameGraph(boolean threadMode, TimeRange timeRange) {
+        prepare();
+        DecompressedRecordingCache recordingCache = DecompressedRecordingCache.inTempDirectory();
+        FlamegraphGeneratorImpl generator = new FlamegraphGeneratorImpl(recordingCache, null, null, new EventIndexCache());
+
+        JsonNode fromRecordings = generate(generator, threadMode, timeRange, null);
+        JsonNode fromIndex = generate(generator, threadMode, timeRange, eventIndex);
+
+        assertNotEquals(0L, totalSamples(fromRecordings));
+        assertEquals(withoutPositions(fromRecordings), withoutPositions(fromIndex));
+    }
+
+    private static JsonNode generate(
+            FlamegraphGeneratorImpl generator, boolean threadMode, TimeRange timeRange, Path eventIndex) {
+
+        Config config = Config.primaryBuilder()
+                .withPrimaryRecording(recording)
+                .withPrimaryEventIndex(eventIndex)
+                .withPrimaryStart(recordingStart)
+                .withEventType(Type.EXECUTION_SAMPLE)
+                .withThreadMode(threadMode)
+                .withTimeRange(timeRange)
+                .build();
+
+        return Json.read(generator.generate(config).toByteArray());
+    }
+
+    private static long totalSamples(JsonNode graph) {
+        return graph.get("levels").get(0).get(0).get("totalSamples").asLong();
+    }
+
+    /**
+     * The line numbers and bytecode indexes come from the first event of the frame, the events are processed
+     * in a different order, the IDs of the frames are derived from them.
+     */
+    private static JsonNode withoutPositions(JsonNode graph) {
+        JsonNode copy = graph.deepCopy();
+        for (JsonNode level : copy.get("levels")) {
+            for (JsonNode frame : level) {
+                ((ObjectNode) frame).remove(List.of("id", "position"));
+            }
+        }
+        return copy;
+    }
+
+    private static synchronized void prepare() {
+        if (recording != null) {
+            return;
+        }
+        try {
+            Path directory = Files.createTempDirectory("jeffrey-test-indexed-flamegraph");
+            directory.toFile().deleteOnExit();
+            Path target = directory.resolve("recording.jfr");
+            try (Recording jfr = new Recording()) {
+                jfr.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(1));
+                recordingStart = Instant.now();
+                jfr.start();
+                workload();
+                jfr.stop();
+                recordingEnd = Instant.now();
+                jfr.dump(target);
+            }
+            target.toFile().deleteOnExit();
+
+            Path indexFile = directory.resolve("recording.idx");
+            EventIndexWriter.write(List.of(target), indexFile, DecompressedRecordingCache.inTempDirectory());
+            indexFile.toFile().deleteOnExit();
+
+            eventIndex = indexFile;
+            recording = target;
+        } catch (Exception e) {
+            throw new RuntimeException("Cannot create the test recording", e);
+        }
+    }
+
+    private static void workload() throws InterruptedException {
+        Thread other = new Thread(() -> spin(Duration.ofMillis(300)), "test-worker");
+        other.start();
+        spin(Duration.ofMillis(300));
+        other.join();
+    }
+
+    private static void spin(Duration duration) {
+        long end = System.nanoTime() + duration.toNanos();
+        int iteration = 0;
+        while (System.nanoTime() < end) {
+            sink = iteration % 2 == 0 ? compute(iteration) : Integer.toHexString(iteration);
+            iteration++;
+        }
+    }
+
+    private static Object compute(int iteration) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            builder.append(iteration * i);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.subsecond;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Compact binary encoding of the heatmap, the values are written row by row (all columns of the first bucket,
+ * then all columns of the second bucket, ...) as a sequence of blocks:
+ * <pre>
+ *     [number of zero values] [number of non-zero values] [non-zero value]...
+ * </pre>
+ * All numbers are unsigned varints (7 bits per byte, the least significant group first, the highest bit
+ * set if another byte follows). The heatmap mostly consists of zeros (idle periods, sparse samples),
+ * the runs of zeros take a single varint and the non-zero values mostly fit into one or two bytes.
+ * The values must not be negative. The blocks end when all cells ({@code rows * columns}) are decoded.
+ */
+public final class HeatmapEncoding {
+
+    public static final String NAME = "rle-varint";
+
+    private HeatmapEncoding() {
+    }
+
+    /**
+     * Encodes all columns of the matrix from the first column (the start of the processing).
+     *
+     * @param matrix matrix to encode.
+     * @return encoded values of the matrix.
+     */
+    public static byte[] encode(HeatmapMatrix matrix) {
+        int columns = matrix.columns();
+        long cells = (long) matrix.rows() * columns;
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long cell = 0;
+        while (cell < cells) {
+            long zeroStart = cell;
+            while (cell < cells && value(matrix, cell, columns) == 0) {
+                cell++;
+            }
+            long valueStart = cell;
+            while (cell < cells && value(matrix, cell, columns) != 0) {
+                cell++;
+            }
+
+            writeVarint(output, valueStart - zeroStart);
+            writeVarint(output, cell - valueStart);
+            for (long i = valueStart; i < cell; i++) {
+                writeVarint(output, value(matrix, i, columns));
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static long value(HeatmapMatrix matrix, long cell, int columns) {
+        return matrix.get((int) (cell % columns), (int) (cell / columns));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            output.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        output.write((int) remaining);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.subsecond;
+
+import pbouda.jeffrey.common.TimeBuckets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Heatmap stored in {@link TimeBuckets}, every column represents a time window of the column size,
+ * and it's divided into the rows (buckets) of the bucket size. The columns are stored one after another
+ * (column-major), therefore, the index of the cell is the time relative to the start of the processing
+ * divided by the bucket size, and the whole columns are merged as contiguous ranges of the arrays.
+ * <p/>
+ * Only the pages of the cells containing a value are allocated (a chunk in the middle of the recording
+ * does not allocate the columns before its first event).
+ */
+public final class HeatmapMatrix {
+
+    /**
+     * Maximum number of cells of a single matrix, a bigger matrix needs a bigger bucket or a shorter time window.
+     */
+    static final long MAX_CELLS = 64 * 1024 * 1024;
+
+    private final int rows;
+    private final int bucketMillis;
+    private final TimeBuckets cells;
+
+    /**
+     * @param bucketMillis size of the single bucket (row) in millis.
+     * @param columnMillis size of the single column in millis, a multiple of the bucket size.
+     */
+    public HeatmapMatrix(int bucketMillis, int columnMillis) {
+        this(bucketMillis, columnMillis, new TimeBuckets());
+    }
+
+    private HeatmapMatrix(int bucketMillis, int columnMillis, TimeBuckets cells) {
+        if (bucketMillis <= 0 || columnMillis % bucketMillis != 0) {
+            throw new IllegalArgumentException(
+                    "Column size must be a multiple of the bucket size: bucket=" + bucketMillis
+                            + " column=" + columnMillis);
+        }
+        this.bucketMillis = bucketMillis;
+        this.rows = columnMillis / bucketMillis;
+        this.cells = cells;
+    }
+
+    /**
+     * Adds the value to the bucket at the given time.
+     *
+     * @param relativeMillis time relative to the start of the processing (non-negative).
+     * @param value          value to be added to the bucket.
+     */
+    public void increment(long relativeMillis, long value) {
+        long cell = relativeMillis / bucketMillis;
+        if (cell >= MAX_CELLS) {
+            throw new IllegalArgumentException(
+                    "Heatmap is too big, use a bigger bucket or a shorter duration: columns=" + (cell / rows + 1)
+                            + " rows=" + rows);
+        }
+        cells.add(cell, value);
+    }
+
+    /**
+     * Adds all values of the other matrix to this one, the other matrix stays untouched.
+     *
+     * @param other matrix of the same dimensions.
+     */
+    public void merge(HeatmapMatrix other) {
+        checkDimensions(other);
+        cells.merge(other.cells);
+    }
+
+    /**
+     * Merges all matrices at once, see {@link TimeBuckets#mergeAll(List, ExecutorService, int)}.
+     *
+     * @param matrices non-empty list of matrices of the same dimensions.
+     * @param executor executor merging the ranges of the columns.
+     * @param slices   number of the disjoint ranges of the columns.
+     * @return a new matrix containing the sum of all matrices.
+     */
+    public static HeatmapMatrix mergeAll(List<HeatmapMatrix> matrices, ExecutorService executor, int slices) {
+        HeatmapMatrix first = matrices.getFirst();
+        List<TimeBuckets> cells = new ArrayList<>(matrices.size());
+        for (HeatmapMatrix matrix : matrices) {
+            first.checkDimensions(matrix);
+            cells.add(matrix.cells);
+        }
+
+        return new HeatmapMatrix(
+                first.bucketMillis, first.columnMillis(), TimeBuckets.mergeAll(cells, executor, slices));
+    }
+
+    private void checkDimensions(HeatmapMatrix other) {
+        if (rows != other.rows || bucketMillis != other.bucketMillis) {
+            throw new IllegalArgumentException(
+                    "Heatmaps with different dimensions cannot be merged: bucket=" + bucketMillis + "/"
+                            + other.bucketMillis + " rows=" + rows + "/" + other.rows);
+        }
+    }
+
+    /**
+     * Returns the value of the bucket.
+     *
+     * @param column column relative to the start of the processing.
+     * @param row    row (bucket) in the column.
+     * @return value of the bucket, {@code 0} if the column does not contain any value.
+     */
+    public long get(int column, int row) {
+        return cells.get((long) column * rows + row);
+    }
+
+    public boolean isEmpty() {
+        return cells.isEmpty();
+    }
+
+    /**
+     * @return number of columns from the start of the processing to the last column containing a value.
+     */
+    public int columns() {
+        return isEmpty() ? 0 : (int) (cells.lastBucket() / rows) + 1;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int bucketMillis() {
+        return bucketMillis;
+    }
+
+    public int columnMillis() {
+        return rows * bucketMillis;
+    }
+
+    /**
+     * @return the maximum value of all buckets (computed from all cells).
+     */
+    public long maxValue() {
+        return cells.maxValue();
+    }
+}
@@ -31,7 +31,10 @@ public record SubSecondConfig(
         Instant profilingStartTime,
         Duration generatingStart,
         Duration duration,
-        boolean collectWeight) {
+        boolean collectWeight,
+        Path eventIndex,
+        Duration bucketSize,
+        Duration columnSize) {
 
     public static SubSecondConfigBuilder builder() {
         return new SubSecondConfigBuilder();
@@ -27,6 +27,11 @@ import java.time.Instant;
 import java.util.Objects;
 
 public final class SubSecondConfigBuilder {
+
+    private static final Duration MIN_BUCKET_SIZE = Duration.ofMillis(1);
+    private static final Duration MAX_BUCKET_SIZE = Duration.ofSeconds(1);
+    private static final int MAX_ROWS = 1000;
+
     private Path recording;
     private Path recordingDir;
     private Type eventType;
@@ -34,6 +39,9 @@ public final class SubSecondConfigBuilder {
     private Duration generatingStart = Duration.ZERO;
     private Duration duration;
     private boolean collectWeight;
+    private Path eventIndex;
+    private Duration bucketSize = Duration.ofMillis(20);
+    private Duration columnSize = Duration.ofSeconds(1);
 
     public SubSecondConfigBuilder withRecording(Path recording) {
         this.recording = recording;
@@ -71,9 +79,45 @@ public final class SubSecondConfigBuilder {
         return this;
     }
 
+    public SubSecondConfigBuilder withEventIndex(Path eventIndex) {
+        this.eventIndex = eventIndex;
+        return this;
+    }
+
+    /**
+     * @param bucketSize size of the single bucket (row) of the heatmap, from 1 millisecond to 1 second.
+     */
+    public SubSecondConfigBuilder withBucketSize(Duration bucketSize) {
+        this.bucketSize = bucketSize;
+        return this;
+    }
+
+    /**
+     * @param columnSize size of the single column of the heatmap, a multiple of the bucket size.
+     */
+    public SubSecondConfigBuilder withColumnSize(Duration columnSize) {
+        this.columnSize = columnSize;
+        return this;
+    }
+
     public SubSecondConfig build() {
         Objects.requireNonNull(eventType, "Type of the event needs to be specified");
         Objects.requireNonNull(profilingStart, "Start time of the profile needs to be specified");
+        Objects.requireNonNull(bucketSize, "Size of the bucket needs to be specified");
+        Objects.requireNonNull(columnSize, "Size of the column needs to be specified");
+
+        if (bucketSize.compareTo(MIN_BUCKET_SIZE) < 0 || bucketSize.compareTo(MAX_BUCKET_SIZE) > 0
+                || bucketSize.toNanos() % 1_000_000 != 0) {
+            throw new IllegalArgumentException(
+                    "Size of the bucket must be whole milliseconds from 1ms to 1s: " + bucketSize);
+        }
+        if (columnSize.compareTo(bucketSize) < 0
+                || columnSize.toNanos() % bucketSize.toNanos() != 0
+                || columnSize.toMillis() / bucketSize.toMillis() > MAX_ROWS) {
+            throw new IllegalArgumentException(
+                    "Size of the column must be a multiple of the bucket size (max " + MAX_ROWS + " buckets): "
+                            + "column=" + columnSize + " bucket=" + bucketSize);
+        }
 
         return new SubSecondConfig(
                 ConfigUtils.resolveRecordings(recording, recordingDir),
@@ -81,6 +125,9 @@ public final class SubSecondConfigBuilder {
                 profilingStart,
                 generatingStart,
                 duration,
-                collectWeight);
+                collectWeight,
+                eventIndex,
+                bucketSize,
+                columnSize);
     }
 }
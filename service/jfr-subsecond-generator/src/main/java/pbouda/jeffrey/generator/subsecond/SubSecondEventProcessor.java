@@ -19,27 +19,28 @@
 package pbouda.jeffrey.generator.subsecond;
 
 import jdk.jfr.consumer.RecordedEvent;
+import pbouda.jeffrey.common.AbsoluteTimeRange;
 import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.jfrparser.jdk.PrimitiveEventProcessor;
 import pbouda.jeffrey.jfrparser.jdk.SingleEventProcessor;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedEvents;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoField;
-import java.util.ArrayList;
-import java.util.List;
 
-public class SubSecondEventProcessor extends SingleEventProcessor<SingleResult> {
+public class SubSecondEventProcessor extends SingleEventProcessor<HeatmapMatrix>
+        implements PrimitiveEventProcessor<HeatmapMatrix> {
 
     private final long startTimeMillis;
-    private final Instant endTime;
-    private final List<SecondColumn> columns = new ArrayList<>();
+    private final long endTimeNanos;
+    private final HeatmapMatrix matrix;
     private final boolean collectWeight;
-
-    private long maxvalue = 0;
+    private final AbsoluteTimeRange timeRange;
 
     public SubSecondEventProcessor(SubSecondConfig config) {
         this(config.eventType(), config.profilingStartTime(), config.generatingStart(),
-                config.duration(), config.collectWeight());
+                config.duration(), config.collectWeight(), config.bucketSize(), config.columnSize());
     }
 
     public SubSecondEventProcessor(
@@ -47,68 +48,88 @@ public class SubSecondEventProcessor extends SingleEventProcessor<SingleResult>
             Instant profilingStart,
             Duration generatingStart,
             Duration duration,
-            boolean collectWeight) {
+            boolean collectWeight,
+            Duration bucketSize,
+            Duration columnSize) {
 
         super(eventType);
         this.collectWeight = collectWeight;
+        this.matrix = new HeatmapMatrix(
+                Math.toIntExact(bucketSize.toMillis()), Math.toIntExact(columnSize.toMillis()));
 
         Instant startTime = profilingStart.plus(generatingStart);
         this.startTimeMillis = startTime.toEpochMilli();
 
         if (duration != null && !duration.isZero()) {
-            this.endTime = startTime.plus(duration);
+            this.endTimeNanos = EventIndex.toEpochNanos(startTime.plus(duration));
+            this.timeRange = new AbsoluteTimeRange(startTime, startTime.plus(duration));
         } else {
-            this.endTime = null;
+            this.endTimeNanos = Long.MAX_VALUE;
+            this.timeRange = AbsoluteTimeRange.justStart(startTime);
         }
     }
 
     @Override
-    public Result onEvent(RecordedEvent event) {
-        Instant eventTime = event.getStartTime();
-
-        // This event is after the end of the processing, skip it.
-        // We cannot finish the whole processing, the events are not sorted by time.
-        // TODO: More sophisticated parsing using chunks? Skip when the chunk was created after the end-time?
-        if (endTime != null && eventTime.isAfter(endTime)) {
-            return Result.CONTINUE;
-        }
-
-        Instant relative = eventTime.minusMillis(startTimeMillis);
-        int relativeSeconds = (int) relative.getEpochSecond();
-        int millisInSecond = relative.get(ChronoField.MILLI_OF_SECOND);
-
-        // Value for the new second/column arrived, then create a new column for it.
-        int expectedColumns = relativeSeconds + 1;
-        if (expectedColumns > columns.size()) {
-            appendMoreColumns(expectedColumns);
-        }
+    public AbsoluteTimeRange timeRange() {
+        return timeRange;
+    }
 
+    @Override
+    public Result onEvent(RecordedEvent event) {
         long value = 1;
         if (collectWeight) {
             value = eventType()
                     .weightExtractor()
-                    .apply(event);
+                    .applyAsLong(event);
         }
 
-        // Increment a value in the bucket and return a new value to track the
-        // `maxvalue` from all buckets and columns.
-        long newValue = columns.get(relativeSeconds).increment(millisInSecond, value);
-        if (newValue > maxvalue) {
-            maxvalue = newValue;
-        }
+        onSample(EventIndex.toEpochNanos(event.getStartTime()), value);
+        return Result.CONTINUE;
+    }
 
+    @Override
+    public Result onEvent(Type eventType, long startTime, long weight, long stackTraceId, long threadId) {
+        onSample(startTime, collectWeight ? weight : 1);
         return Result.CONTINUE;
     }
 
-    private void appendMoreColumns(long newSize) {
-        long columnsToAdd = newSize - columns.size();
-        for (int i = 0; i < columnsToAdd; i++) {
-            columns.add(new SecondColumn());
+    /**
+     * Processes a single sample without {@link RecordedEvent}, e.g. a row read from {@link EventIndex}.
+     *
+     * @param epochNanos start time of the sample in epoch nanos.
+     * @param value      value of the sample, {@code 1} or its weight.
+     */
+    public void onSample(long epochNanos, long value) {
+        // This event is after the end of the processing, skip it.
+        // We cannot finish the whole processing, the events are not sorted by time.
+        // The whole chunks outside the time range are skipped using their headers, see timeRange().
+        if (epochNanos > endTimeNanos) {
+            return;
+        }
+
+        // The chunk overlapping the start of the processing contains also the events before the start.
+        long relativeMillis = Math.floorDiv(epochNanos, 1_000_000L) - startTimeMillis;
+        if (relativeMillis < 0) {
+            return;
+        }
+
+        matrix.increment(relativeMillis, value);
+    }
+
+    /**
+     * Feeds the rows of the index in the time range of this processor.
+     *
+     * @param events indexed events of the processed type.
+     */
+    public void onIndexedEvents(IndexedEvents events) {
+        int end = events.upperBound(endTimeNanos);
+        for (int row = events.lowerBound(startTimeMillis * 1_000_000L); row < end; row++) {
+            onSample(events.timestamp(row), collectWeight ? events.weight(row) : 1);
         }
     }
 
     @Override
-    public SingleResult get() {
-        return new SingleResult(maxvalue, columns);
+    public HeatmapMatrix get() {
+        return matrix;
     }
 }
@@ -18,7 +18,29 @@
 
 package pbouda.jeffrey.generator.subsecond;
 
-import com.fasterxml.jackson.databind.node.ArrayNode;
-
-public record SubSecondModel(long maxvalue, ArrayNode series) {
+/**
+ * Data of the heatmap, all times and sizes are in millis.
+ *
+ * @param maxvalue      maximum value of all buckets.
+ * @param rows          number of the buckets in a single column.
+ * @param columns       number of the columns from the start of the time window to the last column with a value.
+ * @param encoding      encoding of the values, see {@link HeatmapEncoding}.
+ * @param data          encoded values of all rows and columns (serialized as base64).
+ * @param bucketSize    size of the single bucket (row).
+ * @param columnSize    size of the single column.
+ * @param startTime     start of the first column relative to the start of the profile.
+ * @param duration      duration of the generated time window, {@code 0} if the window is not limited.
+ * @param totalDuration duration of the whole profile, the time windows can be paged up to this duration.
+ */
+public record SubSecondModel(
+        long maxvalue,
+        int rows,
+        int columns,
+        String encoding,
+        byte[] data,
+        long bucketSize,
+        long columnSize,
+        long startTime,
+        long duration,
+        long totalDuration) {
 }
@@ -22,16 +22,74 @@ import com.fasterxml.jackson.databind.JsonNode;
 import pbouda.jeffrey.generator.subsecond.SubSecondConfig;
 import pbouda.jeffrey.generator.subsecond.SubSecondEventProcessor;
 import pbouda.jeffrey.generator.subsecond.collector.SubSecondCollector;
+import pbouda.jeffrey.jfrparser.jdk.ChunkHeader;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexCache;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedEvents;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
 
 public class SubSecondGeneratorImpl implements SubSecondGenerator {
 
+    private final DecompressedRecordingCache recordingCache;
+    private final EventIndexCache eventIndexCache;
+
+    public SubSecondGeneratorImpl(DecompressedRecordingCache recordingCache) {
+        this(recordingCache, null);
+    }
+
+    /**
+     * @param recordingCache  local uncompressed copies of the compressed recordings and the views.
+     * @param eventIndexCache opened indexes of the profiles, {@code null} if the index is opened for every
+     *                        generated heatmap.
+     */
+    public SubSecondGeneratorImpl(DecompressedRecordingCache recordingCache, EventIndexCache eventIndexCache) {
+        this.recordingCache = recordingCache;
+        this.eventIndexCache = eventIndexCache;
+    }
+
     @Override
     public JsonNode generate(SubSecondConfig config) {
+        SubSecondCollector collector = new SubSecondCollector(config, totalDuration(config));
+
+        Optional<EventIndex> eventIndex = eventIndexCache != null
+                ? eventIndexCache.get(config.eventIndex())
+                : EventIndex.openIfExists(config.eventIndex());
+
+        if (eventIndex.isPresent()) {
+            SubSecondEventProcessor processor = new SubSecondEventProcessor(config);
+            for (IndexedEvents segment : eventIndex.get().events(config.eventType().code())) {
+                processor.onIndexedEvents(segment);
+            }
+
+            return collector.finisher(processor.get());
+        }
+
         return RecordingIterators.automaticAndCollect(
                 config.recordings(),
                 () -> new SubSecondEventProcessor(config),
-                new SubSecondCollector()
+                collector,
+                recordingCache
         );
     }
+
+    /**
+     * Duration from the start of the profile to the end of the latest chunk, only the headers of the chunks
+     * are read.
+     */
+    private Duration totalDuration(SubSecondConfig config) {
+        long endNanos = 0;
+        for (Path recording : config.recordings()) {
+            for (ChunkHeader chunk : recordingCache.chunkHeaders(recording)) {
+                endNanos = Math.max(endNanos, chunk.endNanos());
+            }
+        }
+
+        long startNanos = EventIndex.toEpochNanos(config.profilingStartTime());
+        return Duration.ofNanos(Math.max(0, endNanos - startNanos));
+    }
 }
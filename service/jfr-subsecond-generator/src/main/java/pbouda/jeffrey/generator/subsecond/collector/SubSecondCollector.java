@@ -19,52 +19,54 @@
 package pbouda.jeffrey.generator.subsecond.collector;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import pbouda.jeffrey.common.Collector;
-import pbouda.jeffrey.generator.subsecond.SecondColumn;
-import pbouda.jeffrey.generator.subsecond.SingleResult;
+import pbouda.jeffrey.common.ParallelCollector;
+import pbouda.jeffrey.common.Schedulers;
+import pbouda.jeffrey.generator.subsecond.HeatmapMatrix;
+import pbouda.jeffrey.generator.subsecond.SubSecondConfig;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 
-public class SubSecondCollector implements Collector<SingleResult, JsonNode> {
+public class SubSecondCollector implements ParallelCollector<HeatmapMatrix, JsonNode> {
 
-    private long maxValue;
+    private final SubSecondConfig config;
+    private final Duration totalDuration;
 
-    private static long merge(List<SecondColumn> left, List<SecondColumn> right) {
-        int size = Math.max(left.size(), right.size());
-
-        long maxValue = -1;
-        for (int i = 0; i < size; i++) {
-            if (i < left.size() && i < right.size()) {
-                // Both collections have the value for the given second
-                left.get(i).merge(right.get(i));
-            } else if (i < right.size()) {
-                // Only the right collection has the value for the given second,
-                // just add the given column to the left collection
-                left.add(i, right.get(i));
-            }
-
-            maxValue = Math.max(maxValue, left.get(i).getMaxValue());
-        }
-
-        return maxValue;
+    /**
+     * @param config        configuration of the generated heatmap.
+     * @param totalDuration duration of the whole profile.
+     */
+    public SubSecondCollector(SubSecondConfig config, Duration totalDuration) {
+        this.config = config;
+        this.totalDuration = totalDuration;
     }
 
     @Override
-    public Supplier<SingleResult> empty() {
-        return () -> new SingleResult(-1, new ArrayList<>());
+    public Supplier<HeatmapMatrix> empty() {
+        return () -> new HeatmapMatrix(
+                Math.toIntExact(config.bucketSize().toMillis()), Math.toIntExact(config.columnSize().toMillis()));
     }
 
     @Override
-    public SingleResult combiner(SingleResult left, SingleResult right) {
-        long maxValue = merge(left.columns(), right.columns());
-        this.maxValue = Math.max(this.maxValue, maxValue);
+    public HeatmapMatrix combiner(HeatmapMatrix left, HeatmapMatrix right) {
+        left.merge(right);
         return left;
     }
 
     @Override
-    public JsonNode finisher(SingleResult combined) {
-        return SubSecondCollectorUtils.finisher(combined, maxValue);
+    public HeatmapMatrix combineAll(List<HeatmapMatrix> partials) {
+        if (partials.size() == 1) {
+            return partials.getFirst();
+        }
+
+        ForkJoinPool pool = Schedulers.forkJoin();
+        return HeatmapMatrix.mergeAll(partials, pool, pool.getParallelism());
+    }
+
+    @Override
+    public JsonNode finisher(HeatmapMatrix combined) {
+        return SubSecondCollectorUtils.finisher(combined, config, totalDuration);
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.subsecond;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The decoder mirrors {@code HeatmapDecoder.js} of the frontend, the values are decoded row by row.
+ */
+class HeatmapEncodingTest {
+
+    private static final int BUCKET_MILLIS = 20;
+    private static final int COLUMN_MILLIS = 1000;
+    private static final int ROWS = COLUMN_MILLIS / BUCKET_MILLIS;
+
+    @Test
+    public void emptyMatrix() {
+        HeatmapMatrix matrix = new HeatmapMatrix(BUCKET_MILLIS, COLUMN_MILLIS);
+
+        assertArrayEquals(new byte[0], HeatmapEncoding.encode(matrix));
+    }
+
+    @Test
+    public void allZeroValues() {
+        HeatmapMatrix matrix = new HeatmapMatrix(BUCKET_MILLIS, COLUMN_MILLIS);
+        matrix.increment(2 * COLUMN_MILLIS + 10, 0);
+
+        byte[] encoded = HeatmapEncoding.encode(matrix);
+
+        // A single block of 150 zeros (two varint bytes) and no non-zero values
+        assertArrayEquals(new byte[]{(byte) 0x96, 0x01, 0x00}, encoded);
+        assertArrayEquals(new long[3 * ROWS], decode(encoded, matrix));
+    }
+
+    @Test
+    public void allNonZeroValues() {
+        HeatmapMatrix matrix = new HeatmapMatrix(BUCKET_MILLIS, COLUMN_MILLIS);
+        for (int millis = 0; millis < 2 * COLUMN_MILLIS; millis += BUCKET_MILLIS) {
+            matrix.increment(millis, 1 + millis / BUCKET_MILLIS % 100);
+        }
+
+        byte[] encoded = HeatmapEncoding.encode(matrix);
+
+        // No zeros, 100 non-zero values fitting into a single byte
+        assertEquals(2 + 100, encoded.length);
+        assertEquals(0, encoded[0]);
+        assertEquals(100, encoded[1]);
+        assertArrayEquals(expected(matrix), decode(encoded, matrix));
+    }
+
+    @Test
+    public void multiByteVarints() {
+        HeatmapMatrix matrix = new HeatmapMatrix(BUCKET_MILLIS, COLUMN_MILLIS);
+        matrix.increment(0, 127);
+        matrix.increment(BUCKET_MILLIS, 128);
+        matrix.increment(2 * BUCKET_MILLIS, 300);
+        matrix.increment(COLUMN_MILLIS + 5 * BUCKET_MILLIS, Long.MAX_VALUE);
+        matrix.increment(3 * COLUMN_MILLIS + 40 * BUCKET_MILLIS, 1L << 35);
+
+        byte[] encoded = HeatmapEncoding.encode(matrix);
+
+        // Row 0: [0 zeros] [1 value] 127 (one byte)
+        assertEquals(0x00, encoded[0]);
+        assertEquals(0x01, encoded[1]);
+        assertEquals(0x7F, encoded[2]);
+        // [3 zeros] [1 value] 128 (two bytes)
+        assertEquals(0x03, encoded[3]);
+        assertEquals(0x01, encoded[4]);
+        assertEquals((byte) 0x80, encoded[5]);
+        assertEquals(0x01, encoded[6]);
+        assertArrayEquals(expected(matrix), decode(encoded, matrix));
+    }
+
+    @Test
+    public void alternatingValues() {
+        HeatmapMatrix matrix = new HeatmapMatrix(BUCKET_MILLIS, COLUMN_MILLIS);
+        for (int millis = 0; millis < 5 * COLUMN_MILLIS; millis += 3 * BUCKET_MILLIS) {
+            matrix.increment(millis, millis);
+        }
+
+        byte[] encoded = HeatmapEncoding.encode(matrix);
+
+        assertArrayEquals(expected(matrix), decode(encoded, matrix));
+    }
+
+    private static long[] expected(HeatmapMatrix matrix) {
+        int columns = matrix.columns();
+        long[] values = new long[matrix.rows() * columns];
+        for (int row = 0; row < matrix.rows(); row++) {
+            for (int column = 0; column < columns; column++) {
+                values[row * columns + column] = matrix.get(column, row);
+            }
+        }
+        return values;
+    }
+
+    private static long[] decode(byte[] encoded, HeatmapMatrix matrix) {
+        long[] values = new long[matrix.rows() * matrix.columns()];
+        int[] position = {0};
+        int cell = 0;
+        while (cell < values.length) {
+            cell += (int) readVarint(encoded, position);
+            long count = readVarint(encoded, position);
+            for (long i = 0; i < count; i++) {
+                values[cell++] = readVarint(encoded, position);
+            }
+        }
+        assertEquals(encoded.length, position[0], "All bytes must be consumed");
+        return values;
+    }
+
+    private static long readVarint(byte[] encoded, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = encoded[position[0]++];
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.timeseries;
+
+/**
+ * Reduces the number of points of the timeseries when even the coarsest resolution has more points than requested.
+ */
+public enum Downsampling {
+
+    /**
+     * Largest-Triangle-Three-Buckets, selects the points keeping the visual shape of the series, the selected
+     * points are at different times in different series.
+     */
+    LTTB,
+
+    /**
+     * Minimum and maximum of every group of the buckets, the points are at the same times in all series
+     * (e.g. stacked series), the peaks are never lost.
+     */
+    MIN_MAX
+}
@@ -19,81 +19,80 @@
 package pbouda.jeffrey.generator.timeseries;
 
 import jdk.jfr.consumer.RecordedEvent;
-import jdk.jfr.consumer.RecordedFrame;
-import jdk.jfr.consumer.RecordedMethod;
-import jdk.jfr.consumer.RecordedStackTrace;
-import org.eclipse.collections.api.map.primitive.MutableObjectBooleanMap;
-import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
-import org.eclipse.collections.impl.map.mutable.primitive.ObjectBooleanHashMap;
 import pbouda.jeffrey.common.AbsoluteTimeRange;
+import pbouda.jeffrey.common.TimeBuckets;
 import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.jfrparser.jdk.ChunkSymbols;
+import pbouda.jeffrey.jfrparser.jdk.SymbolTable;
+import pbouda.jeffrey.jfrparser.jdk.search.MultiPatternMatcher;
+import pbouda.jeffrey.jfrparser.jdk.search.StackSearchIndex;
 
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
 
-public class SearchableTimeseriesEventProcessor extends TimeseriesEventProcessor<SearchMaps> {
+/**
+ * Splits the events into the series of the search patterns in a single pass, the event matching multiple
+ * patterns is added to the series of all of them. The events not matching any pattern are in {@code values}.
+ */
+public class SearchableTimeseriesEventProcessor extends TimeseriesEventProcessor<SearchBuckets> {
 
-    private final LongLongHashMap values = new LongLongHashMap();
-    private final LongLongHashMap matchedValues = new LongLongHashMap();
-    private final Predicate<String> searchPredicate;
-    private final MutableObjectBooleanMap<RecordedStackTrace> processed = new ObjectBooleanHashMap<>();
+    private final TimeBuckets values = new TimeBuckets();
+    private final TimeBuckets[] matchedValues;
+    private final StackSearchIndex searchIndex;
 
     public SearchableTimeseriesEventProcessor(
             Type eventType,
-            Function<RecordedEvent, Long> valueExtractor,
+            ToLongFunction<RecordedEvent> valueExtractor,
+            boolean collectWeight,
             AbsoluteTimeRange absoluteTimeRange,
             String searchPattern) {
 
-        this(eventType, valueExtractor, absoluteTimeRange, searchPattern, 0);
+        this(eventType, valueExtractor, collectWeight, absoluteTimeRange,
+                MultiPatternMatcher.compile(List.of(searchPattern)), 0);
     }
 
     public SearchableTimeseriesEventProcessor(
             Type eventType,
-            Function<RecordedEvent, Long> valueExtractor,
+            ToLongFunction<RecordedEvent> valueExtractor,
+            boolean collectWeight,
             AbsoluteTimeRange absoluteTimeRange,
-            String searchPattern,
-            long timeShift) {
+            MultiPatternMatcher matcher) {
 
-        super(eventType, valueExtractor, absoluteTimeRange, timeShift);
-        this.searchPredicate = Pattern.compile(".*" + searchPattern + ".*").asMatchPredicate();
+        this(eventType, valueExtractor, collectWeight, absoluteTimeRange, matcher, 0);
     }
 
-    @Override
-    protected void incrementCounter(RecordedEvent event, long second) {
-        if (matchesStacktrace(event.getStackTrace(), searchPredicate)) {
-            matchedValues.addToValue(second, valueExtractor.apply(event));
-            values.getIfAbsentPut(second, 0);
-        } else {
-            values.addToValue(second, valueExtractor.apply(event));
-            matchedValues.getIfAbsentPut(second, 0);
-        }
-    }
+    public SearchableTimeseriesEventProcessor(
+            Type eventType,
+            ToLongFunction<RecordedEvent> valueExtractor,
+            boolean collectWeight,
+            AbsoluteTimeRange absoluteTimeRange,
+            MultiPatternMatcher matcher,
+            long timeShift) {
 
-    private boolean matchesStacktrace(RecordedStackTrace stacktrace, Predicate<String> searchPredicate) {
-        if (stacktrace != null) {
-            return processed.getIfAbsentPut(stacktrace, () -> {
-                for (RecordedFrame frame : stacktrace.getFrames()) {
-                    if (matchesMethod(frame.getMethod(), searchPredicate)) {
-                        return true;
-                    }
-                }
-                return false;
-            });
+        super(eventType, valueExtractor, collectWeight, absoluteTimeRange, timeShift);
+        this.searchIndex = new StackSearchIndex(matcher, new ChunkSymbols(new SymbolTable()));
+        this.matchedValues = new TimeBuckets[matcher.size()];
+        for (int i = 0; i < matchedValues.length; i++) {
+            matchedValues[i] = new TimeBuckets();
         }
-        return false;
     }
 
-    private static boolean matchesMethod(RecordedMethod method, Predicate<String> searchPredicate) {
-        if (method.getType() != null) {
-            return searchPredicate.test(method.getType().getName() + "#" + method.getName());
+    @Override
+    protected void incrementCounter(RecordedEvent event, long millis) {
+        long value = valueExtractor.applyAsLong(event);
+        long matched = searchIndex.match(event.getStackTrace());
+        if (matched == 0) {
+            values.add(millis, value);
         } else {
-            return searchPredicate.test(method.getName());
+            for (long remaining = matched; remaining != 0; remaining &= remaining - 1) {
+                matchedValues[Long.numberOfTrailingZeros(remaining)].add(millis, value);
+            }
         }
     }
 
     @Override
-    public SearchMaps get() {
-        return new SearchMaps(values, matchedValues);
+    public SearchBuckets get() {
+        return new SearchBuckets(values, new ArrayList<>(List.of(matchedValues)));
     }
 }
@@ -19,30 +19,75 @@
 package pbouda.jeffrey.generator.timeseries;
 
 import jdk.jfr.consumer.RecordedEvent;
-import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
 import pbouda.jeffrey.common.AbsoluteTimeRange;
+import pbouda.jeffrey.common.TimeBuckets;
 import pbouda.jeffrey.common.Type;
+import pbouda.jeffrey.jfrparser.jdk.PrimitiveEventProcessor;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedEvents;
 
-import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
-public class SimpleTimeseriesEventProcessor extends TimeseriesEventProcessor<LongLongHashMap> {
+public class SimpleTimeseriesEventProcessor extends TimeseriesEventProcessor<TimeBuckets>
+        implements PrimitiveEventProcessor<TimeBuckets> {
 
-    private final LongLongHashMap values = new LongLongHashMap();
+    private final TimeBuckets values = new TimeBuckets();
 
-    public SimpleTimeseriesEventProcessor(Type eventType, Function<RecordedEvent, Long> valueExtractor, AbsoluteTimeRange timeRange) {
-        this(eventType, valueExtractor, timeRange, 0);
+    public SimpleTimeseriesEventProcessor(
+            Type eventType,
+            ToLongFunction<RecordedEvent> valueExtractor,
+            boolean collectWeight,
+            AbsoluteTimeRange timeRange) {
+
+        this(eventType, valueExtractor, collectWeight, timeRange, 0);
     }
 
-    public SimpleTimeseriesEventProcessor(Type eventType, Function<RecordedEvent, Long> valueExtractor, AbsoluteTimeRange timeRange, long timeShift) {
-        super(eventType, valueExtractor, timeRange, timeShift);
+    public SimpleTimeseriesEventProcessor(
+            Type eventType,
+            ToLongFunction<RecordedEvent> valueExtractor,
+            boolean collectWeight,
+            AbsoluteTimeRange timeRange,
+            long timeShift) {
+
+        super(eventType, valueExtractor, collectWeight, timeRange, timeShift);
     }
 
-    protected void incrementCounter(RecordedEvent event, long second) {
-        values.addToValue(second, valueExtractor.apply(event));
+    protected void incrementCounter(RecordedEvent event, long millis) {
+        values.add(millis, valueExtractor.applyAsLong(event));
+    }
+
+    @Override
+    public Result onEvent(Type eventType, long startTime, long weight, long stackTraceId, long threadId) {
+        // TimeShift to correlate 2 timeseries and different start-times
+        long eventTime = startTime + timeShift * 1_000_000L;
+        if (eventTime < timeRangeStartNanos || eventTime > timeRangeEndNanos) {
+            return Result.CONTINUE;
+        }
+
+        values.add(Math.floorDiv(eventTime, 1_000_000L), collectWeight ? weight : 1);
+        return Result.CONTINUE;
+    }
+
+    /**
+     * Feeds the rows of the index in the time range of this processor, the rows are already sorted by time,
+     * therefore, only the rows inside the time range are read.
+     *
+     * @param events indexed events of the processed type.
+     */
+    public void onIndexedEvents(IndexedEvents events) {
+        // The time-shift moves the event's time, the range is moved in the opposite direction instead
+        long shiftNanos = timeShift * 1_000_000L;
+        long start = timeRangeStartNanos == Long.MIN_VALUE ? timeRangeStartNanos : timeRangeStartNanos - shiftNanos;
+        long end = timeRangeEndNanos == Long.MAX_VALUE ? timeRangeEndNanos : timeRangeEndNanos - shiftNanos;
+
+        int endRow = events.upperBound(end);
+        for (int row = events.lowerBound(start); row < endRow; row++) {
+            long eventMillis = Math.floorDiv(events.timestamp(row), 1_000_000L) + timeShift;
+            values.add(eventMillis, collectWeight ? events.weight(row) : 1);
+        }
     }
 
     @Override
-    public LongLongHashMap get() {
+    public TimeBuckets get() {
         return values;
     }
 }
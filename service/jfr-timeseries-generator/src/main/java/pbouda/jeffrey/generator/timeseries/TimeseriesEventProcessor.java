@@ -22,21 +22,29 @@ import jdk.jfr.consumer.RecordedEvent;
 import pbouda.jeffrey.common.AbsoluteTimeRange;
 import pbouda.jeffrey.common.Type;
 import pbouda.jeffrey.jfrparser.jdk.SingleEventProcessor;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 public abstract class TimeseriesEventProcessor<T> extends SingleEventProcessor<T> {
 
-    private final long timeShift;
-    private final AbsoluteTimeRange timeRange;
+    final long timeShift;
+    final AbsoluteTimeRange timeRange;
 
-    final Function<RecordedEvent, Long> valueExtractor;
+    final ToLongFunction<RecordedEvent> valueExtractor;
+
+    // Time range in epoch nanos for the processing without RecordedEvent (primitive readers, event index)
+    final long timeRangeStartNanos;
+    final long timeRangeEndNanos;
+
+    // The primitive readers provide the same weight as the type's weight extractor
+    final boolean collectWeight;
 
     public TimeseriesEventProcessor(
             Type eventType,
-            Function<RecordedEvent, Long> valueExtractor,
+            ToLongFunction<RecordedEvent> valueExtractor,
+            boolean collectWeight,
             AbsoluteTimeRange timeRange,
             long timeShift) {
 
@@ -44,6 +52,26 @@ public abstract class TimeseriesEventProcessor<T> extends SingleEventProcessor<T
         this.valueExtractor = valueExtractor;
         this.timeShift = timeShift;
         this.timeRange = timeRange;
+        this.timeRangeStartNanos = EventIndex.toEpochNanosSaturated(timeRange.start());
+        this.timeRangeEndNanos = EventIndex.toEpochNanosSaturated(timeRange.end());
+        this.collectWeight = collectWeight;
+    }
+
+    @Override
+    public AbsoluteTimeRange timeRange() {
+        if (timeShift == 0) {
+            return timeRange;
+        }
+
+        // The time-shift moves the event's time, the range of the recording is moved in the opposite direction
+        return new AbsoluteTimeRange(unshift(timeRange.start()), unshift(timeRange.end()));
+    }
+
+    private Instant unshift(Instant instant) {
+        if (instant.equals(Instant.MIN) || instant.equals(Instant.MAX)) {
+            return instant;
+        }
+        return instant.minusMillis(timeShift);
     }
 
     @Override
@@ -57,14 +85,18 @@ public abstract class TimeseriesEventProcessor<T> extends SingleEventProcessor<T
             return Result.CONTINUE;
         }
 
-        long second = eventTime.truncatedTo(ChronoUnit.SECONDS)
-                .toEpochMilli();
-
-        incrementCounter(event, second);
+        incrementCounter(event, eventTime.toEpochMilli());
 
         return Result.CONTINUE;
     }
 
-    protected abstract void incrementCounter(RecordedEvent event, long second);
+    /**
+     * Adds the event to the bucket of the millisecond, the coarser resolutions are built from the millisecond
+     * buckets afterward, see {@link TimeseriesPyramid}.
+     *
+     * @param event  event to be added.
+     * @param millis time of the event in epoch millis.
+     */
+    protected abstract void incrementCounter(RecordedEvent event, long millis);
 
 }
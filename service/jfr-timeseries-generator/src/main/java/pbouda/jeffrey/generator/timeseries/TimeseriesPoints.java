@@ -0,0 +1,44 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.timeseries;
+
+/**
+ * Points of the timeseries sorted by time.
+ *
+ * @param bucketMillis resolution of the values, every value is a sum of the bucket of this size.
+ * @param times        start of the buckets in epoch millis.
+ * @param values       values of the buckets.
+ */
+public record TimeseriesPoints(long bucketMillis, long[] times, long[] values) {
+
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * The sums of the buckets depend on the selected resolution, the rate keeps the same units
+     * (e.g. samples per second) in all resolutions of the timeseries.
+     *
+     * @param index index of the point.
+     * @return value of the bucket per second.
+     */
+    public long ratePerSecond(int index) {
+        return values[index] * 1000 / bucketMillis;
+    }
+}
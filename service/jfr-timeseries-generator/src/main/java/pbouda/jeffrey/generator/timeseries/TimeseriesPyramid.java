@@ -0,0 +1,319 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Timeseries in multiple resolutions built from the millisecond-level series, every level aggregates
+ * the buckets of the finer level: 1ms, 10ms, 100ms, 1s, 10s. Every bucket holds the sum of the values
+ * and the minimum and maximum of its buckets in the finer level (the missing buckets are zeros).
+ * Only the non-empty buckets are stored.
+ * <p/>
+ * A query for the time range returns the values of the finest level having at most the requested number
+ * of the buckets in the time range, it's just a lookup of the precomputed buckets. The values are never coarser
+ * than 1 second, the longer time ranges are downsampled from the 1-second level (LTTB or min-max using the
+ * precomputed minimums and maximums of the 10-second level).
+ */
+public final class TimeseriesPyramid {
+
+    static final long[] LEVEL_MILLIS = {1, 10, 100, 1_000, 10_000};
+
+    // The coarsest level of the returned values (the original resolution of the timeseries)
+    private static final int MAX_VALUES_LEVEL = 3;
+
+    public static final TimeseriesPyramid EMPTY = build(new long[0], new long[0]);
+
+    private record Level(long width, long[] times, long[] sums, long[] mins, long[] maxs) {
+
+        /**
+         * @return index of the first bucket starting at or after the time.
+         */
+        int lowerBound(long time) {
+            int index = Arrays.binarySearch(times, time);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * @return index of the first bucket starting after the time.
+         */
+        int upperBound(long time) {
+            int index = Arrays.binarySearch(times, time);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+    }
+
+    private final Level[] levels;
+
+    private TimeseriesPyramid(Level[] levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * Builds all levels of the pyramid from the millisecond-level series.
+     *
+     * @param times  sorted distinct times of the series in epoch millis.
+     * @param values values of the series (non-negative).
+     * @return pyramid of the series.
+     */
+    public static TimeseriesPyramid build(long[] times, long[] values) {
+        Level[] levels = new Level[LEVEL_MILLIS.length];
+        levels[0] = new Level(LEVEL_MILLIS[0], times, values, values, values);
+        for (int i = 1; i < LEVEL_MILLIS.length; i++) {
+            levels[i] = aggregate(levels[i - 1], LEVEL_MILLIS[i]);
+        }
+        return new TimeseriesPyramid(levels);
+    }
+
+    private static Level aggregate(Level children, long width) {
+        long childrenInBucket = width / children.width();
+        long[] childTimes = children.times();
+        long[] childSums = children.sums();
+
+        int size = 0;
+        long[] times = new long[childTimes.length];
+        long[] sums = new long[childTimes.length];
+        long[] mins = new long[childTimes.length];
+        long[] maxs = new long[childTimes.length];
+
+        int i = 0;
+        while (i < childTimes.length) {
+            long bucket = Math.floorDiv(childTimes[i], width) * width;
+            long sum = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            int count = 0;
+            for (; i < childTimes.length && childTimes[i] < bucket + width; i++, count++) {
+                sum += childSums[i];
+                min = Math.min(min, childSums[i]);
+                max = Math.max(max, childSums[i]);
+            }
+
+            times[size] = bucket;
+            sums[size] = sum;
+            mins[size] = count < childrenInBucket ? Math.min(min, 0) : min;
+            maxs[size] = count < childrenInBucket ? Math.max(max, 0) : max;
+            size++;
+        }
+
+        return new Level(
+                width,
+                Arrays.copyOf(times, size),
+                Arrays.copyOf(sums, size),
+                Arrays.copyOf(mins, size),
+                Arrays.copyOf(maxs, size));
+    }
+
+    /**
+     * Selects the finest level of the values having at most {@code maxPoints} buckets in the time range,
+     * the level is the same for all pyramids (e.g. to align the buckets of multiple series).
+     *
+     * @param from      start of the time range in epoch millis.
+     * @param to        end of the time range in epoch millis (inclusive).
+     * @param maxPoints maximum number of the buckets.
+     * @return index of the level.
+     */
+    public static int valuesLevel(long from, long to, int maxPoints) {
+        for (int level = 0; level < MAX_VALUES_LEVEL; level++) {
+            long width = LEVEL_MILLIS[level];
+            if (Math.floorDiv(to, width) - Math.floorDiv(from, width) + 1 <= maxPoints) {
+                return level;
+            }
+        }
+        return MAX_VALUES_LEVEL;
+    }
+
+    /**
+     * Returns the values of the time range in the resolution selected by {@link #valuesLevel(long, long, int)}.
+     *
+     * @param from       start of the time range in epoch millis.
+     * @param to         end of the time range in epoch millis (inclusive).
+     * @param resolution maximum number of the points and the downsampling.
+     * @return points of the time range.
+     */
+    public TimeseriesPoints query(long from, long to, TimeseriesResolution resolution) {
+        return query(valuesLevel(from, to, resolution.maxPoints()), from, to, resolution);
+    }
+
+    /**
+     * Returns the values of the given level in the time range, the values are downsampled if there are more
+     * buckets than {@link TimeseriesResolution#maxPoints()}.
+     *
+     * @param level      index of the level of the values.
+     * @param from       start of the time range in epoch millis.
+     * @param to         end of the time range in epoch millis (inclusive).
+     * @param resolution maximum number of the points and the downsampling.
+     * @return points of the time range.
+     */
+    public TimeseriesPoints query(int level, long from, long to, TimeseriesResolution resolution) {
+        Level values = levels[level];
+        int lo = values.lowerBound(Math.floorDiv(from, values.width()) * values.width());
+        int hi = values.upperBound(to);
+
+        if (hi - lo <= resolution.maxPoints()) {
+            return new TimeseriesPoints(
+                    values.width(),
+                    Arrays.copyOfRange(values.times(), lo, hi),
+                    Arrays.copyOfRange(values.sums(), lo, hi));
+        }
+
+        return switch (resolution.downsampling()) {
+            case LTTB -> lttb(values, lo, hi, resolution.maxPoints());
+            case MIN_MAX -> minMax(level, from, to, resolution.maxPoints());
+        };
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets: the first and the last points are kept, the other points are split into
+     * the buckets and the point creating the largest triangle with the previously selected point and the average
+     * of the next bucket is selected from every bucket.
+     */
+    private static TimeseriesPoints lttb(Level values, int lo, int hi, int threshold) {
+        long[] times = values.times();
+        long[] sums = values.sums();
+        long[] outTimes = new long[threshold];
+        long[] outValues = new long[threshold];
+
+        // Relative times keep the precision of the computed areas
+        long base = times[lo];
+        double every = (double) (hi - lo - 2) / (threshold - 2);
+
+        int selected = lo;
+        outTimes[0] = times[lo];
+        outValues[0] = sums[lo];
+        for (int i = 0; i < threshold - 2; i++) {
+            int avgStart = lo + (int) ((i + 1) * every) + 1;
+            int avgEnd = Math.min(lo + (int) ((i + 2) * every) + 1, hi);
+            double avgTime = 0;
+            double avgValue = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgTime += times[j] - base;
+                avgValue += sums[j];
+            }
+            avgTime /= avgEnd - avgStart;
+            avgValue /= avgEnd - avgStart;
+
+            int rangeStart = lo + (int) (i * every) + 1;
+            int rangeEnd = lo + (int) ((i + 1) * every) + 1;
+            double selectedTime = times[selected] - base;
+            double selectedValue = sums[selected];
+
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((selectedTime - avgTime) * (sums[j] - selectedValue)
+                        - (selectedTime - (times[j] - base)) * (avgValue - selectedValue));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+
+            outTimes[i + 1] = times[next];
+            outValues[i + 1] = sums[next];
+            selected = next;
+        }
+        outTimes[threshold - 1] = times[hi - 1];
+        outValues[threshold - 1] = sums[hi - 1];
+
+        return new TimeseriesPoints(values.width(), outTimes, outValues);
+    }
+
+    /**
+     * Every group of the buckets is represented by two points, the minimum at the start of the group and
+     * the maximum in the middle of the group. The minimums and maximums are taken from the next coarser level
+     * (precomputed for the buckets of the values level), the groups are aligned to its buckets.
+     */
+    private TimeseriesPoints minMax(int level, long from, long to, int maxPoints) {
+        Level envelope = levels[Math.min(level + 1, levels.length - 1)];
+        long[] times = envelope.times();
+        long[] mins = level + 1 < levels.length ? envelope.mins() : envelope.sums();
+        long[] maxs = level + 1 < levels.length ? envelope.maxs() : envelope.sums();
+
+        long width = envelope.width();
+        long firstBucket = Math.floorDiv(from, width);
+        long bucketsInGroup = Math.ceilDiv(Math.floorDiv(to, width) - firstBucket + 1, maxPoints / 2);
+        long groupWidth = bucketsInGroup * width;
+        long start = firstBucket * width;
+
+        int lo = envelope.lowerBound(start);
+        int hi = envelope.upperBound(to);
+
+        int size = 0;
+        long[] outTimes = new long[maxPoints];
+        long[] outValues = new long[maxPoints];
+
+        int i = lo;
+        while (i < hi) {
+            long group = (times[i] - start) / groupWidth;
+            long groupEnd = start + (group + 1) * groupWidth;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            int count = 0;
+            for (; i < hi && times[i] < groupEnd; i++, count++) {
+                min = Math.min(min, mins[i]);
+                max = Math.max(max, maxs[i]);
+            }
+            if (count < bucketsInGroup) {
+                min = Math.min(min, 0);
+            }
+
+            long groupStart = groupEnd - groupWidth;
+            outTimes[size] = groupStart;
+            outValues[size] = min;
+            outTimes[size + 1] = groupStart + groupWidth / 2;
+            outValues[size + 1] = max;
+            size += 2;
+        }
+
+        return new TimeseriesPoints(
+                LEVEL_MILLIS[level], Arrays.copyOf(outTimes, size), Arrays.copyOf(outValues, size));
+    }
+
+    public boolean isEmpty() {
+        return levels[0].times().length == 0;
+    }
+
+    /**
+     * @return time of the first value in epoch millis.
+     */
+    public long firstTime() {
+        return levels[0].times()[0];
+    }
+
+    /**
+     * @return time of the last value in epoch millis.
+     */
+    public long lastTime() {
+        long[] times = levels[0].times();
+        return times[times.length - 1];
+    }
+
+    /**
+     * @return approximate size of all levels in bytes.
+     */
+    public long estimatedSize() {
+        // The first level shares the arrays of the sums, minimums and maximums
+        long size = 2L * levels[0].times().length;
+        for (int i = 1; i < levels.length; i++) {
+            size += 4L * levels[i].times().length;
+        }
+        return size * Long.BYTES;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.timeseries;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU cache of the pyramids of the whole recordings shared by all profiles, the timeseries
+ * of any time range and resolution is queried from the cached pyramid without parsing the recordings again.
+ * The size of the cache is limited by the total size of the cached pyramids, the least recently used pyramids
+ * are evicted first.
+ */
+public class TimeseriesPyramidCache {
+
+    private final long maxSize;
+    private final Map<String, TimeseriesPyramid> pyramids = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * @param maxSize maximum total size of the cached pyramids in bytes, {@code 0} disables the cache.
+     */
+    public TimeseriesPyramidCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public synchronized TimeseriesPyramid get(String key) {
+        return pyramids.get(key);
+    }
+
+    public synchronized void put(String key, TimeseriesPyramid pyramid) {
+        if (pyramid.estimatedSize() > maxSize) {
+            return;
+        }
+
+        TimeseriesPyramid previous = pyramids.put(key, pyramid);
+        if (previous != null) {
+            size -= previous.estimatedSize();
+        }
+        size += pyramid.estimatedSize();
+
+        Iterator<TimeseriesPyramid> iterator = pyramids.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().estimatedSize();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.timeseries;
+
+/**
+ * Resolution of the generated timeseries.
+ *
+ * @param maxPoints    maximum number of points of a single series in the requested time range.
+ * @param downsampling downsampling used if the series has more points than {@code maxPoints}
+ *                     even in the coarsest resolution.
+ */
+public record TimeseriesResolution(int maxPoints, Downsampling downsampling) {
+
+    public static final TimeseriesResolution DEFAULT = new TimeseriesResolution(2000, Downsampling.LTTB);
+
+    public TimeseriesResolution {
+        if (maxPoints < 4) {
+            throw new IllegalArgumentException("Timeseries needs at least 4 points: " + maxPoints);
+        }
+    }
+
+    public TimeseriesResolution withDownsampling(Downsampling downsampling) {
+        return new TimeseriesResolution(maxPoints, downsampling);
+    }
+}
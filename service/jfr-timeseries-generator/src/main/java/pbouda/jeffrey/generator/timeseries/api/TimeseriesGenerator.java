@@ -20,6 +20,7 @@ package pbouda.jeffrey.generator.timeseries.api;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import pbouda.jeffrey.common.Config;
+import pbouda.jeffrey.generator.timeseries.TimeseriesResolution;
 
 /**
  * Generate a data-file for a timeseries graph from a selected event from JFR file.
@@ -34,4 +35,15 @@ public interface TimeseriesGenerator {
      * @return timeseries data represented in byte-array format.
      */
     ArrayNode generate(Config config);
+
+    /**
+     * Generates the timeseries of the time range of the configuration with at most
+     * {@link TimeseriesResolution#maxPoints()} points in every series, the finest resolution fitting into
+     * the number of points is selected (from 1 millisecond to 1 second).
+     *
+     * @param config     all information to generate a timeseries representation of the profiling
+     * @param resolution maximum number of the points of the series and the downsampling
+     * @return timeseries data represented in a Json format.
+     */
+    ArrayNode generate(Config config, TimeseriesResolution resolution);
 }
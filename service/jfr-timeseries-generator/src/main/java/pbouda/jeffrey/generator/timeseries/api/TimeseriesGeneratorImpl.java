@@ -22,25 +22,74 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jdk.jfr.consumer.RecordedEvent;
+import pbouda.jeffrey.common.AbsoluteTimeRange;
 import pbouda.jeffrey.common.Config;
 import pbouda.jeffrey.common.Schedulers;
+import pbouda.jeffrey.generator.timeseries.Downsampling;
+import pbouda.jeffrey.generator.timeseries.SearchPyramids;
 import pbouda.jeffrey.generator.timeseries.SearchableTimeseriesEventProcessor;
 import pbouda.jeffrey.generator.timeseries.SimpleTimeseriesEventProcessor;
+import pbouda.jeffrey.generator.timeseries.TimeseriesPoints;
+import pbouda.jeffrey.generator.timeseries.TimeseriesPyramid;
+import pbouda.jeffrey.generator.timeseries.TimeseriesPyramidCache;
+import pbouda.jeffrey.generator.timeseries.TimeseriesResolution;
 import pbouda.jeffrey.generator.timeseries.collector.SearchableTimeseriesCollector;
 import pbouda.jeffrey.generator.timeseries.collector.TimeseriesCollector;
+import pbouda.jeffrey.generator.timeseries.collector.TimeseriesCollectorUtils;
+import pbouda.jeffrey.jfrparser.jdk.DecompressedRecordingCache;
 import pbouda.jeffrey.jfrparser.jdk.RecordingIterators;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndex;
+import pbouda.jeffrey.jfrparser.jdk.index.EventIndexCache;
+import pbouda.jeffrey.jfrparser.jdk.index.IndexedEvents;
+import pbouda.jeffrey.jfrparser.jdk.search.MultiPatternMatcher;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 public class TimeseriesGeneratorImpl implements TimeseriesGenerator {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    private static final Function<RecordedEvent, Long> INCREMENTAL_VALUE_EXTRACTOR = __ -> 1L;
+    private static final ToLongFunction<RecordedEvent> INCREMENTAL_VALUE_EXTRACTOR = __ -> 1L;
+
+    private final DecompressedRecordingCache recordingCache;
+    private final TimeseriesPyramidCache pyramidCache;
+    private final EventIndexCache eventIndexCache;
+
+    public TimeseriesGeneratorImpl(DecompressedRecordingCache recordingCache) {
+        this(recordingCache, null, null);
+    }
+
+    /**
+     * @param recordingCache  local uncompressed copies of the compressed recordings and the views.
+     * @param pyramidCache    cache of the pyramids of the whole primary recordings, {@code null} if the pyramids
+     *                        are built for every generated timeseries.
+     * @param eventIndexCache opened indexes of the profiles, {@code null} if the index is opened for every
+     *                        generated timeseries.
+     */
+    public TimeseriesGeneratorImpl(
+            DecompressedRecordingCache recordingCache,
+            TimeseriesPyramidCache pyramidCache,
+            EventIndexCache eventIndexCache) {
+
+        this.recordingCache = recordingCache;
+        this.pyramidCache = pyramidCache;
+        this.eventIndexCache = eventIndexCache;
+    }
 
     @Override
     public ArrayNode generate(Config config) {
+        return generate(config, TimeseriesResolution.DEFAULT);
+    }
+
+    @Override
+    public ArrayNode generate(Config config, TimeseriesResolution resolution) {
         var valueExtractor = INCREMENTAL_VALUE_EXTRACTOR;
         if (config.collectWeight()) {
             valueExtractor = config.eventType().weightExtractor();
@@ -50,91 +99,197 @@ public class TimeseriesGeneratorImpl implements TimeseriesGenerator {
         }
 
         if (config.type() == Config.Type.PRIMARY) {
-            if (config.searchPattern() == null) {
-                return primaryProcessing(config, valueExtractor);
+            if (config.searchPatterns() == null) {
+                return primaryProcessing(config, valueExtractor, resolution);
             } else {
-                return primaryProcessingWithSearch(config, valueExtractor);
+                return primaryProcessingWithSearch(config, valueExtractor, resolution);
             }
         } else {
-            return differentialProcessing(config, valueExtractor);
+            return differentialProcessing(config, valueExtractor, resolution);
         }
     }
 
-    private static ArrayNode primaryProcessing(Config config, Function<RecordedEvent, Long> valueExtractor) {
-        var primaryProcessor = new SimpleTimeseriesEventProcessor(
-                config.eventType(), valueExtractor, config.primaryTimeRange());
+    private ArrayNode primaryProcessing(
+            Config config, ToLongFunction<RecordedEvent> valueExtractor, TimeseriesResolution resolution) {
 
-        var samples = RecordingIterators.automaticAndCollect(
-                config.primaryRecordings(),
-                () -> primaryProcessor,
-                new TimeseriesCollector());
+        TimeseriesPyramid pyramid;
+        if (pyramidCache == null) {
+            pyramid = primaryPyramid(config, valueExtractor, config.primaryTimeRange());
+        } else {
+            // The whole recording is cached, any time range is then just a query of the pyramid
+            String key = cacheKey(config);
+            pyramid = pyramidCache.get(key);
+            if (pyramid == null) {
+                pyramid = primaryPyramid(config, valueExtractor, AbsoluteTimeRange.UNLIMITED);
+                pyramidCache.put(key, pyramid);
+            }
+        }
 
-        ObjectNode primary = MAPPER.createObjectNode()
-                .put("name", "Samples")
-                .set("data", samples);
+        List<TimeseriesPoints> points = query(List.of(pyramid), config.primaryTimeRange(), resolution);
 
         return MAPPER.createArrayNode()
-                .add(primary);
+                .add(series("Samples", points.getFirst()));
     }
 
-    private static ArrayNode primaryProcessingWithSearch(Config config, Function<RecordedEvent, Long> valueExtractor) {
-        var primaryProcessor = new SearchableTimeseriesEventProcessor(
-                config.eventType(), valueExtractor, config.primaryTimeRange(), config.searchPattern());
+    private TimeseriesPyramid primaryPyramid(
+            Config config, ToLongFunction<RecordedEvent> valueExtractor, AbsoluteTimeRange timeRange) {
+
+        Optional<EventIndex> eventIndex = eventIndexCache != null
+                ? eventIndexCache.get(config.primaryEventIndex())
+                : EventIndex.openIfExists(config.primaryEventIndex());
+
+        if (eventIndex.isPresent()) {
+            var processor = new SimpleTimeseriesEventProcessor(
+                config.eventType(), valueExtractor, config.collectWeight(), timeRange);
+            for (IndexedEvents segment : eventIndex.get().events(config.eventType().code())) {
+                processor.onIndexedEvents(segment);
+            }
+            return new TimeseriesCollector().finisher(processor.get());
+        }
 
-        var result = RecordingIterators.automaticAndCollect(
+        return RecordingIterators.automaticAndCollect(
                 config.primaryRecordings(),
-                () -> primaryProcessor,
-                new SearchableTimeseriesCollector());
+                () -> new SimpleTimeseriesEventProcessor(
+                        config.eventType(), valueExtractor, config.collectWeight(), timeRange),
+                new TimeseriesCollector(),
+                recordingCache);
+    }
 
-        ObjectNode primary = MAPPER.createObjectNode()
-                .put("name", "Samples")
-                .set("data", result.get(0));
+    private ArrayNode primaryProcessingWithSearch(
+            Config config, ToLongFunction<RecordedEvent> valueExtractor, TimeseriesResolution resolution) {
 
-        ObjectNode primaryMatched = MAPPER.createObjectNode()
-                .put("name", "Matched Samples")
-                .set("data", result.get(1));
+        // All patterns are compiled once and matched in a single pass over the recordings
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(config.searchPatterns());
 
-        return MAPPER.createArrayNode()
-                .add(primary)
-                .add(primaryMatched);
+        SearchPyramids result = RecordingIterators.automaticAndCollect(
+                config.primaryRecordings(),
+                () -> new SearchableTimeseriesEventProcessor(
+                        config.eventType(),
+                        valueExtractor,
+                        config.collectWeight(),
+                        config.primaryTimeRange(),
+                        matcher),
+                new SearchableTimeseriesCollector(matcher.size()),
+                recordingCache);
+
+        List<TimeseriesPyramid> pyramids = new ArrayList<>();
+        pyramids.add(result.values());
+        pyramids.addAll(result.matchedValues());
+
+        // All series are stacked, the downsampled points must be at the same times
+        List<TimeseriesPoints> points = query(
+                pyramids, config.primaryTimeRange(), resolution.withDownsampling(Downsampling.MIN_MAX));
+
+        ArrayNode series = MAPPER.createArrayNode()
+                .add(series("Samples", points.getFirst()));
+        if (matcher.size() == 1) {
+            series.add(series("Matched Samples", points.get(1)));
+        } else {
+            for (int i = 0; i < matcher.size(); i++) {
+                series.add(series("Matched: " + matcher.pattern(i), points.get(i + 1)));
+            }
+        }
+        return series;
     }
 
-    private static ArrayNode differentialProcessing(Config config, Function<RecordedEvent, Long> valueExtractor) {
+    private ArrayNode differentialProcessing(
+            Config config, ToLongFunction<RecordedEvent> valueExtractor, TimeseriesResolution resolution) {
+
         // We need to correlate start-time of the primary and secondary profiles
         // Secondary profile will be moved in time to start at the same time as primary profile
         long timeShift = calculateTimeShift(config);
 
-        var primaryProcessor = new SimpleTimeseriesEventProcessor(
-                config.eventType(), valueExtractor, config.primaryTimeRange());
-        var secondaryProcessor = new SimpleTimeseriesEventProcessor(
-                config.eventType(), valueExtractor, config.primaryTimeRange(), timeShift);
-
-        CompletableFuture<ArrayNode> primaryFuture = CompletableFuture.supplyAsync(() -> {
+        CompletableFuture<TimeseriesPyramid> primaryFuture = CompletableFuture.supplyAsync(() -> {
             return RecordingIterators.automaticAndCollect(
                     config.primaryRecordings(),
-                    () -> primaryProcessor,
-                    new TimeseriesCollector());
+                    () -> new SimpleTimeseriesEventProcessor(
+                            config.eventType(), valueExtractor, config.collectWeight(),
+                            config.primaryTimeRange()),
+                    new TimeseriesCollector(),
+                    recordingCache);
         }, Schedulers.parallel());
 
-        CompletableFuture<ArrayNode> secondaryFuture = CompletableFuture.supplyAsync(() -> {
+        CompletableFuture<TimeseriesPyramid> secondaryFuture = CompletableFuture.supplyAsync(() -> {
             return RecordingIterators.automaticAndCollect(
                     config.secondaryRecordings(),
-                    () -> secondaryProcessor,
-                    new TimeseriesCollector());
+                    () -> new SimpleTimeseriesEventProcessor(
+                            config.eventType(), valueExtractor, config.collectWeight(), config.primaryTimeRange(),
+                            timeShift),
+                    new TimeseriesCollector(),
+                    recordingCache);
         }, Schedulers.parallel());
 
         CompletableFuture.allOf(primaryFuture, secondaryFuture).join();
 
-        ObjectNode primary = MAPPER.createObjectNode()
-                .put("name", "Primary Samples")
-                .set("data", primaryFuture.join());
-        ObjectNode secondary = MAPPER.createObjectNode()
-                .put("name", "Secondary Samples")
-                .set("data", secondaryFuture.join());
+        List<TimeseriesPoints> points = query(
+                List.of(primaryFuture.join(), secondaryFuture.join()), config.primaryTimeRange(), resolution);
 
         return MAPPER.createArrayNode()
-                .add(primary)
-                .add(secondary);
+                .add(series("Primary Samples", points.get(0)))
+                .add(series("Secondary Samples", points.get(1)));
+    }
+
+    /**
+     * Queries all pyramids in the same resolution, the time range is narrowed to the values of the pyramids.
+     */
+    private static List<TimeseriesPoints> query(
+            List<TimeseriesPyramid> pyramids, AbsoluteTimeRange timeRange, TimeseriesResolution resolution) {
+
+        long from = Long.MAX_VALUE;
+        long to = Long.MIN_VALUE;
+        for (TimeseriesPyramid pyramid : pyramids) {
+            if (!pyramid.isEmpty()) {
+                from = Math.min(from, pyramid.firstTime());
+                to = Math.max(to, pyramid.lastTime());
+            }
+        }
+        from = Math.max(from, Math.floorDiv(EventIndex.toEpochNanosSaturated(timeRange.start()), 1_000_000L));
+        to = Math.min(to, Math.floorDiv(EventIndex.toEpochNanosSaturated(timeRange.end()), 1_000_000L));
+
+        int level = TimeseriesPyramid.valuesLevel(from, to, resolution.maxPoints());
+        List<TimeseriesPoints> result = new ArrayList<>();
+        for (TimeseriesPyramid pyramid : pyramids) {
+            if (pyramid.isEmpty() || from > to) {
+                result.add(TimeseriesPyramid.EMPTY.query(level, 0, 0, resolution));
+            } else {
+                result.add(pyramid.query(level, from, to, resolution));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The values of the series are per second in all resolutions, the bucket size is only the resolution
+     * of the points.
+     */
+    private static ObjectNode series(String name, TimeseriesPoints points) {
+        ObjectNode series = MAPPER.createObjectNode()
+                .put("name", name)
+                .put("bucketSize", points.bucketMillis());
+        series.set("data", TimeseriesCollectorUtils.buildTimeseries(points));
+        return series;
+    }
+
+    /**
+     * Identifies the content of the recordings, the pyramid of the growing recording (e.g. appended chunks)
+     * is built again.
+     */
+    private static String cacheKey(Config config) {
+        StringBuilder key = new StringBuilder()
+                .append(config.eventType().code())
+                .append(':')
+                .append(config.collectWeight());
+
+        for (Path recording : config.primaryRecordings()) {
+            try {
+                key.append(':').append(recording)
+                        .append('@').append(Files.size(recording))
+                        .append('@').append(Files.getLastModifiedTime(recording).toMillis());
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot read attributes of the recording: " + recording, e);
+            }
+        }
+        return key.toString();
     }
 
     private static long calculateTimeShift(Config config) {
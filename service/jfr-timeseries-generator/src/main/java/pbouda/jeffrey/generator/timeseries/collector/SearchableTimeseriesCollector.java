@@ -18,40 +18,48 @@
 
 package pbouda.jeffrey.generator.timeseries.collector;
 
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
 import pbouda.jeffrey.common.Collector;
-import pbouda.jeffrey.generator.timeseries.SearchMaps;
+import pbouda.jeffrey.common.TimeBuckets;
+import pbouda.jeffrey.generator.timeseries.SearchBuckets;
+import pbouda.jeffrey.generator.timeseries.SearchPyramids;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Supplier;
 
-public class SearchableTimeseriesCollector implements Collector<SearchMaps, ArrayNode> {
+public class SearchableTimeseriesCollector implements Collector<SearchBuckets, SearchPyramids> {
 
-    @Override
-    public Supplier<SearchMaps> empty() {
-        return () -> new SearchMaps(new LongLongHashMap(), new LongLongHashMap());
+    private final int patterns;
+
+    /**
+     * @param patterns number of the search patterns, every pattern has its own matched values.
+     */
+    public SearchableTimeseriesCollector(int patterns) {
+        this.patterns = patterns;
     }
 
     @Override
-    public SearchMaps combiner(SearchMaps left, SearchMaps right) {
-        if (isFirstBigger(left, right)) {
-            right.values().forEachKeyValue(left.values()::addToValue);
-            right.matchedValues().forEachKeyValue(left.matchedValues()::addToValue);
-            return left;
-        } else {
-            left.values().forEachKeyValue(right.values()::addToValue);
-            left.matchedValues().forEachKeyValue(right.matchedValues()::addToValue);
-            return right;
-        }
+    public Supplier<SearchBuckets> empty() {
+        return () -> {
+            List<TimeBuckets> matchedValues = new ArrayList<>(patterns);
+            for (int i = 0; i < patterns; i++) {
+                matchedValues.add(new TimeBuckets());
+            }
+            return new SearchBuckets(new TimeBuckets(), matchedValues);
+        };
     }
 
     @Override
-    public ArrayNode finisher(SearchMaps combined) {
-        return TimeseriesCollectorUtils.buildSearchableTimeseries(combined);
+    public SearchBuckets combiner(SearchBuckets left, SearchBuckets right) {
+        left.values().merge(right.values());
+        for (int i = 0; i < left.matchedValues().size(); i++) {
+            left.matchedValues().get(i).merge(right.matchedValues().get(i));
+        }
+        return left;
     }
 
-    private static boolean isFirstBigger(SearchMaps first, SearchMaps second) {
-        return first.values().size() + first.matchedValues().size()
-                > second.values().size() + second.matchedValues().size();
+    @Override
+    public SearchPyramids finisher(SearchBuckets combined) {
+        return TimeseriesCollectorUtils.buildSearchPyramids(combined.values(), combined.matchedValues());
     }
 }
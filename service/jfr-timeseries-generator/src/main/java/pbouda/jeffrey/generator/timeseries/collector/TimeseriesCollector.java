@@ -18,32 +18,40 @@
 
 package pbouda.jeffrey.generator.timeseries.collector;
 
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
-import pbouda.jeffrey.common.Collector;
+import pbouda.jeffrey.common.ParallelCollector;
+import pbouda.jeffrey.common.Schedulers;
+import pbouda.jeffrey.common.TimeBuckets;
+import pbouda.jeffrey.generator.timeseries.TimeseriesPyramid;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
 
-public class TimeseriesCollector implements Collector<LongLongHashMap, ArrayNode> {
+public class TimeseriesCollector implements ParallelCollector<TimeBuckets, TimeseriesPyramid> {
 
     @Override
-    public Supplier<LongLongHashMap> empty() {
-        return LongLongHashMap::new;
+    public Supplier<TimeBuckets> empty() {
+        return TimeBuckets::new;
     }
 
     @Override
-    public LongLongHashMap combiner(LongLongHashMap partial1, LongLongHashMap partial2) {
-        if (partial1.size() > partial2.size()) {
-            partial2.forEachKeyValue(partial1::addToValue);
-            return partial1;
-        } else {
-            partial1.forEachKeyValue(partial2::addToValue);
-            return partial2;
+    public TimeBuckets combiner(TimeBuckets partial1, TimeBuckets partial2) {
+        partial1.merge(partial2);
+        return partial1;
+    }
+
+    @Override
+    public TimeBuckets combineAll(List<TimeBuckets> partials) {
+        if (partials.size() == 1) {
+            return partials.getFirst();
         }
+
+        ForkJoinPool pool = Schedulers.forkJoin();
+        return TimeBuckets.mergeAll(partials, pool, pool.getParallelism());
     }
 
     @Override
-    public ArrayNode finisher(LongLongHashMap combined) {
-        return TimeseriesCollectorUtils.buildTimeseries(combined);
+    public TimeseriesPyramid finisher(TimeBuckets combined) {
+        return TimeseriesCollectorUtils.buildPyramid(combined);
     }
 }
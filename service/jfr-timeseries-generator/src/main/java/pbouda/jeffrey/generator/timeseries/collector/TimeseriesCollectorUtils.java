@@ -20,33 +20,69 @@ package pbouda.jeffrey.generator.timeseries.collector;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import org.eclipse.collections.api.list.MutableList;
-import org.eclipse.collections.api.tuple.primitive.LongLongPair;
-import org.eclipse.collections.impl.map.mutable.primitive.LongLongHashMap;
-import pbouda.jeffrey.generator.timeseries.SearchMaps;
+import pbouda.jeffrey.common.TimeBuckets;
+import pbouda.jeffrey.generator.timeseries.SearchPyramids;
+import pbouda.jeffrey.generator.timeseries.TimeseriesPoints;
+import pbouda.jeffrey.generator.timeseries.TimeseriesPyramid;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class TimeseriesCollectorUtils {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    public static ArrayNode buildTimeseries(LongLongHashMap values) {
+    public static TimeseriesPyramid buildPyramid(TimeBuckets values) {
+        long[] times = nonZeroBuckets(values);
+        return TimeseriesPyramid.build(times, valuesOf(values, times));
+    }
+
+    /**
+     * All pyramids contain the same buckets (a bucket having a value in at least one of them),
+     * the series are stacked in the graph.
+     */
+    public static SearchPyramids buildSearchPyramids(TimeBuckets values, List<TimeBuckets> matchedValues) {
+        TimeBuckets all = new TimeBuckets();
+        all.merge(values);
+        for (TimeBuckets matched : matchedValues) {
+            all.merge(matched);
+        }
+
+        long[] times = nonZeroBuckets(all);
+        List<TimeseriesPyramid> matchedPyramids = new ArrayList<>(matchedValues.size());
+        for (TimeBuckets matched : matchedValues) {
+            matchedPyramids.add(TimeseriesPyramid.build(times, valuesOf(matched, times)));
+        }
+        return new SearchPyramids(TimeseriesPyramid.build(times, valuesOf(values, times)), matchedPyramids);
+    }
+
+    private static long[] nonZeroBuckets(TimeBuckets buckets) {
+        long[] times = new long[buckets.nonZeroCount()];
+        int[] size = new int[1];
+        buckets.forEachNonZero((bucket, value) -> times[size[0]++] = bucket);
+        return times;
+    }
+
+    private static long[] valuesOf(TimeBuckets buckets, long[] times) {
+        long[] values = new long[times.length];
+        for (int i = 0; i < times.length; i++) {
+            values[i] = buckets.get(times[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Builds the points of the series, the values are always per second (the same as the 1-second buckets)
+     * regardless of the resolution of the points, see {@link TimeseriesPoints#ratePerSecond(int)}.
+     */
+    public static ArrayNode buildTimeseries(TimeseriesPoints points) {
         ArrayNode result = MAPPER.createArrayNode();
-        MutableList<LongLongPair> sorted = values.keyValuesView()
-                .toSortedList(Comparator.comparing(LongLongPair::getOne));
-        for (LongLongPair pair : sorted) {
+        for (int i = 0; i < points.size(); i++) {
             ArrayNode timeSamples = MAPPER.createArrayNode();
-            timeSamples.add(pair.getOne());
-            timeSamples.add(pair.getTwo());
+            timeSamples.add(points.times()[i]);
+            timeSamples.add(points.ratePerSecond(i));
             result.add(timeSamples);
         }
         return result;
     }
-
-    public static ArrayNode buildSearchableTimeseries(SearchMaps maps) {
-        return MAPPER.createArrayNode()
-                .add(buildTimeseries(maps.values()))
-                .add(buildTimeseries(maps.matchedValues()));
-    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.generator.timeseries;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.Test;
+import pbouda.jeffrey.generator.timeseries.collector.TimeseriesCollectorUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The values of the generated series are per second in all levels of the pyramid, zooming in or out
+ * changes only the number of the points, not the units of the values.
+ */
+class TimeseriesUnitsTest {
+
+    // Aligned to the coarsest level
+    private static final long START = 1_700_000_000_000L;
+    private static final long DURATION = 30_000;
+    // One event every millisecond
+    private static final long RATE = 1000;
+
+    private static final TimeseriesPyramid PYRAMID = constantRate();
+
+    @Test
+    public void millisecondLevel() {
+        assertRate(1, START, START + 999, 1000, Downsampling.LTTB);
+    }
+
+    @Test
+    public void tenMillisecondLevel() {
+        assertRate(10, START, START + 9_999, 1000, Downsampling.LTTB);
+    }
+
+    @Test
+    public void hundredMillisecondLevel() {
+        assertRate(100, START, START + DURATION - 1, 300, Downsampling.LTTB);
+    }
+
+    @Test
+    public void secondLevel() {
+        assertRate(1000, START, START + DURATION - 1, 30, Downsampling.LTTB);
+    }
+
+    @Test
+    public void downsampledSecondLevel() {
+        assertRate(1000, START, START + DURATION - 1, 10, Downsampling.LTTB);
+        assertRate(1000, START, START + DURATION - 1, 10, Downsampling.MIN_MAX);
+    }
+
+    @Test
+    public void weightedValues() {
+        long[] times = {START, START + 1, START + 500};
+        long[] values = {100, 200, 700};
+        TimeseriesPyramid pyramid = TimeseriesPyramid.build(times, values);
+
+        // 1000 of the weight in the first second
+        ArrayNode seconds = TimeseriesCollectorUtils.buildTimeseries(
+                pyramid.query(3, START, START + 999, new TimeseriesResolution(100, Downsampling.LTTB)));
+        assertEquals(1, seconds.size());
+        assertEquals(1000, seconds.get(0).get(1).asLong());
+
+        // 100 of the weight in the first millisecond is 100 000 per second
+        ArrayNode millis = TimeseriesCollectorUtils.buildTimeseries(
+                pyramid.query(0, START, START + 999, new TimeseriesResolution(100, Downsampling.LTTB)));
+        assertEquals(100_000, millis.get(0).get(1).asLong());
+        assertEquals(200_000, millis.get(1).get(1).asLong());
+        assertEquals(700_000, millis.get(2).get(1).asLong());
+    }
+
+    private static void assertRate(
+            long bucketMillis, long from, long to, int maxPoints, Downsampling downsampling) {
+
+        TimeseriesPoints points = PYRAMID.query(from, to, new TimeseriesResolution(maxPoints, downsampling));
+        assertEquals(bucketMillis, points.bucketMillis());
+        assertTrue(points.size() > 0 && points.size() <= maxPoints, "points=" + points.size());
+
+        for (JsonNode point : TimeseriesCollectorUtils.buildTimeseries(points)) {
+            assertEquals(RATE, point.get(1).asLong(), "time=" + point.get(0).asLong());
+        }
+    }
+
+    private static TimeseriesPyramid constantRate() {
+        long[] times = new long[(int) DURATION];
+        long[] values = new long[times.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = START + i;
+            values[i] = 1;
+        }
+        return TimeseriesPyramid.build(times, values);
+    }
+}
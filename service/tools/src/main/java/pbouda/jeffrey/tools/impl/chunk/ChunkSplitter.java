@@ -0,0 +1,340 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2024 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.tools.impl.chunk;
+
+import pbouda.jeffrey.common.CompressionUtils;
+import pbouda.jeffrey.common.FileUtils;
+import pbouda.jeffrey.common.Schedulers;
+import pbouda.jeffrey.jfrparser.jdk.ChunkHeader;
+import pbouda.jeffrey.jfrparser.jdk.RecordingView;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Splits the recording into multiple recording files in-process, it's a replacement of
+ * {@code jfr disassemble --max-chunks 1} without starting a new JVM. Only the headers of the chunks are read,
+ * the chunks are copied using {@link FileChannel#transferTo} (without passing the content through the heap)
+ * and all files are written in parallel.
+ * <p/>
+ * Chunks are rebalanced into the files of the target size, the neighbouring small chunks are joined together
+ * to make the parallel parsing of the files more even (a recording file can consist of multiple chunks).
+ * A chunk bigger than the target size is never split, it stays in its own file.
+ * <p/>
+ * The splits can be also written as {@link RecordingView} descriptors referring to the ranges of the original
+ * recording, nothing is copied, and the splits are read directly from the original file.
+ * <p/>
+ * A compressed recording ({@code .jfr.gz}) is decompressed while it's being split, the headers of the chunks
+ * are read from the decompressed stream, and the splits are written one by one (the gzip stream cannot be
+ * read in parallel). The splits can be written compressed ({@code .jfr.gz}), every split is compressed
+ * separately, therefore, the splits are compressed and later decompressed in parallel.
+ */
+public class ChunkSplitter {
+
+    /**
+     * Range of the original recording written into a single file.
+     *
+     * @param offset position of the first chunk of the split in the recording.
+     * @param size   size of all chunks of the split in bytes.
+     * @param chunks number of chunks in the split.
+     */
+    public record Split(long offset, long size, int chunks) {
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long targetSize;
+    private final boolean compressOutput;
+
+    /**
+     * @param targetSize target size of the split files in bytes, {@code 0} to write every chunk into its own file.
+     */
+    public ChunkSplitter(long targetSize) {
+        this(targetSize, false);
+    }
+
+    /**
+     * @param targetSize     target size of the split files in bytes (uncompressed), {@code 0} to write every chunk
+     *                       into its own file.
+     * @param compressOutput the split files are compressed using gzip ({@code recording_00.jfr.gz}).
+     */
+    public ChunkSplitter(long targetSize, boolean compressOutput) {
+        this.targetSize = targetSize;
+        this.compressOutput = compressOutput;
+    }
+
+    /**
+     * Groups the neighbouring chunks of the recording into the splits of the target size.
+     *
+     * @param recording recording file consisting of one or more chunks.
+     * @return splits covering all chunks of the recording in the original order.
+     */
+    public List<Split> plan(Path recording) {
+        List<ChunkHeader> headers = ChunkHeader.read(recording);
+        if (headers.isEmpty()) {
+            throw new RuntimeException("Cannot read chunks of the recording: " + recording);
+        }
+
+        List<Split> splits = new ArrayList<>();
+        long offset = headers.getFirst().offset();
+        long size = 0;
+        int chunks = 0;
+        for (ChunkHeader header : headers) {
+            if (chunks > 0 && size + header.size() > targetSize) {
+                splits.add(new Split(offset, size, chunks));
+                offset = header.offset();
+                size = 0;
+                chunks = 0;
+            }
+            size += header.size();
+            chunks++;
+        }
+        splits.add(new Split(offset, size, chunks));
+        return splits;
+    }
+
+    /**
+     * Splits the recording into the output directory, the files are named after the recording with a sequence
+     * number of the split ({@code recording_00.jfr}, the same as {@code jfr disassemble}), the natural order
+     * of the files follows the order of the chunks. If any split cannot be written, all written splits are removed.
+     *
+     * @param recording recording file consisting of one or more chunks, or a compressed recording.
+     * @param outputDir directory of the split files.
+     * @return paths to the split files.
+     */
+    public List<Path> split(Path recording, Path outputDir) {
+        if (CompressionUtils.isCompressed(recording)) {
+            return splitStream(recording, outputDir);
+        }
+
+        List<Split> splits = plan(recording);
+
+        List<Path> outputs = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try (FileChannel source = FileChannel.open(recording, StandardOpenOption.READ)) {
+            for (int i = 0; i < splits.size(); i++) {
+                Split split = splits.get(i);
+                Path output = outputDir.resolve(splitName(recording, i, splits.size(), outputExtension()));
+                outputs.add(output);
+                Runnable task = compressOutput
+                        ? () -> copyCompressed(source, split, output)
+                        : () -> copy(source, split, output);
+                futures.add(CompletableFuture.runAsync(task, Schedulers.parallel()));
+            }
+
+            // All the tasks are completed (even if some of them failed) when the combined future is completed
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            return outputs;
+        } catch (CompletionException e) {
+            RuntimeException failure = new RuntimeException("Cannot split the recording: " + recording, e.getCause());
+            // The failed tasks remove their own partial files, the files of other splits are removed here
+            for (int i = 0; i < futures.size(); i++) {
+                if (!futures.get(i).isCompletedExceptionally()) {
+                    delete(outputs.get(i), failure);
+                }
+            }
+            throw failure;
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot split the recording: " + recording, e);
+        }
+    }
+
+    /**
+     * Writes the splits of the recording as {@link RecordingView} descriptors into the output directory,
+     * the descriptors are named the same as the split files ({@code recording_00.jfrview}). The recording
+     * must not be moved or removed as long as the descriptors are used.
+     *
+     * @param recording recording file consisting of one or more chunks.
+     * @param outputDir directory of the descriptors.
+     * @return paths to the descriptors.
+     */
+    public List<Path> splitToViews(Path recording, Path outputDir) {
+        if (CompressionUtils.isCompressed(recording)) {
+            throw new IllegalArgumentException("Views of the compressed recording are not supported: " + recording);
+        }
+
+        List<Split> splits = plan(recording);
+
+        List<Path> outputs = new ArrayList<>();
+        for (int i = 0; i < splits.size(); i++) {
+            Split split = splits.get(i);
+            Path output = outputDir.resolve(splitName(recording, i, splits.size(), FileUtils.JFR_VIEW_EXTENSION));
+            new RecordingView(recording, split.offset(), split.size()).write(output);
+            outputs.add(output);
+        }
+        return outputs;
+    }
+
+    /**
+     * Reads the chunks from the decompressed stream of the recording and writes them into the splits sequentially.
+     * The number of splits is not known in advance, the splits are renamed after all of them are written.
+     */
+    private List<Path> splitStream(Path recording, Path outputDir) {
+        List<Path> parts = new ArrayList<>();
+        List<Path> outputs = new ArrayList<>();
+        byte[] header = new byte[ChunkHeader.HEADER_SIZE];
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream input = CompressionUtils.decompressing(recording)) {
+            OutputStream output = null;
+            try {
+                long offset = 0;
+                long size = 0;
+                ChunkHeader chunk;
+                while ((chunk = ChunkHeader.read(input, offset, header)) != null) {
+                    if (output == null || size + chunk.size() > targetSize) {
+                        if (output != null) {
+                            output.close();
+                        }
+                        Path part = outputDir.resolve(FileUtils.recordingName(recording) + "_" + parts.size() + ".part");
+                        parts.add(part);
+                        output = openOutput(part);
+                        size = 0;
+                    }
+
+                    output.write(header);
+                    copy(input, output, chunk.size() - ChunkHeader.HEADER_SIZE, buffer);
+                    size += chunk.size();
+                    offset += chunk.size();
+                }
+            } finally {
+                if (output != null) {
+                    output.close();
+                }
+            }
+
+            if (parts.isEmpty()) {
+                throw new IOException("Recording does not contain any chunks");
+            }
+
+            for (int i = 0; i < parts.size(); i++) {
+                Path target = outputDir.resolve(splitName(recording, i, parts.size(), outputExtension()));
+                outputs.add(Files.move(parts.get(i), target));
+            }
+            return outputs;
+        } catch (IOException e) {
+            deleteAll(parts, e);
+            deleteAll(outputs, e);
+            throw new RuntimeException("Cannot split the recording: " + recording, e);
+        }
+    }
+
+    private static void deleteAll(List<Path> files, Exception failure) {
+        for (Path file : files) {
+            delete(file, failure);
+        }
+    }
+
+    private static void delete(Path file, Exception failure) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private OutputStream openOutput(Path output) throws IOException {
+        OutputStream stream = Files.newOutputStream(output, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return compressOutput
+                ? CompressionUtils.compressingGzip(stream)
+                : new BufferedOutputStream(stream, BUFFER_SIZE);
+    }
+
+    private String outputExtension() {
+        return compressOutput ? FileUtils.JFR_GZIP_EXTENSION : FileUtils.JFR_EXTENSION;
+    }
+
+    private static String splitName(Path recording, int index, int count, String extension) {
+        String name = FileUtils.recordingName(recording);
+        String format = "%s_%0" + String.valueOf(count - 1).length() + "d%s";
+        return String.format(format, name, index, extension);
+    }
+
+    private static void copy(InputStream input, OutputStream output, long length, byte[] buffer) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new IOException("Unexpected end of the chunk: missing_bytes=" + remaining);
+            }
+            output.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static void copyCompressed(FileChannel source, Split split, Path output) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (OutputStream target = CompressionUtils.compressingGzip(
+                Files.newOutputStream(output, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+
+            // Positional reads do not change the position of the shared source channel
+            long position = split.offset();
+            long end = split.offset() + split.size();
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = source.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of the recording: position=" + position);
+                }
+                target.write(buffer.array(), 0, read);
+                position += read;
+            }
+        } catch (FileAlreadyExistsException e) {
+            throw new RuntimeException("Cannot write the split of the recording: " + output, e);
+        } catch (IOException e) {
+            delete(output, e);
+            throw new RuntimeException("Cannot write the split of the recording: " + output, e);
+        }
+    }
+
+    private static void copy(FileChannel source, Split split, Path output) {
+        try (FileChannel target = FileChannel.open(
+                output, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+
+            // Positional transfers do not change the position of the shared source channel
+            long transferred = 0;
+            while (transferred < split.size()) {
+                long position = split.offset() + transferred;
+                long count = source.transferTo(position, split.size() - transferred, target);
+                // Nothing is transferred at the end of the source (e.g. the recording was truncated)
+                if (count <= 0) {
+                    throw new IOException("Unexpected end of the recording: position=" + position);
+                }
+                transferred += count;
+            }
+        } catch (FileAlreadyExistsException e) {
+            throw new RuntimeException("Cannot write the split of the recording: " + output, e);
+        } catch (IOException e) {
+            delete(output, e);
+            throw new RuntimeException("Cannot write the split of the recording: " + output, e);
+        }
+    }
+}